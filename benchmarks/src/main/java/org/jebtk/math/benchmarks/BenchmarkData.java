@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.jebtk.math.matrix.DoubleMatrix;
+
+/**
+ * Generates the random matrices and files the benchmarks run against. A
+ * fixed seed is used so every run of a benchmark sees the same data.
+ */
+public class BenchmarkData {
+
+  /** The seed used for all generated data. */
+  public static final long SEED = 42;
+
+  private BenchmarkData() {
+    // Do nothing
+  }
+
+  /**
+   * Create a matrix of normally distributed values.
+   *
+   * @param rows the rows
+   * @param cols the cols
+   * @return the double matrix
+   */
+  public static DoubleMatrix createMatrix(int rows, int cols) {
+    Random random = new Random(SEED);
+
+    DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(rows, cols);
+
+    for (int i = 0; i < ret.mData.length; ++i) {
+      ret.mData[i] = random.nextGaussian();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Write a delimited expression style file with a header row, one row
+   * annotation column and {@code cols} numerical columns.
+   *
+   * @param rows the rows
+   * @param cols the cols
+   * @param delimiter the delimiter
+   * @return the path of the temporary file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static Path createFile(int rows, int cols, char delimiter)
+      throws IOException {
+    Random random = new Random(SEED);
+
+    Path file = Files.createTempFile("jebtk-bench", ".txt");
+
+    BufferedWriter writer = Files.newBufferedWriter(file,
+        StandardCharsets.UTF_8);
+
+    try {
+      writer.write("Id");
+
+      for (int i = 0; i < cols; ++i) {
+        writer.write(delimiter);
+        writer.write("Sample " + (i + 1));
+      }
+
+      writer.newLine();
+
+      for (int i = 0; i < rows; ++i) {
+        writer.write("gene" + i);
+
+        for (int j = 0; j < cols; ++j) {
+          writer.write(delimiter);
+          writer.write(Double.toString(random.nextGaussian()));
+        }
+
+        writer.newLine();
+      }
+    } finally {
+      writer.close();
+    }
+
+    return file;
+  }
+}
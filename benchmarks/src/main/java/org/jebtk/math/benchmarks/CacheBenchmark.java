@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jebtk.math.statistics.Binomial;
+import org.jebtk.math.statistics.Hypergeometric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the {@link Hypergeometric} and {@link Binomial} caches. The cold
+ * benchmarks use a new instance per invocation so every lookup misses; the
+ * warm benchmarks reuse one instance so every lookup after the first
+ * iteration hits the cache. Each invocation evaluates a gene set style
+ * sweep of {@code mSize} overlaps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CacheBenchmark {
+
+  /** The population size. */
+  private static final int POPULATION = 20000;
+
+  /** The number of population successes, e.g. the size of a gene set. */
+  private static final int SUCCESSES = 500;
+
+  /** The number of overlaps evaluated per invocation. */
+  @Param({ "100", "1000" })
+  public int mSize;
+
+  private Hypergeometric mHypergeometric;
+
+  private Binomial mBinomial;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mHypergeometric = new Hypergeometric();
+    mBinomial = new Binomial();
+  }
+
+  @Benchmark
+  public double hypergeometricCold() {
+    return hypergeometric(new Hypergeometric());
+  }
+
+  @Benchmark
+  public double hypergeometricWarm() {
+    return hypergeometric(mHypergeometric);
+  }
+
+  @Benchmark
+  public double binomialCold() {
+    return binomial(new Binomial());
+  }
+
+  @Benchmark
+  public double binomialWarm() {
+    return binomial(mBinomial);
+  }
+
+  private double hypergeometric(Hypergeometric h) {
+    double ret = 0;
+
+    for (int i = 0; i < mSize; ++i) {
+      ret += h.cdfOneTail(i % SUCCESSES, mSize, SUCCESSES, POPULATION);
+    }
+
+    return ret;
+  }
+
+  private double binomial(Binomial b) {
+    double ret = 0;
+
+    for (int i = 0; i < mSize; ++i) {
+      ret += b.logBinomial(POPULATION, i);
+    }
+
+    return ret;
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jebtk.math.cluster.AverageLinkage;
+import org.jebtk.math.cluster.Cluster;
+import org.jebtk.math.cluster.DistanceMatrix;
+import org.jebtk.math.cluster.EuclideanDistanceMetric;
+import org.jebtk.math.cluster.HierarchicalClustering;
+import org.jebtk.math.cluster.PearsonDistanceMetric;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling of distance matrix construction and average linkage clustering
+ * with the number of rows being clustered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClusterBenchmark {
+
+  /** The number of rows to cluster. */
+  @Param({ "100", "500", "1000" })
+  public int mRows;
+
+  /** The number of values per row. */
+  @Param({ "20" })
+  public int mCols;
+
+  private DoubleMatrix mM;
+
+  private DistanceMatrix mDistance;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mM = BenchmarkData.createMatrix(mRows, mCols);
+
+    mDistance = HierarchicalClustering.createRowDistanceMatrix(mM,
+        new EuclideanDistanceMetric());
+  }
+
+  @Benchmark
+  public DistanceMatrix euclideanDistanceMatrix() {
+    return HierarchicalClustering.createRowDistanceMatrix(mM,
+        new EuclideanDistanceMetric());
+  }
+
+  @Benchmark
+  public DistanceMatrix pearsonDistanceMatrix() {
+    return HierarchicalClustering.createRowDistanceMatrix(mM,
+        new PearsonDistanceMetric());
+  }
+
+  /**
+   * Average linkage on a precomputed distance matrix. The matrix is copied
+   * first since clustering may update it; the copy is O(n^2) against the
+   * O(n^3) linkage so it does not dominate.
+   *
+   * @return the cluster
+   */
+  @Benchmark
+  public Cluster averageLinkage() {
+    return HierarchicalClustering.cluster(new AverageLinkage(),
+        mRows,
+        false,
+        new DistanceMatrix(mDistance));
+  }
+}
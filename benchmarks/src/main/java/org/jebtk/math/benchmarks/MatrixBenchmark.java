@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jebtk.math.matrix.CellFunction;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Square {@link DoubleMatrix} kernels: cell wise apply, transpose and
+ * multiply.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatrixBenchmark {
+
+  /** Adds one to a cell. */
+  private static final CellFunction ADD_ONE = new CellFunction() {
+    @Override
+    public double f(int row, int col, double x, double... y) {
+      return x + 1;
+    }
+  };
+
+  /** The number of rows and columns. */
+  @Param({ "256", "1024", "2048" })
+  public int mSize;
+
+  private DoubleMatrix mM;
+
+  private DoubleMatrix mN;
+
+  /** Updated in place by apply and map so mM is never modified. */
+  private DoubleMatrix mWork;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mM = BenchmarkData.createMatrix(mSize, mSize);
+    mN = BenchmarkData.createMatrix(mSize, mSize);
+    mWork = BenchmarkData.createMatrix(mSize, mSize);
+  }
+
+  /**
+   * Restore the values of the in place benchmarks so they do not drift
+   * across iterations.
+   */
+  @Setup(Level.Iteration)
+  public void reset() {
+    System.arraycopy(mM.mData, 0, mWork.mData, 0, mM.mData.length);
+  }
+
+  @Benchmark
+  public DoubleMatrix apply() {
+    mWork.apply(ADD_ONE);
+
+    return mWork;
+  }
+
+  @Benchmark
+  public DoubleMatrix map() {
+    mWork.map(x -> x + 1);
+
+    return mWork;
+  }
+
+  @Benchmark
+  public Matrix transpose() {
+    return mM.transpose();
+  }
+
+  @Benchmark
+  public Matrix multiply() {
+    return DoubleMatrix.multiply(mM, mN);
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.jebtk.math.matrix.CsvMatrixParser;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.MixedMatrixParser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parser throughput on generated tab and comma delimited files. Besides the
+ * files parsed per second, the {@code bytes} counter reports the bytes
+ * parsed per second; divide by 2^20 for MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+  /**
+   * Counts the bytes read so JMH reports them as a rate.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Bytes {
+    public long bytes;
+  }
+
+  /** The number of data rows in each file. */
+  @Param({ "1000", "10000", "100000" })
+  public int mRows;
+
+  /** The number of numerical columns in each file. */
+  @Param({ "20" })
+  public int mCols;
+
+  private Path mTsv;
+
+  private Path mCsv;
+
+  private long mTsvBytes;
+
+  private long mCsvBytes;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    mTsv = BenchmarkData.createFile(mRows, mCols, '\t');
+    mCsv = BenchmarkData.createFile(mRows, mCols, ',');
+
+    mTsvBytes = Files.size(mTsv);
+    mCsvBytes = Files.size(mCsv);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(mTsv);
+    Files.deleteIfExists(mCsv);
+  }
+
+  @Benchmark
+  public DataFrame mixedMatrixParser(Bytes bytes) throws IOException {
+    DataFrame ret = new MixedMatrixParser(1, 1, "\t").parse(mTsv);
+
+    bytes.bytes += mTsvBytes;
+
+    return ret;
+  }
+
+  @Benchmark
+  public DataFrame csvMatrixParser(Bytes bytes) throws IOException {
+    DataFrame ret = new CsvMatrixParser(true, 1).parse(mCsv);
+
+    bytes.bytes += mCsvBytes;
+
+    return ret;
+  }
+}
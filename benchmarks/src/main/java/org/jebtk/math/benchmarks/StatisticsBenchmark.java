@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.benchmarks;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.jebtk.math.matrix.utils.MatrixOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole matrix normalisation and per row two group tests on an expression
+ * style matrix with half of the columns in each group.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatisticsBenchmark {
+
+  /** The number of rows. */
+  @Param({ "1000", "10000", "50000" })
+  public int mRows;
+
+  /** The number of columns, split evenly between the two groups. */
+  @Param({ "20" })
+  public int mCols;
+
+  private DoubleMatrix mM;
+
+  private DataFrame mFrame;
+
+  private MatrixGroup mG1;
+
+  private MatrixGroup mG2;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mM = BenchmarkData.createMatrix(mRows, mCols);
+
+    mFrame = new DataFrame(mM);
+
+    for (int i = 0; i < mCols; ++i) {
+      mFrame.setColumnName(i, (i < mCols / 2 ? "A" : "B") + (i + 1));
+    }
+
+    mG1 = new MatrixGroup("A", Color.RED).addRegex("A.*");
+    mG2 = new MatrixGroup("B", Color.BLUE).addRegex("B.*");
+  }
+
+  @Benchmark
+  public Matrix quantileNormalize() {
+    return MatrixOperations.quantileNormalize(mM);
+  }
+
+  @Benchmark
+  public Matrix zscore() {
+    return MatrixOperations.zscore(mM);
+  }
+
+  @Benchmark
+  public double[] tTest() {
+    return MatrixOperations.tTest(mFrame, mG1, mG2, true);
+  }
+
+  @Benchmark
+  public double[] mannWhitney() {
+    return MatrixOperations.mannWhitney(mFrame, mG1, mG2);
+  }
+}
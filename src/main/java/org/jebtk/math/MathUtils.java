@@ -16,13 +16,11 @@
 package org.jebtk.math;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import org.jebtk.core.Indexed;
 import org.jebtk.core.Mathematics;
-import org.jebtk.core.sys.SysUtils;
 import org.jebtk.math.test.Condition;
 import org.jebtk.math.test.GreaterThanCondition;
 import org.jebtk.math.test.GreaterThanEqualToCondition;
@@ -375,8 +373,6 @@ public class MathUtils {
       double[] x,
       double[] y) {
 
-    SysUtils.err().println("x", Arrays.toString(x), Arrays.toString(y));
-    
     if (v <= x[0]) {
       return y[0];
     }
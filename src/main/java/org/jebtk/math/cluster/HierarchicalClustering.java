@@ -35,7 +35,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.Timer;
 import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.progress.Progress;
 
 /**
  * The class HierarchicalClustering.
@@ -45,6 +49,35 @@ public class HierarchicalClustering {
   /** The flips. */
   private static final boolean[] FLIPS = { true, false };
 
+  /** The progress phase while building a distance matrix. */
+  public static final String DISTANCE_PHASE = "Distance matrix";
+
+  /** The progress phase while merging clusters. */
+  public static final String CLUSTER_PHASE = "Clustering";
+
+  /** The progress phase while finding the optimal leaf order. */
+  public static final String ORDER_PHASE = "Optimal leaf order";
+
+  /** Times building distance matrices. */
+  private static final Timer DISTANCE_TIMER = Instrumentation.getInstance()
+      .timer("cluster.distance-matrix");
+
+  /** Counts the pairwise distances calculated. */
+  private static final Counter DISTANCES = Instrumentation.getInstance()
+      .counter("cluster.distances");
+
+  /** Times merging clusters. */
+  private static final Timer CLUSTER_TIMER = Instrumentation.getInstance()
+      .timer("cluster.linkage");
+
+  /** Counts the clusters merged. */
+  private static final Counter MERGES = Instrumentation.getInstance()
+      .counter("cluster.merges");
+
+  /** Times finding the optimal leaf order. */
+  private static final Timer ORDER_TIMER = Instrumentation.getInstance()
+      .timer("cluster.optimal-leaf-order");
+
   /**
    * Creates the row distance matrix.
    *
@@ -54,6 +87,20 @@ public class HierarchicalClustering {
    */
   public static DistanceMatrix createRowDistanceMatrix(Matrix m,
       DistanceMetric d) {
+    return createRowDistanceMatrix(m, d, Progress.NONE);
+  }
+
+  /**
+   * Creates the row distance matrix.
+   *
+   * @param m the m
+   * @param d the d
+   * @param progress reports each row completed and may cancel the build.
+   * @return the distance matrix
+   */
+  public static DistanceMatrix createRowDistanceMatrix(Matrix m,
+      DistanceMetric d,
+      Progress progress) {
     // to account for the new clusters
     int c = m.getRows();
 
@@ -61,16 +108,21 @@ public class HierarchicalClustering {
 
     DistanceMatrix distance = new DistanceMatrix(s); // DoubleMatrix(s, s);
 
-    System.err.println("Creating row distance matrix " + s + "...");
+    long start = DISTANCE_TIMER.start();
 
     // all pair wise distances
     for (int i = 0; i < c; ++i) {
+      progress.update(DISTANCE_PHASE, i, c);
+
       for (int j = 0; j < c; ++j) {
         distance.set(i, j, d.rowDistance(m, i, j));
       }
     }
 
-    System.err.println("Finished creating row distance matrix .");
+    progress.update(DISTANCE_PHASE, 1);
+
+    DISTANCES.add((long) c * c);
+    DISTANCE_TIMER.stop(start);
 
     return distance;
   }
@@ -84,6 +136,20 @@ public class HierarchicalClustering {
    */
   public static DistanceMatrix createColumnDistanceMatrix(Matrix m,
       DistanceMetric d) {
+    return createColumnDistanceMatrix(m, d, Progress.NONE);
+  }
+
+  /**
+   * Creates the column distance matrix.
+   *
+   * @param m the m
+   * @param d the d
+   * @param progress reports each column completed and may cancel the build.
+   * @return the distance matrix
+   */
+  public static DistanceMatrix createColumnDistanceMatrix(Matrix m,
+      DistanceMetric d,
+      Progress progress) {
     int c = m.getCols();
 
     // The total number of clusters we will create
@@ -91,14 +157,21 @@ public class HierarchicalClustering {
 
     DistanceMatrix distance = new DistanceMatrix(s); // DoubleMatrix(s, s);
 
-    System.err.println("Creating distance matrix " + c);
+    long start = DISTANCE_TIMER.start();
 
     for (int i = 0; i < c; ++i) {
+      progress.update(DISTANCE_PHASE, i, c);
+
       for (int j = 0; j < c; ++j) {
         distance.set(i, j, (double) d.columnDistance(m, i, j));
       }
     }
 
+    progress.update(DISTANCE_PHASE, 1);
+
+    DISTANCES.add((long) c * c);
+    DISTANCE_TIMER.stop(start);
+
     return distance;
   }
 
@@ -115,9 +188,29 @@ public class HierarchicalClustering {
       final ILinkage l,
       DistanceMetric distanceMetric,
       boolean optimalLeafOrder) {
-    DistanceMatrix distance = createRowDistanceMatrix(m, distanceMetric);
+    return rowCluster(m, l, distanceMetric, optimalLeafOrder, Progress.NONE);
+  }
 
-    return cluster(l, m.getRows(), optimalLeafOrder, distance);
+  /**
+   * Row cluster.
+   *
+   * @param m the m
+   * @param l the l
+   * @param distanceMetric the distance metric
+   * @param optimalLeafOrder the optimal leaf order
+   * @param progress reports each phase and may cancel the clustering.
+   * @return the cluster
+   */
+  public static Cluster rowCluster(final Matrix m,
+      final ILinkage l,
+      DistanceMetric distanceMetric,
+      boolean optimalLeafOrder,
+      Progress progress) {
+    DistanceMatrix distance = createRowDistanceMatrix(m,
+        distanceMetric,
+        progress);
+
+    return cluster(l, m.getRows(), optimalLeafOrder, distance, progress);
   }
 
   /**
@@ -133,10 +226,33 @@ public class HierarchicalClustering {
       final ILinkage l,
       final DistanceMetric distanceMetric,
       boolean optimalLeafOrder) {
+    return columnCluster(m,
+        l,
+        distanceMetric,
+        optimalLeafOrder,
+        Progress.NONE);
+  }
 
-    DistanceMatrix distance = createColumnDistanceMatrix(m, distanceMetric);
+  /**
+   * Column cluster.
+   *
+   * @param m the m
+   * @param l the l
+   * @param distanceMetric the distance metric
+   * @param optimalLeafOrder the optimal leaf order
+   * @param progress reports each phase and may cancel the clustering.
+   * @return the cluster
+   */
+  public static Cluster columnCluster(final Matrix m,
+      final ILinkage l,
+      final DistanceMetric distanceMetric,
+      boolean optimalLeafOrder,
+      Progress progress) {
+    DistanceMatrix distance = createColumnDistanceMatrix(m,
+        distanceMetric,
+        progress);
 
-    return cluster(l, m.getCols(), optimalLeafOrder, distance);
+    return cluster(l, m.getCols(), optimalLeafOrder, distance, progress);
   }
   
   public static Cluster columnCluster(final Matrix m,
@@ -162,9 +278,35 @@ public class HierarchicalClustering {
       int numberOfSamples,
       boolean optimalLeafOrdering,
       DistanceMatrix distanceMatrix) {
+    return cluster(l,
+        numberOfSamples,
+        optimalLeafOrdering,
+        distanceMatrix,
+        Progress.NONE);
+  }
+
+  /**
+   * Cluster.
+   *
+   * @param l A linkage function.
+   * @param numberOfSamples How many samples are in the matrix.
+   * @param optimalLeafOrdering Whether to try and reorder the tree to minimize
+   *          the distance between nodes.
+   * @param distanceMatrix The distance matrix.
+   * @param progress Reports each merge and may cancel the clustering.
+   * 
+   * @return the cluster
+   */
+  public static Cluster cluster(final ILinkage l,
+      int numberOfSamples,
+      boolean optimalLeafOrdering,
+      DistanceMatrix distanceMatrix,
+      Progress progress) {
 
     // Start by putting every index in a cluster
 
+    long start = CLUSTER_TIMER.start();
+
     List<Cluster> allClusters = new ArrayList<>();
     List<Cluster> clusters = new ArrayList<>();
 
@@ -194,6 +336,10 @@ public class HierarchicalClustering {
     // Set<Integer> used = new HashSet<Integer>();
 
     while (clusters.size() > 1) {
+      progress.update(CLUSTER_PHASE,
+          numberOfSamples - clusters.size(),
+          numberOfSamples - 1);
+
       // see which two are the closest
 
       minDistance = Double.MAX_VALUE;
@@ -234,6 +380,8 @@ public class HierarchicalClustering {
 
       ++clusterId;
 
+      MERGES.inc();
+
       // add the ids from the two clusters
       // for (int index : minCluster1) {
       // mergeCluster.add(index);
@@ -288,6 +436,10 @@ public class HierarchicalClustering {
        */
     }
 
+    progress.update(CLUSTER_PHASE, 1);
+
+    CLUSTER_TIMER.stop(start);
+
     // The last cluster is the single cluster
     // from which all sub clusters are
     // derived.
@@ -299,7 +451,8 @@ public class HierarchicalClustering {
     if (optimalLeafOrdering) {
       rootCluster = optimalLeafOrder(numberOfSamples,
           distanceMatrix,
-          rootCluster);
+          rootCluster,
+          progress);
     }
 
     return rootCluster;
@@ -398,6 +551,28 @@ public class HierarchicalClustering {
   public static Cluster optimalLeafOrder(int numberOfSamples,
       final DistanceMatrix distanceMatrix,
       final Cluster rootCluster) {
+    return optimalLeafOrder(numberOfSamples,
+        distanceMatrix,
+        rootCluster,
+        Progress.NONE);
+  }
+
+  /**
+   * Attempts to maximize the sum of the distances between pairs of nodes by
+   * flipping internal nodes to rearrange the tree whilst preserving its
+   * structure.
+   *
+   * @param numberOfSamples the number of samples
+   * @param distanceMatrix the distance matrix
+   * @param rootCluster the root cluster
+   * @param progress reports each node tried and may cancel the ordering.
+   * @return the cluster
+   */
+  public static Cluster optimalLeafOrder(int numberOfSamples,
+      final DistanceMatrix distanceMatrix,
+      final Cluster rootCluster,
+      Progress progress) {
+    long start = ORDER_TIMER.start();
 
     int n = distanceMatrix.getCols();
 
@@ -431,6 +606,8 @@ public class HierarchicalClustering {
     // considered for flipping
 
     for (int c1id = numberOfSamples; c1id < n; ++c1id) {
+      progress.update(ORDER_PHASE, c1id - numberOfSamples, n - numberOfSamples);
+
       for (boolean c1flip : FLIPS) {
         for (int c2id = numberOfSamples; c2id < n; ++c2id) {
           // No point generating a tree where we are altering the
@@ -527,8 +704,10 @@ public class HierarchicalClustering {
       }
     }
 
-    System.err.println("opt nodes " + Cluster.getLeafOrderedIds(optCluster)
-        + " " + maxD + " " + total);
+    ORDER_TIMER.stop(start);
+
+    Instrumentation.getInstance()
+        .event("cluster.optimal-leaf-order", numberOfSamples, maxD, total);
 
     return optCluster;
   }
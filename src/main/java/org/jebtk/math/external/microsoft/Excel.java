@@ -62,6 +62,7 @@ import org.jebtk.core.io.FileUtils;
 import org.jebtk.core.io.Io;
 import org.jebtk.core.io.PathUtils;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.instrument.Instrumentation;
 import org.jebtk.math.matrix.DataFrame;
 
 /**
@@ -103,14 +104,13 @@ public class Excel {
    * @param rowAnnotations the row annotations
    * @param delimiter the delimiter
    * @return the annotation matrix
-   * @throws InvalidFormatException the invalid format exception
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public static DataFrame convertToMatrix(Path file,
       int headers,
       List<String> skipMatches,
       int rowAnnotations,
-      String delimiter) throws InvalidFormatException, IOException {
+      String delimiter) throws IOException {
     if (ExcelPathUtils.ext().xlsx().test(file)) {
       return convertXlsxToMatrix(file, headers > 0, rowAnnotations);
     } else if (ExcelPathUtils.ext().xls().test(file)) {
@@ -143,12 +143,16 @@ public class Excel {
    *
    * @param file the file
    * @return the XSSF workbook
-   * @throws InvalidFormatException the invalid format exception
-   * @throws IOException Signals that an I/O exception has occurred.
+   * @throws IOException if the file cannot be read or is not an xlsx
+   *           package.
    */
   public static XSSFWorkbook createXlsxWorkbook(Path file)
-      throws InvalidFormatException, IOException {
-    return new XSSFWorkbook(OPCPackage.open(file.toFile()));
+      throws IOException {
+    try {
+      return new XSSFWorkbook(OPCPackage.open(file.toFile()));
+    } catch (InvalidFormatException e) {
+      throw new IOException(file + " is not an xlsx file.", e);
+    }
   }
 
   // public static XLSXMetaData xLSXMetaData(Path file) throws IOException,
@@ -157,25 +161,54 @@ public class Excel {
   // }
 
   /**
-   * Convert xlsx to matrix.
+   * Convert the first sheet of an xlsx file to a matrix. The sheet is
+   * streamed with {@link XlsxMatrixReader} rather than loaded as a workbook.
    *
    * @param file the file
    * @param hasHeader the has header
    * @param rowAnnotations the row annotations
    * @return the annotation matrix
    * @throws IOException Signals that an I/O exception has occurred.
-   * @throws InvalidFormatException the invalid format exception
    */
   public static DataFrame convertXlsxToMatrix(Path file,
       boolean hasHeader,
-      int rowAnnotations) throws IOException, InvalidFormatException {
-    XSSFWorkbook workbook = createXlsxWorkbook(file);
-
-    DataFrame ret = convertXlsxToMatrix(workbook, hasHeader, rowAnnotations);
+      int rowAnnotations) throws IOException {
+    return new XlsxMatrixReader(hasHeader, rowAnnotations).read(file);
+  }
 
-    workbook.close();
+  /**
+   * Convert a sheet of an xlsx file, selected by its zero based index, to a
+   * matrix.
+   *
+   * @param file the file
+   * @param sheet the sheet index
+   * @param hasHeader the has header
+   * @param rowAnnotations the row annotations
+   * @return the annotation matrix
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static DataFrame convertXlsxToMatrix(Path file,
+      int sheet,
+      boolean hasHeader,
+      int rowAnnotations) throws IOException {
+    return new XlsxMatrixReader(hasHeader, rowAnnotations).read(file, sheet);
+  }
 
-    return ret;
+  /**
+   * Convert a sheet of an xlsx file, selected by name, to a matrix.
+   *
+   * @param file the file
+   * @param sheet the sheet name
+   * @param hasHeader the has header
+   * @param rowAnnotations the row annotations
+   * @return the annotation matrix
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static DataFrame convertXlsxToMatrix(Path file,
+      String sheet,
+      boolean hasHeader,
+      int rowAnnotations) throws IOException {
+    return new XlsxMatrixReader(hasHeader, rowAnnotations).read(file, sheet);
   }
 
   /**
@@ -186,11 +219,10 @@ public class Excel {
    * @param rowAnnotations the row annotations
    * @return the annotation matrix
    * @throws IOException Signals that an I/O exception has occurred.
-   * @throws InvalidFormatException the invalid format exception
    */
   public static DataFrame convertXlsxToMatrix(XSSFWorkbook workbook,
       boolean hasHeader,
-      int rowAnnotations) throws IOException, InvalidFormatException {
+      int rowAnnotations) throws IOException {
     hasHeader = hasHeader || rowAnnotations > 0;
 
     // We use the evaluator to evaluate formulas to values before
@@ -213,7 +245,7 @@ public class Excel {
     List<String> rowHeadings = new ArrayList<String>();
 
     if (hasHeader) {
-      System.err.println("Excel file has header");
+      Instrumentation.getInstance().event("excel.header", rowAnnotations);
 
       for (int i = 0; i < rowAnnotations; ++i) {
         XSSFCell cell = sheet.getRow(0).getCell(i);
@@ -292,11 +324,10 @@ public class Excel {
    * @param rowAnnotations the row annotations
    * @return the annotation matrix
    * @throws IOException Signals that an I/O exception has occurred.
-   * @throws InvalidFormatException the invalid format exception
    */
   public static DataFrame convertXlsToMatrix(Path file,
       boolean hasHeader,
-      int rowAnnotations) throws IOException, InvalidFormatException {
+      int rowAnnotations) throws IOException {
     HSSFWorkbook workbook = createXlsWorkbook(file);
 
     DataFrame ret = convertXlsToMatrix(workbook, hasHeader, rowAnnotations);
@@ -314,11 +345,10 @@ public class Excel {
    * @param rowAnnotations the row annotations
    * @return the annotation matrix
    * @throws IOException Signals that an I/O exception has occurred.
-   * @throws InvalidFormatException the invalid format exception
    */
   public static DataFrame convertXlsToMatrix(HSSFWorkbook workbook,
       boolean hasHeader,
-      int rowAnnotations) throws IOException, InvalidFormatException {
+      int rowAnnotations) throws IOException {
     hasHeader = hasHeader || rowAnnotations > 0;
 
     // We use the evaluator to evaluate formulas to values before
@@ -342,7 +372,7 @@ public class Excel {
     List<String> rowHeadings = new ArrayList<String>();
 
     if (hasHeader) {
-      System.err.println("Excel file has header");
+      Instrumentation.getInstance().event("excel.header", rowAnnotations);
 
       for (int i = 0; i < rowAnnotations; ++i) {
         HSSFCell cell = sheet.getRow(0).getCell(i);
@@ -414,7 +444,9 @@ public class Excel {
   }
 
   /**
-   * Create a workbook from a matrix.
+   * Write a matrix to an xlsx file. The whole sheet is built in memory with
+   * {@link #createWorkbook(DataFrame)}; see
+   * {@link #writeXlsxStreaming(DataFrame, Path)} for large matrices.
    *
    * @param matrix the matrix
    * @param file the file
@@ -426,6 +458,23 @@ public class Excel {
     writeXlsx(workbook, file);
   }
 
+  /**
+   * Write a matrix to an xlsx file, streaming the sheet with
+   * {@link XlsxMatrixWriter} so memory use does not grow with the number of
+   * rows. Use this for large matrices. The layout differs from
+   * {@link #writeXlsx(DataFrame, Path)}: header cells are placed above
+   * their own columns, no header row is written if the matrix has no
+   * column names, and numbers are written as numeric cells.
+   *
+   * @param matrix the matrix
+   * @param file the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void writeXlsxStreaming(DataFrame matrix, Path file)
+      throws IOException {
+    new XlsxMatrixWriter().write(matrix, file);
+  }
+
   /**
    * Write xlsx.
    *
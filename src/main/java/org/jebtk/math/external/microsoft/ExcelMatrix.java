@@ -20,7 +20,6 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.xssf.usermodel.XSSFCell;
@@ -212,11 +211,10 @@ public class ExcelMatrix extends RegularMatrix {
    * @param rowAnnotations the row annotations
    * @return the annotation matrix
    * @throws IOException Signals that an I/O exception has occurred.
-   * @throws InvalidFormatException the invalid format exception
    */
   public static DataFrame xlsxAsMatrix(Path file,
       boolean hasHeader,
-      int rowAnnotations) throws IOException, InvalidFormatException {
+      int rowAnnotations) throws IOException {
     XSSFWorkbook workbook = Excel.createXlsxWorkbook(file);
 
     DataFrame ret = xlsxAsMatrix(workbook, hasHeader, rowAnnotations);
@@ -235,11 +233,10 @@ public class ExcelMatrix extends RegularMatrix {
    * @param rowAnnotations the row annotations
    * @return the annotation matrix
    * @throws IOException Signals that an I/O exception has occurred.
-   * @throws InvalidFormatException the invalid format exception
    */
   public static DataFrame xlsxAsMatrix(XSSFWorkbook workbook,
       boolean hasHeader,
-      int rowAnnotations) throws IOException, InvalidFormatException {
+      int rowAnnotations) throws IOException {
     hasHeader = hasHeader || rowAnnotations > 0;
 
     // We use the evaluator to evaluate formulas to values before
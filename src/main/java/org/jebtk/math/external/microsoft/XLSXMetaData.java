@@ -22,9 +22,7 @@ import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandl
 import org.apache.poi.xssf.extractor.XSSFEventBasedExcelExtractor;
 import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.XSSFComment;
-import org.jebtk.core.collections.CollectionUtils;
-import org.jebtk.core.text.RegexUtils;
-import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.MatrixSchema;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -191,9 +189,7 @@ public class XLSXMetaData {
   }
 
   public boolean isNumerical(int rowAnnotations) {
-    return RegexUtils.matches(TextUtils.NUMBER_PATTERN,
-        CollectionUtils.tail(mRow, rowAnnotations));
-
+    return MatrixSchema.isNumeric(mRow, rowAnnotations);
   }
 
   public int estimateIndexCols() {
@@ -201,16 +197,7 @@ public class XLSXMetaData {
   }
 
   public static int estimateRowAnnotations(List<String> data) {
-    int ret = 0;
-
-    while (ret < data.size() - 1) {
-      if (TextUtils.areNumbers(CollectionUtils.tail(data, ret))) {
-        break;
-      }
-
-      ++ret;
-    }
-    return ret;
+    return MatrixSchema.estimateRowAnnotations(data);
   }
 
 }
@@ -0,0 +1,427 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.external.microsoft;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.Timer;
+import org.jebtk.math.matrix.ColumnMatrix;
+import org.jebtk.math.matrix.ColumnMatrix.Column;
+import org.jebtk.math.matrix.ColumnMatrix.DoubleColumn;
+import org.jebtk.math.matrix.ColumnType;
+import org.jebtk.math.matrix.DataFrame;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Streams an XLSX sheet into a data frame using the POI event model rather
+ * than loading the workbook as an {@code XSSFWorkbook}. The shared strings
+ * and styles are read once and the sheet XML is then parsed twice: the first
+ * pass counts rows and decides whether each column is numeric or text, the
+ * second writes cells straight into the typed primitive columns of a
+ * {@link ColumnMatrix}. Apart from the matrix itself, memory use does not
+ * depend on the size of the sheet. Formulas are not evaluated; the result
+ * cached in the file by Excel is used instead.
+ */
+public class XlsxMatrixReader {
+
+  /** Counts the rows read. */
+  private static final Counter ROWS = Instrumentation.getInstance()
+      .counter("parser.rows");
+
+  /**
+   * Counts the size of the files read as stored on disk, so compressed files
+   * add their compressed size.
+   */
+  private static final Counter FILE_BYTES = Instrumentation.getInstance()
+      .counter("parser.file.bytes");
+
+  /** Times reading files. */
+  private static final Timer PARSE_TIMER = Instrumentation.getInstance()
+      .timer("parser.xlsx");
+
+  /**
+   * Reports the unformatted value of numeric cells so that number formats
+   * such as a fixed number of decimal places do not lose precision.
+   */
+  private static class RawFormatter extends DataFormatter {
+    @Override
+    public String formatRawCellContents(double value,
+        int formatIndex,
+        String formatString) {
+      return toString(value);
+    }
+
+    private static String toString(double v) {
+      if (v == Math.rint(v) && Math.abs(v) < 1e15) {
+        return Long.toString((long) v);
+      } else {
+        return Double.toString(v);
+      }
+    }
+  }
+
+  /**
+   * Base handler that tracks the current row and column of each cell.
+   */
+  private abstract class SheetHandler implements SheetContentsHandler {
+    private int mRow = -1;
+    private int mCol = -1;
+
+    @Override
+    public void startRow(int rowNum) {
+      mRow = rowNum;
+      mCol = -1;
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+      // Do nothing
+    }
+
+    @Override
+    public void cell(String cellReference,
+        String formattedValue,
+        XSSFComment comment) {
+      if (cellReference != null) {
+        mCol = new CellReference(cellReference).getCol();
+      } else {
+        ++mCol;
+      }
+
+      if (mRow == 0 && mHasHeader) {
+        header(mCol, formattedValue);
+      } else {
+        cell(mRow - (mHasHeader ? 1 : 0), mCol, formattedValue);
+      }
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {
+      // Skip, not part of the data
+    }
+
+    /**
+     * Called for each cell of the header row.
+     * 
+     * @param col the column in the sheet.
+     * @param value the formatted cell value.
+     */
+    public abstract void header(int col, String value);
+
+    /**
+     * Called for each data cell.
+     * 
+     * @param row the row, excluding the header.
+     * @param col the column in the sheet.
+     * @param value the formatted cell value.
+     */
+    public abstract void cell(int row, int col, String value);
+  }
+
+  /**
+   * First pass: count rows and columns and find the text columns.
+   */
+  private class ScanHandler extends SheetHandler {
+    private final List<String> mHeader = new ArrayList<String>();
+    private final BitSet mText = new BitSet();
+    private int mRows = 0;
+    private int mCols = 0;
+
+    @Override
+    public void header(int col, String value) {
+      while (mHeader.size() < col) {
+        mHeader.add(TextUtils.EMPTY_STRING);
+      }
+
+      mHeader.add(value);
+    }
+
+    @Override
+    public void cell(int row, int col, String value) {
+      mRows = Math.max(mRows, row + 1);
+      mCols = Math.max(mCols, col + 1);
+
+      if (col >= mRowAnnotations && !mText.get(col)
+          && !TextUtils.isNullOrEmpty(value) && !TextUtils.isNumber(value)) {
+        mText.set(col);
+      }
+    }
+  }
+
+  /**
+   * Second pass: write the cells into the matrix.
+   */
+  private class FillHandler extends SheetHandler {
+    private final Column[] mColumns;
+    private final String[][] mAnnotations;
+
+    public FillHandler(ColumnMatrix m, String[][] annotations) {
+      mColumns = m.mColumns;
+      mAnnotations = annotations;
+    }
+
+    @Override
+    public void header(int col, String value) {
+      // Already read by the scan
+    }
+
+    @Override
+    public void cell(int row, int col, String value) {
+      if (col < mRowAnnotations) {
+        mAnnotations[col][row] = value;
+
+        return;
+      }
+
+      col -= mRowAnnotations;
+
+      if (col >= mColumns.length) {
+        return;
+      }
+
+      // Numeric columns parse the value themselves
+      mColumns[col].update(row, value);
+    }
+  }
+
+  private final boolean mHasHeader;
+  private final int mRowAnnotations;
+
+  /**
+   * Create a reader.
+   * 
+   * @param hasHeader true if the first row contains column names.
+   * @param rowAnnotations the number of leading columns that are row
+   *          annotations rather than data. Row annotations require a header.
+   */
+  public XlsxMatrixReader(boolean hasHeader, int rowAnnotations) {
+    mHasHeader = hasHeader || rowAnnotations > 0;
+    mRowAnnotations = rowAnnotations;
+  }
+
+  /**
+   * Read the first sheet of a workbook.
+   * 
+   * @param file the xlsx file.
+   * @return the sheet as a data frame.
+   * @throws IOException if the file cannot be read or is not a workbook.
+   */
+  public DataFrame read(Path file) throws IOException {
+    return read(file, 0, null);
+  }
+
+  /**
+   * Read a sheet by its zero based position in the workbook.
+   * 
+   * @param file the xlsx file.
+   * @param sheet the zero based sheet index.
+   * @return the sheet as a data frame.
+   * @throws IOException if the file cannot be read or the sheet does not
+   *           exist.
+   */
+  public DataFrame read(Path file, int sheet) throws IOException {
+    return read(file, sheet, null);
+  }
+
+  /**
+   * Read a sheet by name.
+   * 
+   * @param file the xlsx file.
+   * @param sheet the sheet name.
+   * @return the sheet as a data frame.
+   * @throws IOException if the file cannot be read or the sheet does not
+   *           exist.
+   */
+  public DataFrame read(Path file, String sheet) throws IOException {
+    return read(file, -1, sheet);
+  }
+
+  private DataFrame read(Path file, int index, String name)
+      throws IOException {
+    long start = PARSE_TIMER.start();
+
+    DataFrame ret;
+
+    try {
+      OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+
+      try {
+        ret = read(pkg, index, name);
+      } finally {
+        // Read only so discard rather than save on close
+        pkg.revert();
+      }
+    } catch (OpenXML4JException | SAXException e) {
+      throw new IOException(e);
+    }
+
+    ROWS.add(ret.getRows());
+    FILE_BYTES.add(Files.size(file));
+    PARSE_TIMER.stop(start);
+
+    return ret;
+  }
+
+  private DataFrame read(OPCPackage pkg, int index, String name)
+      throws IOException, OpenXML4JException, SAXException {
+    ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(
+        pkg);
+
+    XSSFReader reader = new XSSFReader(pkg);
+
+    StylesTable styles = reader.getStylesTable();
+
+    ScanHandler scan = new ScanHandler();
+
+    parse(reader, index, name, styles, strings, scan);
+
+    int cols = Math.max(scan.mCols, scan.mHeader.size()) - mRowAnnotations;
+
+    if (cols < 0) {
+      cols = 0;
+    }
+
+    ColumnType[] types = new ColumnType[cols];
+
+    for (int i = 0; i < cols; ++i) {
+      types[i] = scan.mText.get(mRowAnnotations + i) ? ColumnType.TEXT
+          : ColumnType.DOUBLE;
+    }
+
+    ColumnMatrix m = new ColumnMatrix(scan.mRows, types);
+
+    // Missing numeric cells are NaN rather than 0
+    for (Column c : m.mColumns) {
+      if (c instanceof DoubleColumn) {
+        Arrays.fill(((DoubleColumn) c).mData, Double.NaN);
+      }
+    }
+
+    String[][] annotations = new String[mRowAnnotations][scan.mRows];
+
+    parse(reader, index, name, styles, strings, new FillHandler(m,
+        annotations));
+
+    DataFrame ret = new DataFrame(m);
+
+    if (mHasHeader) {
+      for (int i = 0; i < cols; ++i) {
+        int c = mRowAnnotations + i;
+
+        if (c < scan.mHeader.size()) {
+          ret.setColumnName(i, scan.mHeader.get(c));
+        }
+      }
+    }
+
+    for (int i = 0; i < mRowAnnotations; ++i) {
+      String n = i < scan.mHeader.size() ? scan.mHeader.get(i)
+          : "Row Annotation " + (i + 1);
+
+      for (int j = 0; j < scan.mRows; ++j) {
+        if (annotations[i][j] == null) {
+          annotations[i][j] = TextUtils.EMPTY_STRING;
+        }
+      }
+
+      ret.getIndex().setAnnotation(n, annotations[i]);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Parse a sheet, selected either by index or, if name is not null, by
+   * name.
+   */
+  private static void parse(XSSFReader reader,
+      int index,
+      String name,
+      StylesTable styles,
+      ReadOnlySharedStringsTable strings,
+      SheetContentsHandler handler)
+      throws IOException, OpenXML4JException, SAXException {
+    XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader
+        .getSheetsData();
+
+    int i = 0;
+
+    while (iter.hasNext()) {
+      InputStream is = iter.next();
+
+      try {
+        if (name != null ? name.equals(iter.getSheetName()) : i == index) {
+          XMLReader parser = SAXHelper.newXMLReader();
+
+          parser.setContentHandler(new XSSFSheetXMLHandler(styles, null,
+              strings, handler, new RawFormatter(), false));
+
+          parser.parse(new InputSource(is));
+
+          return;
+        }
+      } catch (ParserConfigurationException e) {
+        throw new IOException("Could not create a SAX parser.", e);
+      } finally {
+        is.close();
+      }
+
+      ++i;
+    }
+
+    throw new IOException(
+        "Sheet " + (name != null ? name : Integer.toString(index))
+            + " not found.");
+  }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.external.microsoft;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.jebtk.core.io.PathUtils;
+import org.jebtk.math.matrix.CellType;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.Matrix;
+
+/**
+ * Writes data frames to XLSX with POI's streaming {@code SXSSFWorkbook}.
+ * Only a small window of rows is held in memory; older rows are flushed to
+ * a compressed temporary file as the sheet is written, so memory use does
+ * not depend on the number of rows. Cells share two styles, bold for the
+ * header and plain for the data, created once per sheet. Numbers are
+ * written as numeric cells straight from the matrix (from the backing
+ * array of a {@link DoubleMatrix}) rather than through their text form. Missing
+ * (NaN, null or empty) values are left blank.
+ */
+public class XlsxMatrixWriter {
+
+  /** The number of rows kept in memory while writing. */
+  public static final int DEFAULT_WINDOW = 100;
+
+  /** Column width in Excel units of 1/256 of a character. */
+  private static final int COLUMN_WIDTH = 256 * 30;
+
+  private final int mWindow;
+
+  /**
+   * Create a writer with the default row window.
+   */
+  public XlsxMatrixWriter() {
+    this(DEFAULT_WINDOW);
+  }
+
+  /**
+   * Create a writer.
+   * 
+   * @param window the number of rows kept in memory.
+   */
+  public XlsxMatrixWriter(int window) {
+    mWindow = window;
+  }
+
+  /**
+   * Write a data frame to an xlsx file. The xlsx extension is added to the
+   * file name if missing.
+   * 
+   * @param m the data frame to write.
+   * @param file the file to create or overwrite.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void write(DataFrame m, Path file) throws IOException {
+    SXSSFWorkbook workbook = new SXSSFWorkbook(mWindow);
+
+    workbook.setCompressTempFiles(true);
+
+    try {
+      write(m, workbook);
+
+      OutputStream out = Files
+          .newOutputStream(PathUtils.addExtension(file, Excel.XLSX_EXTENSION));
+
+      try {
+        workbook.write(out);
+      } finally {
+        out.close();
+      }
+    } finally {
+      // Remove the temporary files backing the flushed rows
+      workbook.dispose();
+    }
+  }
+
+  /**
+   * Add a data frame as a new sheet of a streaming workbook.
+   * 
+   * @param m the data frame to write.
+   * @param workbook the workbook to add a sheet to. The caller writes and
+   *          disposes of it.
+   */
+  public void write(DataFrame m, SXSSFWorkbook workbook) {
+    Sheet sheet = workbook
+        .createSheet("Sheet" + (workbook.getNumberOfSheets() + 1));
+
+    Font font = workbook.createFont();
+    font.setFontHeightInPoints((short) 11);
+    font.setFontName("Arial");
+
+    Font headerFont = workbook.createFont();
+    headerFont.setFontHeightInPoints((short) 11);
+    headerFont.setFontName("Arial");
+    headerFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
+
+    CellStyle headerStyle = workbook.createCellStyle();
+    headerStyle.setFont(headerFont);
+    headerStyle.setWrapText(true);
+
+    CellStyle defaultStyle = workbook.createCellStyle();
+    defaultStyle.setFont(font);
+    defaultStyle.setWrapText(true);
+
+    List<String> names = m.getColumnHeader().getNames();
+    List<String> rowHeadings = m.getIndex().getNames();
+
+    int offset = rowHeadings.size();
+    int cols = m.getCols();
+    int r = 0;
+
+    // Widths must be set before rows are flushed
+    for (int i = 0; i < offset + cols; ++i) {
+      sheet.setColumnWidth(i, COLUMN_WIDTH);
+    }
+
+    //
+    // Header, with the row annotation names on the last row
+    //
+
+    for (int i = 0; i < names.size(); ++i) {
+      Row row = sheet.createRow(r++);
+
+      String name = names.get(i);
+
+      if (i == names.size() - 1) {
+        for (int j = 0; j < offset; ++j) {
+          text(row, j, rowHeadings.get(j), headerStyle);
+        }
+      }
+
+      for (int j = 0; j < cols; ++j) {
+        text(row,
+            offset + j,
+            m.getColumnHeader().getText(name, j),
+            headerStyle);
+      }
+    }
+
+    //
+    // Data
+    //
+
+    Matrix inner = m.getMatrix();
+
+    double[] data = inner instanceof DoubleMatrix
+        ? ((DoubleMatrix) inner).mData
+        : null;
+
+    int p = 0;
+
+    for (int i = 0; i < m.getRows(); ++i) {
+      Row row = sheet.createRow(r++);
+
+      for (int j = 0; j < offset; ++j) {
+        Object v = m.getIndex().getAnnotation(rowHeadings.get(j), i);
+
+        if (v instanceof Number) {
+          number(row, j, ((Number) v).doubleValue(), defaultStyle);
+        } else {
+          text(row, j, v != null ? v.toString() : null, defaultStyle);
+        }
+      }
+
+      if (data != null) {
+        for (int j = 0; j < cols; ++j) {
+          number(row, offset + j, data[p++], defaultStyle);
+        }
+      } else {
+        for (int j = 0; j < cols; ++j) {
+          if (inner.getCellType(i, j) == CellType.NUMBER) {
+            number(row, offset + j, inner.getValue(i, j), defaultStyle);
+          } else {
+            text(row, offset + j, inner.getText(i, j), defaultStyle);
+          }
+        }
+      }
+    }
+  }
+
+  private static void number(Row row, int c, double v, CellStyle style) {
+    Cell cell = row.createCell(c);
+
+    cell.setCellStyle(style);
+
+    if (Matrix.isValidMatrixNum(v)) {
+      cell.setCellValue(v);
+    }
+  }
+
+  private static void text(Row row, int c, String v, CellStyle style) {
+    Cell cell = row.createCell(c);
+
+    cell.setCellStyle(style);
+
+    if (v != null && !v.isEmpty()) {
+      cell.setCellValue(v);
+    }
+  }
+}
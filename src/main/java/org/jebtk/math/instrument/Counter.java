@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.instrument;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named count, e.g. of rows parsed or cache misses. Counts are only
+ * recorded while {@link Instrumentation} has a sink, so a counter left in
+ * a hot path costs a volatile read when instrumentation is off. Counters
+ * can be incremented from multiple threads.
+ */
+public class Counter {
+
+  /** The name. */
+  private final String mName;
+
+  /** The instrumentation the counter belongs to. */
+  private final Instrumentation mInstrumentation;
+
+  /** The count. */
+  private final LongAdder mCount = new LongAdder();
+
+  /**
+   * Instantiates a new counter.
+   *
+   * @param instrumentation the instrumentation
+   * @param name the name
+   */
+  Counter(Instrumentation instrumentation, String name) {
+    mInstrumentation = instrumentation;
+    mName = name;
+  }
+
+  /**
+   * Gets the name.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return mName;
+  }
+
+  /**
+   * Increment the count by one.
+   */
+  public void inc() {
+    add(1);
+  }
+
+  /**
+   * Add to the count.
+   *
+   * @param n the n
+   */
+  public void add(long n) {
+    if (mInstrumentation.isEnabled()) {
+      mCount.add(n);
+    }
+  }
+
+  /**
+   * Returns the count.
+   *
+   * @return the long
+   */
+  public long get() {
+    return mCount.sum();
+  }
+
+  /**
+   * Reset the count to zero.
+   */
+  public void reset() {
+    mCount.reset();
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.instrument;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named counters, timers and events for profiling the library. By default
+ * there is no sink and nothing is recorded. Setting a {@link MetricsSink}
+ * turns recording on: events are passed straight to the sink and counters
+ * and timers accumulate until {@link #export()} is called.
+ */
+public class Instrumentation {
+
+  /** The instance. */
+  private static final Instrumentation INSTANCE = new Instrumentation();
+
+  /**
+   * Gets the single instance of Instrumentation.
+   *
+   * @return single instance of Instrumentation
+   */
+  public static Instrumentation getInstance() {
+    return INSTANCE;
+  }
+
+  /** The sink or null if instrumentation is off. */
+  private volatile MetricsSink mSink = null;
+
+  /** The counters. */
+  private final Map<String, Counter> mCounters = new ConcurrentHashMap<String, Counter>();
+
+  /** The timers. */
+  private final Map<String, Timer> mTimers = new ConcurrentHashMap<String, Timer>();
+
+  /**
+   * Instantiates a new instrumentation.
+   */
+  private Instrumentation() {
+    // Do nothing
+  }
+
+  /**
+   * Set the sink that receives events and exported metrics.
+   *
+   * @param sink the sink or null to turn instrumentation off.
+   */
+  public void setSink(MetricsSink sink) {
+    mSink = sink;
+  }
+
+  /**
+   * Returns true if there is a sink.
+   *
+   * @return true, if is enabled
+   */
+  public boolean isEnabled() {
+    return mSink != null;
+  }
+
+  /**
+   * Returns the counter with a given name, creating it if necessary.
+   * Classes should look up their counters once and keep them in a static
+   * field.
+   *
+   * @param name the name
+   * @return the counter
+   */
+  public Counter counter(String name) {
+    return mCounters.computeIfAbsent(name, n -> new Counter(this, n));
+  }
+
+  /**
+   * Returns the timer with a given name, creating it if necessary.
+   *
+   * @param name the name
+   * @return the timer
+   */
+  public Timer timer(String name) {
+    return mTimers.computeIfAbsent(name, n -> new Timer(this, n));
+  }
+
+  /**
+   * Pass an event to the sink if there is one.
+   *
+   * @param name the name
+   * @param values the values
+   */
+  public void event(String name, Object... values) {
+    MetricsSink sink = mSink;
+
+    if (sink != null) {
+      sink.event(name, values);
+    }
+  }
+
+  /**
+   * Send the current value of every counter and timer to the sink in name
+   * order.
+   */
+  public void export() {
+    MetricsSink sink = mSink;
+
+    if (sink == null) {
+      return;
+    }
+
+    for (Counter counter : new TreeMap<String, Counter>(mCounters).values()) {
+      sink.counter(counter.getName(), counter.get());
+    }
+
+    for (Timer timer : new TreeMap<String, Timer>(mTimers).values()) {
+      sink.timer(timer.getName(), timer.getCount(), timer.getNanos());
+    }
+  }
+
+  /**
+   * Reset every counter and timer.
+   */
+  public void reset() {
+    for (Counter counter : mCounters.values()) {
+      counter.reset();
+    }
+
+    for (Timer timer : mTimers.values()) {
+      timer.reset();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.instrument;
+
+import java.io.PrintStream;
+
+/**
+ * Writes events and metrics as tab delimited lines to a print stream.
+ */
+public class PrintStreamMetricsSink implements MetricsSink {
+
+  /** The stream. */
+  private final PrintStream mOut;
+
+  /**
+   * Write to stderr.
+   */
+  public PrintStreamMetricsSink() {
+    this(System.err);
+  }
+
+  /**
+   * Instantiates a new print stream metrics sink.
+   *
+   * @param out the out
+   */
+  public PrintStreamMetricsSink(PrintStream out) {
+    mOut = out;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.instrument.MetricsSink#event(java.lang.String,
+   * java.lang.Object[])
+   */
+  @Override
+  public void event(String name, Object... values) {
+    StringBuilder buffer = new StringBuilder("event\t").append(name);
+
+    for (Object v : values) {
+      buffer.append('\t').append(v);
+    }
+
+    mOut.println(buffer.toString());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.instrument.MetricsSink#counter(java.lang.String,
+   * long)
+   */
+  @Override
+  public void counter(String name, long value) {
+    mOut.println("counter\t" + name + "\t" + value);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.instrument.MetricsSink#timer(java.lang.String, long,
+   * long)
+   */
+  @Override
+  public void timer(String name, long count, long nanos) {
+    mOut.println("timer\t" + name + "\t" + count + "\t" + nanos);
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.instrument;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named timer that accumulates the number of calls and their total
+ * duration. Time a block with
+ * 
+ * <pre>
+ * long start = TIMER.start();
+ * ...
+ * TIMER.stop(start);
+ * </pre>
+ * 
+ * Neither call reads the clock while {@link Instrumentation} has no sink.
+ */
+public class Timer {
+
+  /** Returned by {@link #start()} when instrumentation is off. */
+  public static final long NOT_STARTED = Long.MIN_VALUE;
+
+  /** The name. */
+  private final String mName;
+
+  /** The instrumentation the timer belongs to. */
+  private final Instrumentation mInstrumentation;
+
+  /** The number of timed calls. */
+  private final LongAdder mCount = new LongAdder();
+
+  /** The total duration in nanoseconds. */
+  private final LongAdder mNanos = new LongAdder();
+
+  /**
+   * Instantiates a new timer.
+   *
+   * @param instrumentation the instrumentation
+   * @param name the name
+   */
+  Timer(Instrumentation instrumentation, String name) {
+    mInstrumentation = instrumentation;
+    mName = name;
+  }
+
+  /**
+   * Gets the name.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return mName;
+  }
+
+  /**
+   * Start timing a call.
+   *
+   * @return the start time to pass to {@link #stop(long)}.
+   */
+  public long start() {
+    return mInstrumentation.isEnabled() ? System.nanoTime() : NOT_STARTED;
+  }
+
+  /**
+   * Stop timing a call.
+   *
+   * @param start the value returned by {@link #start()}.
+   */
+  public void stop(long start) {
+    if (start != NOT_STARTED) {
+      mNanos.add(System.nanoTime() - start);
+      mCount.increment();
+    }
+  }
+
+  /**
+   * Returns the number of timed calls.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return mCount.sum();
+  }
+
+  /**
+   * Returns the total duration of the timed calls in nanoseconds.
+   *
+   * @return the nanos
+   */
+  public long getNanos() {
+    return mNanos.sum();
+  }
+
+  /**
+   * Reset the timer.
+   */
+  public void reset() {
+    mCount.reset();
+    mNanos.reset();
+  }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compression formats supported by the JDK that matrix files may be
+ * stored in. Inputs are identified by their magic bytes rather than their
+ * file extension.
+ */
+public enum Codec {
+  /** Uncompressed. */
+  NONE,
+
+  /** Gzip, e.g. .gz files. */
+  GZIP,
+
+  /** A raw zlib/deflate stream. */
+  DEFLATE;
+
+  /** Size of the buffers used by the JDK compression streams. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** How much of a file is trial inflated to confirm a zlib header. */
+  private static final int PROBE_SIZE = 4096;
+
+  /**
+   * Wrap a stream to decompress it. {@link #NONE} returns the stream
+   * itself. {@link #GZIP} reads the gzip header straight away; if the
+   * stream does not start with a valid header its bytes are given back
+   * and the stream is returned undecoded, as for {@link #NONE}.
+   * {@link #DEFLATE} wraps the stream without reading it, so invalid zlib
+   * data is only reported by the first read of the returned stream.
+   * 
+   * @param in the compressed stream.
+   * @return a stream of the decompressed bytes.
+   * @throws IOException if the gzip header cannot be read and the stream
+   *           cannot be rewound. The stream is closed in this case.
+   */
+  public InputStream decode(InputStream in) throws IOException {
+    switch (this) {
+    case GZIP:
+      return decodeGzip(in);
+    case DEFLATE:
+      return new InflaterInputStream(in);
+    default:
+      return in;
+    }
+  }
+
+  /**
+   * Decode a gzip stream or give back the stream unchanged if its header is
+   * not gzip.
+   * 
+   * @param in the stream.
+   * @return the decoded or original stream.
+   * @throws IOException if the header cannot be rewound.
+   */
+  private static InputStream decodeGzip(InputStream in) throws IOException {
+    // Marked so the header bytes can be given back if they are not gzip
+    InputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+
+    buffered.mark(BUFFER_SIZE);
+
+    try {
+      return new GZIPInputStream(buffered, BUFFER_SIZE);
+    } catch (IOException e) {
+      try {
+        buffered.reset();
+      } catch (IOException re) {
+        // The header was too long to rewind
+        buffered.close();
+        throw e;
+      }
+
+      return buffered;
+    }
+  }
+
+  /**
+   * Wrap a stream so that what is written to it is compressed.
+   * {@link #NONE} returns the stream itself.
+   * 
+   * @param out the stream to write compressed bytes to.
+   * @return a stream that compresses what is written to it. It must be
+   *         closed to finish the compressed data.
+   * @throws IOException if the gzip header cannot be written.
+   */
+  public OutputStream encode(OutputStream out) throws IOException {
+    switch (this) {
+    case GZIP:
+      return new GZIPOutputStream(out, BUFFER_SIZE);
+    case DEFLATE:
+      return new DeflaterOutputStream(out);
+    default:
+      return out;
+    }
+  }
+
+  /**
+   * Detect the compression of a file from its first bytes. A zlib header is
+   * only accepted if the start of the file inflates cleanly, since some
+   * headers are also plain text (e.g. "x^").
+   * 
+   * @param file the file to inspect.
+   * @return the codec of the file, {@link #NONE} if it is not compressed.
+   * @throws IOException if the file cannot be read.
+   */
+  public static Codec detect(Path file) throws IOException {
+    InputStream in = Files.newInputStream(file);
+
+    byte[] head = new byte[PROBE_SIZE];
+    int n = 0;
+
+    try {
+      int r;
+
+      while (n < head.length
+          && (r = in.read(head, n, head.length - n)) != -1) {
+        n += r;
+      }
+    } finally {
+      in.close();
+    }
+
+    if (n < 2) {
+      return NONE;
+    }
+
+    int b1 = head[0] & 0xFF;
+    int b2 = head[1] & 0xFF;
+
+    if (isZlib(b1, b2)) {
+      // A complete file must also end cleanly, a longer one only needs to
+      // inflate as far as we have read
+      return inflates(head, n, n < head.length) ? DEFLATE : NONE;
+    }
+
+    return detect(b1, b2);
+  }
+
+  /**
+   * Detect the compression of a stream from its first two bytes. A zlib
+   * header whose second byte is printable is reported as {@link #NONE}
+   * since it cannot be told apart from text without reading further.
+   * 
+   * @param b1 the first byte or -1.
+   * @param b2 the second byte or -1.
+   * @return the codec the bytes indicate, {@link #NONE} if they do not
+   *         match a compressed format.
+   */
+  public static Codec detect(int b1, int b2) {
+    if (b1 == 0x1F && b2 == 0x8B) {
+      return GZIP;
+    }
+
+    if (isZlib(b1, b2) && (b2 < 0x20 || b2 > 0x7E)) {
+      return DEFLATE;
+    }
+
+    return NONE;
+  }
+
+  /**
+   * Whether two bytes are a zlib header as written by the JDK and zlib:
+   * deflate with a 32K window, no preset dictionary and a check making it a
+   * multiple of 31.
+   * 
+   * @param b1 the first byte.
+   * @param b2 the second byte.
+   * @return true if the bytes are a zlib header.
+   */
+  private static boolean isZlib(int b1, int b2) {
+    return b1 == 0x78 && b2 >= 0 && (b2 & 0x20) == 0
+        && ((b1 << 8) | b2) % 31 == 0;
+  }
+
+  /**
+   * Trial inflate the start of a stream.
+   * 
+   * @param head the first bytes of the stream.
+   * @param n how many bytes of head are used.
+   * @param complete true if head is the whole stream.
+   * @return true if the bytes are valid zlib data.
+   */
+  private static boolean inflates(byte[] head, int n, boolean complete) {
+    Inflater inflater = new Inflater();
+
+    try {
+      inflater.setInput(head, 0, n);
+
+      byte[] out = new byte[BUFFER_SIZE];
+
+      while (!inflater.finished()) {
+        // No progress means the input ran out
+        if (inflater.inflate(out) == 0) {
+          break;
+        }
+      }
+
+      return inflater.finished() || !complete;
+    } catch (DataFormatException e) {
+      return false;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * The codec to write a file with, based on its extension: gzip for .gz,
+   * deflate for .zz or .deflate, otherwise none.
+   * 
+   * @param file the file to be written.
+   * @return the codec for the extension.
+   */
+  public static Codec fromExtension(Path file) {
+    String name = file.getFileName().toString().toLowerCase();
+
+    if (name.endsWith(".gz")) {
+      return GZIP;
+    } else if (name.endsWith(".zz") || name.endsWith(".deflate")) {
+      return DEFLATE;
+    } else {
+      return NONE;
+    }
+  }
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a stream, typically a decompressing one, on a background thread so
+ * that decompression overlaps with whatever consumes the data. The
+ * background thread fills large chunks and passes them through a short
+ * queue; chunks are recycled so steady state reading does not allocate.
+ */
+public class PipelinedInputStream extends InputStream {
+
+  /** The size of each chunk. */
+  private static final int CHUNK_SIZE = 1 << 20;
+
+  /** How many chunks the reader can get ahead of the consumer. */
+  private static final int QUEUE_SIZE = 4;
+
+  /** How long the consumer waits on the queue before checking the reader. */
+  private static final long POLL_MS = 100;
+
+  /**
+   * A block of data or the end of the stream.
+   */
+  private static class Chunk {
+    private final byte[] mData;
+    private final int mLength;
+
+    public Chunk(byte[] data, int length) {
+      mData = data;
+      mLength = length;
+    }
+  }
+
+  private static final Chunk END = new Chunk(null, -1);
+
+  private final BlockingQueue<Chunk> mFull = new ArrayBlockingQueue<Chunk>(
+      QUEUE_SIZE + 1);
+
+  private final BlockingQueue<byte[]> mFree = new ArrayBlockingQueue<byte[]>(
+      QUEUE_SIZE + 2);
+
+  /** Set when the consumer closes the stream. */
+  private volatile boolean mClosed = false;
+
+  /**
+   * Set by the reader once it has queued all of its data, whether or not it
+   * managed to queue the end marker.
+   */
+  private volatile boolean mDone = false;
+
+  /** Why the reader stopped early, set before mDone. */
+  private volatile Throwable mError = null;
+
+  private Chunk mChunk = null;
+  private int mPos = 0;
+  private boolean mEof = false;
+
+  /** The failure reported to the consumer, rethrown by later reads. */
+  private IOException mFailure = null;
+
+  /**
+   * Start reading a stream in the background. The stream is closed by the
+   * background thread when it is exhausted or this stream is closed.
+   * 
+   * @param in the stream to read, usually a decompressing one.
+   */
+  public PipelinedInputStream(InputStream in) {
+    // A daemon so an abandoned stream cannot keep the JVM alive
+    Thread t = new Thread(() -> pump(in), "pipelined-input");
+
+    t.setDaemon(true);
+    t.start();
+  }
+
+  private void pump(InputStream in) {
+    Throwable error = null;
+
+    try {
+      while (!mClosed) {
+        byte[] data = mFree.poll();
+
+        if (data == null) {
+          data = new byte[CHUNK_SIZE];
+        }
+
+        int n = 0;
+        int r;
+
+        while (n < data.length
+            && (r = in.read(data, n, data.length - n)) != -1) {
+          n += r;
+        }
+
+        if (n > 0) {
+          mFull.put(new Chunk(data, n));
+        }
+
+        if (n < data.length) {
+          break;
+        }
+      }
+    } catch (Throwable e) {
+      // Anything, including runtime errors, must reach the consumer or it
+      // would wait forever
+      error = e;
+    } finally {
+      try {
+        in.close();
+      } catch (Throwable e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+
+    mError = error;
+    mDone = true;
+
+    // The consumer also notices mDone if the marker cannot be queued
+    try {
+      mFull.put(END);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Wait for the next chunk from the reader.
+   * 
+   * @return the chunk, or END once the reader has finished.
+   * @throws InterruptedIOException
+   */
+  private Chunk next() throws InterruptedIOException {
+    try {
+      while (true) {
+        Chunk chunk = mFull.poll(POLL_MS, TimeUnit.MILLISECONDS);
+
+        if (chunk != null) {
+          return chunk;
+        }
+
+        // Everything the reader produced was queued before mDone was set
+        if (mDone && mFull.isEmpty()) {
+          return END;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+
+  /**
+   * Make sure there is unread data in the current chunk.
+   * 
+   * @return false at the end of the stream.
+   */
+  private boolean fill() throws IOException {
+    if (mFailure != null) {
+      throw mFailure;
+    }
+
+    if (mEof) {
+      return false;
+    }
+
+    if (mChunk != null && mPos < mChunk.mLength) {
+      return true;
+    }
+
+    if (mChunk != null) {
+      mFree.offer(mChunk.mData);
+    }
+
+    mChunk = next();
+    mPos = 0;
+
+    if (mChunk == END) {
+      mChunk = null;
+
+      Throwable e = mError;
+
+      if (e != null) {
+        if (e instanceof IOException) {
+          mFailure = (IOException) e;
+        } else {
+          mFailure = new IOException(e);
+        }
+
+        throw mFailure;
+      }
+
+      mEof = true;
+      return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+
+    return mChunk.mData[mPos++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    if (!fill()) {
+      return -1;
+    }
+
+    int n = Math.min(len, mChunk.mLength - mPos);
+
+    System.arraycopy(mChunk.mData, mPos, b, off, n);
+
+    mPos += n;
+
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    mEof = true;
+    mChunk = null;
+
+    // The background reader stops at its next chunk and closes the source.
+    // Clearing the queue unblocks it if it is waiting for space.
+    mClosed = true;
+    mFull.clear();
+  }
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.io;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.jebtk.core.io.FileUtils;
+
+/**
+ * A text file that may be read more than once, as the two pass matrix
+ * parsers do, whether or not it is compressed. Compressed files are
+ * decompressed on a background thread while the first reader consumes
+ * them, and the decompressed text is copied to a temporary file as it
+ * goes so later readers do not decompress again. The temporary file is
+ * deleted when the source is closed.
+ */
+public class TextSource implements Closeable {
+
+  /** Reader buffer size. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Copies what is read to the spool file. On close the rest of the input
+   * is copied so the spool is always complete.
+   */
+  private class SpoolInputStream extends FilterInputStream {
+    private final OutputStream mOut;
+
+    public SpoolInputStream(InputStream in, OutputStream out) {
+      super(in);
+
+      mOut = out;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+
+      if (b != -1) {
+        mOut.write(b);
+      }
+
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+
+      if (n > 0) {
+        mOut.write(b, off, n);
+      }
+
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        while (read(buffer, 0, buffer.length) != -1) {
+          // Drain to the spool
+        }
+
+        mOut.flush();
+
+        mSpooled = true;
+      } finally {
+        try {
+          mOut.close();
+        } finally {
+          super.close();
+        }
+      }
+    }
+  }
+
+  private final Path mFile;
+  private final Codec mCodec;
+  private Path mSpool = null;
+  private boolean mSpooled = false;
+
+  /**
+   * Open a file, detecting its compression.
+   * 
+   * @param file the text file, compressed or not.
+   * @throws IOException if the start of the file cannot be read.
+   */
+  public TextSource(Path file) throws IOException {
+    mFile = file;
+    mCodec = Codec.detect(file);
+  }
+
+  /**
+   * Returns the compression detected when the source was opened.
+   * 
+   * @return the codec, {@link Codec#NONE} for plain text.
+   */
+  public Codec getCodec() {
+    return mCodec;
+  }
+
+  /**
+   * Returns a reader over the decompressed text. The first reader of a
+   * compressed file also spools it; readers opened after it is closed read
+   * the spool.
+   * 
+   * @return a UTF-8 reader that the caller must close.
+   * @throws IOException if the file or spool cannot be opened.
+   */
+  public BufferedReader newBufferedReader() throws IOException {
+    if (mCodec == Codec.NONE) {
+      return FileUtils.newBufferedReader(mFile);
+    }
+
+    if (mSpooled) {
+      return FileUtils.newBufferedReader(mSpool);
+    }
+
+    if (mSpool == null) {
+      mSpool = Files.createTempFile("matrix", ".txt");
+    }
+
+    InputStream in = new SpoolInputStream(newInputStream(mFile, mCodec),
+        new BufferedOutputStream(Files.newOutputStream(mSpool), BUFFER_SIZE));
+
+    return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+        BUFFER_SIZE);
+  }
+
+  /**
+   * Returns a path to the uncompressed text, decompressing it first if
+   * necessary, for APIs that need a plain file.
+   * 
+   * @return the file itself if it is not compressed, otherwise the spool,
+   *         which is deleted when this source is closed.
+   * @throws IOException if the file cannot be decompressed.
+   */
+  public Path getPath() throws IOException {
+    if (mCodec == Codec.NONE) {
+      return mFile;
+    }
+
+    if (!mSpooled) {
+      // Closing the reader spools the whole file
+      newBufferedReader().close();
+    }
+
+    return mSpool;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (mSpool != null) {
+      Files.deleteIfExists(mSpool);
+    }
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Open a file for reading, decompressing it on a background thread if it
+   * is compressed.
+   * 
+   * @param file the file, compressed or not.
+   * @return a stream of the decompressed bytes.
+   * @throws IOException if the file cannot be opened.
+   */
+  public static InputStream newInputStream(Path file) throws IOException {
+    return newInputStream(file, Codec.detect(file));
+  }
+
+  private static InputStream newInputStream(Path file, Codec codec)
+      throws IOException {
+    InputStream in = Files.newInputStream(file);
+
+    if (codec == Codec.NONE) {
+      return in;
+    }
+
+    return new PipelinedInputStream(codec.decode(in));
+  }
+
+  /**
+   * Open a possibly compressed text file for a single read.
+   * 
+   * @param file the file, compressed or not.
+   * @return a UTF-8 reader over the decompressed text.
+   * @throws IOException if the file cannot be opened.
+   */
+  public static BufferedReader newBufferedReader(Path file)
+      throws IOException {
+    Codec codec = Codec.detect(file);
+
+    if (codec == Codec.NONE) {
+      return FileUtils.newBufferedReader(file);
+    }
+
+    return new BufferedReader(new InputStreamReader(
+        newInputStream(file, codec), StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  /**
+   * Open a file for writing, compressing according to its extension (see
+   * {@link Codec#fromExtension(Path)}).
+   * 
+   * @param file the file to create or overwrite.
+   * @return a buffered stream that must be closed to finish the file.
+   * @throws IOException if the file cannot be created.
+   */
+  public static OutputStream newOutputStream(Path file) throws IOException {
+    return Codec.fromExtension(file).encode(
+        new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+  }
+}
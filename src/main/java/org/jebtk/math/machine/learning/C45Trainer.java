@@ -0,0 +1,700 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.math.machine.learning;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.jebtk.core.Mathematics;
+import org.jebtk.core.collections.CollectionUtils;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.jebtk.math.progress.Progress;
+
+/**
+ * Grows C4.5 trees from a matrix whose rows are attributes and whose
+ * columns are samples. Each attribute is sorted once into an array of
+ * sample indices. A node is a range of every order array, so finding the
+ * best pivot is a single scan of the range that moves one sample at a time
+ * from the right class counts to the left ones. When a node is split each
+ * order array is stably partitioned so both children stay sorted.
+ * 
+ * Order arrays may repeat a sample, as in a bootstrap sample, since copies
+ * of a sample have the same value and so always fall on the same side of a
+ * pivot. The trainer only reads the shared values, so several trees can be
+ * trained at once from one trainer.
+ */
+class C45Trainer {
+
+  /**
+   * Attributes are evaluated in parallel when a node has more than this
+   * many cells (samples x attributes).
+   */
+  private static final int PARALLEL_CELLS = 1 << 16;
+
+  /** Ranges at most this long are insertion sorted. */
+  private static final int INSERTION_SORT_SIZE = 16;
+
+  /** The attribute names. */
+  private final String[] mAttributes;
+
+  /** The value of each attribute (row) for each sample (column). */
+  private final double[][] mValues;
+
+  /** The class of each sample. */
+  private final int[] mY;
+
+  /** The class names. */
+  private final List<String> mClasses;
+
+  /** Whether an attribute can be split on more than once. */
+  private boolean mReuse = false;
+
+  /** The attributes tried at each node, 0 for all of them. */
+  private int mAttributesPerNode = 0;
+
+  /** Whether attributes are evaluated in parallel. */
+  private boolean mParallel = true;
+
+  /** Whether each split is reported to the progress. */
+  private boolean mReport = true;
+
+  /**
+   * Instantiates a new trainer.
+   *
+   * @param attributes the attributes
+   * @param values the values
+   * @param y the y
+   * @param classes the classes
+   */
+  C45Trainer(String[] attributes, double[][] values, int[] y,
+      List<String> classes) {
+    mAttributes = attributes;
+    mValues = values;
+    mY = y;
+    mClasses = classes;
+  }
+
+  /**
+   * Allow attributes to be split on more than once. By default each
+   * attribute is used at most once in a tree.
+   *
+   * @param reuse the reuse
+   * @return the trainer
+   */
+  C45Trainer reuseAttributes(boolean reuse) {
+    mReuse = reuse;
+
+    return this;
+  }
+
+  /**
+   * Only try a random subset of the attributes at each node.
+   *
+   * @param n the number of attributes, 0 for all of them.
+   * @return the trainer
+   */
+  C45Trainer attributesPerNode(int n) {
+    mAttributesPerNode = n;
+
+    return this;
+  }
+
+  /**
+   * Set whether the attributes of a node are evaluated in parallel. This
+   * should be off when trees are themselves trained in parallel.
+   *
+   * @param parallel the parallel
+   * @return the trainer
+   */
+  C45Trainer parallel(boolean parallel) {
+    mParallel = parallel;
+
+    return this;
+  }
+
+  /**
+   * Set whether each split is reported to the progress. If not the
+   * progress is only checked for cancellation.
+   *
+   * @param report the report
+   * @return the trainer
+   */
+  C45Trainer report(boolean report) {
+    mReport = report;
+
+    return this;
+  }
+
+  /**
+   * Returns the number of attributes.
+   *
+   * @return the attributes
+   */
+  int getAttributes() {
+    return mValues.length;
+  }
+
+  /**
+   * Returns the number of samples.
+   *
+   * @return the samples
+   */
+  int getSamples() {
+    return mY.length;
+  }
+
+  /**
+   * Returns the value of an attribute for a sample.
+   *
+   * @param attribute the attribute
+   * @param sample the sample
+   * @return the value
+   */
+  double getValue(int attribute, int sample) {
+    return mValues[attribute][sample];
+  }
+
+  /**
+   * Returns the class of a sample.
+   *
+   * @param sample the sample
+   * @return the class
+   */
+  int getClass(int sample) {
+    return mY[sample];
+  }
+
+  /**
+   * Returns the class names.
+   *
+   * @return the classes
+   */
+  List<String> getClasses() {
+    return mClasses;
+  }
+
+  /**
+   * Returns the samples of each attribute sorted by value.
+   *
+   * @return the int[][]
+   */
+  int[][] sort() {
+    int[][] ret = new int[mValues.length][];
+
+    IntStream.range(0, mValues.length).parallel()
+        .forEach(a -> ret[a] = sortIndex(mValues[a]));
+
+    return ret;
+  }
+
+  /**
+   * Grow a tree.
+   *
+   * @param samples the samples in the tree, which are partitioned in place
+   *          alongside the order arrays.
+   * @param order the samples sorted by each attribute, as returned by
+   *          {@link #sort()} or a bootstrap sample of it. The arrays are
+   *          partitioned in place.
+   * @param random chooses the attributes tried at each node. May be null
+   *          if all attributes are tried.
+   * @param progress the progress
+   * @return the decision tree
+   */
+  DecisionTree train(int[] samples,
+      final int[][] order,
+      Random random,
+      Progress progress) {
+    final int na = mValues.length;
+    final int k = mClasses.size();
+
+    int n = samples.length;
+
+    boolean[] used = new boolean[na];
+    boolean[] left = new boolean[mY.length];
+
+    final double[] gains = new double[na];
+    final int[] pivots = new int[na];
+
+    // The attributes tried at a node
+    int[] candidates = new int[na];
+
+    Deque<int[]> sQueue = new ArrayDeque<int[]>();
+    Deque<DecisionTree> tQueue = new ArrayDeque<DecisionTree>();
+
+    // Start will all the columns (S)
+    sQueue.push(new int[] { 0, n });
+
+    DecisionTree root = null;
+
+    int splits = 0;
+
+    // Each split uses up an attribute and at least one sample
+    int maxSplits = Math.min(na, n - 1);
+
+    while (!sQueue.isEmpty()) {
+      if (mReport) {
+        progress.update(C45.TREE_PHASE, splits, maxSplits);
+      } else {
+        progress.check();
+      }
+
+      // The range of samples we are going to subdivide
+      int[] s = sQueue.pop();
+
+      final int from = s[0];
+      final int to = s[1];
+
+      // Get the parent (if one exists)
+      DecisionTree node = null;
+
+      if (!tQueue.isEmpty()) {
+        node = tQueue.pop();
+      }
+
+      final int[] counts = new int[k];
+
+      for (int i = from; i < to; ++i) {
+        ++counts[mY[samples[i]]];
+      }
+
+      final double entropy = entropy(counts, to - from);
+
+      int bestAttIdx = -1;
+
+      if (entropy > 0) {
+        int nc = candidates(used, candidates, random);
+
+        //
+        // Find the best pivot of each attribute
+        //
+
+        IntStream atts = IntStream.of(candidates).limit(nc);
+
+        if (mParallel && (long) (to - from) * nc > PARALLEL_CELLS) {
+          atts = atts.parallel();
+        }
+
+        atts.forEach(a -> pivot(mValues[a],
+            order[a],
+            counts,
+            from,
+            to,
+            entropy,
+            a,
+            gains,
+            pivots));
+
+        // Keep the lowest attribute with the max information gain so the
+        // tree does not depend on the order the attributes were evaluated.
+        double maxAttIG = 0;
+
+        for (int i = 0; i < nc; ++i) {
+          int a = candidates[i];
+
+          if (pivots[a] > 0 && (gains[a] > maxAttIG
+              || (gains[a] == maxAttIG && a < bestAttIdx))) {
+            bestAttIdx = a;
+            maxAttIG = gains[a];
+          }
+        }
+      }
+
+      if (bestAttIdx == -1) {
+        // A leaf since the samples have one class or cannot be separated.
+        // The leaf just contains the label and no decision object
+        // so we know when we have finished parsing the tree
+        DecisionTree child = new DecisionTree(mClasses.get(majority(counts)));
+
+        if (node != null) {
+          node.addChild(child);
+        } else {
+          root = child;
+        }
+
+        continue;
+      }
+
+      int[] best = order[bestAttIdx];
+      double[] bestValues = mValues[bestAttIdx];
+
+      final int mid = from + pivots[bestAttIdx];
+
+      // Use the midpoint value of the two points surrounding the pivot
+      // to get the numerical point around which we decide which
+      // cluster to be in.
+      double pivot = (bestValues[best[mid - 1]] + bestValues[best[mid]]) / 2;
+
+      Decision d = new Decision(bestAttIdx, pivot);
+
+      DecisionTree child = new DecisionTree(
+          mAttributes[bestAttIdx] + " <= " + pivot, d);
+
+      // Create the root if it doesn't exist
+      if (root == null) {
+        root = child;
+      }
+
+      // If there is a parent, make ourselves the child of it
+      if (node != null) {
+        node.addChild(child);
+      }
+
+      // Unless attributes are reused, we can only check an attribute once
+      used[bestAttIdx] = !mReuse;
+      ++splits;
+
+      //
+      // Partition every order array so both children are contiguous and
+      // still sorted
+      //
+
+      for (int i = from; i < to; ++i) {
+        left[best[i]] = i < mid;
+      }
+
+      partition(samples, left, from, to);
+
+      IntStream atts = IntStream.range(0, na);
+
+      if (mParallel && (long) (to - from) * na > PARALLEL_CELLS) {
+        atts = atts.parallel();
+      }
+
+      atts.forEach(a -> {
+        if (!used[a]) {
+          partition(order[a], left, from, to);
+        }
+      });
+
+      // Process depth first so we always want to process s1 before s2
+      sQueue.push(new int[] { mid, to });
+      sQueue.push(new int[] { from, mid });
+
+      // Both will share the node as a parent
+      tQueue.push(child);
+      tQueue.push(child);
+    }
+
+    if (mReport) {
+      progress.update(C45.TREE_PHASE, 1);
+    }
+
+    return root;
+  }
+
+  /**
+   * Fill an array with the attributes to try at a node, either all the
+   * unused ones or a random subset of them.
+   *
+   * @param used the used attributes
+   * @param candidates the candidates
+   * @param random the random
+   * @return the number of candidates
+   */
+  private int candidates(boolean[] used, int[] candidates, Random random) {
+    int ret = 0;
+
+    for (int a = 0; a < used.length; ++a) {
+      if (!used[a]) {
+        candidates[ret++] = a;
+      }
+    }
+
+    if (mAttributesPerNode > 0 && mAttributesPerNode < ret) {
+      // Partial Fisher-Yates shuffle
+      for (int i = 0; i < mAttributesPerNode; ++i) {
+        int j = i + random.nextInt(ret - i);
+
+        int t = candidates[i];
+        candidates[i] = candidates[j];
+        candidates[j] = t;
+      }
+
+      ret = mAttributesPerNode;
+    }
+
+    return ret;
+  }
+
+  /**
+   * Find the pivot with the max information gain for one attribute by
+   * scanning its sorted range once. Pivots are only placed between
+   * distinct values.
+   *
+   * @param values the attribute values of every sample.
+   * @param order the samples sorted by value.
+   * @param counts the class counts of the range.
+   * @param from the start of the range.
+   * @param to the end of the range.
+   * @param hs the entropy of the range.
+   * @param a the attribute.
+   * @param gains stores the max information gain of the attribute.
+   * @param pivots stores the number of samples left of the best pivot or -1
+   *          if there is no pivot.
+   */
+  private void pivot(final double[] values,
+      final int[] order,
+      final int[] counts,
+      int from,
+      int to,
+      double hs,
+      int a,
+      double[] gains,
+      int[] pivots) {
+    int[] left = new int[counts.length];
+    int[] right = counts.clone();
+
+    double n = to - from;
+
+    int bestPivot = -1;
+    double maxIG = 0;
+
+    for (int i = from; i < to - 1; ++i) {
+      int c = mY[order[i]];
+
+      ++left[c];
+      --right[c];
+
+      if (!(values[order[i]] < values[order[i + 1]])) {
+        continue;
+      }
+
+      int n1 = i - from + 1;
+      int n2 = to - from - n1;
+
+      double ig = hs - (n1 / n) * entropy(left, n1)
+          - (n2 / n) * entropy(right, n2);
+
+      // Find the split with the max information gain
+      if (ig > maxIG) {
+        bestPivot = n1;
+        maxIG = ig;
+      }
+    }
+
+    gains[a] = maxIG;
+    pivots[a] = bestPivot;
+  }
+
+  /**
+   * Create a trainer from a matrix and the groups labelling its columns.
+   * Each column must be in at least one group; a column in several groups
+   * is labelled with the first.
+   *
+   * @param m the m
+   * @param groups the groups
+   * @return the trainer
+   */
+  static C45Trainer create(DataFrame m, List<? extends MatrixGroup> groups) {
+    int n = m.getCols();
+
+    String[] labels = new String[n];
+
+    Map<Integer, List<MatrixGroup>> indexMap = MatrixGroup
+        .arrangeGroupsByIndex(m, groups);
+
+    for (int index : CollectionUtils.sortKeys(indexMap)) {
+      labels[index] = indexMap.get(index).get(0).getName();
+    }
+
+    for (int i = 0; i < n; ++i) {
+      if (labels[i] == null) {
+        throw new IllegalArgumentException(
+            "Column " + m.getColumnName(i) + " is not in a group.");
+      }
+    }
+
+    //
+    // Encode the labels as ints
+    //
+
+    List<String> classes = new ArrayList<String>();
+    Map<String, Integer> codeMap = new HashMap<String, Integer>();
+
+    int[] y = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      String label = labels[i];
+
+      Integer code = codeMap.get(label);
+
+      if (code == null) {
+        code = classes.size();
+        classes.add(label);
+        codeMap.put(label, code);
+      }
+
+      y[i] = code;
+    }
+
+    String[] attributes = m.getRowNames();
+
+    double[][] values = new double[attributes.length][n];
+
+    for (int a = 0; a < attributes.length; ++a) {
+      m.rowToDouble(a, values[a]);
+    }
+
+    return new C45Trainer(attributes, values, y, classes);
+  }
+
+  /**
+   * Stably partition a range so samples flagged as left come first.
+   *
+   * @param order the order
+   * @param left the left
+   * @param from the from
+   * @param to the to
+   */
+  private static void partition(int[] order, boolean[] left, int from,
+      int to) {
+    int[] right = new int[to - from];
+
+    int l = from;
+    int r = 0;
+
+    for (int i = from; i < to; ++i) {
+      int s = order[i];
+
+      if (left[s]) {
+        order[l++] = s;
+      } else {
+        right[r++] = s;
+      }
+    }
+
+    System.arraycopy(right, 0, order, l, r);
+  }
+
+  /**
+   * Entropy of a set of class counts.
+   *
+   * @param counts the counts
+   * @param n the total of the counts
+   * @return the double
+   */
+  private static double entropy(final int[] counts, int n) {
+    double entropy = 0;
+
+    for (int c : counts) {
+      if (c > 0) {
+        double px = c / (double) n;
+
+        entropy -= px * Mathematics.log2(px);
+      }
+    }
+
+    return entropy;
+  }
+
+  /**
+   * Returns the most frequent class, the lowest in case of ties.
+   *
+   * @param counts the counts
+   * @return the int
+   */
+  static int majority(final int[] counts) {
+    int ret = 0;
+
+    for (int i = 1; i < counts.length; ++i) {
+      if (counts[i] > counts[ret]) {
+        ret = i;
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the indices of values in ascending order. The sort is stable
+   * and NaNs are sorted last.
+   *
+   * @param values the values
+   * @return the int[]
+   */
+  private static int[] sortIndex(final double[] values) {
+    int n = values.length;
+
+    int[] ret = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      ret[i] = i;
+    }
+
+    mergeSort(values, ret, new int[n], 0, n);
+
+    return ret;
+  }
+
+  /**
+   * Merge sort a range of indices by value.
+   */
+  private static void mergeSort(final double[] values,
+      int[] order,
+      int[] tmp,
+      int from,
+      int to) {
+    if (to - from <= INSERTION_SORT_SIZE) {
+      for (int i = from + 1; i < to; ++i) {
+        int s = order[i];
+        int j = i - 1;
+
+        while (j >= from && Double.compare(values[order[j]], values[s]) > 0) {
+          order[j + 1] = order[j];
+          --j;
+        }
+
+        order[j + 1] = s;
+      }
+
+      return;
+    }
+
+    int mid = (from + to) >>> 1;
+
+    mergeSort(values, order, tmp, from, mid);
+    mergeSort(values, order, tmp, mid, to);
+
+    // Already in order
+    if (Double.compare(values[order[mid - 1]], values[order[mid]]) <= 0) {
+      return;
+    }
+
+    System.arraycopy(order, from, tmp, from, to - from);
+
+    int i = from;
+    int j = mid;
+    int k = from;
+
+    while (i < mid && j < to) {
+      if (Double.compare(values[tmp[j]], values[tmp[i]]) < 0) {
+        order[k++] = tmp[j++];
+      } else {
+        order[k++] = tmp[i++];
+      }
+    }
+
+    System.arraycopy(tmp, i, order, k, mid - i);
+    System.arraycopy(tmp, j, order, k, to - j);
+  }
+}
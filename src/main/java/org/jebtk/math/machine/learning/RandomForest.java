@@ -0,0 +1,335 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jebtk.math.machine.learning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.jebtk.core.tree.TreeNode;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.jebtk.math.progress.Progress;
+
+/**
+ * A random forest of C4.5 trees. Each tree is grown on a bootstrap sample
+ * of the columns of a matrix, trying a random subset of the attributes
+ * (rows) at each node and allowing attributes to be split on more than
+ * once. Trees are grown concurrently on the common fork join pool. Samples
+ * left out of a tree's bootstrap are classified by that tree to estimate
+ * the out-of-bag error.
+ */
+public class RandomForest {
+
+  /** The progress phase while building the forest. */
+  public static final String FOREST_PHASE = "Building forest";
+
+  /** The default number of trees. */
+  public static final int DEFAULT_TREES = 100;
+
+  /** The trees. */
+  private final List<DecisionTree> mTrees;
+
+  /** The class names. */
+  private final List<String> mClasses;
+
+  /** The index of each class name. */
+  private final Map<String, Integer> mClassMap;
+
+  /** The out-of-bag error. */
+  private final double mOobError;
+
+  /**
+   * Instantiates a new random forest.
+   *
+   * @param trees the trees
+   * @param classes the classes
+   * @param oobError the oob error
+   */
+  private RandomForest(List<DecisionTree> trees, List<String> classes,
+      double oobError) {
+    mTrees = Collections.unmodifiableList(trees);
+    mClasses = Collections.unmodifiableList(classes);
+    mOobError = oobError;
+
+    mClassMap = new HashMap<String, Integer>();
+
+    for (int i = 0; i < classes.size(); ++i) {
+      mClassMap.put(classes.get(i), i);
+    }
+  }
+
+  /**
+   * Returns the trees in the forest.
+   *
+   * @return the trees
+   */
+  public List<DecisionTree> getTrees() {
+    return mTrees;
+  }
+
+  /**
+   * Returns the class names in the order they were first seen.
+   *
+   * @return the classes
+   */
+  public List<String> getClasses() {
+    return mClasses;
+  }
+
+  /**
+   * Returns the out-of-bag error, the fraction of samples misclassified by
+   * the trees that did not see them, or NaN if every sample was in every
+   * bootstrap.
+   *
+   * @return the oob error
+   */
+  public double getOobError() {
+    return mOobError;
+  }
+
+  /**
+   * Classify a sample by majority vote of the trees. Ties go to the class
+   * seen first in training.
+   *
+   * @param values the value of each attribute, in the row order of the
+   *          training matrix.
+   * @return the class
+   */
+  public String classify(double[] values) {
+    int[] votes = new int[mClasses.size()];
+
+    for (DecisionTree tree : mTrees) {
+      ++votes[mClassMap.get(DecisionTree.classify(tree, values))];
+    }
+
+    return mClasses.get(C45Trainer.majority(votes));
+  }
+
+  /**
+   * Classify each column of a matrix. The rows must be the attributes the
+   * forest was trained on, in the same order.
+   *
+   * @param m the m
+   * @return the class of each column.
+   */
+  public String[] classify(DataFrame m) {
+    int r = m.getRows();
+    int c = m.getCols();
+
+    final double[][] samples = new double[c][r];
+
+    for (int i = 0; i < c; ++i) {
+      m.columnToDouble(i, samples[i]);
+    }
+
+    String[] ret = new String[c];
+
+    IntStream.range(0, c).parallel()
+        .forEach(i -> ret[i] = classify(samples[i]));
+
+    return ret;
+  }
+
+  /**
+   * Train a forest of {@code DEFAULT_TREES} trees.
+   *
+   * @param m the m
+   * @param groups the groups labelling the columns.
+   * @return the random forest
+   */
+  public static RandomForest train(DataFrame m,
+      List<? extends MatrixGroup> groups) {
+    return train(m, groups, DEFAULT_TREES, 0, 0, Progress.NONE);
+  }
+
+  /**
+   * Train a forest.
+   *
+   * @param m the m
+   * @param groups the groups labelling the columns.
+   * @param trees the number of trees.
+   * @param attributesPerNode the number of attributes tried at each node or
+   *          0 for the square root of the number of attributes.
+   * @param seed seeds the bootstrap samples and attribute choices so the
+   *          same forest is grown each time.
+   * @param progress reports each tree and may cancel training.
+   * @return the random forest
+   */
+  public static RandomForest train(DataFrame m,
+      List<? extends MatrixGroup> groups,
+      final int trees,
+      int attributesPerNode,
+      final long seed,
+      final Progress progress) {
+    if (attributesPerNode < 1) {
+      attributesPerNode = Math.max(1, (int) Math.sqrt(m.getRows()));
+    }
+
+    // Trees are trained in parallel so each tree is grown sequentially
+    final C45Trainer trainer = C45Trainer.create(m, groups)
+        .reuseAttributes(true)
+        .attributesPerNode(attributesPerNode)
+        .parallel(false)
+        .report(false);
+
+    final int n = trainer.getSamples();
+    final int na = trainer.getAttributes();
+    final int k = trainer.getClasses().size();
+
+    if (n == 0) {
+      return new RandomForest(new ArrayList<DecisionTree>(),
+          trainer.getClasses(), Double.NaN);
+    }
+
+    // Sort once, each tree's order arrays are filtered from these
+    final int[][] order = trainer.sort();
+
+    final DecisionTree[] forest = new DecisionTree[trees];
+
+    // Out-of-bag votes for each sample
+    final int[][] votes = new int[n][k];
+
+    final AtomicInteger done = new AtomicInteger();
+
+    progress.check();
+
+    IntStream.range(0, trees).parallel().forEach(t -> {
+      Random random = new Random(seed * 31 + t);
+
+      //
+      // Bootstrap sample the columns
+      //
+
+      int[] counts = new int[n];
+
+      for (int i = 0; i < n; ++i) {
+        ++counts[random.nextInt(n)];
+      }
+
+      int[] samples = new int[n];
+      int p = 0;
+
+      for (int i = 0; i < n; ++i) {
+        for (int j = 0; j < counts[i]; ++j) {
+          samples[p++] = i;
+        }
+      }
+
+      // Keep the presorted order, repeating samples drawn more than once
+      int[][] treeOrder = new int[na][n];
+
+      for (int a = 0; a < na; ++a) {
+        int[] o = treeOrder[a];
+
+        p = 0;
+
+        for (int s : order[a]) {
+          for (int j = 0; j < counts[s]; ++j) {
+            o[p++] = s;
+          }
+        }
+      }
+
+      DecisionTree tree = trainer.train(samples, treeOrder, random, progress);
+
+      forest[t] = tree;
+
+      //
+      // Classify the samples the tree did not see
+      //
+
+      int[] oob = new int[n];
+
+      Arrays.fill(oob, -1);
+
+      for (int i = 0; i < n; ++i) {
+        if (counts[i] == 0) {
+          oob[i] = classify(tree, trainer, i);
+        }
+      }
+
+      synchronized (votes) {
+        for (int i = 0; i < n; ++i) {
+          if (oob[i] != -1) {
+            ++votes[i][oob[i]];
+          }
+        }
+      }
+
+      synchronized (progress) {
+        progress.update(FOREST_PHASE, done.incrementAndGet(), trees);
+      }
+    });
+
+    //
+    // Out-of-bag error
+    //
+
+    int total = 0;
+    int errors = 0;
+
+    for (int i = 0; i < n; ++i) {
+      int[] v = votes[i];
+
+      int c = C45Trainer.majority(v);
+
+      if (v[c] > 0) {
+        ++total;
+
+        if (c != trainer.getClass(i)) {
+          ++errors;
+        }
+      }
+    }
+
+    return new RandomForest(Arrays.asList(forest),
+        trainer.getClasses(),
+        total > 0 ? errors / (double) total : Double.NaN);
+  }
+
+  /**
+   * Classify a training sample, reading its values from the trainer rather
+   * than copying them.
+   *
+   * @param root the root
+   * @param trainer the trainer
+   * @param sample the sample
+   * @return the class index
+   */
+  private static int classify(TreeNode<Decision> root,
+      C45Trainer trainer,
+      int sample) {
+    TreeNode<Decision> current = root;
+
+    while (current.getValue() != null) {
+      Decision decision = current.getValue();
+
+      double v = trainer.getValue(decision.getAttIdx(), sample);
+
+      // Move along to the next decision node.
+      current = current.getChild(v <= decision.getPivot() ? 0 : 1);
+    }
+
+    return trainer.getClasses().indexOf(current.getName());
+  }
+}
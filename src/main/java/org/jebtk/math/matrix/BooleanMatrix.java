@@ -29,10 +29,9 @@ package org.jebtk.math.matrix;
 
 import java.util.Arrays;
 
-import org.jebtk.core.sys.SysUtils;
-
 /**
- * Matrix for storing integers only.
+ * Matrix of booleans packed 64 cells to a long word in row major order.
+ * Logical operations and counts work on whole words at a time.
  *
  * @author Antony Holmes
  */
@@ -44,9 +43,10 @@ public class BooleanMatrix extends IndexRowMatrix {
   private static final long serialVersionUID = 1L;
 
   /**
-   * The member data.
+   * The cell bits. Bit i of word w is cell w * 64 + i. Bits beyond the last
+   * cell are always zero.
    */
-  public final boolean[] mData;
+  public final long[] mWords;
   
   /**
    * Instantiates a new numerical matrix.
@@ -57,8 +57,7 @@ public class BooleanMatrix extends IndexRowMatrix {
   public BooleanMatrix(int rows, int columns) {
     super(rows, columns);
 
-    // We use a 1d array to store a 2d matrix for speed.
-    mData = new boolean[mSize];
+    mWords = new long[words(mSize)];
   }
 
   /**
@@ -134,7 +133,8 @@ public class BooleanMatrix extends IndexRowMatrix {
    * @param m the m
    */
   public void update(BooleanMatrix m) {
-    SysUtils.arraycopy(m.mData, mData);
+    System.arraycopy(m.mWords, 0, mWords, 0, 
+        Math.min(m.mWords.length, mWords.length));
   }
   
   @Override
@@ -191,8 +191,25 @@ public class BooleanMatrix extends IndexRowMatrix {
     }
   }
   
+  /**
+   * Returns the value of a cell by its row major index.
+   *
+   * @param index the cell index.
+   * @return true if the cell is set.
+   */
   public boolean getBool(int index) {
-    return mData[index];
+    return (mWords[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Returns the value of a cell.
+   *
+   * @param row the row.
+   * @param column the column.
+   * @return true if the cell is set.
+   */
+  public boolean getBool(int row, int column) {
+    return getBool(getIndex(row, column));
   }
 
   /*
@@ -202,25 +219,49 @@ public class BooleanMatrix extends IndexRowMatrix {
    */
   @Override
   public void update(double v) {
-    int i;
+    update(isValidMatrixNum(v) && v != 0);
+  }
 
-    if (isValidMatrixNum(v)) {
-      i = (int) v;
-    } else {
-      i = 0;
-    }
+  @Override
+  public void update(boolean v) {
+    Arrays.fill(mWords, v ? -1L : 0);
 
-    update(i);
+    clearTail();
   }
 
   @Override
-  public void update(boolean v) {
-    Arrays.fill(mData, v);
+  public void update(int index, double v) {
+    update(index, isValidMatrixNum(v) && v != 0);
+  }
+
+  @Override
+  public void update(int index, int v) {
+    update(index, v != 0);
+  }
+
+  @Override
+  public void update(int index, long v) {
+    update(index, v != 0);
   }
 
   @Override
   public void update(int index, boolean v) {
-    mData[index] = v;
+    if (v) {
+      mWords[index >>> 6] |= 1L << index;
+    } else {
+      mWords[index >>> 6] &= ~(1L << index);
+    }
+  }
+
+  /**
+   * Clear the unused bits of the last word.
+   */
+  private void clearTail() {
+    int r = mSize & 63;
+
+    if (r != 0) {
+      mWords[mWords.length - 1] &= (1L << r) - 1;
+    }
   }
 
   /*
@@ -230,12 +271,18 @@ public class BooleanMatrix extends IndexRowMatrix {
    */
   @Override
   public String getText(int index) {
-    return Boolean.toString(mData[index]);
+    return Boolean.toString(getBool(index));
   }
   
   @Override
   public void setRow(int row, boolean[] values) {
-    SysUtils.arraycopy(values, mData, getIndex(row, 0), values.length);
+    int index = mRowOffsets[row];
+
+    int n = Math.min(values.length, mDim.mCols);
+
+    for (int i = 0; i < n; ++i) {
+      update(index++, values[i]);
+    }
   }
 
   /**
@@ -246,17 +293,13 @@ public class BooleanMatrix extends IndexRowMatrix {
    * @param toColumn the to column
    */
   public void copyColumn(final BooleanMatrix from, int column, int toColumn) {
-    // if (from.getRowCount() == 0 || getRowCount() == 0) {
-    // return;
-    // }
-
     int i1 = from.getIndex(0, column);
     int i2 = getIndex(0, toColumn);
 
     int r = Math.min(from.getRows(), getRows());
 
     for (int i = 0; i < r; ++i) {
-      mData[i2] = from.mData[i1];
+      update(i2, from.getBool(i1));
 
       i1 += from.mDim.mCols;
       i2 += mDim.mCols;
@@ -273,14 +316,14 @@ public class BooleanMatrix extends IndexRowMatrix {
    * @param toRow the to row
    */
   public void copyRow(final BooleanMatrix from, int row, int toRow) {
-
     int c = Math.min(from.getCols(), getCols());
 
-    System.arraycopy(from.mData,
-        from.mRowOffsets[row],
-        mData,
-        mRowOffsets[toRow],
-        c);
+    int i1 = from.mRowOffsets[row];
+    int i2 = mRowOffsets[toRow];
+
+    for (int i = 0; i < c; ++i) {
+      update(i2++, from.getBool(i1++));
+    }
 
     fireMatrixChanged();
   }
@@ -290,7 +333,7 @@ public class BooleanMatrix extends IndexRowMatrix {
     int offset = mRowOffsets[index];
 
     for (int i = 0; i < mDim.mCols; ++i) {
-      mData[offset] = f.f(i, 0, getInt(offset)) > 0;
+      update(offset, f.f(i, 0, getInt(offset)) > 0);
 
       ++offset;
     }
@@ -302,8 +345,8 @@ public class BooleanMatrix extends IndexRowMatrix {
   public void colApply(CellFunction f, int index) {
     int offset = index;
 
-    for (int i = 0; i < mDim.mCols; ++i) {
-      mData[offset] = f.f(i, 0, getInt(offset)) > 0;
+    for (int i = 0; i < mDim.mRows; ++i) {
+      update(offset, f.f(i, 0, getInt(offset)) > 0);
 
       offset += mDim.mCols;
     }
@@ -311,6 +354,201 @@ public class BooleanMatrix extends IndexRowMatrix {
     fireMatrixChanged();
   }
 
+  /**
+   * Returns the number of true cells.
+   *
+   * @return the int
+   */
+  public int count() {
+    int ret = 0;
+
+    for (long w : mWords) {
+      ret += Long.bitCount(w);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the index of the first true cell at or after an index or -1 if
+   * there are none. Iterate over the true cells with
+   * {@code for (int i = m.nextSetBit(0); i != -1; i = m.nextSetBit(i + 1))}.
+   *
+   * @param index the index
+   * @return the int
+   */
+  public int nextSetBit(int index) {
+    if (index >= mSize) {
+      return -1;
+    }
+
+    int w = index >>> 6;
+
+    long word = mWords[w] & (-1L << index);
+
+    while (true) {
+      if (word != 0) {
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+      }
+
+      if (++w == mWords.length) {
+        return -1;
+      }
+
+      word = mWords[w];
+    }
+  }
+
+  /**
+   * Returns the indices of the true cells in ascending order.
+   *
+   * @return the int[]
+   */
+  public int[] toIndices() {
+    int[] ret = new int[count()];
+
+    int n = 0;
+
+    for (int w = 0; w < mWords.length; ++w) {
+      long word = mWords[w];
+
+      while (word != 0) {
+        ret[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+
+        // Clear the lowest set bit
+        word &= word - 1;
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Check another matrix has the same number of rows and columns as this
+   * one so that their words line up.
+   *
+   * @param m the other matrix.
+   */
+  private void checkShape(final BooleanMatrix m) {
+    if (m.getRows() != getRows() || m.getCols() != getCols()) {
+      throw new IllegalArgumentException("Matrix must be " + getRows() + "x"
+          + getCols() + " not " + m.getRows() + "x" + m.getCols() + ".");
+    }
+  }
+
+  /**
+   * Returns the cell-wise logical and of this matrix and another of the
+   * same shape.
+   *
+   * @param m the other matrix.
+   * @return the boolean matrix
+   * @throws IllegalArgumentException if the matrices differ in shape.
+   */
+  public BooleanMatrix and(final BooleanMatrix m) {
+    checkShape(m);
+
+    BooleanMatrix ret = new BooleanMatrix(this);
+
+    for (int i = 0; i < mWords.length; ++i) {
+      ret.mWords[i] &= m.mWords[i];
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the cell-wise logical or of this matrix and another of the
+   * same shape.
+   *
+   * @param m the other matrix.
+   * @return the boolean matrix
+   * @throws IllegalArgumentException if the matrices differ in shape.
+   */
+  public BooleanMatrix or(final BooleanMatrix m) {
+    checkShape(m);
+
+    BooleanMatrix ret = new BooleanMatrix(this);
+
+    for (int i = 0; i < mWords.length; ++i) {
+      ret.mWords[i] |= m.mWords[i];
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the cell-wise exclusive or of this matrix and another of the
+   * same shape.
+   *
+   * @param m the other matrix.
+   * @return the boolean matrix
+   * @throws IllegalArgumentException if the matrices differ in shape.
+   */
+  public BooleanMatrix xor(final BooleanMatrix m) {
+    checkShape(m);
+
+    BooleanMatrix ret = new BooleanMatrix(this);
+
+    for (int i = 0; i < mWords.length; ++i) {
+      ret.mWords[i] ^= m.mWords[i];
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the cell-wise logical not of this matrix.
+   *
+   * @return the boolean matrix
+   */
+  public BooleanMatrix not() {
+    BooleanMatrix ret = new BooleanMatrix(this);
+
+    for (int i = 0; i < mWords.length; ++i) {
+      ret.mWords[i] = ~ret.mWords[i];
+    }
+
+    ret.clearTail();
+
+    return ret;
+  }
+
+  /**
+   * Returns a one column matrix whose cells are true if any cell in the
+   * corresponding row of this matrix is true. This can be used as a row
+   * mask to filter a data frame.
+   *
+   * @return the boolean matrix
+   */
+  public BooleanMatrix anyInRow() {
+    BooleanMatrix ret = createBooleanMatrix(mDim.mRows, 1);
+
+    for (int r = 0; r < mDim.mRows; ++r) {
+      int i = nextSetBit(mRowOffsets[r]);
+
+      if (i == -1) {
+        break;
+      }
+
+      // Jump straight to the row of the next true cell
+      r = i / mDim.mCols;
+
+      ret.update(r, true);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns a one column matrix whose cells are true if every cell in the
+   * corresponding row of this matrix is true.
+   *
+   * @return the boolean matrix
+   */
+  public BooleanMatrix allInRow() {
+    return not().anyInRow().not();
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -324,19 +562,9 @@ public class BooleanMatrix extends IndexRowMatrix {
   public static Matrix transpose(final BooleanMatrix m) {
     BooleanMatrix ret = createBooleanMatrix(m.mDim.mCols, m.mDim.mRows);
 
-    int i2 = 0;
-    int c = 0;
-
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
-
-      ret.mData[i2] = m.mData[i];
-
-      // Skip blocks
-      i2 += m.mDim.mRows;
+    // Only the true cells need to be moved
+    for (int i = m.nextSetBit(0); i != -1; i = m.nextSetBit(i + 1)) {
+      ret.update((i % m.mDim.mCols) * m.mDim.mRows + i / m.mDim.mCols, true);
     }
 
     return ret;
@@ -346,6 +574,16 @@ public class BooleanMatrix extends IndexRowMatrix {
   // Static methods
   //
 
+  /**
+   * Returns the number of words needed to store a number of cells.
+   *
+   * @param size the size
+   * @return the int
+   */
+  public static int words(int size) {
+    return (size + 63) >>> 6;
+  }
+
   /**
    * Returns a new empty matrix the same dimensions as the input matrix.
    *
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+/**
+ * Adapters between {@link CellFunction} and the primitive specialised cell
+ * function interfaces, so existing cell functions can be run by the
+ * specialised {@link DoubleMatrix} kernels and vice versa.
+ */
+public class CellFunctions {
+
+  /**
+   * Base class for binary functions that can be used both as a
+   * {@link CellFunction} and by the primitive kernels, which check for
+   * {@link BinaryCellFunction} before falling back to the varargs form.
+   */
+  public abstract static class Binary
+      implements CellFunction, BinaryCellFunction {
+    @Override
+    public double f(int row, int col, double x, double... y) {
+      return f(x, y[0]);
+    }
+  }
+
+  private CellFunctions() {
+    // Do nothing
+  }
+
+  /**
+   * Adapt a cell function to the indexed unary form. The adapter passes a
+   * shared empty array as the varargs so it does not allocate per call.
+   *
+   * @param f the f
+   * @return the indexed unary cell function
+   */
+  public static IndexedUnaryCellFunction unary(final CellFunction f) {
+    final double[] y = new double[0];
+
+    return (row, col, x) -> f.f(row, col, x, y);
+  }
+
+  /**
+   * Adapt a cell function with a constant second value to the indexed unary
+   * form. The constant is passed in a shared array so the adapter does not
+   * allocate per call.
+   *
+   * @param f the f
+   * @param v the constant
+   * @return the indexed unary cell function
+   */
+  public static IndexedUnaryCellFunction unary(final CellFunction f,
+      double v) {
+    final double[] y = { v };
+
+    return (row, col, x) -> f.f(row, col, x, y);
+  }
+
+  /**
+   * Adapt a cell function to the indexed binary form. The second value has
+   * to be passed as an array so this adapter allocates per call; prefer
+   * implementing {@link IndexedBinaryCellFunction} directly.
+   *
+   * @param f the f
+   * @return the indexed binary cell function
+   */
+  public static IndexedBinaryCellFunction binary(final CellFunction f) {
+    return (row, col, x, y) -> f.f(row, col, x, y);
+  }
+
+  /**
+   * Adapt a unary function for use where a cell function is required.
+   *
+   * @param f the f
+   * @return the cell function
+   */
+  public static CellFunction cellFunction(final UnaryCellFunction f) {
+    return (row, col, x, y) -> f.f(x);
+  }
+
+  /**
+   * Adapt a binary function for use where a cell function is required. The
+   * second value is y[0].
+   *
+   * @param f the f
+   * @return the cell function
+   */
+  public static CellFunction cellFunction(final BinaryCellFunction f) {
+    return (row, col, x, y) -> f.f(x, y[0]);
+  }
+
+  /**
+   * Adapt an indexed unary function for use where a cell function is
+   * required.
+   *
+   * @param f the f
+   * @return the cell function
+   */
+  public static CellFunction cellFunction(final IndexedUnaryCellFunction f) {
+    return (row, col, x, y) -> f.f(row, col, x);
+  }
+
+  /**
+   * Adapt an indexed binary function for use where a cell function is
+   * required. The second value is y[0].
+   *
+   * @param f the f
+   * @return the cell function
+   */
+  public static CellFunction cellFunction(final IndexedBinaryCellFunction f) {
+    return (row, col, x, y) -> f.f(row, col, x, y[0]);
+  }
+}
@@ -0,0 +1,1058 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * Column oriented matrix in which each column has its own typed, primitive
+ * storage described by a {@link ColumnType} schema. Numbers are never boxed
+ * and text is dictionary encoded, so a frame with a few annotation columns
+ * and many numeric columns uses far less memory than a {@link MixedMatrix}
+ * and scanning a column walks a contiguous array.
+ */
+public class ColumnMatrix extends RegularMatrix {
+
+  /**
+   * The constant serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Typed storage for a single column.
+   */
+  public abstract static class Column implements Serializable {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Returns the storage type of the column.
+     *
+     * @return the type
+     */
+    public abstract ColumnType getType();
+
+    /**
+     * Returns the number of rows the column can store. This may be more
+     * than the rows of the matrix when the storage was handed over from a
+     * growable matrix.
+     *
+     * @return the number of rows.
+     */
+    public abstract int size();
+
+    /**
+     * Returns the numeric value of a cell. Text cells that are not numbers
+     * and missing values are NaN; booleans are 1 or 0.
+     *
+     * @param row the row
+     * @return the value
+     */
+    public abstract double getValue(int row);
+
+    /**
+     * Returns a cell as an int, truncating the numeric value.
+     *
+     * @param row the row
+     * @return the value
+     */
+    public int getInt(int row) {
+      return (int) getValue(row);
+    }
+
+    /**
+     * Returns a cell as a long, truncating the numeric value.
+     *
+     * @param row the row
+     * @return the value
+     */
+    public long getLong(int row) {
+      return (long) getValue(row);
+    }
+
+    /**
+     * Returns the text of a cell. Numbers are formatted with Java's
+     * default formatting, so a missing double is "NaN".
+     *
+     * @param row the row
+     * @return the text
+     */
+    public abstract String getText(int row);
+
+    /**
+     * Returns a cell boxed in its storage type, e.g. an Integer for an int
+     * column or a String for a text column.
+     *
+     * @param row the row
+     * @return the value
+     */
+    public Object get(int row) {
+      return getValue(row);
+    }
+
+    /**
+     * Update a cell with a number. Integer columns store NaN as 0 and
+     * truncate fractions, boolean columns store v &gt; 0 and text columns
+     * store the number's text.
+     *
+     * @param row the row
+     * @param v the v
+     */
+    public abstract void update(int row, double v);
+
+    /**
+     * Update a cell with an int, converted as for
+     * {@link #update(int, double)}.
+     *
+     * @param row the row
+     * @param v the v
+     */
+    public void update(int row, int v) {
+      update(row, (double) v);
+    }
+
+    /**
+     * Update a cell with a long, converted as for
+     * {@link #update(int, double)}. Double columns may lose precision
+     * beyond 2^53.
+     *
+     * @param row the row
+     * @param v the v
+     */
+    public void update(int row, long v) {
+      update(row, (double) v);
+    }
+
+    /**
+     * Update a cell with a boolean, stored as 1 or 0 by numeric columns.
+     *
+     * @param row the row
+     * @param v the v
+     */
+    public void update(int row, boolean v) {
+      update(row, v ? 1 : 0);
+    }
+
+    /**
+     * Update a cell with text. Numeric columns parse the text and store
+     * NaN (or 0 for integer types) if it is not a number.
+     *
+     * @param row the row
+     * @param v the v
+     */
+    public void update(int row, String v) {
+      if (TextUtils.isNumber(v)) {
+        update(row, Double.parseDouble(v));
+      } else {
+        update(row, Double.NaN);
+      }
+    }
+
+    /**
+     * Copy the column values into an array.
+     *
+     * @param ret the ret
+     */
+    public void toDouble(double[] ret) {
+      int n = Math.min(size(), ret.length);
+
+      for (int i = 0; i < n; ++i) {
+        ret[i] = getValue(i);
+      }
+    }
+
+    /**
+     * Copy the text of the column values into an array.
+     *
+     * @param ret the ret
+     */
+    public void toText(String[] ret) {
+      int n = Math.min(size(), ret.length);
+
+      for (int i = 0; i < n; ++i) {
+        ret[i] = getText(i);
+      }
+    }
+
+    /**
+     * Copy a cell into another column preserving the value type where
+     * possible.
+     *
+     * @param row the row
+     * @param to the to
+     * @param toRow the to row
+     */
+    public void copyCell(int row, Column to, int toRow) {
+      to.update(toRow, getValue(row));
+    }
+
+    /**
+     * Returns a copy of the column resized to a given number of rows.
+     *
+     * @param rows the rows
+     * @return the column
+     */
+    public abstract Column copy(int rows);
+  }
+
+  /**
+   * Column of doubles.
+   */
+  public static class DoubleColumn extends Column {
+    private static final long serialVersionUID = 1L;
+
+    public final double[] mData;
+
+    public DoubleColumn(int rows) {
+      this(new double[rows]);
+    }
+
+    public DoubleColumn(double[] data) {
+      mData = data;
+    }
+
+    @Override
+    public ColumnType getType() {
+      return ColumnType.DOUBLE;
+    }
+
+    @Override
+    public int size() {
+      return mData.length;
+    }
+
+    @Override
+    public double getValue(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public String getText(int row) {
+      return Double.toString(mData[row]);
+    }
+
+    @Override
+    public void update(int row, double v) {
+      mData[row] = v;
+    }
+
+    @Override
+    public void toDouble(double[] ret) {
+      System.arraycopy(mData, 0, ret, 0, Math.min(mData.length, ret.length));
+    }
+
+    @Override
+    public Column copy(int rows) {
+      return new DoubleColumn(Arrays.copyOf(mData, rows));
+    }
+  }
+
+  /**
+   * Column of ints.
+   */
+  public static class IntColumn extends Column {
+    private static final long serialVersionUID = 1L;
+
+    public final int[] mData;
+
+    public IntColumn(int rows) {
+      this(new int[rows]);
+    }
+
+    public IntColumn(int[] data) {
+      mData = data;
+    }
+
+    @Override
+    public ColumnType getType() {
+      return ColumnType.INT;
+    }
+
+    @Override
+    public int size() {
+      return mData.length;
+    }
+
+    @Override
+    public double getValue(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public int getInt(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public long getLong(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public Object get(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public String getText(int row) {
+      return Integer.toString(mData[row]);
+    }
+
+    @Override
+    public void update(int row, double v) {
+      mData[row] = Double.isNaN(v) ? 0 : (int) v;
+    }
+
+    @Override
+    public void update(int row, int v) {
+      mData[row] = v;
+    }
+
+    @Override
+    public void update(int row, long v) {
+      mData[row] = (int) v;
+    }
+
+    @Override
+    public void copyCell(int row, Column to, int toRow) {
+      to.update(toRow, mData[row]);
+    }
+
+    @Override
+    public Column copy(int rows) {
+      return new IntColumn(Arrays.copyOf(mData, rows));
+    }
+  }
+
+  /**
+   * Column of longs.
+   */
+  public static class LongColumn extends Column {
+    private static final long serialVersionUID = 1L;
+
+    public final long[] mData;
+
+    public LongColumn(int rows) {
+      this(new long[rows]);
+    }
+
+    public LongColumn(long[] data) {
+      mData = data;
+    }
+
+    @Override
+    public ColumnType getType() {
+      return ColumnType.LONG;
+    }
+
+    @Override
+    public int size() {
+      return mData.length;
+    }
+
+    @Override
+    public double getValue(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public int getInt(int row) {
+      return (int) mData[row];
+    }
+
+    @Override
+    public long getLong(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public Object get(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public String getText(int row) {
+      return Long.toString(mData[row]);
+    }
+
+    @Override
+    public void update(int row, double v) {
+      mData[row] = Double.isNaN(v) ? 0 : (long) v;
+    }
+
+    @Override
+    public void update(int row, int v) {
+      mData[row] = v;
+    }
+
+    @Override
+    public void update(int row, long v) {
+      mData[row] = v;
+    }
+
+    @Override
+    public void copyCell(int row, Column to, int toRow) {
+      to.update(toRow, mData[row]);
+    }
+
+    @Override
+    public Column copy(int rows) {
+      return new LongColumn(Arrays.copyOf(mData, rows));
+    }
+  }
+
+  /**
+   * Column of booleans. Numerically true is 1 and false is 0.
+   */
+  public static class BoolColumn extends Column {
+    private static final long serialVersionUID = 1L;
+
+    public final boolean[] mData;
+
+    public BoolColumn(int rows) {
+      this(new boolean[rows]);
+    }
+
+    public BoolColumn(boolean[] data) {
+      mData = data;
+    }
+
+    @Override
+    public ColumnType getType() {
+      return ColumnType.BOOL;
+    }
+
+    @Override
+    public int size() {
+      return mData.length;
+    }
+
+    @Override
+    public double getValue(int row) {
+      return mData[row] ? 1 : 0;
+    }
+
+    @Override
+    public Object get(int row) {
+      return mData[row];
+    }
+
+    @Override
+    public String getText(int row) {
+      return Boolean.toString(mData[row]);
+    }
+
+    @Override
+    public void update(int row, double v) {
+      mData[row] = v > 0;
+    }
+
+    @Override
+    public void update(int row, boolean v) {
+      mData[row] = v;
+    }
+
+    @Override
+    public void update(int row, String v) {
+      mData[row] = Boolean.parseBoolean(v) || 
+          (TextUtils.isNumber(v) && Double.parseDouble(v) > 0);
+    }
+
+    @Override
+    public void copyCell(int row, Column to, int toRow) {
+      to.update(toRow, mData[row]);
+    }
+
+    @Override
+    public Column copy(int rows) {
+      return new BoolColumn(Arrays.copyOf(mData, rows));
+    }
+  }
+
+  /**
+   * Dictionary encoded text column. Each cell stores the int code of its
+   * value in a {@link TextDictionary} which may be shared between columns.
+   */
+  public static class TextColumn extends Column {
+    private static final long serialVersionUID = 1L;
+
+    public final int[] mCodes;
+
+    public final TextDictionary mDict;
+
+    public TextColumn(int rows) {
+      this(rows, new TextDictionary());
+    }
+
+    public TextColumn(int rows, TextDictionary dict) {
+      this(new int[rows], dict);
+
+      // Empty cells are the empty string rather than null
+      Arrays.fill(mCodes, mDict.intern(TextUtils.EMPTY_STRING));
+    }
+
+    public TextColumn(int[] codes, TextDictionary dict) {
+      mCodes = codes;
+      mDict = dict;
+    }
+
+    @Override
+    public ColumnType getType() {
+      return ColumnType.TEXT;
+    }
+
+    @Override
+    public int size() {
+      return mCodes.length;
+    }
+
+    /**
+     * Returns the dictionary code of a cell.
+     *
+     * @param row the row
+     * @return the code
+     */
+    public int getCode(int row) {
+      return mCodes[row];
+    }
+
+    /**
+     * Returns the cell text parsed as a number or NaN if it is not one.
+     */
+    @Override
+    public double getValue(int row) {
+      String v = getText(row);
+
+      return TextUtils.isNumber(v) ? Double.parseDouble(v) : Double.NaN;
+    }
+
+    @Override
+    public String getText(int row) {
+      return mDict.getText(mCodes[row]);
+    }
+
+    @Override
+    public Object get(int row) {
+      return getText(row);
+    }
+
+    @Override
+    public void update(int row, double v) {
+      update(row, Double.toString(v));
+    }
+
+    @Override
+    public void update(int row, int v) {
+      update(row, Integer.toString(v));
+    }
+
+    @Override
+    public void update(int row, long v) {
+      update(row, Long.toString(v));
+    }
+
+    @Override
+    public void update(int row, boolean v) {
+      update(row, Boolean.toString(v));
+    }
+
+    @Override
+    public void update(int row, String v) {
+      mCodes[row] = mDict.intern(v);
+    }
+
+    @Override
+    public void copyCell(int row, Column to, int toRow) {
+      if (to instanceof TextColumn && ((TextColumn) to).mDict == mDict) {
+        // Same dictionary so the code can be copied directly
+        ((TextColumn) to).mCodes[toRow] = mCodes[row];
+      } else {
+        to.update(toRow, getText(row));
+      }
+    }
+
+    @Override
+    public Column copy(int rows) {
+      int n = Math.min(rows, mCodes.length);
+
+      TextColumn ret = new TextColumn(rows, mDict);
+
+      System.arraycopy(mCodes, 0, ret.mCodes, 0, n);
+
+      return ret;
+    }
+  }
+
+  /**
+   * The typed storage of each column.
+   */
+  public final Column[] mColumns;
+
+  /**
+   * Create a matrix where every column has the same type.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   * @param type the type
+   */
+  public ColumnMatrix(int rows, int columns, ColumnType type) {
+    super(rows, columns);
+
+    mColumns = new Column[columns];
+
+    for (int i = 0; i < columns; ++i) {
+      mColumns[i] = createColumn(type, rows);
+    }
+  }
+
+  /**
+   * Create a matrix with one column per type in the schema.
+   *
+   * @param rows the rows
+   * @param types the column types.
+   */
+  public ColumnMatrix(int rows, ColumnType... types) {
+    super(rows, types.length);
+
+    mColumns = new Column[types.length];
+
+    for (int i = 0; i < types.length; ++i) {
+      mColumns[i] = createColumn(types[i], rows);
+    }
+  }
+
+  /**
+   * Create a matrix that wraps existing column storage without copying it.
+   * Each column must hold at least {@code rows} cells.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   */
+  public ColumnMatrix(int rows, Column... columns) {
+    super(rows, columns.length);
+
+    mColumns = columns;
+  }
+
+  /**
+   * Clone a matrix.
+   *
+   * @param m the m
+   */
+  public ColumnMatrix(ColumnMatrix m) {
+    super(m.getRows(), m.getCols());
+
+    mColumns = new Column[m.mColumns.length];
+
+    for (int i = 0; i < mColumns.length; ++i) {
+      mColumns[i] = m.mColumns[i].copy(mDim.mRows);
+    }
+  }
+
+  /**
+   * Returns NUMBER or TEXT if all the columns are numeric or all are text,
+   * otherwise MIXED.
+   */
+  @Override
+  public MatrixType getType() {
+    int text = 0;
+
+    for (Column c : mColumns) {
+      if (c.getType() == ColumnType.TEXT) {
+        ++text;
+      }
+    }
+
+    if (text == 0) {
+      return MatrixType.NUMBER;
+    } else if (text == mColumns.length) {
+      return MatrixType.TEXT;
+    } else {
+      return MatrixType.MIXED;
+    }
+  }
+
+  /**
+   * Returns the column types of the matrix.
+   *
+   * @return the schema
+   */
+  public ColumnType[] getSchema() {
+    ColumnType[] ret = new ColumnType[mColumns.length];
+
+    for (int i = 0; i < mColumns.length; ++i) {
+      ret[i] = mColumns[i].getType();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the storage type of a column.
+   *
+   * @param column the column
+   * @return the type
+   */
+  public ColumnType getColumnType(int column) {
+    return mColumns[column].getType();
+  }
+
+  /**
+   * Returns the storage of a column. Cast to the concrete column class
+   * indicated by {@link #getColumnType(int)} to access the primitive array
+   * directly.
+   *
+   * @param column the column
+   * @return the column
+   */
+  public Column getColumn(int column) {
+    return mColumns[column];
+  }
+
+  /**
+   * Change the type of a column, converting the existing values.
+   *
+   * @param column the column
+   * @param type the type
+   */
+  public void setColumnType(int column, ColumnType type) {
+    Column from = mColumns[column];
+
+    if (from.getType() == type) {
+      return;
+    }
+
+    Column to = createColumn(type, mDim.mRows);
+
+    if (type == ColumnType.TEXT) {
+      for (int i = 0; i < mDim.mRows; ++i) {
+        to.update(i, from.getText(i));
+      }
+    } else {
+      for (int i = 0; i < mDim.mRows; ++i) {
+        from.copyCell(i, to, i);
+      }
+    }
+
+    mColumns[column] = to;
+
+    fireMatrixChanged();
+  }
+
+  @Override
+  public Matrix copy() {
+    return new ColumnMatrix(this);
+  }
+
+  /**
+   * The new matrix keeps the type of each column it shares with this one,
+   * by position, and any extra columns are doubles. Copying a column from
+   * another column matrix replaces the target column so its type is
+   * preserved regardless.
+   */
+  @Override
+  public Matrix ofSameType(int rows, int cols) {
+    ColumnType[] types = new ColumnType[cols];
+
+    for (int i = 0; i < cols; ++i) {
+      types[i] = i < mColumns.length ? mColumns[i].getType()
+          : ColumnType.DOUBLE;
+    }
+
+    return new ColumnMatrix(rows, types);
+  }
+
+  @Override
+  public Matrix cols(int col, int... cols) {
+    Column[] ret = new Column[1 + cols.length];
+
+    ret[0] = mColumns[col].copy(mDim.mRows);
+
+    for (int i = 0; i < cols.length; ++i) {
+      ret[i + 1] = mColumns[cols[i]].copy(mDim.mRows);
+    }
+
+    return new ColumnMatrix(mDim.mRows, ret);
+  }
+
+  @Override
+  public CellType getCellType(int row, int column) {
+    return mColumns[column].getType().getCellType();
+  }
+
+  @Override
+  public double getValue(int row, int column) {
+    return mColumns[column].getValue(row);
+  }
+
+  @Override
+  public int getInt(int row, int column) {
+    return mColumns[column].getInt(row);
+  }
+
+  @Override
+  public long getLong(int row, int column) {
+    return mColumns[column].getLong(row);
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    return mColumns[column].getText(row);
+  }
+
+  @Override
+  public Object get(int row, int column) {
+    return mColumns[column].get(row);
+  }
+
+  @Override
+  public void update(int row, int column, double v) {
+    mColumns[column].update(row, v);
+  }
+
+  @Override
+  public void update(int row, int column, int v) {
+    mColumns[column].update(row, v);
+  }
+
+  @Override
+  public void update(int row, int column, long v) {
+    mColumns[column].update(row, v);
+  }
+
+  @Override
+  public void update(int row, int column, boolean v) {
+    mColumns[column].update(row, v);
+  }
+
+  @Override
+  public void update(int row, int column, String v) {
+    mColumns[column].update(row, v);
+  }
+
+  @Override
+  public void update(int row, int column, Object v) {
+    if (v instanceof String) {
+      // Let the column decide how to interpret text so that text columns
+      // keep the original string
+      update(row, column, (String) v);
+    } else if (v instanceof Boolean) {
+      update(row, column, ((Boolean) v).booleanValue());
+    } else if (v instanceof Long) {
+      update(row, column, ((Long) v).longValue());
+    } else {
+      super.update(row, column, v);
+    }
+  }
+
+  @Override
+  public void columnToDouble(int column, double[] ret) {
+    mColumns[column].toDouble(ret);
+  }
+
+  @Override
+  public void columnToText(int column, String[] ret) {
+    mColumns[column].toText(ret);
+  }
+
+  @Override
+  public void copyColumn(final Matrix from, int column, int toColumn) {
+    if (from instanceof ColumnMatrix) {
+      copyColumn((ColumnMatrix) from, column, toColumn);
+    } else {
+      super.copyColumn(from, column, toColumn);
+    }
+  }
+
+  /**
+   * Copy a column from another column matrix. The target column adopts the
+   * type of the source column.
+   *
+   * @param from the from
+   * @param column the column
+   * @param toColumn the to column
+   */
+  public void copyColumn(final ColumnMatrix from, int column, int toColumn) {
+    mColumns[toColumn] = from.mColumns[column].copy(mDim.mRows);
+
+    fireMatrixChanged();
+  }
+
+  @Override
+  public void copyRow(final Matrix from, int row, int toRow) {
+    if (from instanceof ColumnMatrix) {
+      copyRow((ColumnMatrix) from, row, toRow);
+    } else {
+      int c = Math.min(from.getCols(), getCols());
+
+      for (int i = 0; i < c; ++i) {
+        update(toRow, i, from.get(row, i));
+      }
+
+      fireMatrixChanged();
+    }
+  }
+
+  /**
+   * Copy row.
+   *
+   * @param from the from
+   * @param row the row
+   * @param toRow the to row
+   */
+  public void copyRow(final ColumnMatrix from, int row, int toRow) {
+    int c = Math.min(from.getCols(), getCols());
+
+    for (int i = 0; i < c; ++i) {
+      from.mColumns[i].copyCell(row, mColumns[i], toRow);
+    }
+
+    fireMatrixChanged();
+  }
+
+  /**
+   * Columns may have different types so the transpose is a mixed matrix.
+   */
+  @Override
+  public Matrix transpose() {
+    MixedMatrix ret = MixedMatrix.createMixedMatrix(mDim.mCols, mDim.mRows);
+
+    for (int i = 0; i < mColumns.length; ++i) {
+      Column c = mColumns[i];
+
+      for (int j = 0; j < mDim.mRows; ++j) {
+        ret.update(i, j, c.get(j));
+      }
+    }
+
+    return ret;
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Creates storage for a column of a given type.
+   *
+   * @param type the type
+   * @param rows the rows
+   * @return the column
+   */
+  public static Column createColumn(ColumnType type, int rows) {
+    switch (type) {
+    case INT:
+      return new IntColumn(rows);
+    case LONG:
+      return new LongColumn(rows);
+    case BOOL:
+      return new BoolColumn(rows);
+    case TEXT:
+      return new TextColumn(rows);
+    default:
+      return new DoubleColumn(rows);
+    }
+  }
+
+  /**
+   * Determine a column type for each column of a matrix. A column is
+   * numeric if all of its non empty cells are numbers, otherwise it is text.
+   *
+   * @param m the m
+   * @return the column type[]
+   */
+  public static ColumnType[] inferSchema(Matrix m) {
+    int r = m.getRows();
+    int c = m.getCols();
+
+    ColumnType[] ret = new ColumnType[c];
+
+    for (int i = 0; i < c; ++i) {
+      ret[i] = ColumnType.DOUBLE;
+
+      for (int j = 0; j < r; ++j) {
+        if (m.getCellType(j, i) == CellType.TEXT
+            && !TextUtils.isNullOrEmpty(m.getText(j, i))) {
+          ret[i] = ColumnType.TEXT;
+          break;
+        }
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Convert a matrix into a column matrix, inferring the column types.
+   *
+   * @param m the m
+   * @return the column matrix
+   */
+  public static ColumnMatrix createColumnMatrix(Matrix m) {
+    ColumnMatrix ret = new ColumnMatrix(m.getRows(), inferSchema(m));
+
+    int r = m.getRows();
+
+    for (int i = 0; i < ret.mColumns.length; ++i) {
+      Column c = ret.mColumns[i];
+
+      if (c.getType() == ColumnType.TEXT) {
+        for (int j = 0; j < r; ++j) {
+          c.update(j, m.getText(j, i));
+        }
+      } else {
+        for (int j = 0; j < r; ++j) {
+          if (m.getCellType(j, i) == CellType.NUMBER) {
+            c.update(j, m.getValue(j, i));
+          } else {
+            // Empty cell
+            c.update(j, Double.NaN);
+          }
+        }
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Create a data frame from a data frame by converting the inner matrix to
+   * a column matrix.
+   * 
+   * @param f the data frame, which is not modified.
+   * @return a new data frame with the annotations of f and a column matrix
+   *         copy of its cells.
+   */
+  public static DataFrame createDataFrame(DataFrame f) {
+    return new DataFrame(f, createColumnMatrix(f.getMatrix()));
+  }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Compressed sparse matrix of doubles stored in row (CSR) or column (CSC)
+ * order.
+ */
+public class CompressedDoubleMatrix extends CompressedMatrix {
+
+  /**
+   * The constant serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /** The value of each stored cell, parallel to the index array. */
+  public final double[] mValues;
+
+  /**
+   * Instantiates a new compressed double matrix from its arrays.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   * @param order the order
+   * @param pointers the pointers
+   * @param indices the indices
+   * @param values the values
+   */
+  public CompressedDoubleMatrix(int rows, int columns, CompressedOrder order,
+      int[] pointers, int[] indices, double[] values) {
+    super(rows, columns, order, pointers, indices);
+
+    mValues = values;
+  }
+
+  /**
+   * Clone a matrix.
+   *
+   * @param m the m
+   */
+  public CompressedDoubleMatrix(CompressedDoubleMatrix m) {
+    this(m.getRows(), m.getCols(), m.mOrder,
+        Arrays.copyOf(m.mPointers, m.mPointers.length),
+        Arrays.copyOf(m.mIndices, m.mIndices.length),
+        Arrays.copyOf(m.mValues, m.mValues.length));
+  }
+
+  /**
+   * Since compressed matrices cannot gain new non-zero cells, this returns
+   * a dense double matrix that can be freely updated. Use the copy constructor
+   * for a compressed copy.
+   */
+  @Override
+  public Matrix copy() {
+    return toDoubleMatrix();
+  }
+
+  /**
+   * Returns a dense double matrix since compressed matrices cannot gain new
+   * non-zero cells.
+   */
+  @Override
+  public Matrix ofSameType(int rows, int cols) {
+    return DoubleMatrix.createDoubleMatrix(rows, cols);
+  }
+
+  @Override
+  public double valueAt(int k) {
+    return mValues[k];
+  }
+
+  @Override
+  protected void updateAt(int k, double v) {
+    mValues[k] = v;
+  }
+
+  @Override
+  public CompressedDoubleMatrix toOrder(CompressedOrder order) {
+    if (order == mOrder) {
+      return this;
+    }
+
+    int[] pointers = new int[(order == CompressedOrder.ROW ? mDim.mRows
+        : mDim.mCols) + 1];
+    int[] indices = new int[mIndices.length];
+
+    int[] perm = transposeStructure(pointers, indices);
+
+    double[] values = new double[mValues.length];
+
+    for (int k = 0; k < perm.length; ++k) {
+      values[k] = mValues[perm[k]];
+    }
+
+    return new CompressedDoubleMatrix(mDim.mRows, mDim.mCols, order, pointers,
+        indices, values);
+  }
+
+  /**
+   * The transpose of a CSR matrix has the same arrays as the CSC form of
+   * the original so no sorting is required.
+   */
+  @Override
+  public Matrix transpose() {
+    return new CompressedDoubleMatrix(mDim.mCols, mDim.mRows,
+        mOrder == CompressedOrder.ROW ? CompressedOrder.COLUMN
+            : CompressedOrder.ROW,
+        Arrays.copyOf(mPointers, mPointers.length),
+        Arrays.copyOf(mIndices, mIndices.length),
+        Arrays.copyOf(mValues, mValues.length));
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Create a compressed matrix from the non-zero cells of a matrix.
+   *
+   * @param m the m
+   * @param order the order
+   * @return the compressed double matrix
+   */
+  public static CompressedDoubleMatrix createCompressedMatrix(Matrix m,
+      CompressedOrder order) {
+    return CompressedMatrixBuilder.create(m).createDoubleMatrix(order);
+  }
+}
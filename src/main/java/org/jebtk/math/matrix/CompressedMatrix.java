@@ -0,0 +1,648 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Base class for compressed sparse matrices. Only non-zero cells are stored.
+ * In row order (CSR) the cells of row i are at positions
+ * {@code mPointers[i]} to {@code mPointers[i + 1] - 1} of {@code mIndices},
+ * which holds their column indices in ascending order. Column order (CSC)
+ * is the same with rows and columns swapped. Subclasses hold the values in
+ * a primitive array parallel to {@code mIndices}.
+ * 
+ * The structure is fixed once created: stored cells can be updated, but
+ * setting a zero cell to a non-zero value is not supported. Since the
+ * generic matrix operations, such as add or apply, work on a copy and may
+ * set any cell, {@link #copy()} and {@link #ofSameType(int, int)} return
+ * dense matrices. Use a {@link CompressedMatrixBuilder} to create matrices
+ * and {@link #toOrder(CompressedOrder)} or {@link #transpose()} to derive
+ * other compressed matrices.
+ */
+public abstract class CompressedMatrix extends RegularMatrix {
+
+  /**
+   * The constant serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /** Whether cells are stored by row or column. */
+  public final CompressedOrder mOrder;
+
+  /**
+   * Start of each row (CSR) or column (CSC) in the index array plus a final
+   * entry equal to the number of non-zero cells.
+   */
+  public final int[] mPointers;
+
+  /** The column (CSR) or row (CSC) index of each non-zero cell. */
+  public final int[] mIndices;
+
+  /**
+   * Instantiates a new compressed matrix.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   * @param order the order
+   * @param pointers the pointers
+   * @param indices the indices
+   */
+  public CompressedMatrix(int rows, int columns, CompressedOrder order,
+      int[] pointers, int[] indices) {
+    super(rows, columns);
+
+    mOrder = order;
+    mPointers = pointers;
+    mIndices = indices;
+  }
+
+  /**
+   * Returns the number of stored (non-zero) cells.
+   *
+   * @return the int
+   */
+  public int getNonZeros() {
+    return mIndices.length;
+  }
+
+  /**
+   * Returns the position of the first stored cell of a row (CSR) or column
+   * (CSC).
+   *
+   * @param major the row or column
+   * @return the start
+   */
+  public int getStart(int major) {
+    return mPointers[major];
+  }
+
+  /**
+   * Returns the position after the last stored cell of a row (CSR) or
+   * column (CSC).
+   *
+   * @param major the row or column
+   * @return the end
+   */
+  public int getEnd(int major) {
+    return mPointers[major + 1];
+  }
+
+  /**
+   * Returns the column (CSR) or row (CSC) of a stored cell.
+   *
+   * @param k the position of the cell
+   * @return the index
+   */
+  public int indexAt(int k) {
+    return mIndices[k];
+  }
+
+  /**
+   * Returns the value of a stored cell.
+   *
+   * @param k the position of the cell
+   * @return the value
+   */
+  public abstract double valueAt(int k);
+
+  /**
+   * Update the value of a stored cell.
+   *
+   * @param k the position of the cell
+   * @param v the v
+   */
+  protected abstract void updateAt(int k, double v);
+
+  /**
+   * Returns a copy of this matrix stored in the given order.
+   *
+   * @param order the order
+   * @return the compressed matrix
+   */
+  public abstract CompressedMatrix toOrder(CompressedOrder order);
+
+  /**
+   * Returns the position of a cell in the index array or -1 if the cell is
+   * zero.
+   *
+   * @param row the row
+   * @param column the column
+   * @return the position
+   */
+  public int find(int row, int column) {
+    int major;
+    int minor;
+
+    if (mOrder == CompressedOrder.ROW) {
+      major = row;
+      minor = column;
+    } else {
+      major = column;
+      minor = row;
+    }
+
+    int k = Arrays.binarySearch(mIndices,
+        mPointers[major],
+        mPointers[major + 1],
+        minor);
+
+    return k >= 0 ? k : -1;
+  }
+
+  @Override
+  public MatrixType getType() {
+    return MatrixType.NUMBER;
+  }
+
+  @Override
+  public CellType getCellType(int row, int column) {
+    return CellType.NUMBER;
+  }
+
+  @Override
+  public double getValue(int row, int column) {
+    int k = find(row, column);
+
+    return k != -1 ? valueAt(k) : 0;
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    return Double.toString(getValue(row, column));
+  }
+
+  @Override
+  public Object get(int row, int column) {
+    return getValue(row, column);
+  }
+
+  @Override
+  public void update(int row, int column, double v) {
+    int k = find(row, column);
+
+    if (k != -1) {
+      updateAt(k, v);
+    } else if (v != 0) {
+      throw new UnsupportedOperationException("Cell " + row + "," + column
+          + " is not stored in the compressed matrix. Update a copy instead.");
+    }
+  }
+
+  @Override
+  public void update(int row, int column, int v) {
+    update(row, column, (double) v);
+  }
+
+  @Override
+  public void update(int row, int column, long v) {
+    update(row, column, (double) v);
+  }
+
+  @Override
+  public void rowToDouble(int row, double[] ret) {
+    int c = Math.min(ret.length, mDim.mCols);
+
+    Arrays.fill(ret, 0, c, 0);
+
+    if (mOrder == CompressedOrder.ROW) {
+      for (int k = mPointers[row]; k < mPointers[row + 1]; ++k) {
+        ret[mIndices[k]] = valueAt(k);
+      }
+    } else {
+      for (int i = 0; i < c; ++i) {
+        int k = find(row, i);
+
+        if (k != -1) {
+          ret[i] = valueAt(k);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void columnToDouble(int column, double[] ret) {
+    int r = Math.min(ret.length, mDim.mRows);
+
+    Arrays.fill(ret, 0, r, 0);
+
+    if (mOrder == CompressedOrder.COLUMN) {
+      for (int k = mPointers[column]; k < mPointers[column + 1]; ++k) {
+        ret[mIndices[k]] = valueAt(k);
+      }
+    } else {
+      for (int i = 0; i < r; ++i) {
+        int k = find(i, column);
+
+        if (k != -1) {
+          ret[i] = valueAt(k);
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the values into a dense matrix.
+   *
+   * @return the double matrix
+   */
+  public DoubleMatrix toDoubleMatrix() {
+    DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(mDim.mRows, mDim.mCols);
+
+    boolean byRow = mOrder == CompressedOrder.ROW;
+
+    for (int i = 0; i < mPointers.length - 1; ++i) {
+      for (int k = mPointers[i]; k < mPointers[i + 1]; ++k) {
+        if (byRow) {
+          ret.mData[ret.mRowOffsets[i] + mIndices[k]] = valueAt(k);
+        } else {
+          ret.mData[ret.mRowOffsets[mIndices[k]] + i] = valueAt(k);
+        }
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Copies the values into a dense matrix of the same size.
+   *
+   * @param ret the dense matrix, which should be zero.
+   * @return ret
+   */
+  protected Matrix toDense(Matrix ret) {
+    boolean byRow = mOrder == CompressedOrder.ROW;
+
+    for (int i = 0; i < mPointers.length - 1; ++i) {
+      for (int k = mPointers[i]; k < mPointers[i + 1]; ++k) {
+        if (byRow) {
+          ret.update(i, mIndices[k], valueAt(k));
+        } else {
+          ret.update(mIndices[k], i, valueAt(k));
+        }
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the number of non-zero cells in each row.
+   *
+   * @return the int[]
+   */
+  public int[] rowNonZeros() {
+    return nonZeros(true);
+  }
+
+  /**
+   * Returns the number of non-zero cells in each column.
+   *
+   * @return the int[]
+   */
+  public int[] columnNonZeros() {
+    return nonZeros(false);
+  }
+
+  /**
+   * Returns the sum of each row. Only the stored cells are visited.
+   *
+   * @return the double[]
+   */
+  public double[] rowSums() {
+    return sums(true, false);
+  }
+
+  /**
+   * Returns the sum of each column. Only the stored cells are visited.
+   *
+   * @return the double[]
+   */
+  public double[] columnSums() {
+    return sums(false, false);
+  }
+
+  /**
+   * Returns the mean of each row including the zero cells.
+   *
+   * @return the double[]
+   */
+  public double[] rowMeans() {
+    return means(true);
+  }
+
+  /**
+   * Returns the mean of each column including the zero cells.
+   *
+   * @return the double[]
+   */
+  public double[] columnMeans() {
+    return means(false);
+  }
+
+  /**
+   * Returns the population standard deviation of each row including the
+   * zero cells.
+   *
+   * @return the double[]
+   */
+  public double[] rowPopStdDev() {
+    return popStdDev(true);
+  }
+
+  /**
+   * Returns the population standard deviation of each column including the
+   * zero cells.
+   *
+   * @return the double[]
+   */
+  public double[] columnPopStdDev() {
+    return popStdDev(false);
+  }
+
+  private int[] nonZeros(boolean byRow) {
+    int[] ret = new int[byRow ? mDim.mRows : mDim.mCols];
+
+    boolean major = byRow == (mOrder == CompressedOrder.ROW);
+
+    for (int i = 0; i < mPointers.length - 1; ++i) {
+      if (major) {
+        ret[i] = mPointers[i + 1] - mPointers[i];
+      } else {
+        for (int k = mPointers[i]; k < mPointers[i + 1]; ++k) {
+          ++ret[mIndices[k]];
+        }
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Sum the values (or their squares) of the stored cells in each row or
+   * column. Since zero cells contribute nothing, a single pass over the
+   * stored cells is sufficient in either order.
+   *
+   * @param byRow the by row
+   * @param squares the squares
+   * @return the double[]
+   */
+  private double[] sums(boolean byRow, boolean squares) {
+    double[] ret = new double[byRow ? mDim.mRows : mDim.mCols];
+
+    boolean major = byRow == (mOrder == CompressedOrder.ROW);
+
+    for (int i = 0; i < mPointers.length - 1; ++i) {
+      for (int k = mPointers[i]; k < mPointers[i + 1]; ++k) {
+        double v = valueAt(k);
+
+        if (squares) {
+          v *= v;
+        }
+
+        ret[major ? i : mIndices[k]] += v;
+      }
+    }
+
+    return ret;
+  }
+
+  private double[] means(boolean byRow) {
+    double[] ret = sums(byRow, false);
+
+    int n = byRow ? mDim.mCols : mDim.mRows;
+
+    for (int i = 0; i < ret.length; ++i) {
+      ret[i] /= n;
+    }
+
+    return ret;
+  }
+
+  private double[] popStdDev(boolean byRow) {
+    double[] ret = means(byRow);
+    double[] squares = sums(byRow, true);
+
+    int n = byRow ? mDim.mCols : mDim.mRows;
+
+    for (int i = 0; i < ret.length; ++i) {
+      double var = squares[i] / n - ret[i] * ret[i];
+
+      ret[i] = Math.sqrt(Math.max(0, var));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Create the arrays for the same cells stored in the opposite order using
+   * a counting sort on the minor indices. Returns for each position in the
+   * new index array the position of the cell in the current index array so
+   * that subclasses can permute their values.
+   *
+   * @param pointers the pointers of the new order, must have length of the
+   *          number of rows/columns in the new order plus 1.
+   * @param indices the indices of the new order.
+   * @return the permutation
+   */
+  protected int[] transposeStructure(int[] pointers, int[] indices) {
+    int[] ret = new int[mIndices.length];
+
+    for (int k = 0; k < mIndices.length; ++k) {
+      ++pointers[mIndices[k] + 1];
+    }
+
+    for (int i = 1; i < pointers.length; ++i) {
+      pointers[i] += pointers[i - 1];
+    }
+
+    int[] next = Arrays.copyOf(pointers, pointers.length - 1);
+
+    for (int i = 0; i < mPointers.length - 1; ++i) {
+      for (int k = mPointers[i]; k < mPointers[i + 1]; ++k) {
+        int p = next[mIndices[k]]++;
+
+        // Majors are visited in order so the new minor indices are sorted
+        indices[p] = i;
+        ret[p] = k;
+      }
+    }
+
+    return ret;
+  }
+
+  @Override
+  public Matrix multiply(final Matrix m) {
+    checkMultiply(this, m);
+
+    if (m instanceof CompressedMatrix) {
+      return multiply(this, (CompressedMatrix) m);
+    } else if (m instanceof DoubleMatrix) {
+      return multiply(this, (DoubleMatrix) m);
+    } else {
+      return multiply(this, new DoubleMatrix(m));
+    }
+  }
+
+  /**
+   * Multiply a sparse matrix by a dense matrix. Each stored cell a(i, c)
+   * adds a(i, c) times row c of m2 to row i of the result so the cost is
+   * proportional to the number of non-zero cells times the columns of m2.
+   *
+   * @param m1 the m1
+   * @param m2 the m2
+   * @return the matrix
+   */
+  public static DoubleMatrix multiply(final CompressedMatrix m1,
+      final DoubleMatrix m2) {
+    checkMultiply(m1, m2);
+
+    int p = m2.mDim.mCols;
+
+    DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(m1.mDim.mRows, p);
+
+    boolean byRow = m1.mOrder == CompressedOrder.ROW;
+
+    for (int i = 0; i < m1.mPointers.length - 1; ++i) {
+      for (int k = m1.mPointers[i]; k < m1.mPointers[i + 1]; ++k) {
+        int row;
+        int col;
+
+        if (byRow) {
+          row = i;
+          col = m1.mIndices[k];
+        } else {
+          row = m1.mIndices[k];
+          col = i;
+        }
+
+        double v = m1.valueAt(k);
+
+        int ix = ret.mRowOffsets[row];
+        int ix2 = m2.mRowOffsets[col];
+
+        for (int j = 0; j < p; ++j) {
+          ret.mData[ix++] += v * m2.mData[ix2++];
+        }
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Multiply two sparse matrices using Gustavson's row by row algorithm.
+   * Both matrices are processed in row order and each row of the result is
+   * accumulated in a dense buffer, so only products of non-zero cells are
+   * computed. The result is a compressed row matrix.
+   *
+   * @param m1 the m1
+   * @param m2 the m2
+   * @return the compressed double matrix
+   */
+  public static CompressedDoubleMatrix multiply(final CompressedMatrix m1,
+      final CompressedMatrix m2) {
+    checkMultiply(m1, m2);
+
+    CompressedMatrix a = m1.toOrder(CompressedOrder.ROW);
+    CompressedMatrix b = m2.toOrder(CompressedOrder.ROW);
+
+    int n = a.mDim.mRows;
+    int p = b.mDim.mCols;
+
+    double[] acc = new double[p];
+    int[] marker = new int[p];
+    Arrays.fill(marker, -1);
+    int[] touched = new int[p];
+
+    int[] pointers = new int[n + 1];
+    int[] indices = new int[Math.max(16, a.getNonZeros())];
+    double[] values = new double[indices.length];
+
+    int nnz = 0;
+
+    for (int i = 0; i < n; ++i) {
+      int t = 0;
+
+      for (int k = a.mPointers[i]; k < a.mPointers[i + 1]; ++k) {
+        int c = a.mIndices[k];
+        double v = a.valueAt(k);
+
+        for (int kb = b.mPointers[c]; kb < b.mPointers[c + 1]; ++kb) {
+          int j = b.mIndices[kb];
+
+          if (marker[j] != i) {
+            marker[j] = i;
+            acc[j] = 0;
+            touched[t++] = j;
+          }
+
+          acc[j] += v * b.valueAt(kb);
+        }
+      }
+
+      Arrays.sort(touched, 0, t);
+
+      if (nnz + t > indices.length) {
+        int size = Math.max(nnz + t, indices.length * 2);
+
+        indices = Arrays.copyOf(indices, size);
+        values = Arrays.copyOf(values, size);
+      }
+
+      for (int x = 0; x < t; ++x) {
+        int j = touched[x];
+
+        if (acc[j] != 0) {
+          indices[nnz] = j;
+          values[nnz] = acc[j];
+          ++nnz;
+        }
+      }
+
+      pointers[i + 1] = nnz;
+    }
+
+    return new CompressedDoubleMatrix(n, p, CompressedOrder.ROW, pointers,
+        Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+  }
+
+  /**
+   * Check two matrices can be multiplied.
+   *
+   * @param m1 the m1
+   * @param m2 the m2
+   */
+  private static void checkMultiply(final Matrix m1, final Matrix m2) {
+    if (m1.getCols() != m2.getRows()) {
+      throw new IllegalArgumentException("Cannot multiply a " + m1.getRows()
+          + "x" + m1.getCols() + " matrix by a " + m2.getRows() + "x"
+          + m2.getCols() + " matrix.");
+    }
+  }
+}
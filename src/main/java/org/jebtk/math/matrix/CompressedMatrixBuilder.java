@@ -0,0 +1,338 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Collects non-zero cells as (row, column, value) triplets, in any order,
+ * and compresses them into a {@link CompressedDoubleMatrix} or
+ * {@link CompressedIntMatrix}. Values added more than once for the same
+ * cell are summed and zeros are not stored.
+ */
+public class CompressedMatrixBuilder {
+
+  private final int mRows;
+  private final int mCols;
+
+  private int[] mRowIndices;
+  private int[] mColIndices;
+  private double[] mValues;
+
+  /** The number of triplets added. */
+  private int mN = 0;
+
+  /**
+   * Instantiates a new compressed matrix builder.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   */
+  public CompressedMatrixBuilder(int rows, int columns) {
+    this(rows, columns, 16);
+  }
+
+  /**
+   * Instantiates a new compressed matrix builder.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   * @param capacity the expected number of non-zero cells.
+   */
+  public CompressedMatrixBuilder(int rows, int columns, int capacity) {
+    mRows = rows;
+    mCols = columns;
+
+    capacity = Math.max(1, capacity);
+
+    mRowIndices = new int[capacity];
+    mColIndices = new int[capacity];
+    mValues = new double[capacity];
+  }
+
+  /**
+   * Add a value to a cell. Zeros are ignored.
+   *
+   * @param row the row
+   * @param column the column
+   * @param v the v
+   * @return the builder
+   * @throws IndexOutOfBoundsException if the cell is outside the matrix.
+   */
+  public CompressedMatrixBuilder add(int row, int column, double v) {
+    // Checked here since a bad index would otherwise only fail, or worse
+    // corrupt the structure, when the matrix is created
+    if (row < 0 || row >= mRows || column < 0 || column >= mCols) {
+      throw new IndexOutOfBoundsException("Cell " + row + "," + column
+          + " is outside a " + mRows + "x" + mCols + " matrix.");
+    }
+
+    if (v == 0) {
+      return this;
+    }
+
+    if (mN == mValues.length) {
+      int size = mValues.length * 2;
+
+      mRowIndices = Arrays.copyOf(mRowIndices, size);
+      mColIndices = Arrays.copyOf(mColIndices, size);
+      mValues = Arrays.copyOf(mValues, size);
+    }
+
+    mRowIndices[mN] = row;
+    mColIndices[mN] = column;
+    mValues[mN] = v;
+
+    ++mN;
+
+    return this;
+  }
+
+  /**
+   * Returns the number of triplets added.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mN;
+  }
+
+  /**
+   * Creates a compressed sparse row double matrix.
+   *
+   * @return the compressed double matrix
+   */
+  public CompressedDoubleMatrix createCSR() {
+    return createDoubleMatrix(CompressedOrder.ROW);
+  }
+
+  /**
+   * Creates a compressed sparse column double matrix.
+   *
+   * @return the compressed double matrix
+   */
+  public CompressedDoubleMatrix createCSC() {
+    return createDoubleMatrix(CompressedOrder.COLUMN);
+  }
+
+  /**
+   * Creates a compressed double matrix.
+   *
+   * @param order the order
+   * @return the compressed double matrix
+   */
+  public CompressedDoubleMatrix createDoubleMatrix(CompressedOrder order) {
+    int[] pointers = new int[(order == CompressedOrder.ROW ? mRows : mCols)
+        + 1];
+    int[] indices = new int[mN];
+    double[] values = new double[mN];
+
+    int n = compress(order, pointers, indices, values);
+
+    return new CompressedDoubleMatrix(mRows, mCols, order, pointers,
+        Arrays.copyOf(indices, n), Arrays.copyOf(values, n));
+  }
+
+  /**
+   * Creates a compressed int matrix. Values are truncated to ints after
+   * duplicates are summed.
+   *
+   * @param order the order
+   * @return the compressed int matrix
+   */
+  public CompressedIntMatrix createIntMatrix(CompressedOrder order) {
+    int[] pointers = new int[(order == CompressedOrder.ROW ? mRows : mCols)
+        + 1];
+    int[] indices = new int[mN];
+    double[] values = new double[mN];
+
+    int n = compress(order, pointers, indices, values);
+
+    int[] intValues = new int[n];
+
+    for (int i = 0; i < n; ++i) {
+      intValues[i] = (int) values[i];
+    }
+
+    return new CompressedIntMatrix(mRows, mCols, order, pointers,
+        Arrays.copyOf(indices, n), intValues);
+  }
+
+  /**
+   * Sort the triplets by major then minor index using two stable counting
+   * sorts, sum duplicate cells and drop cells that sum to zero.
+   *
+   * @param order the order
+   * @param pointers filled with the start of each row/column.
+   * @param indices filled with the minor index of each stored cell.
+   * @param values filled with the value of each stored cell.
+   * @return the number of stored cells.
+   */
+  private int compress(CompressedOrder order,
+      int[] pointers,
+      int[] indices,
+      double[] values) {
+    int[] major = order == CompressedOrder.ROW ? mRowIndices : mColIndices;
+    int[] minor = order == CompressedOrder.ROW ? mColIndices : mRowIndices;
+
+    int nMinor = order == CompressedOrder.ROW ? mCols : mRows;
+
+    // Sort by minor index, then stable sort by major index so that each
+    // major block is sorted by minor index
+    int[] sorted = countingSort(major,
+        pointers.length - 1,
+        countingSort(minor, nMinor, null));
+
+    int[] majors = new int[mN];
+
+    int n = 0;
+
+    for (int i = 0; i < mN; ++i) {
+      int t = sorted[i];
+
+      if (n > 0 && majors[n - 1] == major[t] && indices[n - 1] == minor[t]) {
+        // Duplicates of the same cell are adjacent
+        values[n - 1] += mValues[t];
+      } else {
+        majors[n] = major[t];
+        indices[n] = minor[t];
+        values[n] = mValues[t];
+        ++n;
+      }
+    }
+
+    // Remove cells whose values cancelled out and count the cells in each
+    // row/column
+    int ret = 0;
+
+    for (int k = 0; k < n; ++k) {
+      if (values[k] != 0) {
+        indices[ret] = indices[k];
+        values[ret] = values[k];
+
+        ++pointers[majors[k] + 1];
+        ++ret;
+      }
+    }
+
+    for (int i = 1; i < pointers.length; ++i) {
+      pointers[i] += pointers[i - 1];
+    }
+
+    return ret;
+  }
+
+  /**
+   * Stable counting sort of triplets by a key.
+   *
+   * @param keys the key of each triplet.
+   * @param n the number of distinct keys.
+   * @param order the current order of the triplets or null for the order
+   *          they were added.
+   * @return the sorted order of the triplets.
+   */
+  private int[] countingSort(int[] keys, int n, int[] order) {
+    int[] starts = new int[n + 1];
+
+    for (int i = 0; i < mN; ++i) {
+      ++starts[keys[i] + 1];
+    }
+
+    for (int i = 1; i < starts.length; ++i) {
+      starts[i] += starts[i - 1];
+    }
+
+    int[] ret = new int[mN];
+
+    for (int i = 0; i < mN; ++i) {
+      int t = order != null ? order[i] : i;
+
+      ret[starts[keys[t]]++] = t;
+    }
+
+    return ret;
+  }
+
+  /**
+   * Create a builder from the non-zero cells of a matrix.
+   *
+   * @param m the m
+   * @return the compressed matrix builder
+   */
+  public static CompressedMatrixBuilder create(Matrix m) {
+    int r = m.getRows();
+    int c = m.getCols();
+
+    CompressedMatrixBuilder ret;
+
+    if (m instanceof DoubleMatrix) {
+      double[] data = ((DoubleMatrix) m).mData;
+
+      ret = new CompressedMatrixBuilder(r, c);
+
+      for (int i = 0; i < data.length; ++i) {
+        ret.add(i / c, i % c, data[i]);
+      }
+    } else if (m instanceof SparseMatrix) {
+      SparseMatrix<?> sm = (SparseMatrix<?>) m;
+
+      ret = new CompressedMatrixBuilder(r, c, sm.mData.size());
+
+      // Only the stored cells need to be visited
+      for (int i : sm.mData.keySet()) {
+        ret.add(i / c, i % c, sm.getValue(i));
+      }
+    } else if (m instanceof CompressedMatrix) {
+      CompressedMatrix cm = (CompressedMatrix) m;
+
+      ret = new CompressedMatrixBuilder(r, c, cm.getNonZeros());
+
+      boolean byRow = cm.mOrder == CompressedOrder.ROW;
+
+      for (int i = 0; i < cm.mPointers.length - 1; ++i) {
+        for (int k = cm.mPointers[i]; k < cm.mPointers[i + 1]; ++k) {
+          if (byRow) {
+            ret.add(i, cm.mIndices[k], cm.valueAt(k));
+          } else {
+            ret.add(cm.mIndices[k], i, cm.valueAt(k));
+          }
+        }
+      }
+    } else {
+      ret = new CompressedMatrixBuilder(r, c);
+
+      for (int i = 0; i < r; ++i) {
+        for (int j = 0; j < c; ++j) {
+          ret.add(i, j, m.getValue(i, j));
+        }
+      }
+    }
+
+    return ret;
+  }
+}
@@ -29,13 +29,18 @@ package org.jebtk.math.matrix;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
 import org.jebtk.core.collections.CollectionUtils;
-import org.jebtk.core.io.FileUtils;
 import org.jebtk.core.io.Io;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.Timer;
+import org.jebtk.math.io.TextSource;
+import org.jebtk.math.progress.Progress;
 
 /**
  * Parses a text file and creates a matrix from it.
@@ -44,11 +49,32 @@ import org.jebtk.core.text.TextUtils;
  */
 public class CsvMatrixParser implements MatrixParser {
 
+  /** Counts the rows parsed. */
+  private static final Counter ROWS = Instrumentation.getInstance()
+      .counter("parser.rows");
+
+  /**
+   * Counts the size of the files read as stored on disk, so compressed files
+   * add their compressed size.
+   */
+  private static final Counter FILE_BYTES = Instrumentation.getInstance()
+      .counter("parser.file.bytes");
+
+  /** Times parsing files. */
+  private static final Timer PARSE_TIMER = Instrumentation.getInstance()
+      .timer("parser.parse");
+
   /**
    * The member row annotations.
    */
   protected int mRowAnnotations = -1;
 
+  /**
+   * Text values seen during a parse so that repeated values share one
+   * String instance rather than one per cell.
+   */
+  private TextDictionary mDict = new TextDictionary();
+
   /**
    * The member has header.
    */
@@ -104,10 +130,20 @@ public class CsvMatrixParser implements MatrixParser {
     if (TextUtils.isNumber(value)) {
       matrix.set(row, column, Double.parseDouble(value));
     } else {
-      matrix.set(row, column, value);
+      matrix.set(row, column, intern(value));
     }
   }
 
+  /**
+   * Returns the shared instance of a text value.
+   *
+   * @param value the value
+   * @return the string
+   */
+  protected String intern(String value) {
+    return mDict.getText(mDict.intern(value));
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -115,9 +151,34 @@ public class CsvMatrixParser implements MatrixParser {
    */
   @Override
   public DataFrame parse(Path file) throws IOException {
+    return parse(file, Progress.NONE);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.MatrixParser#parse(java.nio.file.Path,
+   * org.jebtk.math.progress.Progress)
+   */
+  @Override
+  public DataFrame parse(Path file, Progress progress) throws IOException {
+    // Compressed files are decompressed once, during the first pass
+    TextSource source = new TextSource(file);
+
+    try {
+      return parse(file, source, progress);
+    } finally {
+      source.close();
+    }
+  }
+
+  private DataFrame parse(Path file, TextSource source, Progress progress)
+      throws IOException {
+    long start = PARSE_TIMER.start();
+
     DataFrame matrix = null;
 
-    BufferedReader reader = FileUtils.newBufferedReader(file);
+    BufferedReader reader = source.newBufferedReader();
 
     String line;
 
@@ -139,6 +200,10 @@ public class CsvMatrixParser implements MatrixParser {
         }
 
         ++rows;
+
+        if (rows % PROGRESS_LINES == 0) {
+          progress.check();
+        }
       }
     } finally {
       reader.close();
@@ -146,7 +211,9 @@ public class CsvMatrixParser implements MatrixParser {
 
     matrix = createMatrix(rows, columns);
 
-    reader = FileUtils.newBufferedReader(file);
+    mDict = new TextDictionary();
+
+    reader = source.newBufferedReader();
 
     List<String> rowAnnotationNames = null;
 
@@ -185,11 +252,21 @@ public class CsvMatrixParser implements MatrixParser {
         }
 
         ++row;
+
+        if (row % PROGRESS_LINES == 0) {
+          progress.update(PARSE_PHASE, row, rows);
+        }
       }
     } finally {
       reader.close();
     }
 
+    progress.update(PARSE_PHASE, 1);
+
+    ROWS.add(matrix.getRows());
+    FILE_BYTES.add(Files.size(file));
+    PARSE_TIMER.stop(start);
+
     return matrix;
   }
 
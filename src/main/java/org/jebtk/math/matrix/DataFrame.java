@@ -34,6 +34,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,10 +48,10 @@ import org.jebtk.core.collections.CollectionUtils;
 import org.jebtk.core.collections.UniqueArrayList;
 import org.jebtk.core.event.ChangeEvent;
 import org.jebtk.core.event.ChangeListener;
-import org.jebtk.core.io.FileUtils;
 import org.jebtk.core.text.Join;
 import org.jebtk.core.text.Splitter;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.io.TextSource;
 
 /**
  * Wraps a matrix in annotatable columns and rows to make it more useful in data
@@ -640,10 +641,10 @@ public class DataFrame extends Matrix
   }
 
   /**
-   * Apply a stat function over a matrix.
+   * Apply a stat function over the cells of the frame.
    * 
-   * @param f
-   * @return
+   * @param f the stat function, which is reset before use.
+   * @return the statistic of every cell.
    */
   @Override
   public double stat(MatrixStatFunction f) {
@@ -660,6 +661,49 @@ public class DataFrame extends Matrix
     return getMatrix().colStat(f, index);
   }
 
+  /**
+   * Apply a reducer over the cells of the frame, skipping cells excluded
+   * by a {@link ValidityMask}. Annotations are not included.
+   * 
+   * @param <S> the reducer state type.
+   * @param f the reducer.
+   * @return the result of the reducer, NaN for the built in reducers if
+   *         there are no valid values.
+   * @see Matrix#stat(MatrixReducer)
+   */
+  @Override
+  public <S> double stat(MatrixReducer<S> f) {
+    return getMatrix().stat(f);
+  }
+
+  /**
+   * Apply a reducer over one row of the frame.
+   * 
+   * @param <S> the reducer state type.
+   * @param f the reducer.
+   * @param index the row.
+   * @return the result of the reducer.
+   * @see Matrix#rowStat(MatrixReducer, int)
+   */
+  @Override
+  public <S> double rowStat(MatrixReducer<S> f, int index) {
+    return getMatrix().rowStat(f, index);
+  }
+
+  /**
+   * Apply a reducer over one column of the frame.
+   * 
+   * @param <S> the reducer state type.
+   * @param f the reducer.
+   * @param index the column.
+   * @return the result of the reducer.
+   * @see Matrix#colStat(MatrixReducer, int)
+   */
+  @Override
+  public <S> double colStat(MatrixReducer<S> f, int index) {
+    return getMatrix().colStat(f, index);
+  }
+
   @Override
   public Matrix f(CellFunction f, double v) {
     return new DataFrame(this, getMatrix().f(f, v));
@@ -681,8 +725,25 @@ public class DataFrame extends Matrix
    */
   @Override
   public Matrix transpose() {
+    return transpose(true);
+  }
+
+  /**
+   * Returns the transpose of the data frame with the row and column
+   * annotations swapped.
+   *
+   * @param copy If true the cells are copied into a new matrix, otherwise
+   *          the returned frame wraps a {@link TransposedMatrix} view of this
+   *          frame's matrix, which avoids the copy when the transpose only
+   *          needs to be read.
+   * @return the data frame
+   */
+  public DataFrame transpose(boolean copy) {
+    Matrix m = copy ? getMatrix().transpose()
+        : new TransposedMatrix(getMatrix());
+
     // Transpose the main matrix
-    DataFrame ret = new DataFrame(getMatrix().transpose());
+    DataFrame ret = new DataFrame(m);
 
     // The first name is the row-name, which must be swapped for the
     // column name so we only copy the annotation for names(1, end)
@@ -1316,7 +1377,44 @@ public class DataFrame extends Matrix
   public DataFrame copyRows(int[] rows) {
     return copyRows(this, rows);
   }
-  
+
+  /**
+   * Return the rows of the matrix whose cells are true in a one column
+   * boolean mask, such as one created by {@link BooleanMatrix#anyInRow()}.
+   * The mask must have one row for each row of the matrix.
+   *
+   * @param rowMask a {@code getRows() x 1} mask whose true cells are the
+   *          rows to keep.
+   * @return a new frame of the kept rows, in their original order, with
+   *         their row annotations and the column headers.
+   * @throws IllegalArgumentException if the mask is not
+   *           {@code getRows() x 1}.
+   */
+  public DataFrame copyRows(BooleanMatrix rowMask) {
+    return copyRows(this, rowMask);
+  }
+
+  /**
+   * Return the rows of a frame whose cells are true in a one column boolean
+   * mask.
+   *
+   * @param f the frame to copy rows from.
+   * @param rowMask a {@code f.getRows() x 1} mask whose true cells are the
+   *          rows to keep.
+   * @return a new frame of the kept rows, in their original order, with
+   *         their row annotations and the column headers.
+   * @throws IllegalArgumentException if the mask is not
+   *           {@code f.getRows() x 1}.
+   */
+  public static DataFrame copyRows(DataFrame f, BooleanMatrix rowMask) {
+    if (rowMask.getCols() != 1 || rowMask.getRows() != f.getRows()) {
+      throw new IllegalArgumentException("A row mask must be " + f.getRows()
+          + "x1 not " + rowMask.getRows() + "x" + rowMask.getCols() + ".");
+    }
+
+    return copyRows(f, rowMask.toIndices());
+  }
+
   public static DataFrame copyRows(DataFrame f, int[] rows) {
     Matrix m = f.getMatrix();
 
@@ -1468,6 +1566,43 @@ public class DataFrame extends Matrix
     return ret;
   }
 
+  /**
+   * Creates a text matrix that stores a dictionary code per cell. This uses
+   * less memory than {@link #createTextMatrix(int, int)} when values are
+   * repeated.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   * @return the annotation matrix
+   */
+  public static DataFrame createDictionaryTextMatrix(int rows, int columns) {
+    return new DataFrame(new DictionaryTextMatrix(rows, columns));
+  }
+
+  /**
+   * Creates a data frame with typed column storage. Each column holds
+   * primitives or dictionary encoded text according to its type.
+   *
+   * @param rows the rows
+   * @param types the type of each column
+   * @return the annotation matrix
+   */
+  public static DataFrame createColumnMatrix(int rows, ColumnType... types) {
+    return new DataFrame(new ColumnMatrix(rows, types));
+  }
+
+  /**
+   * Creates a data frame with typed column storage from an existing frame,
+   * copying its annotations and converting its values. Columns containing
+   * only numbers become double columns, others become text columns.
+   *
+   * @param m the m
+   * @return the annotation matrix
+   */
+  public static DataFrame createColumnMatrix(DataFrame m) {
+    return ColumnMatrix.createDataFrame(m);
+  }
+
   /**
    * Creates the dynamic matrix.
    *
@@ -1554,115 +1689,113 @@ public class DataFrame extends Matrix
    */
   public static void writeEstMatrixV1(DataFrame matrix, Path file)
       throws IOException {
-    BufferedWriter writer = FileUtils.newBufferedWriter(file);
-    
-    Join join = Join.onTab();
+    DataFrameWriter writer = new DataFrameWriter(file);
 
     try {
-      writer.write(EST_VERSION_1);
-      writer.newLine();
-
-      writer.write(EST_ROWS);
-      writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(matrix.getRows()));
-      writer.newLine();
-
-      writer.write(EST_COLUMNS);
-      writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(matrix.getCols()));
-      writer.newLine();
+      writeEstMatrixV1(matrix, writer);
+    } finally {
+      writer.close();
+    }
+  }
 
-      List<String> groups = new ArrayList<String>();
+  /**
+   * Write a simple expression matrix in GCT format.
+   *
+   * @param matrix the matrix
+   * @param writer the writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void writeEstMatrixV1(DataFrame matrix,
+      DataFrameWriter writer) throws IOException {
+    Join join = Join.onTab();
 
-      // for (Group group : matrix.getColumnGroups()) {
-      // groups.add(group);
-      // }
+    writer.write(EST_VERSION_1);
+    writer.newLine();
 
-      writer.write(EST_ANNOTATION_GROUPS);
-      writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(groups.size()));
+    writer.write(EST_ROWS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(matrix.getRows()));
+    writer.newLine();
 
-      if (groups.size() > 0) {
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(join.toString(groups));
-      }
+    writer.write(EST_COLUMNS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(matrix.getCols()));
+    writer.newLine();
 
-      writer.newLine();
+    List<String> groups = new ArrayList<String>();
 
-      List<String> rowAnnotationNames = CollectionUtils
-          .head(matrix.getIndex().getNames(), 1);
+    // for (Group group : matrix.getColumnGroups()) {
+    // groups.add(group);
+    // }
 
-      writer.write(EST_ANNOTATION_ROWS);
+    writer.write(EST_ANNOTATION_GROUPS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(groups.size()));
 
+    if (groups.size() > 0) {
       writer.write(TextUtils.TAB_DELIMITER);
+      writer.write(join.toString(groups));
+    }
 
-      // Since the first annotation is the row name and we are already
-      // writing that, ignore the first row annotation
-      writer.write(Integer.toString(rowAnnotationNames.size()));
+    writer.newLine();
 
-      if (rowAnnotationNames.size() > 0) {
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(join.toString(rowAnnotationNames));
-      }
+    List<String> rowAnnotationNames = CollectionUtils
+        .head(matrix.getIndex().getNames(), 1);
 
-      writer.newLine();
+    writer.write(EST_ANNOTATION_ROWS);
 
-      List<String> columnAnnotationNames = CollectionUtils
-          .head(matrix.getColumnHeader().getNames(), 1);
+    writer.write(TextUtils.TAB_DELIMITER);
 
-      writer.write(EST_ANNOTATION_COLUMNS);
+    // Since the first annotation is the row name and we are already
+    // writing that, ignore the first row annotation
+    writer.write(Integer.toString(rowAnnotationNames.size()));
 
+    if (rowAnnotationNames.size() > 0) {
       writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(columnAnnotationNames.size()));
+      writer.write(join.toString(rowAnnotationNames));
+    }
 
-      if (columnAnnotationNames.size() > 0) {
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(join.toString(columnAnnotationNames));
-      }
+    writer.newLine();
 
-      writer.newLine();
+    List<String> columnAnnotationNames = CollectionUtils
+        .head(matrix.getColumnHeader().getNames(), 1);
 
-      // column names
+    writer.write(EST_ANNOTATION_COLUMNS);
 
-      // The first annotation row is the Id and column names
-      writer.write(ROW_NAMES);
-      writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(columnAnnotationNames.size()));
 
-      if (rowAnnotationNames.size() > 1) {
-        writer.write(join.toString(rowAnnotationNames));
-        writer.write(TextUtils.TAB_DELIMITER);
-      }
+    if (columnAnnotationNames.size() > 0) {
+      writer.write(TextUtils.TAB_DELIMITER);
+      writer.write(join.toString(columnAnnotationNames));
+    }
 
-      writer.write(join.toString(matrix.getColumnNames()));
-      writer.newLine();
+    writer.newLine();
 
-      for (String name : columnAnnotationNames) {
-        writer.write(name);
-        writer.write(TextUtils.repeat(TextUtils.TAB_DELIMITER,
-            rowAnnotationNames.size() + 1));
+    // column names
 
-        writer.write(join.toString(matrix.getColumnHeader().getAnnotation(name)));
-        writer.newLine();
-      }
+    // The first annotation row is the Id and column names
+    writer.write(ROW_NAMES);
+    writer.write(TextUtils.TAB_DELIMITER);
 
-      for (int i = 0; i < matrix.getRows(); ++i) {
-        writer.write(matrix.getRowName(i));
+    if (rowAnnotationNames.size() > 1) {
+      writer.write(join.toString(rowAnnotationNames));
+      writer.write(TextUtils.TAB_DELIMITER);
+    }
 
-        for (String name : rowAnnotationNames) {
-          writer.write(TextUtils.TAB_DELIMITER);
-          writer.write(matrix.getIndex().getAnnotation(name, i).toString());
-        }
+    writer.write(join.toString(matrix.getColumnNames()));
+    writer.newLine();
 
-        for (int j = 0; j < matrix.getCols(); ++j) {
-          writer.write(TextUtils.TAB_DELIMITER);
-          writer.write(formatValue(matrix.getValue(i, j)));
-        }
+    for (String name : columnAnnotationNames) {
+      writer.write(name);
+      writer.write(TextUtils.repeat(TextUtils.TAB_DELIMITER,
+          rowAnnotationNames.size() + 1));
 
-        writer.newLine();
-      }
-    } finally {
-      writer.close();
+      writer.write(join.toString(matrix.getColumnHeader().getAnnotation(name)));
+      writer.newLine();
     }
+
+    writer.writeRows(matrix, true, rowAnnotationNames);
   }
 
   /**
@@ -1674,113 +1807,115 @@ public class DataFrame extends Matrix
    */
   public static void writeEstMatrixV2(DataFrame matrix, Path file)
       throws IOException {
-    BufferedWriter writer = FileUtils.newBufferedWriter(file);
+    DataFrameWriter writer = new DataFrameWriter(file);
 
-    Join join = Join.onTab();
-    
     try {
-      writer.write(EST_VERSION_2);
-      writer.newLine();
+      writeEstMatrixV2(matrix, writer);
+    } finally {
+      writer.close();
+    }
+  }
 
-      writer.write(EST_ROWS);
-      writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(matrix.getRows()));
-      writer.newLine();
+  /**
+   * Write a simple expression matrix in GCT format.
+   *
+   * @param matrix the matrix
+   * @param writer the writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void writeEstMatrixV2(DataFrame matrix,
+      DataFrameWriter writer) throws IOException {
+    Join join = Join.onTab();
 
-      writer.write(EST_COLUMNS);
-      writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(matrix.getCols()));
-      writer.newLine();
+    writer.write(EST_VERSION_2);
+    writer.newLine();
+
+    writer.write(EST_ROWS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(matrix.getRows()));
+    writer.newLine();
+
+    writer.write(EST_COLUMNS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(matrix.getCols()));
+    writer.newLine();
 
-      List<String> groups = new ArrayList<String>();
+    List<String> groups = new ArrayList<String>();
 
-      // for (Group group : matrix.getColumnGroups()) {
-      // groups.add(group);
-      // }
+    // for (Group group : matrix.getColumnGroups()) {
+    // groups.add(group);
+    // }
 
-      writer.write(EST_ANNOTATION_GROUPS);
+    writer.write(EST_ANNOTATION_GROUPS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(groups.size()));
+
+    if (groups.size() > 0) {
       writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(groups.size()));
+      writer.write(join.toString(groups));
+    }
 
-      if (groups.size() > 0) {
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(join.toString(groups));
-      }
+    writer.newLine();
 
-      writer.newLine();
+    //
+    // Write out the row annotations
+    //
 
-      //
-      // Write out the row annotations
-      //
+    writer.write(EST_ANNOTATION_ROWS);
 
-      writer.write(EST_ANNOTATION_ROWS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(matrix.getIndex().getNames().size()));
 
+    if (matrix.getIndex().getNames().size() > 0) {
       writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(matrix.getIndex().getNames().size()));
+      writer.write(join.toString(matrix.getIndex().getNames()));
+    }
 
-      if (matrix.getIndex().getNames().size() > 0) {
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(join.toString(matrix.getIndex().getNames()));
-      }
+    writer.newLine();
 
+    for (String name : matrix.getIndex().getNames()) {
+      writer.write(EST_ANNOTATION_ROW);
+      writer.write(TextUtils.TAB_DELIMITER);
+      writer.write(name);
+      writer.write(TextUtils.TAB_DELIMITER);
+      writer.write(join.toString(matrix.getIndex().getText(name)));
       writer.newLine();
+    }
 
-      for (String name : matrix.getIndex().getNames()) {
-        writer.write(EST_ANNOTATION_ROW);
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(name);
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(join.toString(matrix.getIndex().getText(name)));
-        writer.newLine();
-      }
+    //
+    // Write out the column annotations
+    //
 
-      //
-      // Write out the column annotations
-      //
+    writer.write(EST_ANNOTATION_COLUMNS);
 
-      writer.write(EST_ANNOTATION_COLUMNS);
+    writer.write(TextUtils.TAB_DELIMITER);
+    writer.write(Integer.toString(matrix.getColumnHeader().getNames().size()));
 
+    if (matrix.getColumnHeader().getNames().size() > 0) {
       writer.write(TextUtils.TAB_DELIMITER);
-      writer.write(Integer.toString(matrix.getColumnHeader().getNames().size()));
-
-      if (matrix.getColumnHeader().getNames().size() > 0) {
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(
-            join.toString(matrix.getColumnHeader().getNames()));
-      }
-
-      writer.newLine();
-
-      for (String name : matrix.getColumnHeader().getNames()) {
-        writer.write(EST_ANNOTATION_COLUMN);
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(name);
-        writer.write(TextUtils.TAB_DELIMITER);
-        writer.write(join.toString(matrix.getColumnHeader().getAnnotation(name)));
-        writer.newLine();
-      }
+      writer.write(
+          join.toString(matrix.getColumnHeader().getNames()));
+    }
 
-      //
-      // Write out the data
-      //
+    writer.newLine();
 
-      writer.write(EST_MATRIX);
+    for (String name : matrix.getColumnHeader().getNames()) {
+      writer.write(EST_ANNOTATION_COLUMN);
+      writer.write(TextUtils.TAB_DELIMITER);
+      writer.write(name);
+      writer.write(TextUtils.TAB_DELIMITER);
+      writer.write(join.toString(matrix.getColumnHeader().getAnnotation(name)));
       writer.newLine();
+    }
 
-      for (int i = 0; i < matrix.getRows(); ++i) {
-        for (int j = 0; j < matrix.getCols(); ++j) {
-          writer.write(formatValue(matrix.getValue(i, j)));
+    //
+    // Write out the data
+    //
 
-          if (j < matrix.getCols() - 1) {
-            writer.write(TextUtils.TAB_DELIMITER);
-          }
-        }
+    writer.write(EST_MATRIX);
+    writer.newLine();
 
-        writer.newLine();
-      }
-    } finally {
-      writer.close();
-    }
+    writer.writeRows(matrix, false, Collections.<String>emptyList());
   }
 
   /**
@@ -1793,64 +1928,58 @@ public class DataFrame extends Matrix
    */
   public static <T> void writeDataFrame(DataFrame matrix, Path file)
       throws IOException {
-    BufferedWriter writer = FileUtils.newBufferedWriter(file);
+    DataFrameWriter writer = new DataFrameWriter(file);
 
-    Join join = Join.onTab();
-    
     try {
-      boolean hasHeader = false;
+      writeDataFrame(matrix, writer);
+    } finally {
+      writer.close();
+    }
+  }
 
-      if (matrix.getIndex().getNames() != null
-          && matrix.getIndex().getNames().size() > 0) {
-        writer.write(join.toString(matrix.getIndex().getNames()));
+  /**
+   * Write a simple expression matrix in tab delimited text format.
+   *
+   * @param matrix the matrix
+   * @param writer the writer
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static void writeDataFrame(DataFrame matrix,
+      DataFrameWriter writer) throws IOException {
+    Join join = Join.onTab();
 
-        writer.write(TextUtils.TAB_DELIMITER);
+    boolean hasHeader = false;
 
-        hasHeader = true;
-      }
+    if (matrix.getIndex().getNames() != null
+        && matrix.getIndex().getNames().size() > 0) {
+      writer.write(join.toString(matrix.getIndex().getNames()));
 
-      if (matrix.getColumnNames() != null
-          && matrix.getColumnHeader().size() > 0) {
-        writer.write(join.toString(matrix.getColumnNames()));
+      writer.write(TextUtils.TAB_DELIMITER);
 
-        hasHeader = true;
-      } else {
-        // If there are row annotation names, then a header must be
-        // present. If there are no column names, fill in row with
-        // empty tabs
-        if (hasHeader) {
-          // pad with empty cells if there are not column name
+      hasHeader = true;
+    }
 
-          writer.write(TextUtils.emptyCells(matrix.getCols()));
-        }
-      }
+    if (matrix.getColumnNames() != null
+        && matrix.getColumnHeader().size() > 0) {
+      writer.write(join.toString(matrix.getColumnNames()));
 
+      hasHeader = true;
+    } else {
+      // If there are row annotation names, then a header must be
+      // present. If there are no column names, fill in row with
+      // empty tabs
       if (hasHeader) {
-        writer.newLine();
-      }
+        // pad with empty cells if there are not column name
 
-      for (int i = 0; i < matrix.getRows(); ++i) {
-        for (String name : matrix.getIndex().getNames()) {
-          // System.err.println("aha " + name + " " + i);
-
-          writer.write(matrix.getIndex().getText(name, i));
-          writer.write(TextUtils.TAB_DELIMITER);
-        }
-
-        for (int j = 0; j < matrix.getCols(); ++j) {
-
-          writer.write(formatValue(matrix.getText(i, j)));
-
-          if (j < matrix.getCols() - 1) {
-            writer.write(TextUtils.TAB_DELIMITER);
-          }
-        }
-
-        writer.newLine();
+        writer.write(TextUtils.emptyCells(matrix.getCols()));
       }
-    } finally {
-      writer.close();
     }
+
+    if (hasHeader) {
+      writer.newLine();
+    }
+
+    writer.writeRows(matrix, false, matrix.getIndex().getNames());
   }
 
   /**
@@ -1877,19 +2006,60 @@ public class DataFrame extends Matrix
    * @return the list
    */
   public static List<Integer> findRows(DataFrame matrix, String text) {
-    List<Integer> ret = new ArrayList<Integer>();
-
     String ls = text.toLowerCase();
 
-    for (int i = 0; i < matrix.getRows(); ++i) {
-      for (String name : matrix.getIndex().getNames()) {
-        if (matrix.getIndex().getText(name, i).toLowerCase().contains(ls)) {
-          ret.add(i);
-          break;
+    // Test each distinct value once rather than every cell
+    boolean[] found = new boolean[matrix.getRows()];
+
+    for (String name : matrix.getIndex().getNames()) {
+      IndexLookup lookup = matrix.getIndex().getLookup(name);
+
+      for (String v : lookup.getLowerCaseValues()) {
+        if (v.contains(ls)) {
+          for (int i : lookup.getIgnoreCase(v)) {
+            found[i] = true;
+          }
         }
       }
     }
 
+    List<Integer> ret = new ArrayList<Integer>();
+
+    for (int i = 0; i < found.length; ++i) {
+      if (found[i]) {
+        ret.add(i);
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the first row whose row annotation matches each id, in the order
+   * of the ids. Ids that are not found are skipped. The annotation is
+   * looked up through a hashed index so joining k ids costs O(k) rather than
+   * a scan of the annotation per id.
+   *
+   * @param m the m
+   * @param rowAnnotation the row annotation
+   * @param ids the ids
+   * @return the list
+   */
+  public static List<Integer> findRows(DataFrame m,
+      String rowAnnotation,
+      Collection<String> ids) {
+    IndexLookup lookup = m.getIndex().getLookup(rowAnnotation);
+
+    List<Integer> ret = new ArrayList<Integer>(ids.size());
+
+    for (String id : ids) {
+      int row = lookup.getFirst(id);
+
+      if (row != -1) {
+        ret.add(row);
+      }
+    }
+
     return ret;
   }
 
@@ -1950,21 +2120,24 @@ public class DataFrame extends Matrix
       String rowAnnotation,
       Pattern regex,
       boolean keep) {
-    List<Integer> ret = new ArrayList<Integer>();
+    IndexLookup lookup = m.getIndex().getLookup(rowAnnotation);
 
-    String[] annotations = m.getIndex().getText(rowAnnotation);
+    // Each distinct value only needs to be matched once
+    boolean[] matches = new boolean[m.getRows()];
 
-    if (keep) {
-      for (int i = 0; i < m.getRows(); ++i) {
-        if (regex.matcher(annotations[i]).matches()) {
-          ret.add(i);
+    for (String v : lookup.getValues()) {
+      if (regex.matcher(v).matches()) {
+        for (int i : lookup.get(v)) {
+          matches[i] = true;
         }
       }
-    } else {
-      for (int i = 0; i < m.getRows(); ++i) {
-        if (!regex.matcher(annotations[i]).matches()) {
-          ret.add(i);
-        }
+    }
+
+    List<Integer> ret = new ArrayList<Integer>();
+
+    for (int i = 0; i < matches.length; ++i) {
+      if (matches[i] == keep) {
+        ret.add(i);
       }
     }
 
@@ -2446,9 +2619,9 @@ public class DataFrame extends Matrix
         to.getColumnHeader().setAnnotation(name, subAnnotations);
         break;
       case TEXT:
-        double[] t = new double[from.getCols()];
-        from.getColumnHeader().getAnnotation(name).rowToDouble(0, t);
-        double[] ts = CollectionUtils.subListIndexed(t, columns);
+        String[] t = new String[from.getCols()];
+        from.getColumnHeader().getAnnotation(name).rowToText(0, t);
+        String[] ts = CollectionUtils.subListIndexed(t, columns);
         to.getColumnHeader().setAnnotation(name, ts);
         break;
       default:
@@ -3102,6 +3275,55 @@ public class DataFrame extends Matrix
     }
   }
 
+  /**
+   * Parse a tab delimited matrix keeping only some columns and rows. Cells
+   * outside the selection are skipped while the file is read rather than
+   * being loaded and then discarded.
+   *
+   * @param file the file
+   * @param headers the number of header lines
+   * @param rowAnnotations the row annotations
+   * @param columns the names of the columns to keep, or null for all.
+   * @param rows the names of the rows to keep, or null for all.
+   * @return the annotation matrix
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static DataFrame parseTxtMatrix(Path file,
+      int headers,
+      int rowAnnotations,
+      Collection<String> columns,
+      Collection<String> rows) throws IOException {
+    MixedMatrixParser parser = new MixedMatrixParser(headers, rowAnnotations,
+        TextUtils.TAB_DELIMITER);
+
+    if (columns != null) {
+      parser.columns(columns);
+    }
+
+    if (rows != null) {
+      parser.rows(rows);
+    }
+
+    return parser.parse(file);
+  }
+
+  /**
+   * Parse a tab delimited matrix into typed column storage. The column types
+   * and the number of row annotations are inferred by sampling the file, or
+   * taken from a cached schema if a file with the same header has already
+   * been parsed.
+   *
+   * @param file the file
+   * @param headers the number of header lines
+   * @return the annotation matrix
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static DataFrame parseTypedMatrix(Path file, int headers)
+      throws IOException {
+    return new SchemaMatrixParser(headers, TextUtils.TAB_DELIMITER)
+        .parse(file);
+  }
+
   /**
    * Parses the csv matrix.
    *
@@ -3219,7 +3441,7 @@ public class DataFrame extends Matrix
       throws IOException {
     // LOG.info("Load list from {}, {}...", file, skipHeader);
 
-    BufferedReader reader = FileUtils.newBufferedReader(file);
+    BufferedReader reader = TextSource.newBufferedReader(file);
 
     String line;
 
@@ -27,16 +27,21 @@
  */
 package org.jebtk.math.matrix;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.jebtk.core.collections.CyclicList;
 import org.jebtk.core.collections.UniqueArrayList;
+import org.jebtk.core.event.ChangeEvent;
+import org.jebtk.core.event.ChangeListener;
 import org.jebtk.core.event.ChangeListeners;
+import org.jebtk.core.text.TextUtils;
 
 /**
  * Provides annotation for a matrix.
@@ -70,6 +75,53 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
 
   private int mSize;
 
+  /**
+   * Shared by the text annotations so that values repeated across rows and
+   * annotations are stored once.
+   */
+  private final TextDictionary mDict = new TextDictionary();
+
+  /**
+   * Caches the indices matched by each group, keyed on the annotation name
+   * and the group's regexes, so that repeated analyses do not rerun the
+   * regexes. Cleared whenever the index or one of its annotations changes.
+   */
+  private final Map<String, int[]> mGroupCache = new HashMap<String, int[]>();
+
+  /**
+   * Value lookups for the annotations that have been searched, built lazily
+   * by {@link #getLookup(String)}.
+   */
+  private final Map<String, IndexLookup> mLookups = 
+      new HashMap<String, IndexLookup>();
+
+  /**
+   * Set whilst a single annotation value is being set so that the value's
+   * lookup can be updated incrementally rather than discarded. Volatile
+   * since it is read by the annotation listeners.
+   */
+  private volatile boolean mUpdating = false;
+
+  /**
+   * Discards cached state derived from an annotation when the annotation is
+   * modified.
+   */
+  private class AnnotationListener implements MatrixEventListener {
+    private final String mName;
+
+    public AnnotationListener(String name) {
+      mName = name;
+    }
+
+    @Override
+    public void matrixChanged(ChangeEvent e) {
+      clearGroupCache();
+
+      if (!mUpdating) {
+        removeLookup(mName);
+      }
+    }
+  }
 
   /**
    * Instantiates a new annotation.
@@ -79,6 +131,13 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
   public DataFrameIndex(int size) {
     mAnnotationMap = new HashMap<String, Matrix>(10);
     mSize = size;
+
+    addChangeListener(new ChangeListener() {
+      @Override
+      public void changed(ChangeEvent e) {
+        clearGroupCache();
+      }
+    });
   }
 
   /**
@@ -118,7 +177,7 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
   }
   
   public void setAnnotation(String name, String[] values) {
-    autoCreate(name, MatrixType.MIXED).setRow(0, values);
+    autoCreate(name, MatrixType.TEXT).setRow(0, values);
     
     //MatrixOperations.textToRow(values, 0, mAnnotationMap.get(name));
   }
@@ -189,7 +248,7 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
 
         break;
       case TEXT:
-        mAnnotationMap.put(name, new TextMatrix(1, mSize)); //new TextWorksheet(1, mSize));
+        mAnnotationMap.put(name, new DictionaryTextMatrix(1, mSize, mDict)); //new TextWorksheet(1, mSize));
         break;
       default:
         mAnnotationMap.put(name, new MixedMatrix(1, mSize)); //new MixedWorksheet(1, mSize));
@@ -199,6 +258,8 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
       // mNameIndexMap.put(mNames.size(), name);
       mNames.add(name);
 
+      mAnnotationMap.get(name).addMatrixListener(new AnnotationListener(name));
+
       fireChanged();
     }
 
@@ -315,6 +376,84 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
   public void clear() {
     mNames.clear();
     mAnnotationMap.clear();
+
+    clearGroupCache();
+    
+    synchronized (mLookups) {
+      mLookups.clear();
+    }
+  }
+
+  /**
+   * Set a single annotation value, updating the value's lookup in place if
+   * one has been built.
+   *
+   * @param name the name
+   * @param index the index
+   * @param setter sets the value.
+   */
+  private void update(String name, int index, Runnable setter) {
+    IndexLookup lookup;
+
+    synchronized (mLookups) {
+      lookup = mLookups.get(name);
+    }
+
+    if (lookup == null) {
+      setter.run();
+      return;
+    }
+
+    String old = getText(name, index);
+
+    mUpdating = true;
+
+    try {
+      setter.run();
+    } finally {
+      mUpdating = false;
+    }
+
+    // Readers lock the lookup so they never see the value half moved
+    synchronized (lookup) {
+      lookup.remove(old, index);
+      lookup.add(getText(name, index), index);
+    }
+  }
+
+  /**
+   * Returns a hashed lookup from the values of an annotation to the indices
+   * that have them. The lookup is built on first use and then kept up to
+   * date as values are set through this index, so repeated searches, such
+   * as joining a list of ids against the index, do not scan the annotation.
+   * The lookup is thread safe and its value sets are snapshots.
+   *
+   * @param name the name
+   * @return the lookup
+   */
+  public IndexLookup getLookup(String name) {
+    synchronized (mLookups) {
+      IndexLookup ret = mLookups.get(name);
+
+      if (ret == null) {
+        ret = new IndexLookup(getAnnotation(name).rowToText(0));
+
+        mLookups.put(name, ret);
+      }
+
+      return ret;
+    }
+  }
+
+  /**
+   * Discard the lookup of an annotation.
+   *
+   * @param name the name
+   */
+  private void removeLookup(String name) {
+    synchronized (mLookups) {
+      mLookups.remove(name);
+    }
   }
 
   /**
@@ -353,7 +492,7 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
     autoCreate(name, MatrixType.MIXED);
 
     // modify the internal representation rather than a copy
-    mAnnotationMap.get(name).set(0, index, value);
+    update(name, index, () -> mAnnotationMap.get(name).set(0, index, value));
   }
 
   /**
@@ -367,7 +506,7 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
     autoCreate(name, MatrixType.MIXED);
 
     // modify the internal representation rather than a copy
-    mAnnotationMap.get(name).set(0, index, value);
+    update(name, index, () -> mAnnotationMap.get(name).set(0, index, value));
   }
 
   /**
@@ -381,7 +520,7 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
     autoCreate(name, MatrixType.MIXED);
 
     // modify the internal representation rather than a copy
-    mAnnotationMap.get(name).set(0, index, value);
+    update(name, index, () -> mAnnotationMap.get(name).set(0, index, value));
   }
 
   /**
@@ -395,7 +534,7 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
     autoCreate(name, MatrixType.MIXED);
 
     // modify the internal representation rather than a copy
-    mAnnotationMap.get(name).set(0, index, value);
+    update(name, index, () -> mAnnotationMap.get(name).set(0, index, value));
   }
 
   /**
@@ -407,6 +546,86 @@ public class DataFrameIndex extends ChangeListeners implements Iterable<String>
     return mAnnotationMap.size();
   }
 
+  /**
+   * Returns the indices whose value in an annotation matches one of the
+   * regexes of a group, in ascending order. Each distinct value is only
+   * tested once and the result is cached until the index changes. The
+   * returned array is shared and must not be modified.
+   *
+   * @param name the annotation name.
+   * @param group the group
+   * @return the indices
+   */
+  public synchronized int[] findIndices(String name, MatrixGroup group) {
+    StringBuilder buffer = new StringBuilder(name);
+
+    for (Pattern regex : group) {
+      buffer.append('\n').append(regex.pattern()).append('/')
+          .append(regex.flags());
+    }
+
+    String key = buffer.toString();
+
+    int[] ret = mGroupCache.get(key);
+
+    if (ret == null) {
+      ret = matchIndices(name, group);
+
+      mGroupCache.put(key, ret);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Test the values of an annotation against a group. Values are
+   * dictionary encoded so each distinct value is matched once (0 = not
+   * tested, 1 = match, 2 = no match).
+   *
+   * @param name the name
+   * @param group the group
+   * @return the int[]
+   */
+  private int[] matchIndices(String name, MatrixGroup group) {
+    DictionaryTextMatrix ids = DictionaryTextMatrix
+        .encode(getAnnotation(name));
+
+    byte[] matches = new byte[ids.getDictionary().size()];
+
+    int[] ret = new int[mSize];
+    int n = 0;
+
+    for (int i = 0; i < mSize; ++i) {
+      int code = ids.getCode(0, i);
+
+      if (matches[code] == 0) {
+        String v = ids.getDictionary().getText(code);
+
+        matches[code] = 2;
+
+        for (Pattern regex : group) {
+          if (TextUtils.find(v, regex)) {
+            matches[code] = 1;
+            break;
+          }
+        }
+      }
+
+      if (matches[code] == 1) {
+        ret[n++] = i;
+      }
+    }
+
+    return Arrays.copyOf(ret, n);
+  }
+
+  /**
+   * Discard the cached group indices.
+   */
+  private synchronized void clearGroupCache() {
+    mGroupCache.clear();
+  }
+
   public String[] getHeadings() {
     return getText(HEADER_NAMES);
   }
@@ -0,0 +1,519 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.jebtk.math.io.Codec;
+
+/**
+ * Writes tab delimited matrix text quickly. Output is encoded as UTF-8 into
+ * a reusable byte buffer that is written to a file channel in large blocks,
+ * optionally through a compression {@link Codec}. Numbers are formatted
+ * straight into the buffer without creating a String per cell, either as
+ * the shortest decimal that parses back to the same double or with a fixed
+ * number of decimal places.
+ * In parallel mode blocks of rows are formatted concurrently into their own
+ * buffers and then written in row order.
+ */
+public class DataFrameWriter implements Closeable {
+
+  /** Format doubles with the fewest decimals that round trip. */
+  public static final int SHORTEST = -1;
+
+  /** Buffered bytes are written once the buffer reaches this size. */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /** The number of rows formatted by each parallel task. */
+  private static final int BLOCK_ROWS = 1024;
+
+  /** Doubles at or above this cannot be formatted from a long mantissa. */
+  private static final double MAX_MANTISSA = 1L << 53;
+
+  /** The most decimal places tried when looking for a round trip. */
+  private static final int MAX_DECIMALS = 17;
+
+  /** The most decimal places for fixed precision output. */
+  private static final int MAX_PRECISION = 18;
+
+  private static final long[] LONG_POW10 = new long[MAX_PRECISION + 1];
+
+  private static final double[] POW10 = new double[MAX_PRECISION + 1];
+
+  private static final byte[] NEW_LINE = System.lineSeparator()
+      .getBytes(StandardCharsets.US_ASCII);
+
+  static {
+    LONG_POW10[0] = 1;
+    POW10[0] = 1;
+
+    for (int i = 1; i <= MAX_PRECISION; ++i) {
+      LONG_POW10[i] = LONG_POW10[i - 1] * 10;
+      POW10[i] = LONG_POW10[i];
+    }
+  }
+
+  /**
+   * A growable UTF-8 byte buffer with number formatting.
+   */
+  private static class Buffer {
+    private byte[] mData;
+    private int mPos = 0;
+    private final int mPrecision;
+
+    public Buffer(int size, int precision) {
+      mData = new byte[size];
+      mPrecision = precision;
+    }
+
+    private void ensure(int n) {
+      if (mPos + n > mData.length) {
+        byte[] data = new byte[Math.max(mData.length * 2, mPos + n)];
+
+        System.arraycopy(mData, 0, data, 0, mPos);
+
+        mData = data;
+      }
+    }
+
+    public void append(byte b) {
+      ensure(1);
+
+      mData[mPos++] = b;
+    }
+
+    public void tab() {
+      append((byte) '\t');
+    }
+
+    public void newLine() {
+      ensure(NEW_LINE.length);
+
+      for (byte b : NEW_LINE) {
+        mData[mPos++] = b;
+      }
+    }
+
+    /**
+     * Append text encoded as UTF-8. Null is written as the empty string.
+     */
+    public void append(String s) {
+      if (s == null) {
+        return;
+      }
+
+      int n = s.length();
+
+      ensure(n * 3);
+
+      for (int i = 0; i < n; ++i) {
+        char c = s.charAt(i);
+
+        if (c < 0x80) {
+          mData[mPos++] = (byte) c;
+        } else if (c < 0x800) {
+          mData[mPos++] = (byte) (0xC0 | (c >> 6));
+          mData[mPos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < n
+            && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, s.charAt(++i));
+
+          mData[mPos++] = (byte) (0xF0 | (cp >> 18));
+          mData[mPos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+          mData[mPos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+          mData[mPos++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+          mData[mPos++] = (byte) (0xE0 | (c >> 12));
+          mData[mPos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          mData[mPos++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+    }
+
+    /**
+     * Append the decimal digits of a non negative number.
+     */
+    public void append(long v) {
+      ensure(20);
+
+      int n = 1;
+
+      for (long t = v / 10; t > 0; t /= 10) {
+        ++n;
+      }
+
+      int p = mPos + n;
+
+      do {
+        mData[--p] = (byte) ('0' + (v % 10));
+        v /= 10;
+      } while (v > 0);
+
+      mPos += n;
+    }
+
+    public void append(double v) {
+      if (Double.isNaN(v) || Double.isInfinite(v) || v == 0) {
+        append(v == 0 ? "0" : Double.toString(v));
+        return;
+      }
+
+      boolean neg = v < 0;
+      double a = Math.abs(v);
+
+      if (mPrecision == SHORTEST) {
+        // m / 10^d is correctly rounded when m and 10^d are exact doubles,
+        // as is parsing the decimal it is written as, so if the division
+        // gives back a the text will too.
+        for (int d = 0; d <= MAX_DECIMALS; ++d) {
+          double s = a * POW10[d];
+
+          if (s >= MAX_MANTISSA) {
+            break;
+          }
+
+          double m = Math.rint(s);
+
+          if (m / POW10[d] == a) {
+            appendFixed(neg, (long) m, d, false);
+            return;
+          }
+        }
+      } else {
+        double s = a * POW10[mPrecision];
+
+        if (s < Long.MAX_VALUE) {
+          long m = Math.round(s);
+
+          appendFixed(neg && m != 0, m, mPrecision, true);
+          return;
+        }
+      }
+
+      // Very large or small magnitudes
+      append(Double.toString(v));
+    }
+
+    /**
+     * Append m / 10^d.
+     */
+    private void appendFixed(boolean neg, long m, int d, boolean zeros) {
+      if (neg) {
+        append((byte) '-');
+      }
+
+      append(m / LONG_POW10[d]);
+
+      long f = m % LONG_POW10[d];
+
+      if (d > 0 && (zeros || f != 0)) {
+        append((byte) '.');
+
+        ensure(d);
+
+        for (int i = mPos + d - 1; i >= mPos; --i) {
+          mData[i] = (byte) ('0' + (f % 10));
+          f /= 10;
+        }
+
+        mPos += d;
+      }
+    }
+  }
+
+  /**
+   * Formats the rows of a data frame, resolving the annotations and row
+   * names once rather than per row.
+   */
+  private static class RowFormatter {
+    private final Matrix mM;
+    private final Matrix[] mAnnotations;
+    private final String[] mRowNames;
+    private final double[] mData;
+    private final int mCols;
+
+    public RowFormatter(DataFrame m,
+        boolean rowNames,
+        List<String> annotations) {
+      mM = m.getMatrix();
+      mCols = m.getCols();
+      mRowNames = rowNames ? m.getRowNames() : null;
+      mData = mM instanceof DoubleMatrix ? ((DoubleMatrix) mM).mData : null;
+
+      mAnnotations = new Matrix[annotations.size()];
+
+      for (int i = 0; i < mAnnotations.length; ++i) {
+        mAnnotations[i] = m.getIndex().getAnnotation(annotations.get(i));
+      }
+    }
+
+    public void format(int row, Buffer buffer) {
+      boolean tab = false;
+
+      if (mRowNames != null) {
+        buffer.append(mRowNames[row]);
+        tab = true;
+      }
+
+      for (Matrix a : mAnnotations) {
+        if (tab) {
+          buffer.tab();
+        }
+
+        if (a.getCellType(0, row) == CellType.NUMBER) {
+          buffer.append(a.getValue(0, row));
+        } else {
+          buffer.append(a.getText(0, row));
+        }
+
+        tab = true;
+      }
+
+      if (mData != null) {
+        int offset = row * mCols;
+
+        for (int j = 0; j < mCols; ++j) {
+          if (tab) {
+            buffer.tab();
+          }
+
+          buffer.append(mData[offset++]);
+          tab = true;
+        }
+      } else {
+        for (int j = 0; j < mCols; ++j) {
+          if (tab) {
+            buffer.tab();
+          }
+
+          if (mM.getCellType(row, j) == CellType.NUMBER) {
+            buffer.append(mM.getValue(row, j));
+          } else {
+            buffer.append(mM.getText(row, j));
+          }
+
+          tab = true;
+        }
+      }
+
+      buffer.newLine();
+    }
+  }
+
+  private final WritableByteChannel mChannel;
+  private final int mPrecision;
+  private final boolean mParallel;
+  private final Buffer mBuffer;
+
+  /**
+   * Write to a file, compressing it if its extension names a codec, e.g.
+   * gz. Doubles are written in their shortest form on one thread.
+   * 
+   * @param file the file to create or overwrite.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public DataFrameWriter(Path file) throws IOException {
+    this(file, Codec.fromExtension(file), SHORTEST, false);
+  }
+
+  /**
+   * Write to a file.
+   * 
+   * @param file the file to create or overwrite.
+   * @param codec how to compress the output.
+   * @param precision the number of decimal places for doubles or
+   *          {@code SHORTEST}.
+   * @param parallel true to format blocks of rows in parallel.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public DataFrameWriter(Path file, Codec codec, int precision,
+      boolean parallel) throws IOException {
+    if (precision < SHORTEST || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException(
+          "precision must be SHORTEST or between 0 and " + MAX_PRECISION);
+    }
+
+    if (codec != Codec.NONE) {
+      mChannel = Channels
+          .newChannel(codec.encode(Files.newOutputStream(file)));
+    } else {
+      mChannel = FileChannel.open(file,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.WRITE);
+    }
+
+    mPrecision = precision;
+    mParallel = parallel;
+    mBuffer = new Buffer(BUFFER_SIZE, precision);
+  }
+
+  /**
+   * Append text to the current line. Output is buffered in memory and only
+   * reaches the file when a line is ended with {@link #newLine()} after the
+   * buffer fills, or on {@link #flush()} or {@link #close()}.
+   * 
+   * @param s the text to write. Null is written as the empty string.
+   */
+  public void write(String s) {
+    mBuffer.append(s);
+  }
+
+  /**
+   * Append a number to the current line, formatted in the shortest round
+   * trip form or to the fixed precision the writer was created with. NaN
+   * and infinities are written as Java prints them. Output is buffered as
+   * for {@link #write(String)}.
+   * 
+   * @param v the value to write.
+   */
+  public void write(double v) {
+    mBuffer.append(v);
+  }
+
+  /**
+   * Append a tab separator to the current line. Output is buffered as for
+   * {@link #write(String)}.
+   */
+  public void tab() {
+    mBuffer.tab();
+  }
+
+  /**
+   * End the current line with the platform line separator. This is the
+   * only point at which buffered output is written to the file without an
+   * explicit {@link #flush()}, so a line is never split across writes.
+   * 
+   * @throws IOException if the buffer is full and cannot be written.
+   */
+  public void newLine() throws IOException {
+    mBuffer.newLine();
+
+    if (mBuffer.mPos >= BUFFER_SIZE) {
+      flush();
+    }
+  }
+
+  /**
+   * Write each row of a data frame as a line of tab separated values: the
+   * row name if requested, the given row annotations, then the cells.
+   * Missing text cells and annotations are written as empty fields.
+   * 
+   * @param m the data frame to write.
+   * @param rowNames true to start each line with the row name.
+   * @param annotations the row annotations to write.
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void writeRows(DataFrame m,
+      boolean rowNames,
+      List<String> annotations) throws IOException {
+    RowFormatter f = new RowFormatter(m, rowNames, annotations);
+
+    int rows = m.getRows();
+
+    if (!mParallel || rows <= BLOCK_ROWS) {
+      for (int i = 0; i < rows; ++i) {
+        f.format(i, mBuffer);
+
+        if (mBuffer.mPos >= BUFFER_SIZE) {
+          flush();
+        }
+      }
+
+      return;
+    }
+
+    int blocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+
+    // Only format a few blocks ahead of the writer to bound memory
+    int wave = 2 * ForkJoinPool.getCommonPoolParallelism();
+
+    for (int b = 0; b < blocks; b += wave) {
+      List<Buffer> buffers = IntStream.range(b, Math.min(blocks, b + wave))
+          .parallel()
+          .mapToObj(block -> {
+            Buffer buffer = new Buffer(BUFFER_SIZE / 16, mPrecision);
+
+            int e = Math.min(rows, (block + 1) * BLOCK_ROWS);
+
+            for (int i = block * BLOCK_ROWS; i < e; ++i) {
+              f.format(i, buffer);
+            }
+
+            return buffer;
+          }).collect(Collectors.toList());
+
+      flush();
+
+      for (Buffer buffer : buffers) {
+        write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Write any buffered output to the file.
+   * 
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public void flush() throws IOException {
+    write(mBuffer);
+  }
+
+  private void write(Buffer buffer) throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(buffer.mData, 0, buffer.mPos);
+
+    while (bytes.hasRemaining()) {
+      mChannel.write(bytes);
+    }
+
+    buffer.mPos = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      mChannel.close();
+    }
+  }
+}
@@ -0,0 +1,510 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.util.Arrays;
+
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.utils.Transpose;
+
+/**
+ * Text matrix that stores an int code per cell rather than a String. Codes
+ * index into a {@link TextDictionary} which may be shared by several
+ * matrices, so a value repeated many times, such as a sample type or
+ * chromosome, is stored once. Since equal values have equal codes, rows can
+ * be filtered and grouped by comparing ints rather than strings. Copies get
+ * their own dictionary holding only the values they use, so editing a copy
+ * does not grow the dictionary of the original.
+ */
+public class DictionaryTextMatrix extends IndexRowMatrix {
+
+  /**
+   * The constant serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The code of each cell.
+   */
+  public final int[] mCodes;
+
+  /**
+   * The dictionary the codes refer to.
+   */
+  public final TextDictionary mDict;
+
+  /**
+   * Instantiates a new dictionary text matrix with its own dictionary.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   */
+  public DictionaryTextMatrix(int rows, int columns) {
+    this(rows, columns, new TextDictionary());
+  }
+
+  /**
+   * Instantiates a new dictionary text matrix using a shared dictionary.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   * @param dict the dictionary
+   */
+  public DictionaryTextMatrix(int rows, int columns, TextDictionary dict) {
+    super(rows, columns);
+
+    mDict = dict;
+    mCodes = new int[mSize];
+
+    // Cells default to the empty string rather than null
+    Arrays.fill(mCodes, mDict.intern(TextUtils.EMPTY_STRING));
+  }
+
+  /**
+   * Instantiates a new dictionary text matrix from another. The copy gets a
+   * new dictionary containing only the values the matrix uses.
+   *
+   * @param m the m
+   */
+  public DictionaryTextMatrix(DictionaryTextMatrix m) {
+    super(m.getRows(), m.getCols());
+
+    mDict = new TextDictionary();
+    mCodes = new int[mSize];
+
+    // Old code to new code, assigned as each code is first seen
+    int[] map = new int[m.mDict.size()];
+    Arrays.fill(map, TextDictionary.NO_CODE);
+
+    for (int i = 0; i < mSize; ++i) {
+      int code = m.mCodes[i];
+
+      if (map[code] == TextDictionary.NO_CODE) {
+        map[code] = mDict.intern(m.mDict.getText(code));
+      }
+
+      mCodes[i] = map[code];
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.common.math.matrix.Matrix#getType()
+   */
+  @Override
+  public MatrixType getType() {
+    return MatrixType.TEXT;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.common.math.matrix.Matrix#copy()
+   */
+  @Override
+  public Matrix copy() {
+    return new DictionaryTextMatrix(this);
+  }
+
+  @Override
+  public Matrix ofSameType(int rows, int cols) {
+    return new DictionaryTextMatrix(rows, cols, mDict);
+  }
+
+  /**
+   * Returns the dictionary the cell codes refer to.
+   *
+   * @return the dictionary
+   */
+  public TextDictionary getDictionary() {
+    return mDict;
+  }
+
+  /**
+   * Returns the dictionary code of a cell.
+   *
+   * @param row the row
+   * @param column the column
+   * @return the code
+   */
+  public int getCode(int row, int column) {
+    return mCodes[getIndex(row, column)];
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.lib.math.matrix.IndexMatrix#getCellType(int)
+   */
+  @Override
+  public CellType getCellType(int index) {
+    return CellType.TEXT;
+  }
+
+  @Override
+  public void update(double v) {
+    update(Double.toString(v));
+  }
+
+  @Override
+  public void update(String v) {
+    Arrays.fill(mCodes, mDict.intern(v));
+  }
+
+  @Override
+  public void update(int index, double v) {
+    update(index, Double.toString(v));
+  }
+
+  @Override
+  public void update(int index, long v) {
+    update(index, Long.toString(v));
+  }
+
+  @Override
+  public void update(int index, int v) {
+    update(index, Integer.toString(v));
+  }
+
+  @Override
+  public void update(int index, String v) {
+    mCodes[index] = mDict.intern(v);
+  }
+
+  @Override
+  public String getText(int index) {
+    return mDict.getText(mCodes[index]);
+  }
+
+  @Override
+  public double getValue(int index) {
+    return TextUtils.parseDouble(getText(index));
+  }
+
+  @Override
+  public int getInt(int index) {
+    return TextUtils.parseInt(getText(index));
+  }
+
+  @Override
+  public long getLong(int index) {
+    return TextUtils.parseLong(getText(index));
+  }
+
+  @Override
+  public Object get(int index) {
+    return getText(index);
+  }
+
+  @Override
+  public void setRow(int row, String[] values) {
+    int index = mRowOffsets[row];
+
+    int n = Math.min(values.length, mDim.mCols);
+
+    for (int i = 0; i < n; ++i) {
+      mCodes[index++] = mDict.intern(values[i]);
+    }
+
+    fireMatrixChanged();
+  }
+
+  @Override
+  public void rowToText(int row, String[] ret) {
+    int index = mRowOffsets[row];
+
+    for (int i = 0; i < mDim.mCols; ++i) {
+      ret[i] = mDict.getText(mCodes[index++]);
+    }
+  }
+
+  @Override
+  public void columnToText(int column, String[] ret) {
+    int index = column;
+
+    for (int r = 0; r < mDim.mRows; ++r) {
+      ret[r] = mDict.getText(mCodes[index]);
+
+      index += mDim.mCols;
+    }
+  }
+
+  /**
+   * Returns the codes of a row.
+   *
+   * @param row the row
+   * @return the int[]
+   */
+  public int[] rowToCodes(int row) {
+    int[] ret = new int[mDim.mCols];
+
+    System.arraycopy(mCodes, mRowOffsets[row], ret, 0, mDim.mCols);
+
+    return ret;
+  }
+
+  /**
+   * Returns the codes of a column.
+   *
+   * @param column the column
+   * @return the int[]
+   */
+  public int[] columnToCodes(int column) {
+    int[] ret = new int[mDim.mRows];
+
+    int index = column;
+
+    for (int r = 0; r < mDim.mRows; ++r) {
+      ret[r] = mCodes[index];
+
+      index += mDim.mCols;
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the columns of a row whose value equals a given value. The value
+   * is translated to a code once so the scan only compares ints.
+   *
+   * @param row the row
+   * @param value the value
+   * @return the indices of the matching columns
+   */
+  public int[] findInRow(int row, String value) {
+    int code = mDict.getCode(value);
+
+    if (code == TextDictionary.NO_CODE) {
+      return new int[0];
+    }
+
+    int[] ret = new int[mDim.mCols];
+    int n = 0;
+
+    int index = mRowOffsets[row];
+
+    for (int i = 0; i < mDim.mCols; ++i) {
+      if (mCodes[index++] == code) {
+        ret[n++] = i;
+      }
+    }
+
+    return Arrays.copyOf(ret, n);
+  }
+
+  /**
+   * Returns the rows of a column whose value equals a given value.
+   *
+   * @param column the column
+   * @param value the value
+   * @return the indices of the matching rows
+   */
+  public int[] findInColumn(int column, String value) {
+    int code = mDict.getCode(value);
+
+    if (code == TextDictionary.NO_CODE) {
+      return new int[0];
+    }
+
+    int[] ret = new int[mDim.mRows];
+    int n = 0;
+
+    int index = column;
+
+    for (int i = 0; i < mDim.mRows; ++i) {
+      if (mCodes[index] == code) {
+        ret[n++] = i;
+      }
+
+      index += mDim.mCols;
+    }
+
+    return Arrays.copyOf(ret, n);
+  }
+
+  @Override
+  public void copyColumn(final Matrix from, int column, int toColumn) {
+    if (from instanceof DictionaryTextMatrix
+        && ((DictionaryTextMatrix) from).mDict == mDict) {
+      copyColumn((DictionaryTextMatrix) from, column, toColumn);
+    } else {
+      int i1 = getIndex(0, toColumn);
+
+      int r = Math.min(from.getRows(), getRows());
+
+      for (int i = 0; i < r; ++i) {
+        mCodes[i1] = mDict.intern(from.getText(i, column));
+
+        i1 += mDim.mCols;
+      }
+
+      fireMatrixChanged();
+    }
+  }
+
+  /**
+   * Copy a column from a matrix sharing the same dictionary by copying the
+   * codes.
+   *
+   * @param from the from
+   * @param column the column
+   * @param toColumn the to column
+   */
+  private void copyColumn(final DictionaryTextMatrix from,
+      int column,
+      int toColumn) {
+    int i1 = from.getIndex(0, column);
+    int i2 = getIndex(0, toColumn);
+
+    int r = Math.min(from.getRows(), getRows());
+
+    for (int i = 0; i < r; ++i) {
+      mCodes[i2] = from.mCodes[i1];
+
+      i1 += from.mDim.mCols;
+      i2 += mDim.mCols;
+    }
+
+    fireMatrixChanged();
+  }
+
+  @Override
+  public void copyRow(final Matrix from, int row, int toRow) {
+    int c = Math.min(from.getCols(), getCols());
+
+    if (from instanceof DictionaryTextMatrix
+        && ((DictionaryTextMatrix) from).mDict == mDict) {
+      System.arraycopy(((DictionaryTextMatrix) from).mCodes,
+          ((DictionaryTextMatrix) from).mRowOffsets[row],
+          mCodes,
+          mRowOffsets[toRow],
+          c);
+    } else {
+      int index = mRowOffsets[toRow];
+
+      for (int i = 0; i < c; ++i) {
+        mCodes[index++] = mDict.intern(from.getText(row, i));
+      }
+    }
+
+    fireMatrixChanged();
+  }
+
+  /**
+   * Applies a function to the numerical value of each cell and stores the
+   * result as text.
+   *
+   * @param f the f
+   */
+  @Override
+  public void apply(CellFunction f) {
+    int index = 0;
+
+    for (int i = 0; i < mDim.mRows; ++i) {
+      for (int j = 0; j < mDim.mCols; ++j) {
+        update(index, f.f(i, j, getValue(index)));
+
+        ++index;
+      }
+    }
+
+    fireMatrixChanged();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.abh.common.math.matrix.IndexMatrix#transpose()
+   */
+  @Override
+  public Matrix transpose() {
+    DictionaryTextMatrix ret = new DictionaryTextMatrix(mDim.mCols,
+        mDim.mRows, mDict);
+
+    Transpose.transpose(mCodes, mDim.mRows, mDim.mCols, ret.mCodes);
+
+    return ret;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.IndexRowMatrix#transposeData()
+   */
+  @Override
+  protected void transposeData() {
+    Transpose.transpose(mCodes, mDim.mRows);
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Returns a dictionary encoded version of a matrix. If the matrix is
+   * already dictionary encoded it is returned as is, otherwise each cell is
+   * interned into a new dictionary. This is used to group rows by an
+   * annotation using int comparisons.
+   *
+   * @param m the m
+   * @return the dictionary text matrix
+   */
+  public static DictionaryTextMatrix encode(Matrix m) {
+    if (m instanceof DictionaryTextMatrix) {
+      return (DictionaryTextMatrix) m;
+    }
+
+    int r = m.getRows();
+    int c = m.getCols();
+
+    DictionaryTextMatrix ret = new DictionaryTextMatrix(r, c);
+
+    int index = 0;
+
+    for (int i = 0; i < r; ++i) {
+      for (int j = 0; j < c; ++j) {
+        ret.mCodes[index++] = ret.mDict.intern(m.getText(i, j));
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Creates the dictionary text matrix.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   * @return the dictionary text matrix
+   */
+  public static DictionaryTextMatrix createDictionaryTextMatrix(int rows,
+      int columns) {
+    return new DictionaryTextMatrix(rows, columns);
+  }
+}
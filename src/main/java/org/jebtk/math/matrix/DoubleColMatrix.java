@@ -30,6 +30,7 @@ package org.jebtk.math.matrix;
 import java.util.Arrays;
 
 import org.jebtk.core.sys.SysUtils;
+import org.jebtk.math.matrix.utils.Transpose;
 
 /**
  * Matrix for storing doubles.
@@ -309,20 +310,8 @@ public class DoubleColMatrix extends IndexColMatrix {
     DoubleColMatrix ret = DoubleColMatrix.createDoubleColMatrix(m.mDim.mCols,
         m.mDim.mRows);
 
-    int i2 = 0;
-    int c = 0;
-
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
-
-      ret.mData[i2] = m.mData[i];
-
-      // Skip blocks
-      i2 += m.mDim.mRows;
-    }
+    // Column major data is the row major data of the transposed shape
+    Transpose.transpose(m.mData, m.mDim.mCols, m.mDim.mRows, ret.mData);
 
     return ret;
   }
@@ -32,11 +32,15 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
 
 import org.jebtk.core.Mathematics;
 import org.jebtk.core.sys.SysUtils;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.Timer;
+import org.jebtk.math.matrix.utils.Filter;
+import org.jebtk.math.matrix.utils.Transpose;
 import org.jebtk.math.statistics.Statistics;
 
 /**
@@ -51,291 +55,19 @@ public class DoubleMatrix extends IndexRowMatrix {
    */
   private static final long serialVersionUID = 1L;
 
-  private static class TransposeRecursiveAction extends RecursiveAction {
-
-    /** The Constant serialVersionUID. */
-    private static final long serialVersionUID = 1L;
-
-    /** The m data. */
-    private final double[] mData;
-
-    /** The m I. */
-    private final int mI;
-
-    /** The m R. */
-    private final int mR;
-
-    /** The m ret. */
-    private final double[] mRet;
-
-    /** The m cols. */
-    private final int mCols;
-
-    /** The m steps. */
-    private final int mSteps;
-
-    private final int mRows;
-
-    /**
-     * Instantiates a new double matrix recursive action.
-     *
-     * @param data the data.
-     * @param f the function.
-     * @param i the starting index.
-     * @param r the r the starting row.
-     * @param cols the number of colums in the matrix.
-     * @param steps the number of elements to process in a thread.
-     * @param ret the array to write results to.
-     */
-    public TransposeRecursiveAction(final double[] data, final int i,
-        final int r, final int cols, final int rows, final int steps,
-        final double[] ret) {
-      mData = data;
-      mR = r;
-      mCols = cols;
-      mRows = rows;
-      mI = i;
-      mSteps = steps;
-      mRet = ret;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.util.concurrent.RecursiveAction#compute()
-     */
-    @Override
-    protected void compute() {
-
-      int i2 = -1;
-      int c = mR;
-      int ix = mI;
-
-      for (int i = 0; i < mSteps; ++i) {
-        if (ix == mData.length) {
-          break;
-        }
-
-        // Each time we end a row, reset i2 back to the next column
-        if (i % mCols == 0) {
-          i2 = c++;
-        }
-
-        mRet[i2] = mData[ix];
-
-        // Skip blocks
-        i2 += mRows;
-
-        ++ix;
-      }
-    }
-  }
-
   /**
-   * Applies a binary function to all cells of a matrix where the second operand
-   * is a constant. For example this can be used to add a constant value to a
-   * matrix
+   * The number of cells processed by each parallel task in the specialised
+   * cell function kernels.
    */
-  private static class MatConstRecAction extends RecursiveAction {
-
-    /** The Constant serialVersionUID. */
-    private static final long serialVersionUID = 1L;
-
-    /** The m F. */
-    private final CellFunction mF;
-
-    /** The m I. */
-    private final int mI;
-
-    /** The m steps. */
-    private final int mSteps;
-
-    private double mB;
-
-    private DoubleMatrix mM1;
-
-    private final int mR;
-
-    /**
-     * Instantiates a new double matrix recursive action.
-     *
-     * @param data the data.
-     * @param f the function.
-     * @param i the starting index.
-     * @param r the r the starting row.
-     * @param cols the number of colums in the matrix.
-     * @param steps the number of elements to process in a thread.
-     * @param ret the array to write results to.
-     */
-    public MatConstRecAction(final CellFunction f, final DoubleMatrix m1,
-        final double b, final int i, final int r, final int steps) {
-      mM1 = m1;
-      mB = b;
-      mF = f;
-      mI = i;
-      mR = r;
-      mSteps = steps;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.util.concurrent.RecursiveAction#compute()
-     */
-    @Override
-    protected void compute() {
-
-      int r = mR;
-      int c = 0;
-
-      for (int ix = mI; ix < mI + mSteps; ++ix) {
-        // Stop if we reach the end of the data
-        if (ix == mM1.mData.length) {
-          break;
-        }
-
-        mM1.mData[ix] = mF.f(r, c, mM1.mData[ix], mB);
-
-        if (c++ == mM1.mDim.mCols) {
-          c = 0;
-          ++r;
-        }
-      }
-    }
-  }
-
-  private static class MatMatRecAction extends RecursiveAction {
-
-    /** The Constant serialVersionUID. */
-    private static final long serialVersionUID = 1L;
-
-    /** The m F. */
-    private final CellFunction mF;
-
-    /** The m I. */
-    private final int mI;
-
-    /** The m steps. */
-    private final int mSteps;
-
-    private final double[] mData2;
-
-    private int mR;
-
-    private final DoubleMatrix mM1;
-
-    /**
-     * Instantiates a new double matrix recursive action.
-     *
-     * @param data the data.
-     * @param f the function.
-     * @param i the starting index.
-     * @param r the r the starting row.
-     * @param cols the number of colums in the matrix.
-     * @param steps the number of elements to process in a thread.
-     * @param ret the array to write results to.
-     */
-    public MatMatRecAction(final CellFunction f, final DoubleMatrix m1,
-        final double[] data2, final int i, final int r, final int steps) {
-      mM1 = m1;
-      mData2 = data2;
-      mF = f;
-      mI = i;
-      mR = r;
-      mSteps = steps;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.util.concurrent.RecursiveAction#compute()
-     */
-    @Override
-    protected void compute() {
-
-      int r = mR;
-      int c = 0;
-
-      for (int ix = mI; ix < mI + mSteps; ++ix) {
-        // Stop if we reach the end of the data
-        if (ix == mM1.mData.length) {
-          break;
-        }
-
-        mM1.mData[ix] = mF.f(r, c, mM1.mData[ix], mData2[ix]);
-
-        if (c++ == mM1.mDim.mCols) {
-          c = 0;
-          ++r;
-        }
-      }
-    }
-  }
-
-  private static class MatRecAction extends RecursiveAction {
-
-    /** The Constant serialVersionUID. */
-    private static final long serialVersionUID = 1L;
-
-    /** The m F. */
-    private final CellFunction mF;
-
-    /** The m I. */
-    private final int mI;
-
-    /** The m steps. */
-    private final int mSteps;
-
-    private int mR;
-
-    private final DoubleMatrix mM1;
-
-    /**
-     * Instantiates a new double matrix recursive action.
-     *
-     * @param data the data.
-     * @param f the function.
-     * @param i the starting index.
-     * @param r the r the starting row.
-     * @param cols the number of colums in the matrix.
-     * @param steps the number of elements to process in a thread.
-     * @param ret the array to write results to.
-     */
-    public MatRecAction(final CellFunction f, final DoubleMatrix m1,
-        final int i, final int r, final int steps) {
-      mM1 = m1;
-      mF = f;
-      mI = i;
-      mR = r;
-      mSteps = steps;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.util.concurrent.RecursiveAction#compute()
-     */
-    @Override
-    protected void compute() {
-
-      int r = mR;
-      int c = 0;
-
-      for (int ix = mI; ix < mI + mSteps; ++ix) {
-        // Stop if we reach the end of the data
-        if (ix == mM1.mData.length) {
-          break;
-        }
+  private static final int BLOCK_SIZE = 1 << 14;
 
-        mM1.mData[ix] = mF.f(r, c, mM1.mData[ix]);
+  /** Counts the cells written by matrix operations. */
+  private static final Counter CELLS = Instrumentation.getInstance()
+      .counter("matrix.cells");
 
-        if (c++ == mM1.mDim.mCols) {
-          c = 0;
-          ++r;
-        }
-      }
-    }
-  }
+  /** Times matrix multiplication. */
+  private static final Timer MULTIPLY_TIMER = Instrumentation.getInstance()
+      .timer("matrix.multiply");
 
   /** The m data. */
   public final double[] mData;
@@ -422,6 +154,8 @@ public class DoubleMatrix extends IndexRowMatrix {
    */
   public void update(DoubleMatrix m) {
     SysUtils.arraycopy(m.mData, mData);
+
+    updateMask(m);
   }
 
   /*
@@ -548,6 +282,11 @@ public class DoubleMatrix extends IndexRowMatrix {
   @Override
   public void update(double v) {
     Arrays.fill(mData, v);
+
+    if (mMask != null) {
+      // Excluded cells stay invalid
+      mMask.setAll(isValidMatrixNum(v));
+    }
   }
 
   /*
@@ -558,6 +297,54 @@ public class DoubleMatrix extends IndexRowMatrix {
   @Override
   public void update(int index, double v) {
     mData[index] = v;
+
+    if (mMask != null) {
+      mMask.update(index, v);
+    }
+  }
+
+  /**
+   * Create a validity mask marking the NaN cells of the matrix as invalid.
+   * Once created, the mask is kept up to date as cells are updated. If the
+   * matrix already has a mask it is recomputed, keeping any cells that were
+   * explicitly marked invalid.
+   *
+   * @return the validity mask
+   */
+  @Override
+  public ValidityMask createMask() {
+    if (mMask != null) {
+      mMask.update(mData);
+    } else {
+      mMask = ValidityMask.create(mData);
+    }
+
+    return mMask;
+  }
+
+  /**
+   * Recompute the validity mask, if there is one, after a bulk write to the
+   * data. Code writing to mData directly must call this before firing a
+   * change event.
+   */
+  public void syncMask() {
+    if (mMask != null) {
+      mMask.update(mData);
+    }
+  }
+
+  /**
+   * Recompute the validity of n cells spaced stride apart, if there is a
+   * mask, after a row or column has been written.
+   *
+   * @param offset the index of the first cell
+   * @param stride the distance between cells
+   * @param n the number of cells
+   */
+  protected void syncMask(int offset, int stride, int n) {
+    if (mMask != null) {
+      mMask.update(mData, offset, stride, n);
+    }
   }
 
   /*
@@ -579,6 +366,8 @@ public class DoubleMatrix extends IndexRowMatrix {
   public void setRow(int row, double[] values) {
     SysUtils.arraycopy(values, mData, mRowOffsets[row], mDim.mCols);
 
+    syncMask(mRowOffsets[row], 1, mDim.mCols);
+
     fireMatrixChanged();
   }
 
@@ -591,6 +380,8 @@ public class DoubleMatrix extends IndexRowMatrix {
   public void setColumn(int column, double[] values) {
     SysUtils.arraycopy(values, mData, column, mDim.mCols, mDim.mRows);
 
+    syncMask(column, mDim.mCols, mDim.mRows);
+
     fireMatrixChanged();
   }
 
@@ -616,6 +407,10 @@ public class DoubleMatrix extends IndexRowMatrix {
 
         i1 += mDim.mCols;
       }
+
+      syncMask(toColumn, mDim.mCols, r);
+
+      fireMatrixChanged();
     }
   }
 
@@ -644,6 +439,8 @@ public class DoubleMatrix extends IndexRowMatrix {
       i2 += mDim.mCols;
     }
 
+    syncMask(toColumn, mDim.mCols, r);
+
     fireMatrixChanged();
   }
   
@@ -672,6 +469,8 @@ public class DoubleMatrix extends IndexRowMatrix {
         mRowOffsets[toRow],
         c);
 
+    syncMask(mRowOffsets[toRow], 1, c);
+
     fireMatrixChanged();
   }
 
@@ -720,68 +519,50 @@ public class DoubleMatrix extends IndexRowMatrix {
   }
 
   /**
-   * F.
+   * Apply a function to each cell and the corresponding cell of a matrix of
+   * the same shape in place.
    *
    * @param f the f
-   * @param ret the ret
-   * @return
+   * @param m the m
    */
   public void apply(CellFunction f, DoubleMatrix m) {
     apply(f, this, m);
   }
 
   /**
-   * F.
+   * Apply a function to each cell of m1 and the corresponding cell of m2 in
+   * place. Functions that are also a {@link BinaryCellFunction}, such as
+   * {@link Matrix#ADD_FUNCTION}, use the primitive kernel.
    *
    * @param f the f
-   * @param m the m
-   * @param ret the ret
+   * @param m1 the m1
+   * @param m2 the m2
    */
   public static void apply(CellFunction f, DoubleMatrix m1, DoubleMatrix m2) {
-
-    /*
-     * DoubleMatrix ret = ofSameType(m1);
-     * 
-     * for (int i = 0; i < m1.mData.length; ++i) { ret.mData[i] =
-     * f.f(m1.mData[i], m2.mData[i]); }
-     * 
-     * return ret;
-     */
-
-    applyconc(f, m1, m2, CONCURRENT_ROWS);
+    if (f instanceof BinaryCellFunction) {
+      m1.combine((BinaryCellFunction) f, m2);
+    } else {
+      m1.combineCells(f, m2);
+    }
   }
 
   /**
-   * Fconc.
+   * Apply a function to each cell of m1 and the corresponding cell of m2 in
+   * place.
    *
    * @param f the f
-   * @param m the m
-   * @param ret the ret
-   * @param rows the rows
-   * @return
+   * @param m1 the m1
+   * @param m2 the m2
+   * @param rows ignored.
+   * @deprecated use {@link #apply(CellFunction, DoubleMatrix, DoubleMatrix)},
+   *             which runs in parallel blocks on large matrices.
    */
+  @Deprecated
   public static void applyconc(CellFunction f,
       DoubleMatrix m1,
       DoubleMatrix m2,
       int rows) {
-    //System.err.println("f concurrent");
-
-    int steps = rows * m1.mDim.mCols;
-
-    ForkJoinPool forkJoinPool = new ForkJoinPool(); // 16);
-
-    // for (int i = 0; i < m1.mData.length; i += steps) {
-    int ix = 0;
-
-    for (int r = 0; r < m1.mDim.mRows; r += rows) {
-      RecursiveAction a = new MatMatRecAction(f, m1, m2.mData, ix, r, steps);
-
-      forkJoinPool.invoke(a);
-
-      ix += steps;
-    }
-
-    m1.fireMatrixChanged();
+    apply(f, m1, m2);
   }
 
   /*
@@ -797,56 +578,38 @@ public class DoubleMatrix extends IndexRowMatrix {
   }
 
   /**
-   * F.
+   * Apply a function to each cell of a matrix and a constant in place.
+   * Functions that are also a {@link BinaryCellFunction}, such as
+   * {@link Matrix#ADD_FUNCTION}, use the primitive kernel.
    *
    * @param f the f
-   * @param m the m
-   * @param ret the ret
+   * @param m1 the m1
+   * @param v the v
    */
   public static void apply(CellFunction f, DoubleMatrix m1, double v) {
-
-    /*
-     * DoubleMatrix ret = ofSameType(m1);
-     * 
-     * for (int i = 0; i < m1.mData.length; ++i) { ret.mData[i] =
-     * f.f(m1.mData[i], v); }
-     * 
-     * return ret;
-     */
-
-    applyconc(f, m1, v, CONCURRENT_ROWS);
+    if (f instanceof BinaryCellFunction) {
+      m1.combine((BinaryCellFunction) f, v);
+    } else {
+      m1.mapIndexed(CellFunctions.unary(f, v));
+    }
   }
 
   /**
-   * Fconc.
+   * Apply a function to each cell of a matrix and a constant in place.
    *
    * @param f the f
-   * @param m the m
-   * @param ret the ret
-   * @param rows the rows
-   * @return
+   * @param m1 the m1
+   * @param v the v
+   * @param rows ignored.
+   * @deprecated use {@link #apply(CellFunction, DoubleMatrix, double)},
+   *             which runs in parallel blocks on large matrices.
    */
+  @Deprecated
   public static void applyconc(CellFunction f,
       DoubleMatrix m1,
       double v,
       int rows) {
-    //System.err.println("f concurrent");
-
-    int steps = rows * m1.mDim.mCols;
-
-    ForkJoinPool forkJoinPool = new ForkJoinPool(); // 16);
-
-    int ix = 0;
-
-    for (int r = 0; r < m1.mDim.mRows; r += rows) {
-      RecursiveAction a = new MatConstRecAction(f, m1, v, ix, r, steps);
-
-      forkJoinPool.invoke(a);
-
-      ix += steps;
-    }
-
-    m1.fireMatrixChanged();
+    apply(f, m1, v);
   }
 
   /*
@@ -862,53 +625,221 @@ public class DoubleMatrix extends IndexRowMatrix {
   }
 
   /**
-   * F.
+   * Apply a function to each cell of a matrix in place.
    *
    * @param f the f
-   * @param m the m
-   * @param ret the ret
+   * @param m1 the m1
    */
   public static void applySimple(CellFunction f, DoubleMatrix m1) {
+    m1.mapIndexed(CellFunctions.unary(f));
+  }
 
-    /*
-     * DoubleMatrix ret = ofSameType(m1);
-     * 
-     * for (int i = 0; i < m1.mData.length; ++i) { ret.mData[i] =
-     * f.f(m1.mData[i]); }
-     * 
-     * return ret;
-     */
+  /**
+   * Apply a function to each cell of a matrix in place.
+   *
+   * @param f the f
+   * @param m1 the m1
+   * @param rows ignored.
+   * @deprecated use {@link #applySimple(CellFunction, DoubleMatrix)}, which
+   *             runs in parallel blocks on large matrices.
+   */
+  @Deprecated
+  public static void applyconc(CellFunction f, DoubleMatrix m1, int rows) {
+    applySimple(f, m1);
+  }
+
+  /**
+   * Apply a function to every cell in place. Large matrices are processed
+   * in parallel blocks.
+   *
+   * @param f the f
+   */
+  public void map(final UnaryCellFunction f) {
+    final double[] data = mData;
+
+    blocks(data.length).forEach(b -> {
+      int end = Math.min(b + BLOCK_SIZE, data.length);
+
+      for (int i = b; i < end; ++i) {
+        data[i] = f.f(data[i]);
+      }
+    });
+
+    syncMask();
+
+    fireMatrixChanged();
+  }
+
+  /**
+   * Apply a function to every cell and its position in place.
+   *
+   * @param f the f
+   */
+  public void mapIndexed(final IndexedUnaryCellFunction f) {
+    final double[] data = mData;
+    final int cols = mDim.mCols;
+
+    rowBlocks().forEach(b -> {
+      int end = Math.min(b + rowsPerBlock(), mDim.mRows);
+      int i = mRowOffsets[b];
+
+      for (int r = b; r < end; ++r) {
+        for (int c = 0; c < cols; ++c) {
+          data[i] = f.f(r, c, data[i]);
+          ++i;
+        }
+      }
+    });
+
+    syncMask();
+
+    fireMatrixChanged();
+  }
+
+  /**
+   * Combine every cell with a constant in place.
+   *
+   * @param f the f
+   * @param v the v
+   */
+  public void combine(final BinaryCellFunction f, final double v) {
+    final double[] data = mData;
+
+    blocks(data.length).forEach(b -> {
+      int end = Math.min(b + BLOCK_SIZE, data.length);
+
+      for (int i = b; i < end; ++i) {
+        data[i] = f.f(data[i], v);
+      }
+    });
+
+    syncMask();
 
-    applyconc(f, m1, CONCURRENT_ROWS);
+    fireMatrixChanged();
   }
 
   /**
-   * Fconc.
+   * Combine every cell with the corresponding cell of a matrix of the same
+   * shape in place.
    *
    * @param f the f
    * @param m the m
-   * @param ret the ret
-   * @param rows the rows
-   * @return
    */
-  public static void applyconc(CellFunction f, DoubleMatrix m1, int rows) {
-    //System.err.println("f concurrent");
+  public void combine(final BinaryCellFunction f, final DoubleMatrix m) {
+    final double[] data = mData;
+    final double[] data2 = m.mData;
+
+    blocks(data.length).forEach(b -> {
+      int end = Math.min(b + BLOCK_SIZE, data.length);
+
+      for (int i = b; i < end; ++i) {
+        data[i] = f.f(data[i], data2[i]);
+      }
+    });
+
+    syncMask();
+
+    fireMatrixChanged();
+  }
+
+  /**
+   * Combine every cell and its position with the corresponding cell of a
+   * matrix of the same shape in place.
+   *
+   * @param f the f
+   * @param m the m
+   */
+  public void combineIndexed(final IndexedBinaryCellFunction f,
+      final DoubleMatrix m) {
+    final double[] data = mData;
+    final double[] data2 = m.mData;
+    final int cols = mDim.mCols;
 
-    int steps = rows * m1.mDim.mCols;
+    rowBlocks().forEach(b -> {
+      int end = Math.min(b + rowsPerBlock(), mDim.mRows);
+      int i = mRowOffsets[b];
 
-    ForkJoinPool forkJoinPool = new ForkJoinPool(); // 16);
+      for (int r = b; r < end; ++r) {
+        for (int c = 0; c < cols; ++c) {
+          data[i] = f.f(r, c, data[i], data2[i]);
+          ++i;
+        }
+      }
+    });
 
-    int ix = 0;
+    syncMask();
 
-    for (int r = 0; r < m1.mDim.mRows; r += rows) {
-      RecursiveAction a = new MatRecAction(f, m1, ix, r, steps);
+    fireMatrixChanged();
+  }
 
-      forkJoinPool.invoke(a);
+  /**
+   * Combine every cell and its position with the corresponding cell of a
+   * matrix using a cell function. Each block reuses one array to pass the
+   * second value so calls do not allocate.
+   *
+   * @param f the f
+   * @param m the m
+   */
+  private void combineCells(final CellFunction f, final DoubleMatrix m) {
+    final double[] data = mData;
+    final double[] data2 = m.mData;
+    final int cols = mDim.mCols;
 
-      ix += steps;
-    }
+    rowBlocks().forEach(b -> {
+      int end = Math.min(b + rowsPerBlock(), mDim.mRows);
+      int i = mRowOffsets[b];
+
+      double[] y = new double[1];
+
+      for (int r = b; r < end; ++r) {
+        for (int c = 0; c < cols; ++c) {
+          y[0] = data2[i];
+          data[i] = f.f(r, c, data[i], y);
+          ++i;
+        }
+      }
+    });
+
+    syncMask();
+
+    fireMatrixChanged();
+  }
 
-    m1.fireMatrixChanged();
+  /**
+   * Returns the start indices of the blocks of n cells, in parallel if
+   * there is more than one block.
+   *
+   * @param n the n
+   * @return the int stream
+   */
+  private static IntStream blocks(int n) {
+    IntStream ret = IntStream.range(0, (n + BLOCK_SIZE - 1) / BLOCK_SIZE)
+        .map(b -> b * BLOCK_SIZE);
+
+    return n > BLOCK_SIZE ? ret.parallel() : ret;
+  }
+
+  /**
+   * Returns the first row of each block of rows.
+   *
+   * @return the int stream
+   */
+  private IntStream rowBlocks() {
+    int rows = rowsPerBlock();
+
+    IntStream ret = IntStream.range(0, (mDim.mRows + rows - 1) / rows)
+        .map(b -> b * rows);
+
+    return mDim.mRows > rows ? ret.parallel() : ret;
+  }
+
+  /**
+   * Returns the number of rows in a block of about BLOCK_SIZE cells.
+   *
+   * @return the int
+   */
+  private int rowsPerBlock() {
+    return Math.max(1, BLOCK_SIZE / Math.max(1, mDim.mCols));
   }
 
   /*
@@ -919,11 +850,7 @@ public class DoubleMatrix extends IndexRowMatrix {
    */
   @Override
   public void rowApply(CellFunction f) {
-    for (int i = 0; i < mDim.mRows; ++i) {
-      rowApply(f, i);
-    }
-
-    fireMatrixChanged();
+    mapIndexed(CellFunctions.unary(f));
   }
 
   /*
@@ -935,14 +862,18 @@ public class DoubleMatrix extends IndexRowMatrix {
    */
   @Override
   public void rowApply(CellFunction f, int index) {
+    IndexedUnaryCellFunction g = CellFunctions.unary(f);
+
     int offset = mRowOffsets[index];
 
     for (int i = 0; i < mDim.mCols; ++i) {
-      mData[offset] = f.f(i, 0, mData[offset]);
+      mData[offset] = g.f(index, i, mData[offset]);
 
       ++offset;
     }
 
+    syncMask(mRowOffsets[index], 1, mDim.mCols);
+
     fireMatrixChanged();
   }
 
@@ -955,14 +886,18 @@ public class DoubleMatrix extends IndexRowMatrix {
    */
   @Override
   public void colApply(CellFunction f, int col) {
+    IndexedUnaryCellFunction g = CellFunctions.unary(f);
+
     int offset = col;
 
-    for (int i = 0; i < mDim.mCols; ++i) {
-      mData[offset] = f.f(i, 0, mData[offset]);
+    for (int i = 0; i < mDim.mRows; ++i) {
+      mData[offset] = g.f(i, col, mData[offset]);
 
       offset += mDim.mCols;
     }
 
+    syncMask(col, mDim.mCols, mDim.mRows);
+
     fireMatrixChanged();
   }
 
@@ -1012,9 +947,11 @@ public class DoubleMatrix extends IndexRowMatrix {
    */
   @Override
   public double colStat(MatrixStatFunction f, int index) {
+    f.init();
+
     int offset = index;
 
-    for (int i = 0; i < mDim.mCols; ++i) {
+    for (int i = 0; i < mDim.mRows; ++i) {
       f.f(i, 0, mData[offset]);
 
       offset += mDim.mCols;
@@ -1023,6 +960,61 @@ public class DoubleMatrix extends IndexRowMatrix {
     return f.getStat();
   }
 
+  /**
+   * Returns a boolean matrix whose cells are true where this matrix is
+   * greater than a value.
+   *
+   * @param v the v
+   * @return the boolean matrix
+   */
+  public BooleanMatrix greaterThan(double v) {
+    return Filter.gt(v).find(this);
+  }
+
+  /**
+   * Returns a boolean matrix whose cells are true where this matrix is
+   * greater than or equal to a value.
+   *
+   * @param v the v
+   * @return the boolean matrix
+   */
+  public BooleanMatrix greaterThanOrEqual(double v) {
+    return Filter.ge(v).find(this);
+  }
+
+  /**
+   * Returns a boolean matrix whose cells are true where this matrix is less
+   * than a value.
+   *
+   * @param v the v
+   * @return the boolean matrix
+   */
+  public BooleanMatrix lessThan(double v) {
+    return Filter.lt(v).find(this);
+  }
+
+  /**
+   * Returns a boolean matrix whose cells are true where this matrix is less
+   * than or equal to a value.
+   *
+   * @param v the v
+   * @return the boolean matrix
+   */
+  public BooleanMatrix lessThanOrEqual(double v) {
+    return Filter.le(v).find(this);
+  }
+
+  /**
+   * Returns a boolean matrix whose cells are true where this matrix equals a
+   * value.
+   *
+   * @param v the v
+   * @return the boolean matrix
+   */
+  public BooleanMatrix equalTo(double v) {
+    return Filter.eq(v).find(this);
+  }
+
   @Override
   public Matrix multiply(final Matrix m) {
     if (m instanceof DoubleMatrix) {
@@ -1033,6 +1025,7 @@ public class DoubleMatrix extends IndexRowMatrix {
   }
 
   public static Matrix multiply(final DoubleMatrix m1, final DoubleMatrix m2) {
+    long start = MULTIPLY_TIMER.start();
 
     int of = 0;
     int of1 = 0;
@@ -1052,8 +1045,6 @@ public class DoubleMatrix extends IndexRowMatrix {
         int ix2 = j;
 
         for (int k = 0; k < m; ++k) {
-          SysUtils.err().println("mm", n, m, p, i, j, k, ix, ix1, ix2);
-
           // Dot product
           ret.mData[ix] += m1.mData[ix1++] * m2.mData[ix2];
 
@@ -1067,6 +1058,9 @@ public class DoubleMatrix extends IndexRowMatrix {
       of1 += m;
     }
 
+    CELLS.add((long) n * p);
+    MULTIPLY_TIMER.stop(start);
+
     return ret;
   }
 
@@ -1087,51 +1081,51 @@ public class DoubleMatrix extends IndexRowMatrix {
    * @return the matrix
    */
   public static Matrix transpose(final DoubleMatrix m) {
-    /*
-     * DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(m.mDim.mCols,
-     * m.mDim.mRows);
-     * 
-     * int i2 = 0; int c = 0;
-     * 
-     * for (int i = 0; i < m.mData.length; ++i) { // Each time we end a row,
-     * reset i2 back to the next column if (i % m.mDim.mCols == 0) { i2 = c++; }
-     * 
-     * ret.mData[i2] = m.mData[i];
-     * 
-     * // Skip blocks i2 += m.mDim.mRows; }
-     * 
-     * return ret;
-     */
-
-    return transposeC(m);
-  }
-
-  public static Matrix transposeC(final DoubleMatrix m) {
-    return transposeC(m, CONCURRENT_ROWS);
-  }
-
-  public static Matrix transposeC(final DoubleMatrix m, int rows) {
     DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(m.mDim.mCols,
         m.mDim.mRows);
 
-    int r = 0;
-
-    System.err.println("transpose concurrent");
-
-    int steps = rows * m.mDim.mCols;
+    ret.transposeMask(m);
 
-    ForkJoinPool forkJoinPool = new ForkJoinPool(); // 16);
+    Transpose.transpose(m.mData, m.mDim.mRows, m.mDim.mCols, ret.mData);
 
-    for (int i = 0; i < m.mData.length; i += steps) {
-      TransposeRecursiveAction a = new TransposeRecursiveAction(m.mData, i, r,
-          m.mDim.mCols, m.mDim.mRows, steps, ret.mData);
+    return ret;
+  }
 
-      forkJoinPool.invoke(a);
+  /**
+   * Transpose.
+   *
+   * @param m the m
+   * @return the matrix
+   * @deprecated use {@link #transpose(DoubleMatrix)}, which is tiled and
+   *             runs in parallel on large matrices.
+   */
+  @Deprecated
+  public static Matrix transposeC(final DoubleMatrix m) {
+    return transpose(m);
+  }
 
-      r += rows;
-    }
+  /**
+   * Transpose.
+   *
+   * @param m the m
+   * @param rows ignored.
+   * @return the matrix
+   * @deprecated use {@link #transpose(DoubleMatrix)}, which is tiled and
+   *             runs in parallel on large matrices.
+   */
+  @Deprecated
+  public static Matrix transposeC(final DoubleMatrix m, int rows) {
+    return transpose(m);
+  }
 
-    return ret;
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.IndexRowMatrix#transposeData()
+   */
+  @Override
+  protected void transposeData() {
+    Transpose.transpose(mData, mDim.mRows);
   }
 
   //
@@ -1608,6 +1602,14 @@ public class DoubleMatrix extends IndexRowMatrix {
 
     double[] means = new double[c];
 
+    if (m.mMask != null) {
+      for (int i = 0; i < c; ++i) {
+        means[i] = m.mMask.mean(m.mData, i, c, r);
+      }
+
+      return means;
+    }
+
     for (int i = 0; i < c; ++i) {
       double[] values = new double[r];
 
@@ -1703,6 +1705,14 @@ public class DoubleMatrix extends IndexRowMatrix {
 
     double[] ret = new double[c];
 
+    if (m.mMask != null) {
+      for (int i = 0; i < c; ++i) {
+        ret[i] = m.mMask.popStdDev(m.mData, i, c, r);
+      }
+
+      return ret;
+    }
+
     for (int i = 0; i < c; ++i) {
       double[] values = new double[r];
 
@@ -135,10 +135,6 @@ public class DoubleWorksheet extends Worksheet<Double> {
    */
   @Override
   public void update(int row, int column, double v) {
-    if (row < 5 && column < 5) {
-      System.err.println("dw " + row + " " + column + " " + v);
-    }
-    
     mData.get(row).put(column, v);
 
     super.update(row, column, v);
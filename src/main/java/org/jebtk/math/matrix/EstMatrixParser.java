@@ -29,6 +29,7 @@ package org.jebtk.math.matrix;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -36,6 +37,10 @@ import org.jebtk.core.collections.CollectionUtils;
 import org.jebtk.core.io.FileUtils;
 import org.jebtk.core.io.Io;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.Timer;
+import org.jebtk.math.io.TextSource;
 
 /**
  * The class EstMatrixParser.
@@ -44,6 +49,21 @@ import org.jebtk.core.text.TextUtils;
  */
 public abstract class EstMatrixParser<T> implements MatrixParser {
 
+  /** Counts the rows parsed. */
+  private static final Counter ROWS = Instrumentation.getInstance()
+      .counter("parser.rows");
+
+  /**
+   * Counts the size of the files read as stored on disk, so compressed files
+   * add their compressed size.
+   */
+  private static final Counter FILE_BYTES = Instrumentation.getInstance()
+      .counter("parser.file.bytes");
+
+  /** Times parsing files. */
+  private static final Timer PARSE_TIMER = Instrumentation.getInstance()
+      .timer("parser.parse");
+
   /**
    * The constant EST_VERSION_2.
    */
@@ -62,7 +82,9 @@ public abstract class EstMatrixParser<T> implements MatrixParser {
       return null;
     }
 
-    BufferedReader reader = FileUtils.newBufferedReader(file);
+    long start = PARSE_TIMER.start();
+
+    BufferedReader reader = TextSource.newBufferedReader(file);
 
     String line;
 
@@ -84,6 +106,10 @@ public abstract class EstMatrixParser<T> implements MatrixParser {
       reader.close();
     }
 
+    ROWS.add(matrix.getRows());
+    FILE_BYTES.add(Files.size(file));
+    PARSE_TIMER.stop(start);
+
     return matrix;
   }
 
@@ -144,8 +170,8 @@ public abstract class EstMatrixParser<T> implements MatrixParser {
     line = reader.readLine();
     tokens = TextUtils.fastSplit(line, TextUtils.TAB_DELIMITER);
 
-    System.err.println("num c ids " + line + " " + rowNames.size() + " "
-        + CollectionUtils.head(tokens, rowNames.size() + 1).toString());
+    Instrumentation.getInstance()
+        .event("parser.est.v1", r, c, rowNames.size(), columnNames.size());
 
     matrix.setColumnNames(CollectionUtils.head(tokens, rowNames.size() + 1));
 
@@ -202,8 +228,6 @@ public abstract class EstMatrixParser<T> implements MatrixParser {
 
     String line;
 
-    System.err.println("Parsing V2");
-
     // rows
     line = reader.readLine();
     tokens = TextUtils.fastSplit(line, TextUtils.TAB_DELIMITER);
@@ -217,6 +241,8 @@ public abstract class EstMatrixParser<T> implements MatrixParser {
     // Create the matrix
     matrix = createMatrix(rows, columns);
 
+    Instrumentation.getInstance().event("parser.est.v2", rows, columns);
+
     // groups
     line = reader.readLine();
     tokens = TextUtils.fastSplit(line, TextUtils.TAB_DELIMITER);
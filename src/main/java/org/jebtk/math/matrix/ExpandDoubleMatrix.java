@@ -27,18 +27,27 @@ IntMatrix * Copyright (C) 2016, Antony Holmes
  */
 package org.jebtk.math.matrix;
 
+import java.util.Arrays;
+
+import org.jebtk.math.matrix.ColumnMatrix.Column;
+import org.jebtk.math.matrix.ColumnMatrix.DoubleColumn;
+
 /**
  * Matrix that can be dynamically resized to match maximum row/column.
+ * Columns are stored as unboxed double segments.
  * 
  * @author Antony Holmes
  */
-public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
+public class ExpandDoubleMatrix extends ExpandMatrix {
 
   /**
    * The constant serialVersionUID.
    */
   private static final long serialVersionUID = 1L;
 
+  /** The value of cells that have not been set. */
+  private final double mDefault;
+
   /**
    * Instantiates a new dynamic double matrix.
    */
@@ -53,7 +62,7 @@ public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
    * @param columns the columns
    */
   public ExpandDoubleMatrix(int rows, int columns) {
-    super(rows, columns, 0d);
+    this(rows, columns, 0);
   }
 
   /**
@@ -64,7 +73,9 @@ public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
    * @param v the v
    */
   public ExpandDoubleMatrix(int rows, int columns, double v) {
-    super(rows, columns, v);
+    super(rows, columns);
+
+    mDefault = v;
   }
 
   /**
@@ -74,7 +85,44 @@ public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
    * @param m the m
    */
   public ExpandDoubleMatrix(Matrix m) {
-    super(m, 0d);
+    this(m.getRows(), m.getCols());
+
+    update(m);
+  }
+
+  /**
+   * Clone a matrix by copying its segments.
+   *
+   * @param m the m
+   */
+  public ExpandDoubleMatrix(ExpandDoubleMatrix m) {
+    this(m.getRows(), m.getCols(), m.mDefault);
+
+    update(m);
+  }
+
+  @Override
+  protected Column createColumn(int capacity) {
+    DoubleColumn ret = new DoubleColumn(capacity);
+
+    if (mDefault != 0) {
+      Arrays.fill(ret.mData, mDefault);
+    }
+
+    return ret;
+  }
+
+  @Override
+  protected Column resize(Column column, int capacity) {
+    double[] data = ((DoubleColumn) column).mData;
+
+    DoubleColumn ret = new DoubleColumn(Arrays.copyOf(data, capacity));
+
+    if (mDefault != 0 && capacity > data.length) {
+      Arrays.fill(ret.mData, data.length, capacity, mDefault);
+    }
+
+    return ret;
   }
 
   /*
@@ -92,6 +140,22 @@ public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
     return new ExpandDoubleMatrix(rows, cols);
   }
 
+  @Override
+  public double getValue(int row, int column) {
+    Column c = getSegment(row, column);
+
+    if (c != null) {
+      return ((DoubleColumn) c).mData[row];
+    } else {
+      return mDefault;
+    }
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    return Double.toString(getValue(row, column));
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -99,10 +163,10 @@ public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
    */
   @Override
   public void update(double v) {
-    for (int i = 0; i < mDim.mRows; ++i) {
-      for (int j = 0; j < mDim.mCols; ++j) {
-        mData.get(i).set(j, v);
-      }
+    ensure(mDim.mRows - 1, mDim.mCols - 1);
+
+    for (int i = 0; i < mDim.mCols; ++i) {
+      Arrays.fill(((DoubleColumn) mColumns[i]).mData, 0, mDim.mRows, v);
     }
   }
 
@@ -113,11 +177,23 @@ public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
    */
   @Override
   public void update(int row, int column, double v) {
-    mData.get(row).set(column, v);
+    ensure(row, column);
+
+    ((DoubleColumn) mColumns[column]).mData[row] = v;
 
     super.update(row, column, v);
   }
 
+  @Override
+  public void update(int row, int column, int v) {
+    update(row, column, (double) v);
+  }
+
+  @Override
+  public void update(int row, int column, long v) {
+    update(row, column, (double) v);
+  }
+
   @Override
   public Matrix transpose() {
     return transpose(this);
@@ -132,7 +208,7 @@ public class ExpandDoubleMatrix extends ExpandMatrix<Double> {
 
     for (int i = 0; i < m.getRows(); ++i) {
       for (int j = 0; j < m.getCols(); ++j) {
-        ret.set(j, i, m.get(i, j));
+        ret.update(j, i, m.getValue(i, j));
       }
     }
 
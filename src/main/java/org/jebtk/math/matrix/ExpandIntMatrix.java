@@ -27,20 +27,29 @@ IntMatrix * Copyright (C) 2016, Antony Holmes
  */
 package org.jebtk.math.matrix;
 
+import java.util.Arrays;
+
+import org.jebtk.math.matrix.ColumnMatrix.Column;
+import org.jebtk.math.matrix.ColumnMatrix.IntColumn;
+
 /**
  * Matrix that can be dynamically resized to match maximum row/column.
+ * Columns are stored as unboxed int segments.
  * 
  * @author Antony Holmes
  */
-public class ExpandIntMatrix extends ExpandMatrix<Integer> {
+public class ExpandIntMatrix extends ExpandMatrix {
 
   /**
    * The constant serialVersionUID.
    */
   private static final long serialVersionUID = 1L;
 
+  /** The value of cells that have not been set. */
+  private final int mDefault;
+
   /**
-   * Instantiates a new dynamic double matrix.
+   * Instantiates a new dynamic int matrix.
    */
   public ExpandIntMatrix() {
     this(0, 0);
@@ -53,7 +62,7 @@ public class ExpandIntMatrix extends ExpandMatrix<Integer> {
    * @param columns the columns
    */
   public ExpandIntMatrix(int rows, int columns) {
-    super(rows, columns, 0);
+    this(rows, columns, 0);
   }
 
   /**
@@ -64,7 +73,9 @@ public class ExpandIntMatrix extends ExpandMatrix<Integer> {
    * @param v the v
    */
   public ExpandIntMatrix(int rows, int columns, int v) {
-    super(rows, columns, v);
+    super(rows, columns);
+
+    mDefault = v;
   }
 
   /**
@@ -74,7 +85,44 @@ public class ExpandIntMatrix extends ExpandMatrix<Integer> {
    * @param m the m
    */
   public ExpandIntMatrix(Matrix m) {
-    super(m, 0);
+    this(m.getRows(), m.getCols());
+
+    update(m);
+  }
+
+  /**
+   * Clone a matrix by copying its segments.
+   *
+   * @param m the m
+   */
+  public ExpandIntMatrix(ExpandIntMatrix m) {
+    this(m.getRows(), m.getCols(), m.mDefault);
+
+    update(m);
+  }
+
+  @Override
+  protected Column createColumn(int capacity) {
+    IntColumn ret = new IntColumn(capacity);
+
+    if (mDefault != 0) {
+      Arrays.fill(ret.mData, mDefault);
+    }
+
+    return ret;
+  }
+
+  @Override
+  protected Column resize(Column column, int capacity) {
+    int[] data = ((IntColumn) column).mData;
+
+    IntColumn ret = new IntColumn(Arrays.copyOf(data, capacity));
+
+    if (mDefault != 0 && capacity > data.length) {
+      Arrays.fill(ret.mData, data.length, capacity, mDefault);
+    }
+
+    return ret;
   }
 
   /*
@@ -92,39 +140,72 @@ public class ExpandIntMatrix extends ExpandMatrix<Integer> {
     return new ExpandIntMatrix(rows, cols);
   }
 
+  @Override
+  public double getValue(int row, int column) {
+    return getInt(row, column);
+  }
+
+  @Override
+  public int getInt(int row, int column) {
+    Column c = getSegment(row, column);
+
+    if (c != null) {
+      return ((IntColumn) c).mData[row];
+    } else {
+      return mDefault;
+    }
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    return Integer.toString(getInt(row, column));
+  }
+
   /*
    * (non-Javadoc)
    * 
-   * @see org.abh.common.math.matrix.DynamicMatrix#update(double)
+   * @see org.abh.common.math.matrix.DynamicMatrix#update(int)
    */
   @Override
   public void update(int v) {
-    for (int i = 0; i < mDim.mRows; ++i) {
-      for (int j = 0; j < mDim.mCols; ++j) {
-        mData.get(i).set(j, v);
-      }
+    ensure(mDim.mRows - 1, mDim.mCols - 1);
+
+    for (int i = 0; i < mDim.mCols; ++i) {
+      Arrays.fill(((IntColumn) mColumns[i]).mData, 0, mDim.mRows, v);
     }
   }
 
   /*
    * (non-Javadoc)
    * 
-   * @see org.abh.common.math.matrix.DynamicMatrix#update(int, int, double)
+   * @see org.abh.common.math.matrix.DynamicMatrix#update(int, int, int)
    */
   @Override
   public void update(int row, int column, int v) {
-    mData.get(row).set(column, v);
+    ensure(row, column);
+
+    ((IntColumn) mColumns[column]).mData[row] = v;
 
     super.update(row, column, v);
   }
 
+  @Override
+  public void update(int row, int column, double v) {
+    update(row, column, (int) v);
+  }
+
+  @Override
+  public void update(int row, int column, long v) {
+    update(row, column, (int) v);
+  }
+
   @Override
   public Matrix transpose() {
     return transpose(this);
   }
 
   public static Matrix transpose(ExpandIntMatrix m) {
-    ExpandIntMatrix ret = createExpandDoubleMatrix(m.getCols(), m.getRows());
+    ExpandIntMatrix ret = createExpandIntMatrix(m.getCols(), m.getRows());
 
     // Swap row and column indices. We use index lookup to reduce
     // the number of number of times indices must be looked up to
@@ -132,7 +213,7 @@ public class ExpandIntMatrix extends ExpandMatrix<Integer> {
 
     for (int i = 0; i < m.getRows(); ++i) {
       for (int j = 0; j < m.getCols(); ++j) {
-        ret.set(j, i, m.get(i, j));
+        ret.update(j, i, m.getInt(i, j));
       }
     }
 
@@ -150,7 +231,7 @@ public class ExpandIntMatrix extends ExpandMatrix<Integer> {
    * @param columns the columns
    * @return the dynamic double matrix
    */
-  public static ExpandIntMatrix createExpandDoubleMatrix(int rows,
+  public static ExpandIntMatrix createExpandIntMatrix(int rows,
       int columns) {
     return new ExpandIntMatrix(rows, columns);
   }
@@ -160,7 +241,7 @@ public class ExpandIntMatrix extends ExpandMatrix<Integer> {
    *
    * @return the matrix
    */
-  public static Matrix createExpandDoubleMatrix() {
+  public static Matrix createExpandIntMatrix() {
     return new ExpandIntMatrix();
   }
 }
@@ -27,20 +27,29 @@ IntMatrix * Copyright (C) 2016, Antony Holmes
  */
 package org.jebtk.math.matrix;
 
+import java.util.Arrays;
+
+import org.jebtk.math.matrix.ColumnMatrix.Column;
+import org.jebtk.math.matrix.ColumnMatrix.LongColumn;
+
 /**
  * Matrix that can be dynamically resized to match maximum row/column.
+ * Columns are stored as unboxed long segments.
  * 
  * @author Antony Holmes
  */
-public class ExpandLongMatrix extends ExpandMatrix<Long> {
+public class ExpandLongMatrix extends ExpandMatrix {
 
   /**
    * The constant serialVersionUID.
    */
   private static final long serialVersionUID = 1L;
 
+  /** The value of cells that have not been set. */
+  private final long mDefault;
+
   /**
-   * Instantiates a new dynamic double matrix.
+   * Instantiates a new dynamic long matrix.
    */
   public ExpandLongMatrix() {
     this(0, 0);
@@ -53,7 +62,7 @@ public class ExpandLongMatrix extends ExpandMatrix<Long> {
    * @param columns the columns
    */
   public ExpandLongMatrix(int rows, int columns) {
-    super(rows, columns, 0L);
+    this(rows, columns, 0);
   }
 
   /**
@@ -64,7 +73,9 @@ public class ExpandLongMatrix extends ExpandMatrix<Long> {
    * @param v the v
    */
   public ExpandLongMatrix(int rows, int columns, long v) {
-    super(rows, columns, v);
+    super(rows, columns);
+
+    mDefault = v;
   }
 
   /**
@@ -74,7 +85,44 @@ public class ExpandLongMatrix extends ExpandMatrix<Long> {
    * @param m the m
    */
   public ExpandLongMatrix(Matrix m) {
-    super(m, 0L);
+    this(m.getRows(), m.getCols());
+
+    update(m);
+  }
+
+  /**
+   * Clone a matrix by copying its segments.
+   *
+   * @param m the m
+   */
+  public ExpandLongMatrix(ExpandLongMatrix m) {
+    this(m.getRows(), m.getCols(), m.mDefault);
+
+    update(m);
+  }
+
+  @Override
+  protected Column createColumn(int capacity) {
+    LongColumn ret = new LongColumn(capacity);
+
+    if (mDefault != 0) {
+      Arrays.fill(ret.mData, mDefault);
+    }
+
+    return ret;
+  }
+
+  @Override
+  protected Column resize(Column column, int capacity) {
+    long[] data = ((LongColumn) column).mData;
+
+    LongColumn ret = new LongColumn(Arrays.copyOf(data, capacity));
+
+    if (mDefault != 0 && capacity > data.length) {
+      Arrays.fill(ret.mData, data.length, capacity, mDefault);
+    }
+
+    return ret;
   }
 
   /*
@@ -92,39 +140,72 @@ public class ExpandLongMatrix extends ExpandMatrix<Long> {
     return new ExpandLongMatrix(rows, cols);
   }
 
+  @Override
+  public double getValue(int row, int column) {
+    return getLong(row, column);
+  }
+
+  @Override
+  public long getLong(int row, int column) {
+    Column c = getSegment(row, column);
+
+    if (c != null) {
+      return ((LongColumn) c).mData[row];
+    } else {
+      return mDefault;
+    }
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    return Long.toString(getLong(row, column));
+  }
+
   /*
    * (non-Javadoc)
    * 
-   * @see org.abh.common.math.matrix.DynamicMatrix#update(double)
+   * @see org.abh.common.math.matrix.DynamicMatrix#update(long)
    */
   @Override
   public void update(long v) {
-    for (int i = 0; i < mDim.mRows; ++i) {
-      for (int j = 0; j < mDim.mCols; ++j) {
-        mData.get(i).set(j, v);
-      }
+    ensure(mDim.mRows - 1, mDim.mCols - 1);
+
+    for (int i = 0; i < mDim.mCols; ++i) {
+      Arrays.fill(((LongColumn) mColumns[i]).mData, 0, mDim.mRows, v);
     }
   }
 
   /*
    * (non-Javadoc)
    * 
-   * @see org.abh.common.math.matrix.DynamicMatrix#update(int, int, double)
+   * @see org.abh.common.math.matrix.DynamicMatrix#update(int, int, long)
    */
   @Override
   public void update(int row, int column, long v) {
-    mData.get(row).set(column, v);
+    ensure(row, column);
+
+    ((LongColumn) mColumns[column]).mData[row] = v;
 
     super.update(row, column, v);
   }
 
+  @Override
+  public void update(int row, int column, double v) {
+    update(row, column, (long) v);
+  }
+
+  @Override
+  public void update(int row, int column, int v) {
+    update(row, column, (long) v);
+  }
+
   @Override
   public Matrix transpose() {
     return transpose(this);
   }
 
   public static Matrix transpose(ExpandLongMatrix m) {
-    ExpandLongMatrix ret = createExpandDoubleMatrix(m.getCols(), m.getRows());
+    ExpandLongMatrix ret = createExpandLongMatrix(m.getCols(), m.getRows());
 
     // Swap row and column indices. We use index lookup to reduce
     // the number of number of times indices must be looked up to
@@ -132,7 +213,7 @@ public class ExpandLongMatrix extends ExpandMatrix<Long> {
 
     for (int i = 0; i < m.getRows(); ++i) {
       for (int j = 0; j < m.getCols(); ++j) {
-        ret.set(j, i, m.get(i, j));
+        ret.update(j, i, m.getLong(i, j));
       }
     }
 
@@ -150,7 +231,7 @@ public class ExpandLongMatrix extends ExpandMatrix<Long> {
    * @param columns the columns
    * @return the dynamic double matrix
    */
-  public static ExpandLongMatrix createExpandDoubleMatrix(int rows,
+  public static ExpandLongMatrix createExpandLongMatrix(int rows,
       int columns) {
     return new ExpandLongMatrix(rows, columns);
   }
@@ -160,7 +241,7 @@ public class ExpandLongMatrix extends ExpandMatrix<Long> {
    *
    * @return the matrix
    */
-  public static Matrix createExpandDoubleMatrix() {
+  public static Matrix createExpandLongMatrix() {
     return new ExpandLongMatrix();
   }
 }
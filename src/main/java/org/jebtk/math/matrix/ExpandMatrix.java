@@ -27,138 +27,211 @@
  */
 package org.jebtk.math.matrix;
 
-import java.util.List;
+import java.util.Arrays;
 
-import org.jebtk.core.collections.DefaultArrayList;
-import org.jebtk.core.collections.DefaultArrayListCreator;
-import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.ColumnMatrix.Column;
 
 /**
- * Matrix that can be dynamically resized to match maximum row/column. This
- * matrix uses lazy instantiation so cells are only created as they are
- * referenced. Thus there will be a performance loss at the expense of
- * flexibility. This matrix has both the Props of a matrix and a map. The
- * matrix's nominal dimensions are increased to match the largest row and column
- * encountered.
+ * Matrix that can be dynamically resized to match maximum row/column. Each
+ * column is stored in its own unboxed segment, typed storage shared with
+ * {@code ColumnMatrix}, and all segments have the same row capacity.
+ * Segments are only allocated as cells are written, row capacity doubles
+ * when it is exceeded and columns are added by allocating one more
+ * segment, so appending rows or columns is amortized O(1) per cell. The
+ * matrix's nominal dimensions are increased to match the largest row and
+ * column encountered. Once the final size is known, {@link #seal()} hands
+ * the segments to a fixed size column matrix without copying them.
  *
  * @author Antony Holmes
- * @param <T> the generic type
  */
-public abstract class ExpandMatrix<T> extends ResizableMatrix {
+public abstract class ExpandMatrix extends ResizableMatrix {
 
   /**
    * The constant serialVersionUID.
    */
   private static final long serialVersionUID = 1L;
 
-  /**
-   * Dynamically resizing map of maps to store text for each cell.
-   */
-  protected final List<List<T>> mData;
+  /** The fewest rows a segment is allocated with. */
+  private static final int MIN_CAPACITY = 16;
+
+  /** The largest row capacity. */
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  /** The column segments, only the first {@code mColumnCount} are used. */
+  protected Column[] mColumns = new Column[0];
+
+  /** The number of allocated segments. */
+  protected int mColumnCount = 0;
+
+  /** The number of rows each segment can store. */
+  protected int mCapacity = 0;
 
   /**
-   * Instantiates a new mixed sparse matrix.
+   * Instantiates a new expand matrix.
    *
    * @param rows the rows
    * @param columns the columns
-   * @param v the v
    */
-  public ExpandMatrix(int rows, int columns, T v) {
+  public ExpandMatrix(int rows, int columns) {
     super(rows, columns);
+  }
 
-    mData = DefaultArrayList.create(new DefaultArrayListCreator<>(v));
+  /**
+   * Creates a segment for a column with cells set to the default value.
+   *
+   * @param capacity the capacity
+   * @return the column
+   */
+  protected abstract Column createColumn(int capacity);
 
-    // update size uses the zero based row and column to calculate size
-    // so we need to adjust for this
-    // updateSize(rows - 1, columns - 1);
-  }
+  /**
+   * Returns a copy of a segment with a larger capacity. New cells are set
+   * to the default value.
+   *
+   * @param column the column
+   * @param capacity the capacity
+   * @return the column
+   */
+  protected abstract Column resize(Column column, int capacity);
 
   /**
-   * Clone a matrix optionally copying the core matrix values and the
-   * annotation.
+   * Make sure a cell has storage, growing the row capacity and allocating
+   * segments as needed.
    *
-   * @param m the m
+   * @param row the row
+   * @param column the column
    */
-  public ExpandMatrix(Matrix m, T v) {
-    this(m.getRows(), m.getCols(), v);
+  protected void ensure(int row, int column) {
+    if (row >= mCapacity) {
+      int capacity = (int) Math.min(MAX_CAPACITY,
+          Math.max(row + 1L, Math.max(MIN_CAPACITY, 2L * mCapacity)));
+
+      for (int i = 0; i < mColumnCount; ++i) {
+        mColumns[i] = resize(mColumns[i], capacity);
+      }
+
+      mCapacity = capacity;
+    }
 
-    update(m);
+    if (column >= mColumnCount) {
+      if (column >= mColumns.length) {
+        mColumns = Arrays.copyOf(mColumns,
+            Math.max(column + 1, 2 * mColumns.length));
+      }
+
+      for (int i = mColumnCount; i <= column; ++i) {
+        mColumns[i] = createColumn(mCapacity);
+      }
+
+      mColumnCount = column + 1;
+    }
   }
 
   /**
-   * Instantiates a new dynamic matrix.
+   * Returns the segment storing a cell or null if the cell has not been
+   * allocated, in which case it has the default value.
    *
-   * @param m the m
+   * @param row the row
+   * @param column the column
+   * @return the column
    */
-  public ExpandMatrix(ExpandMatrix<T> m, T v) {
-    this(m.getRows(), m.getCols(), v);
+  protected Column getSegment(int row, int column) {
+    if (row < mCapacity && column < mColumnCount) {
+      return mColumns[column];
+    } else {
+      return null;
+    }
+  }
 
-    update(m);
+  /**
+   * Reserve storage for a number of rows and columns, useful when the
+   * likely final size is known so that the segments are not resized.
+   *
+   * @param rows the rows
+   * @param columns the columns
+   */
+  public void ensureCapacity(int rows, int columns) {
+    ensure(rows - 1, columns - 1);
   }
 
   /**
-   * Specialized update method for dynamic matrices to quickly copy data from
-   * one matrix to another.
+   * Append a row to the matrix.
    *
-   * @param m the m
+   * @return the index of the new row.
    */
-  public void update(ExpandMatrix<T> m) {
-    for (int i = 0; i < m.mData.size(); ++i) {
-      mData.get(i).addAll(m.mData.get(i));
-    }
+  public int addRow() {
+    int row = mDim.mRows;
+
+    ensure(row, mDim.mCols - 1);
+    updateSize(row, mDim.mCols - 1);
+
+    return row;
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see org.abh.lib.math.matrix.IndexMatrix#getValue(int)
+  /**
+   * Append a column to the matrix.
+   *
+   * @return the index of the new column.
    */
-  @Override
-  public double getValue(int row, int column) {
-    Object v = mData.get(row).get(column);
+  public int addColumn() {
+    int column = mDim.mCols;
 
-    if (v != null && v instanceof Number) {
-      return ((Number) v).doubleValue();
-    } else {
-      return 0;
-    }
+    ensure(mDim.mRows - 1, column);
+    updateSize(mDim.mRows - 1, column);
+
+    return column;
   }
 
-  @Override
-  public int getInt(int row, int column) {
-    Object v = mData.get(row).get(column);
+  /**
+   * Specialized update method for expand matrices to quickly copy data from
+   * one matrix to another by copying whole segments. Segments can only be
+   * copied between matrices of the same class, so matrices of other types
+   * are copied cell by cell. Either way this matrix grows to the size of
+   * m.
+   *
+   * @param m the m
+   */
+  public void update(ExpandMatrix m) {
+    if (m.getClass() != getClass()) {
+      for (int i = 0; i < m.mDim.mRows; ++i) {
+        for (int j = 0; j < m.mDim.mCols; ++j) {
+          update(i, j, m.get(i, j));
+        }
+      }
 
-    if (v != null && v instanceof Number) {
-      return ((Number) v).intValue();
-    } else {
-      return 0;
+      updateSize(m.mDim.mRows - 1, m.mDim.mCols - 1);
+
+      return;
     }
-  }
 
-  @Override
-  public long getLong(int row, int column) {
-    Object v = mData.get(row).get(column);
+    ensure(m.mCapacity - 1, m.mColumnCount - 1);
 
-    if (v != null && v instanceof Number) {
-      return ((Number) v).longValue();
-    } else {
-      return 0;
+    for (int i = 0; i < m.mColumnCount; ++i) {
+      mColumns[i] = resize(m.mColumns[i], mCapacity);
     }
+
+    updateSize(m.mDim.mRows - 1, m.mDim.mCols - 1);
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see org.abh.lib.math.matrix.IndexMatrix#getText(int)
+  /**
+   * Convert the matrix into a fixed size column matrix. The segments are
+   * handed over rather than copied so this matrix is emptied and can be
+   * reused to accumulate a new matrix.
+   *
+   * @return the column matrix
    */
-  @Override
-  public String getText(int row, int column) {
-    Object v = mData.get(row).get(column);
+  public ColumnMatrix seal() {
+    ensure(mDim.mRows - 1, mDim.mCols - 1);
 
-    if (v != null) {
-      return v.toString();
-    } else {
-      return TextUtils.EMPTY_STRING;
-    }
+    ColumnMatrix ret = new ColumnMatrix(mDim.mRows,
+        Arrays.copyOf(mColumns, mDim.mCols));
+
+    mColumns = new Column[0];
+    mColumnCount = 0;
+    mCapacity = 0;
+    mDim = MatrixDim.DIM_ZERO;
+    mSize = 0;
+
+    return ret;
   }
 }
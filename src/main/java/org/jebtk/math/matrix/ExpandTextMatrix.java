@@ -27,20 +27,35 @@ IntMatrix * Copyright (C) 2016, Antony Holmes
  */
 package org.jebtk.math.matrix;
 
+import java.util.Arrays;
+
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.ColumnMatrix.Column;
+import org.jebtk.math.matrix.ColumnMatrix.TextColumn;
 
 /**
  * Matrix that can be dynamically resized to match maximum row/column.
+ * Columns are stored as segments of dictionary codes, with one dictionary
+ * shared by all the columns.
  * 
  * @author Antony Holmes
  */
-public class ExpandTextMatrix extends ExpandMatrix<String> {
+public class ExpandTextMatrix extends ExpandMatrix {
 
   /**
    * The constant serialVersionUID.
    */
   private static final long serialVersionUID = 1L;
 
+  /** The dictionary shared by all the segments. */
+  private final TextDictionary mDict = new TextDictionary();
+
+  /** The value of cells that have not been set. */
+  private final String mDefault;
+
+  /** The code of the default value. */
+  private final int mDefaultCode;
+
   /**
    * Instantiates a new dynamic double matrix.
    */
@@ -55,7 +70,7 @@ public class ExpandTextMatrix extends ExpandMatrix<String> {
    * @param columns the columns
    */
   public ExpandTextMatrix(int rows, int columns) {
-    super(rows, columns, TextUtils.EMPTY_STRING);
+    this(rows, columns, TextUtils.EMPTY_STRING);
   }
 
   /**
@@ -66,7 +81,10 @@ public class ExpandTextMatrix extends ExpandMatrix<String> {
    * @param v the v
    */
   public ExpandTextMatrix(int rows, int columns, String v) {
-    super(rows, columns, v);
+    super(rows, columns);
+
+    mDefault = v;
+    mDefaultCode = mDict.intern(v);
   }
 
   /**
@@ -76,7 +94,49 @@ public class ExpandTextMatrix extends ExpandMatrix<String> {
    * @param m the m
    */
   public ExpandTextMatrix(Matrix m) {
-    super(m, TextUtils.EMPTY_STRING);
+    this(m.getRows(), m.getCols());
+
+    update(m);
+  }
+
+  /**
+   * Clone a matrix by copying its segments.
+   *
+   * @param m the m
+   */
+  public ExpandTextMatrix(ExpandTextMatrix m) {
+    this(m.getRows(), m.getCols(), m.mDefault);
+
+    update(m);
+  }
+
+  @Override
+  protected Column createColumn(int capacity) {
+    int[] codes = new int[capacity];
+
+    Arrays.fill(codes, mDefaultCode);
+
+    return new TextColumn(codes, mDict);
+  }
+
+  @Override
+  protected Column resize(Column column, int capacity) {
+    TextColumn c = (TextColumn) column;
+
+    int n = Math.min(capacity, c.mCodes.length);
+
+    int[] codes = Arrays.copyOf(c.mCodes, capacity);
+
+    if (c.mDict != mDict) {
+      // Segment from another matrix so re-encode its values
+      for (int i = 0; i < n; ++i) {
+        codes[i] = mDict.intern(c.getText(i));
+      }
+    }
+
+    Arrays.fill(codes, n, capacity, mDefaultCode);
+
+    return new TextColumn(codes, mDict);
   }
 
   /*
@@ -94,6 +154,32 @@ public class ExpandTextMatrix extends ExpandMatrix<String> {
     return new ExpandTextMatrix(rows, cols);
   }
 
+  @Override
+  public MatrixType getType() {
+    return MatrixType.TEXT;
+  }
+
+  @Override
+  public CellType getCellType(int row, int column) {
+    return CellType.TEXT;
+  }
+
+  @Override
+  public double getValue(int row, int column) {
+    return TextUtils.parseDouble(getText(row, column));
+  }
+
+  @Override
+  public String getText(int row, int column) {
+    Column c = getSegment(row, column);
+
+    if (c != null) {
+      return mDict.getText(((TextColumn) c).mCodes[row]);
+    } else {
+      return mDefault;
+    }
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -106,10 +192,12 @@ public class ExpandTextMatrix extends ExpandMatrix<String> {
 
   @Override
   public void update(String v) {
-    for (int i = 0; i < mDim.mRows; ++i) {
-      for (int j = 0; j < mDim.mCols; ++j) {
-        mData.get(i).set(j, v);
-      }
+    ensure(mDim.mRows - 1, mDim.mCols - 1);
+
+    int code = mDict.intern(v);
+
+    for (int i = 0; i < mDim.mCols; ++i) {
+      Arrays.fill(((TextColumn) mColumns[i]).mCodes, 0, mDim.mRows, code);
     }
   }
 
@@ -125,7 +213,9 @@ public class ExpandTextMatrix extends ExpandMatrix<String> {
    */
   @Override
   public void update(int row, int column, String v) {
-    mData.get(row).set(column, v);
+    ensure(row, column);
+
+    ((TextColumn) mColumns[column]).mCodes[row] = mDict.intern(v);
 
     super.update(row, column, v);
   }
@@ -144,7 +234,7 @@ public class ExpandTextMatrix extends ExpandMatrix<String> {
 
     for (int i = 0; i < m.getRows(); ++i) {
       for (int j = 0; j < m.getCols(); ++j) {
-        ret.set(j, i, m.get(i, j));
+        ret.update(j, i, m.getText(i, j));
       }
     }
 
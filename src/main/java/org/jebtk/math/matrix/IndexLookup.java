@@ -0,0 +1,299 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * Hashed lookup from the values of an annotation to the rows or columns
+ * that have them, so that finding the rows with a given id is O(1) rather
+ * than a scan of the annotation. Supports exact, case insensitive and prefix
+ * lookups. Ids are returned in ascending order. The lookup is maintained
+ * incrementally by {@link DataFrameIndex} as annotation values are set, so
+ * methods are synchronized and the value sets are returned as snapshots
+ * that can be iterated whilst the annotation is being updated.
+ */
+public class IndexLookup {
+
+  /** Returned when a value is not found. */
+  private static final int[] EMPTY = new int[0];
+
+  /**
+   * Sorted growable list of ids sharing a value.
+   */
+  private static class Ids {
+    private int[] mIds = new int[1];
+    private int mSize = 0;
+
+    public void add(int id) {
+      int i = Arrays.binarySearch(mIds, 0, mSize, id);
+
+      if (i >= 0) {
+        return;
+      }
+
+      i = -i - 1;
+
+      if (mSize == mIds.length) {
+        mIds = Arrays.copyOf(mIds, mSize * 2);
+      }
+
+      System.arraycopy(mIds, i, mIds, i + 1, mSize - i);
+
+      mIds[i] = id;
+      ++mSize;
+    }
+
+    public void remove(int id) {
+      int i = Arrays.binarySearch(mIds, 0, mSize, id);
+
+      if (i < 0) {
+        return;
+      }
+
+      System.arraycopy(mIds, i + 1, mIds, i, mSize - i - 1);
+
+      --mSize;
+    }
+
+    public int size() {
+      return mSize;
+    }
+
+    public int first() {
+      return mIds[0];
+    }
+
+    public int[] toArray() {
+      return Arrays.copyOf(mIds, mSize);
+    }
+  }
+
+  /** Ids keyed by value. */
+  private final Map<String, Ids> mExact;
+
+  /** Ids keyed by lower case value. */
+  private final Map<String, Ids> mLower;
+
+  /**
+   * The exact keys in sorted order for prefix searches. The ids objects are
+   * shared with the exact map.
+   */
+  private final TreeMap<String, Ids> mSorted = new TreeMap<String, Ids>();
+
+  /**
+   * Index the values of an annotation. The index of each value is its id.
+   *
+   * @param values the values
+   */
+  public IndexLookup(String[] values) {
+    mExact = new HashMap<String, Ids>(values.length);
+    mLower = new HashMap<String, Ids>(values.length);
+
+    for (int i = 0; i < values.length; ++i) {
+      add(values[i], i);
+    }
+  }
+
+  /**
+   * Add an id to a value.
+   *
+   * @param v the value
+   * @param id the id
+   */
+  public synchronized void add(String v, int id) {
+    v = normalize(v);
+
+    Ids ids = mExact.get(v);
+
+    if (ids == null) {
+      ids = new Ids();
+      mExact.put(v, ids);
+      mSorted.put(v, ids);
+    }
+
+    ids.add(id);
+
+    String l = v.toLowerCase();
+
+    ids = mLower.get(l);
+
+    if (ids == null) {
+      ids = new Ids();
+      mLower.put(l, ids);
+    }
+
+    ids.add(id);
+  }
+
+  /**
+   * Remove an id from a value.
+   *
+   * @param v the value
+   * @param id the id
+   */
+  public synchronized void remove(String v, int id) {
+    v = normalize(v);
+
+    remove(mExact, v, id);
+
+    if (!mExact.containsKey(v)) {
+      mSorted.remove(v);
+    }
+
+    remove(mLower, v.toLowerCase(), id);
+  }
+
+  /**
+   * Returns the ids with a value.
+   *
+   * @param v the value
+   * @return the ids in ascending order.
+   */
+  public synchronized int[] get(String v) {
+    return toArray(mExact.get(normalize(v)));
+  }
+
+  /**
+   * Returns the first id with a value or -1 if the value is not present.
+   *
+   * @param v the value
+   * @return the int
+   */
+  public synchronized int getFirst(String v) {
+    Ids ids = mExact.get(normalize(v));
+
+    return ids != null ? ids.first() : -1;
+  }
+
+  /**
+   * Returns the ids with a value ignoring case.
+   *
+   * @param v the value
+   * @return the ids in ascending order.
+   */
+  public synchronized int[] getIgnoreCase(String v) {
+    return toArray(mLower.get(normalize(v).toLowerCase()));
+  }
+
+  /**
+   * Returns the ids whose value starts with a prefix.
+   *
+   * @param prefix the prefix
+   * @return the ids in ascending order.
+   */
+  public synchronized int[] getPrefix(String prefix) {
+    prefix = normalize(prefix);
+
+    SortedMap<String, Ids> matches = mSorted.subMap(prefix,
+        prefix + Character.MAX_VALUE);
+
+    int n = 0;
+
+    for (Ids ids : matches.values()) {
+      n += ids.size();
+    }
+
+    int[] ret = new int[n];
+
+    n = 0;
+
+    for (Ids ids : matches.values()) {
+      System.arraycopy(ids.mIds, 0, ret, n, ids.size());
+      n += ids.size();
+    }
+
+    Arrays.sort(ret);
+
+    return ret;
+  }
+
+  /**
+   * Returns true if a value is present.
+   *
+   * @param v the v
+   * @return true, if successful
+   */
+  public synchronized boolean contains(String v) {
+    return mExact.containsKey(normalize(v));
+  }
+
+  /**
+   * Returns a snapshot of the distinct values.
+   *
+   * @return the sets the
+   */
+  public synchronized Set<String> getValues() {
+    return Collections.unmodifiableSet(new HashSet<String>(mExact.keySet()));
+  }
+
+  /**
+   * Returns a snapshot of the distinct lower case values.
+   *
+   * @return the sets the
+   */
+  public synchronized Set<String> getLowerCaseValues() {
+    return Collections.unmodifiableSet(new HashSet<String>(mLower.keySet()));
+  }
+
+  /**
+   * Remove an id from a map entry, removing the entry once empty.
+   *
+   * @param map the map
+   * @param v the v
+   * @param id the id
+   */
+  private static void remove(Map<String, Ids> map, String v, int id) {
+    Ids ids = map.get(v);
+
+    if (ids != null) {
+      ids.remove(id);
+
+      if (ids.size() == 0) {
+        map.remove(v);
+      }
+    }
+  }
+
+  private static int[] toArray(Ids ids) {
+    return ids != null ? ids.toArray() : EMPTY;
+  }
+
+  private static String normalize(String v) {
+    return v != null ? v : TextUtils.EMPTY_STRING;
+  }
+}
@@ -444,7 +444,7 @@ public abstract class IndexMatrix extends RegularMatrix {
     for (int i = 0; i < m1.size(); ++i) {
       m1.set(i, f.f(r, c, m1.getValue(i)));
 
-      if (c++ == m1.mDim.mCols) {
+      if (++c == m1.mDim.mCols) {
         ++r;
         c = 0;
       }
@@ -463,7 +463,7 @@ public abstract class IndexMatrix extends RegularMatrix {
     for (int i = 0; i < m1.size(); ++i) {
       m1.set(i, f.f(r, c, m1.getValue(i), v));
 
-      if (c++ == m1.mDim.mCols) {
+      if (++c == m1.mDim.mCols) {
         ++r;
         c = 0;
       }
@@ -490,7 +490,7 @@ public abstract class IndexMatrix extends RegularMatrix {
     for (int i = 0; i < m1.size(); ++i) {
       m1.set(i, f.f(r, c, m1.getValue(i), m2.getValue(i)));
 
-      if (c++ == m1.mDim.mCols) {
+      if (++c == m1.mDim.mCols) {
         ++r;
         c = 0;
       }
@@ -45,6 +45,13 @@ public abstract class IndexRowMatrix extends IndexMatrix {
    */
   public final int[] mRowOffsets;
 
+  /**
+   * Records which cells hold valid values so that reductions can skip
+   * missing values without testing each one. Null means every cell is
+   * valid.
+   */
+  protected ValidityMask mMask = null;
+
   /**
    * Instantiates a new index matrix.
    *
@@ -85,6 +92,141 @@ public abstract class IndexRowMatrix extends IndexMatrix {
     createOffsets();
   }
 
+  /**
+   * Returns the validity mask or null if all cells are valid.
+   *
+   * @return the mask
+   */
+  public ValidityMask getMask() {
+    return mMask;
+  }
+
+  /**
+   * Set the validity mask. The mask must have one bit per cell.
+   *
+   * @param mask the mask or null if all cells are valid.
+   */
+  public void setMask(ValidityMask mask) {
+    mMask = mask;
+  }
+
+  /**
+   * Returns true if a cell holds a valid value.
+   *
+   * @param row the row
+   * @param column the column
+   * @return true, if is valid
+   */
+  public boolean isValid(int row, int column) {
+    return mMask == null || mMask.isValid(getIndex(row, column));
+  }
+
+  /**
+   * Explicitly mark a cell as invalid, or remove the mark. The mark is kept
+   * when the matrix is later written in bulk. A cell that is no longer
+   * marked is valid again unless it holds NaN.
+   *
+   * @param row the row
+   * @param column the column
+   * @param valid the valid
+   */
+  public void setValid(int row, int column, boolean valid) {
+    if (mMask == null) {
+      if (valid) {
+        return;
+      }
+
+      createMask();
+    }
+
+    int index = getIndex(row, column);
+
+    mMask.exclude(index, !valid);
+
+    if (valid) {
+      mMask.setValid(index, isValidMatrixNum(getValue(row, column)));
+    }
+  }
+
+  /**
+   * Create a validity mask for the matrix. By default all cells are valid;
+   * matrices that can hold NaN mark those cells as invalid.
+   *
+   * @return the validity mask
+   */
+  public ValidityMask createMask() {
+    mMask = new ValidityMask(mSize);
+
+    return mMask;
+  }
+
+  /**
+   * Returns the number of valid cells.
+   *
+   * @return the int
+   */
+  public int countValid() {
+    return mMask != null ? mMask.countValid() : mSize;
+  }
+
+  /**
+   * Copy the validity mask of a matrix of the same shape.
+   *
+   * @param m the m
+   */
+  protected void updateMask(IndexRowMatrix m) {
+    mMask = m.mMask != null ? new ValidityMask(m.mMask) : null;
+  }
+
+  /**
+   * Set the validity mask of this matrix from that of a matrix it is the
+   * transpose of.
+   *
+   * @param m the m
+   */
+  protected void transposeMask(IndexRowMatrix m) {
+    if (m.mMask != null) {
+      mMask = m.mMask.transpose(m.mDim.mRows, m.mDim.mCols);
+    }
+  }
+
+  /**
+   * Transpose a square matrix in place without allocating a new matrix.
+   * The shape of a matrix cannot change so other matrices must use
+   * {@link #transpose()}.
+   *
+   * @throws IllegalArgumentException if the matrix is not square.
+   */
+  public void transposeInPlace() {
+    if (mDim.mRows != mDim.mCols) {
+      throw new IllegalArgumentException(
+          "Only square matrices can be transposed in place.");
+    }
+
+    transposeData();
+
+    if (mMask != null) {
+      mMask = mMask.transpose(mDim.mRows, mDim.mCols);
+    }
+
+    fireMatrixChanged();
+  }
+
+  /**
+   * Swap each cell of a square matrix with its mirror across the diagonal.
+   * Subclasses should transpose their backing array directly.
+   */
+  protected void transposeData() {
+    for (int i = 0; i < mDim.mRows; ++i) {
+      for (int j = i + 1; j < mDim.mCols; ++j) {
+        Object t = get(i, j);
+
+        update(i, j, get(j, i));
+        update(j, i, t);
+      }
+    }
+  }
+
   private void createOffsets() {
     // Cache the offsets to improve lookup times
 
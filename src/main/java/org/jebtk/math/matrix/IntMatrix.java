@@ -36,6 +36,7 @@ import java.util.List;
 import org.jebtk.core.Mathematics;
 import org.jebtk.core.sys.SysUtils;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.utils.Transpose;
 import org.jebtk.math.statistics.Statistics;
 import org.jebtk.math.statistics.TTest;
 
@@ -143,6 +144,8 @@ public class IntMatrix extends IndexRowMatrix {
    */
   public void update(IntMatrix m) {
     SysUtils.arraycopy(m.mData, mData);
+
+    updateMask(m);
   }
 
   /*
@@ -536,24 +539,23 @@ public class IntMatrix extends IndexRowMatrix {
   public static Matrix transpose(final IntMatrix m) {
     IntMatrix ret = createIntMatrix(m.mDim.mCols, m.mDim.mRows);
 
-    int i2 = 0;
-    int c = 0;
-
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
-
-      ret.mData[i2] = m.mData[i];
+    ret.transposeMask(m);
 
-      // Skip blocks
-      i2 += m.mDim.mRows;
-    }
+    Transpose.transpose(m.mData, m.mDim.mRows, m.mDim.mCols, ret.mData);
 
     return ret;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.IndexRowMatrix#transposeData()
+   */
+  @Override
+  protected void transposeData() {
+    Transpose.transpose(mData, mDim.mRows);
+  }
+
   @Override
   public void toIntArray(int[] ret) {
     SysUtils.arraycopy(mData, ret);
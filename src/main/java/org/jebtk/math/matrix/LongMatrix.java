@@ -36,6 +36,7 @@ import java.util.List;
 import org.jebtk.core.Mathematics;
 import org.jebtk.core.sys.SysUtils;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.utils.Transpose;
 import org.jebtk.math.statistics.Statistics;
 import org.jebtk.math.statistics.TTest;
 
@@ -138,6 +139,8 @@ public class LongMatrix extends IndexRowMatrix {
 
   public void update(LongMatrix m) {
     SysUtils.arraycopy(m.mData, mData);
+
+    updateMask(m);
   }
 
   /*
@@ -384,24 +387,23 @@ public class LongMatrix extends IndexRowMatrix {
   public static Matrix transpose(final LongMatrix m) {
     LongMatrix ret = createLongMatrix(m.mDim.mCols, m.mDim.mRows);
 
-    int i2 = 0;
-    int c = 0;
-
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
-
-      ret.mData[i2] = m.mData[i];
+    ret.transposeMask(m);
 
-      // Skip blocks
-      i2 += m.mDim.mRows;
-    }
+    Transpose.transpose(m.mData, m.mDim.mRows, m.mDim.mCols, ret.mData);
 
     return ret;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.IndexRowMatrix#transposeData()
+   */
+  @Override
+  protected void transposeData() {
+    Transpose.transpose(mData, mDim.mRows);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -41,6 +41,7 @@ import org.jebtk.core.text.Parser;
 import org.jebtk.core.text.TextUtils;
 import org.jebtk.math.functions.LnFunction;
 import org.jebtk.math.functions.LogFunction;
+import org.jebtk.math.matrix.utils.Reductions;
 
 /**
  * Basis for a numerical matrix. Note that Double.NaN is used to indicate an
@@ -71,31 +72,31 @@ public abstract class Matrix extends MatrixEventListeners {
   private static final Set<CellType> TEXT_MATRIX_TYPES = CollectionUtils
       .toSet(CellType.TEXT);
 
-  public static CellFunction ADD_FUNCTION = new CellFunction() {
+  public static CellFunction ADD_FUNCTION = new CellFunctions.Binary() {
     @Override
-    public double f(int r, int c, double x, double... y) {
-      return x + y[0];
+    public double f(double x, double y) {
+      return x + y;
     }
   };
 
-  public static CellFunction SUB_FUNCTION = new CellFunction() {
+  public static CellFunction SUB_FUNCTION = new CellFunctions.Binary() {
     @Override
-    public double f(int r, int c, double x, double... y) {
-      return x - y[0];
+    public double f(double x, double y) {
+      return x - y;
     }
   };
 
-  public static CellFunction MULT_FUNCTION = new CellFunction() {
+  public static CellFunction MULT_FUNCTION = new CellFunctions.Binary() {
     @Override
-    public double f(int r, int c, double x, double... y) {
-      return x * y[0];
+    public double f(double x, double y) {
+      return x * y;
     }
   };
 
-  public static CellFunction DIV_FUNCTION = new CellFunction() {
+  public static CellFunction DIV_FUNCTION = new CellFunctions.Binary() {
     @Override
-    public double f(int r, int c, double x, double... y) {
-      return x * y[0];
+    public double f(double x, double y) {
+      return x / y;
     }
   };
 
@@ -1197,14 +1198,17 @@ public abstract class Matrix extends MatrixEventListeners {
     fireMatrixChanged();
   }
 
+  /**
+   * Evaluate a function across each row. Rows of large matrices are
+   * evaluated in parallel if the function is stateless. Cells excluded by
+   * a {@link ValidityMask} are passed to the function as NaN.
+   * 
+   * @param f the function, called once per row.
+   * @param ret receives the result for each row, so it must have at least
+   *          getRows() elements.
+   */
   public void rowEval(MatrixReduceFunction f, double[] ret) {
-    double[] data = new double[getCols()];
-    
-    for (int i = 0; i < getRows(); ++i) {
-      rowToDouble(i, data);
-
-      ret[i] = f.apply(i, data);
-    }
+    Reductions.rowEval(this, f, ret);
   }
 
   public void rowEval(MatrixDimFunction f, int row, double[] ret) {
@@ -1224,26 +1228,65 @@ public abstract class Matrix extends MatrixEventListeners {
   }
 
   /**
-   * Evaluate the a function across each column.
+   * Evaluate the a function across each column. Columns of large matrices
+   * are evaluated in parallel if the function is stateless. Cells excluded
+   * by a {@link ValidityMask} are passed to the function as NaN.
    * 
-   * @param f
-   * @param ret
+   * @param f the function, called once per column.
+   * @param ret the output passed to each call.
    */
   public void colEval(MatrixDimFunction f, double[] ret) {
-    double[] data = new double[getRows()];
-    
-    for (int i = 0; i < getCols(); ++i) {
-      columnToDouble(i, data);
+    Reductions.colEval(this, f, ret);
+  }
 
-      f.apply(i, data, ret);
-    }
+  /**
+   * Apply a reducer over a matrix, in parallel on large matrices. Cells
+   * excluded by a {@link ValidityMask} are skipped.
+   * 
+   * @param <S> the reducer state type.
+   * @param f the reducer.
+   * @return the result of the reducer, NaN for the built in reducers if
+   *         there are no valid values.
+   */
+  public <S> double stat(MatrixReducer<S> f) {
+    return Reductions.stat(this, f);
   }
 
   /**
-   * Apply a stat function over a matrix.
+   * Apply a reducer over one row. Cells excluded by a {@link ValidityMask}
+   * are skipped.
    * 
-   * @param f
-   * @return
+   * @param <S> the reducer state type.
+   * @param f the reducer.
+   * @param row the row.
+   * @return the result of the reducer, NaN for the built in reducers if
+   *         the row has no valid values.
+   */
+  public <S> double rowStat(MatrixReducer<S> f, int row) {
+    return Reductions.rowStat(this, f, row);
+  }
+
+  /**
+   * Apply a reducer over one column. Cells excluded by a
+   * {@link ValidityMask} are skipped.
+   * 
+   * @param <S> the reducer state type.
+   * @param f the reducer.
+   * @param col the column.
+   * @return the result of the reducer, NaN for the built in reducers if
+   *         the column has no valid values.
+   */
+  public <S> double colStat(MatrixReducer<S> f, int col) {
+    return Reductions.colStat(this, f, col);
+  }
+
+  /**
+   * Apply a stat function over a matrix. Stat functions hold their state
+   * so this always runs on the calling thread; use a {@link MatrixReducer}
+   * for a parallel reduction.
+   * 
+   * @param f the stat function, which is reset before use.
+   * @return the statistic of every cell.
    */
   public double stat(MatrixStatFunction f) {
     f.init();
@@ -1342,6 +1385,8 @@ public abstract class Matrix extends MatrixEventListeners {
       List<Integer> columns) {
     if (m instanceof MixedMatrix) {
       return extractText((MixedMatrix) m, rows, columns);
+    } else if (m instanceof ColumnMatrix) {
+      return extractData((ColumnMatrix) m, CellType.TEXT, rows, columns);
     }
 
     if (columns == null || rows == null) {
@@ -1416,6 +1461,8 @@ public abstract class Matrix extends MatrixEventListeners {
       List<Integer> columns) {
     if (m instanceof MixedMatrix) {
       return extractNumbers((MixedMatrix) m, rows, columns);
+    } else if (m instanceof ColumnMatrix) {
+      return extractData((ColumnMatrix) m, CellType.NUMBER, rows, columns);
     }
 
     if (columns == null || rows == null) {
@@ -1479,6 +1526,70 @@ public abstract class Matrix extends MatrixEventListeners {
     return extractData(m, CellType.NUMBER, rows, columns);
   }
 
+  /**
+   * Extract the columns of a column matrix whose type matches the cell type.
+   * Since every cell in a column has the same type, all rows are extracted
+   * and each column is copied in one pass.
+   *
+   * @param m the m
+   * @param cellType the cell type
+   * @param rows the rows
+   * @param columns the columns
+   * @return the matrix
+   */
+  public static Matrix extractData(ColumnMatrix m,
+      CellType cellType,
+      List<Integer> rows,
+      List<Integer> columns) {
+    if (columns == null || rows == null) {
+      return null;
+    }
+
+    int cn = m.mDim.mCols;
+
+    for (int i = 0; i < cn; ++i) {
+      if (m.getColumnType(i).getCellType() == cellType) {
+        columns.add(i);
+      }
+    }
+
+    if (columns.size() == 0) {
+      return null;
+    }
+
+    int rn = m.mDim.mRows;
+
+    for (int i = 0; i < rn; ++i) {
+      rows.add(i);
+    }
+
+    if (cellType == CellType.NUMBER) {
+      DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(rn, columns.size());
+
+      double[] values = new double[rn];
+
+      for (int j = 0; j < columns.size(); ++j) {
+        m.columnToDouble(columns.get(j), values);
+
+        ret.setColumn(j, values);
+      }
+
+      return ret;
+    } else {
+      TextMatrix ret = TextMatrix.createTextMatrix(rn, columns.size());
+
+      String[] values = new String[rn];
+
+      for (int j = 0; j < columns.size(); ++j) {
+        m.columnToText(columns.get(j), values);
+
+        ret.setColumn(j, values);
+      }
+
+      return ret;
+    }
+  }
+
   /**
    * Extract data.
    *
@@ -1961,6 +2072,8 @@ public abstract class Matrix extends MatrixEventListeners {
       return IntMatrix.createIntMatrix(m);
     } else if (m instanceof TextMatrix) {
       return TextMatrix.createTextMatrix(m);
+    } else if (m instanceof ColumnMatrix || m instanceof CompressedMatrix) {
+      return m.ofSameType();
     } else {
       return MixedMatrix.createMixedMatrix(m);
     }
@@ -1992,6 +2105,8 @@ public abstract class Matrix extends MatrixEventListeners {
       return IntMatrix.createIntMatrix(rows, columns);
     } else if (m instanceof TextMatrix) {
       return TextMatrix.createTextMatrix(rows, columns);
+    } else if (m instanceof ColumnMatrix || m instanceof CompressedMatrix) {
+      return m.ofSameType(rows, columns);
     } else {
       return MixedMatrix.createMixedMatrix(rows, columns);
     }
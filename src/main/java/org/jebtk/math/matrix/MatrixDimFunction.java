@@ -2,4 +2,16 @@ package org.jebtk.math.matrix;
 
 public interface MatrixDimFunction {
   public void apply(int index, double[] data, double[] ret);
+
+  /**
+   * Returns true if the function keeps no state between calls, so that
+   * rows or columns can be evaluated concurrently. Functions are assumed
+   * to be stateful, and are applied one row or column at a time, unless
+   * they override this.
+   * 
+   * @return true if the function can be called from several threads.
+   */
+  public default boolean isStateless() {
+    return false;
+  }
 }
@@ -68,6 +68,7 @@ import org.jebtk.core.text.TextUtils;
 import org.jebtk.core.xml.XmlRepresentation;
 import org.jebtk.core.xml.XmlUtils;
 import org.jebtk.math.cluster.Cluster;
+import org.jebtk.math.io.TextSource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -506,7 +507,7 @@ Comparable<MatrixGroup>, Iterable<Pattern> {
     String line;
     List<String> tokens;
 
-    BufferedReader reader = FileUtils.newBufferedReader(file);
+    BufferedReader reader = TextSource.newBufferedReader(file);
 
     // skip header
     reader.readLine();
@@ -576,7 +577,7 @@ Comparable<MatrixGroup>, Iterable<Pattern> {
 
     Map<String, MatrixGroup> groupMap = new HashMap<>();
 
-    BufferedReader reader = FileUtils.newBufferedReader(file);
+    BufferedReader reader = TextSource.newBufferedReader(file);
 
     // skip header
     reader.readLine();
@@ -630,7 +631,7 @@ Comparable<MatrixGroup>, Iterable<Pattern> {
     String line;
     List<String> tokens;
 
-    BufferedReader reader = FileUtils.newBufferedReader(file);
+    BufferedReader reader = TextSource.newBufferedReader(file);
 
     // skip header
     reader.readLine();
@@ -718,30 +719,10 @@ Comparable<MatrixGroup>, Iterable<Pattern> {
   public static <X extends MatrixGroup> List<Integer> findRowIndices(
       DataFrame m,
       X group) {
-    int n = m.getRows();
-
-    List<Integer> ret = new ArrayList<>(n);
-
     // Use the first set of indices
-    String[] v = m.getIndex().getText(0);
-    
-    for (int i = 0; i < n; ++i) {
-      
-      for (Pattern regex : group) {
-        //System.err.println("search for " + regex + " " + i + " " + v[i]);
-        
-        if (TextUtils.find(v[i], regex)) {
-          ret.add(i);
-          break;
-        }
-      }
-    }
-
-    if (!ret.isEmpty()) {
-      Collections.sort(ret);
-    }
+    DataFrameIndex index = m.getIndex();
 
-    return ret;
+    return CollectionUtils.toList(index.findIndices(index.getName(0), group));
   }
 
   /**
@@ -754,19 +735,20 @@ Comparable<MatrixGroup>, Iterable<Pattern> {
    */
   public static List<List<Integer>> findColumnIndices(DataFrame m,
       List<? extends MatrixGroup> groups) {
-    // return findIndices(matrix.getColumnNames(), groups);
+    MatrixGroupIndex index = MatrixGroupIndex.createColumnIndex(m, groups);
 
-    List<List<Integer>> ret = new ArrayList<>();
+    List<List<Integer>> ret = new ArrayList<>(index.size());
 
-    for (MatrixGroup group : groups) {
-      ret.add(findColumnIndices(m, group));
+    for (int g = 0; g < index.size(); ++g) {
+      ret.add(index.toList(g));
     }
 
     return ret;
   }
 
   /**
-   * Find column indices.
+   * Find column indices. Matches are cached by the column header so
+   * repeated calls with the same group do not rerun the group regexes.
    *
    * @param <X> the generic type
    * @param m the m
@@ -776,27 +758,8 @@ Comparable<MatrixGroup>, Iterable<Pattern> {
   public static <X extends MatrixGroup> List<Integer> findColumnIndices(
       DataFrame m,
       X group) {
-    int n = m.getCols();
-
-    List<Integer> ret = new ArrayList<>(n);
-
-    for (int i = 0; i < n; ++i) {
-      
-      for (Pattern regex : group) {
-        //System.err.println("search for " + regex + " " + m.getColumnHeader().getHeader(i) + " " + TextUtils.find(m.getColumnHeader().getHeader(i), regex));
-        
-        if (TextUtils.find(m.getColumnHeader().getHeader(i), regex)) {
-          ret.add(i);
-          break;
-        }
-      }
-    }
-
-    if (!ret.isEmpty()) {
-      Collections.sort(ret);
-    }
-
-    return ret;
+    return CollectionUtils.toList(m.getColumnHeader()
+        .findIndices(DataFrameIndex.HEADER_NAMES, group));
   }
 
   /**
@@ -814,24 +777,15 @@ Comparable<MatrixGroup>, Iterable<Pattern> {
 
     IterMap<Integer, List<X>> ret = DefaultTreeMap.create(new ArrayListCreator<>());
 
-    String[] names = m.getColumnNames();
+    // Use the first set of column names
+    DataFrameIndex header = m.getColumnHeader();
+
+    MatrixGroupIndex index = 
+        new MatrixGroupIndex(header, header.getName(0), n, groups);
     
     for (int i = 0; i < n; ++i) {
-      //boolean found = false;
-      
-      for (X group : groups) {
-        for (Pattern regex : group) {
-          
-          if (TextUtils.find(names[i], regex)) {
-            ret.get(i).add(group);
-            //found = true;
-            break;
-          }
-        }
-        
-        //if (found) {
-        //  break;
-        //}
+      for (int g : index.getGroups(i)) {
+        ret.get(i).add(groups.get(g));
       }
     }
 
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.util.List;
+
+import org.jebtk.core.collections.CollectionUtils;
+
+/**
+ * The columns (or rows) of a matrix resolved against a list of groups. Each
+ * group's indices and each index's groups are held as int arrays so that
+ * analyses can look up groups repeatedly without rerunning the group
+ * regexes. The per group indices come from the cache of the
+ * {@link DataFrameIndex} they were resolved against.
+ */
+public class MatrixGroupIndex {
+
+  /** The indices in each group. */
+  private final int[][] mGroupIndices;
+
+  /** The groups each index belongs to. */
+  private final int[][] mIndexGroups;
+
+  /**
+   * Instantiates a new matrix group index.
+   *
+   * @param index the row or column annotation.
+   * @param name the name of the annotation to match against.
+   * @param size the number of rows or columns.
+   * @param groups the groups
+   */
+  public MatrixGroupIndex(DataFrameIndex index, String name, int size,
+      List<? extends MatrixGroup> groups) {
+    mGroupIndices = new int[groups.size()][];
+
+    int[] counts = new int[size];
+
+    for (int g = 0; g < mGroupIndices.length; ++g) {
+      mGroupIndices[g] = index.findIndices(name, groups.get(g));
+
+      for (int i : mGroupIndices[g]) {
+        ++counts[i];
+      }
+    }
+
+    // Invert the group lists so each index knows its groups
+    mIndexGroups = new int[size][];
+
+    for (int i = 0; i < size; ++i) {
+      mIndexGroups[i] = new int[counts[i]];
+      counts[i] = 0;
+    }
+
+    for (int g = 0; g < mGroupIndices.length; ++g) {
+      for (int i : mGroupIndices[g]) {
+        mIndexGroups[i][counts[i]++] = g;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of groups.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mGroupIndices.length;
+  }
+
+  /**
+   * Returns the indices of a group in ascending order. The array is shared
+   * and must not be modified.
+   *
+   * @param group the group
+   * @return the indices
+   */
+  public int[] getIndices(int group) {
+    return mGroupIndices[group];
+  }
+
+  /**
+   * Returns the indices of a group as a list.
+   *
+   * @param group the group
+   * @return the list
+   */
+  public List<Integer> toList(int group) {
+    return CollectionUtils.toList(mGroupIndices[group]);
+  }
+
+  /**
+   * Returns the groups an index belongs to in ascending order. The array
+   * is shared and must not be modified.
+   *
+   * @param index the index
+   * @return the groups
+   */
+  public int[] getGroups(int index) {
+    return mIndexGroups[index];
+  }
+
+  /**
+   * Resolve groups against the column names of a matrix.
+   *
+   * @param m the m
+   * @param groups the groups
+   * @return the matrix group index
+   */
+  public static MatrixGroupIndex createColumnIndex(DataFrame m,
+      List<? extends MatrixGroup> groups) {
+    return new MatrixGroupIndex(m.getColumnHeader(),
+        DataFrameIndex.HEADER_NAMES, m.getCols(), groups);
+  }
+}
@@ -30,11 +30,19 @@ package org.jebtk.math.matrix;
 import java.io.IOException;
 import java.nio.file.Path;
 
+import org.jebtk.math.progress.Progress;
+
 /**
  * A standardized way to parse a file and convert it into a matrix object.
  */
 public interface MatrixParser {
 
+  /** The progress phase while reading the values of a file. */
+  public static final String PARSE_PHASE = "Parsing";
+
+  /** How many lines are read between progress updates. */
+  public static final int PROGRESS_LINES = 4096;
+
   /**
    * Parses the file.
    *
@@ -43,4 +51,25 @@ public interface MatrixParser {
    * @throws IOException Signals that an I/O exception has occurred.
    */
   public DataFrame parse(Path file) throws IOException;
+
+  /**
+   * Parses the file, reporting progress and stopping if cancelled. Parsers
+   * that read large files should override this to report progress as rows
+   * are read.
+   *
+   * @param file the file
+   * @param progress the progress
+   * @return the annotation matrix
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public default DataFrame parse(Path file, Progress progress)
+      throws IOException {
+    progress.check();
+
+    DataFrame ret = parse(file);
+
+    progress.update(PARSE_PHASE, 1);
+
+    return ret;
+  }
 }
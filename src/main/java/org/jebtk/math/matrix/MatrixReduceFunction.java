@@ -1,5 +1,49 @@
 package org.jebtk.math.matrix;
 
+import java.util.Arrays;
+
+/**
+ * Reduces a vector of values, such as a row of a matrix or a column of a
+ * group of rows, to a single value.
+ */
 public interface MatrixReduceFunction {
+
+  /**
+   * Reduce a vector of values.
+   * 
+   * @param index the index of the vector, e.g. the row being reduced.
+   * @param data the values. Cells excluded by a {@link ValidityMask} are
+   *          passed as NaN.
+   * @return the reduced value.
+   */
   public double apply(int index, double[] data);
+
+  /**
+   * Reduce a row held in part of a larger array, such as the backing array
+   * of a dense matrix. The default copies the row; functions that only read
+   * their input should override this so rows are reduced without a copy.
+   * 
+   * @param index the index of the row.
+   * @param data the array holding the row.
+   * @param offset  The index of the first value of the row in data.
+   * @param length  The number of values in the row.
+   * @return the reduced value.
+   */
+  public default double apply(int index,
+      double[] data,
+      int offset,
+      int length) {
+    return apply(index, Arrays.copyOfRange(data, offset, offset + length));
+  }
+
+  /**
+   * Returns true if the function keeps no state between calls, so that
+   * rows can be evaluated concurrently. Functions are assumed to be
+   * stateful, and are applied one row at a time, unless they override this.
+   * 
+   * @return true if the function can be called from several threads.
+   */
+  public default boolean isStateless() {
+    return false;
+  }
 }
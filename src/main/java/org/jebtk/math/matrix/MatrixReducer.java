@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+/**
+ * A reduction over matrix values that can be split across threads. Each
+ * block of values is reduced into its own state from {@link #init()} and
+ * the states of blocks are then merged with
+ * {@link #combine(Object, Object)}, so no state is shared between threads.
+ * Unlike {@link MatrixStatFunction} a reducer holds no state itself and one
+ * instance can be used concurrently.
+ *
+ * @param <S> the per block state.
+ */
+public interface MatrixReducer<S> {
+
+  /**
+   * Returns a new empty state.
+   * 
+   * @return a state that has seen no values.
+   */
+  public S init();
+
+  /**
+   * Add a value to a state. Cells excluded by a {@link ValidityMask} are
+   * never added, but NaN cells of an unmasked matrix are, so reducers that
+   * ignore missing values must skip NaN themselves.
+   * 
+   * @param state the state of the block being reduced.
+   * @param x the cell value.
+   */
+  public void add(S state, double x);
+
+  /**
+   * Merge the state of a block into the state of the block before it.
+   * 
+   * @param s1 the state of the earlier block.
+   * @param s2 the state of the later block.
+   * @return the merged state, which may be s1.
+   */
+  public S combine(S s1, S s2);
+
+  /**
+   * Returns the result of the reduction.
+   * 
+   * @param state the merged state of every block. It may have seen no
+   *          values, e.g. for an empty or fully masked row.
+   * @return the result, by convention NaN if there were no values to
+   *         reduce.
+   */
+  public double result(S state);
+}
@@ -0,0 +1,610 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jebtk.core.io.Io;
+import org.jebtk.core.text.Splitter;
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.io.Codec;
+import org.jebtk.math.io.TextSource;
+
+/**
+ * The column types of a delimited text matrix and the number of leading
+ * columns that are row annotations rather than data. A schema is inferred
+ * from a sample of lines, the first lines of the file plus lines picked at
+ * random from the rest of it, so that a parser can store each column in
+ * typed storage without testing every cell. Schemas are immutable and are
+ * cached by header so files sharing a layout are only sampled once.
+ */
+public class MatrixSchema implements Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The number of lines sampled from the start of a file. */
+  public static final int HEAD_SAMPLE = 1000;
+
+  /** The number of lines sampled at random from the rest of a file. */
+  public static final int RANDOM_SAMPLE = 200;
+
+  /** The number of schemas cached. */
+  private static final int CACHE_SIZE = 32;
+
+  /** Lines longer than this are not randomly sampled. */
+  private static final int SAMPLE_BUFFER_SIZE = 1 << 16;
+
+  /** Sampling is seeded so a file always gives the same schema. */
+  private static final long SEED = 0;
+
+  /** Recently inferred schemas keyed by header. */
+  private static final Map<List<String>, MatrixSchema> CACHE = Collections
+      .synchronizedMap(new LinkedHashMap<List<String>, MatrixSchema>(16,
+          0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<List<String>, MatrixSchema> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      });
+
+  /** The header, including the row annotation names. */
+  private final List<String> mHeader;
+
+  /** The row annotations. */
+  private final int mRowAnnotations;
+
+  /** The type of each data column. */
+  private final ColumnType[] mTypes;
+
+  /**
+   * Instantiates a new matrix schema.
+   *
+   * @param header the header, including the row annotation names. May be
+   *          empty if the file has no header.
+   * @param rowAnnotations the number of row annotation columns.
+   * @param types the type of each data column.
+   */
+  public MatrixSchema(List<String> header, int rowAnnotations,
+      ColumnType... types) {
+    mHeader = Collections.unmodifiableList(new ArrayList<String>(header));
+    mRowAnnotations = rowAnnotations;
+    mTypes = Arrays.copyOf(types, types.length);
+  }
+
+  /**
+   * Returns the header the schema was inferred from.
+   *
+   * @return the header
+   */
+  public List<String> getHeader() {
+    return mHeader;
+  }
+
+  /**
+   * Returns the number of leading columns that are row annotations.
+   *
+   * @return the row annotations
+   */
+  public int getRowAnnotations() {
+    return mRowAnnotations;
+  }
+
+  /**
+   * Returns the number of data columns.
+   *
+   * @return the cols
+   */
+  public int getCols() {
+    return mTypes.length;
+  }
+
+  /**
+   * Returns the type of a data column.
+   *
+   * @param column the column, excluding the row annotations.
+   * @return the type
+   */
+  public ColumnType getType(int column) {
+    return mTypes[column];
+  }
+
+  /**
+   * Returns a copy of the data column types.
+   *
+   * @return the types
+   */
+  public ColumnType[] getTypes() {
+    return Arrays.copyOf(mTypes, mTypes.length);
+  }
+
+  /**
+   * Returns true if the schema can be used for a file with a given header.
+   *
+   * @param header the header
+   * @return true, if successful
+   */
+  public boolean matches(List<String> header) {
+    return mHeader.equals(header);
+  }
+
+  /**
+   * Returns a copy of the schema with one data column changed to a wider
+   * type, used when a parser finds a value the inferred type cannot hold.
+   *
+   * @param column the column
+   * @param type the type
+   * @return the matrix schema
+   */
+  public MatrixSchema widen(int column, ColumnType type) {
+    ColumnType[] types = getTypes();
+
+    types[column] = type;
+
+    return new MatrixSchema(mHeader, mRowAnnotations, types);
+  }
+
+  /**
+   * Returns a copy of the schema with extra data columns, which are typed
+   * as doubles, for files with more columns than were seen when sampling.
+   *
+   * @param cols the cols
+   * @return the matrix schema
+   */
+  public MatrixSchema extend(int cols) {
+    if (cols <= mTypes.length) {
+      return this;
+    }
+
+    ColumnType[] types = Arrays.copyOf(mTypes, cols);
+
+    Arrays.fill(types, mTypes.length, cols, ColumnType.DOUBLE);
+
+    return new MatrixSchema(mHeader, mRowAnnotations, types);
+  }
+
+  /**
+   * Returns the cached schema for a header or null if there is not one.
+   *
+   * @param header the header
+   * @return the matrix schema
+   */
+  public static MatrixSchema getCached(List<String> header) {
+    return CACHE.get(header);
+  }
+
+  /**
+   * Cache a schema so it is reused for files with the same header. Schemas
+   * for files without a header are not cached.
+   *
+   * @param schema the schema
+   */
+  public static void cache(MatrixSchema schema) {
+    if (!schema.mHeader.isEmpty()) {
+      CACHE.put(schema.mHeader, schema);
+    }
+  }
+
+  /**
+   * Remove all cached schemas.
+   */
+  public static void clearCache() {
+    CACHE.clear();
+  }
+
+  /**
+   * Returns the narrowest type that can store a value, or null if the value
+   * is empty, in which case it says nothing about the type of its column.
+   * Values are classified by scanning their characters so this is much
+   * cheaper than matching a number regex.
+   *
+   * @param value the value
+   * @return the column type
+   */
+  public static ColumnType classify(String value) {
+    int n = value.length();
+
+    if (n == 0) {
+      return null;
+    }
+
+    char c = value.charAt(0);
+
+    if (c == 't' || c == 'T' || c == 'f' || c == 'F') {
+      return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)
+          ? ColumnType.BOOL : ColumnType.TEXT;
+    }
+
+    int i = c == '-' || c == '+' ? 1 : 0;
+
+    int digits = 0;
+
+    while (i < n) {
+      c = value.charAt(i);
+
+      if (c < '0' || c > '9') {
+        break;
+      }
+
+      ++digits;
+      ++i;
+    }
+
+    if (i == n && digits > 0) {
+      // An integer, so check whether it needs to be stored as a long
+      if (digits < 10) {
+        return ColumnType.INT;
+      }
+
+      try {
+        long v = Long.parseLong(value);
+
+        return v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE
+            ? ColumnType.INT : ColumnType.LONG;
+      } catch (NumberFormatException e) {
+        return ColumnType.DOUBLE;
+      }
+    }
+
+    // Only attempt to parse things that look like decimals, NaN or Infinity
+    if (digits == 0 && c != '.' && c != 'N' && c != 'I') {
+      return ColumnType.TEXT;
+    }
+
+    try {
+      Double.parseDouble(value);
+
+      return ColumnType.DOUBLE;
+    } catch (NumberFormatException e) {
+      return ColumnType.TEXT;
+    }
+  }
+
+  /**
+   * Returns the narrowest type that can store values of two types. Integer
+   * types widen to double and anything mixed with text or booleans is
+   * text.
+   *
+   * @param t1 the t 1
+   * @param t2 the t 2
+   * @return the column type
+   */
+  public static ColumnType merge(ColumnType t1, ColumnType t2) {
+    if (t1 == null) {
+      return t2;
+    }
+
+    if (t2 == null || t1 == t2) {
+      return t1;
+    }
+
+    if (t1 == ColumnType.TEXT || t2 == ColumnType.TEXT
+        || t1 == ColumnType.BOOL || t2 == ColumnType.BOOL) {
+      return ColumnType.TEXT;
+    }
+
+    if (t1 == ColumnType.DOUBLE || t2 == ColumnType.DOUBLE) {
+      return ColumnType.DOUBLE;
+    }
+
+    return ColumnType.LONG;
+  }
+
+  /**
+   * Returns true if all the values from an index onwards are numbers.
+   *
+   * @param values the values
+   * @param start the start
+   * @return true, if is numeric
+   */
+  public static boolean isNumeric(List<String> values, int start) {
+    for (int i = start; i < values.size(); ++i) {
+      if (!isNumber(values.get(i))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns true if a value is a number.
+   *
+   * @param value the value
+   * @return true, if is number
+   */
+  public static boolean isNumber(String value) {
+    ColumnType type = classify(value);
+
+    return type != null && type != ColumnType.TEXT && type != ColumnType.BOOL;
+  }
+
+  /**
+   * Estimate the number of row annotations in a row of values as the
+   * number of leading values before the trailing run of numbers. At least
+   * one value is always treated as data.
+   *
+   * @param values the values
+   * @return the int
+   */
+  public static int estimateRowAnnotations(List<String> values) {
+    int ret = 0;
+
+    for (int i = values.size() - 1; i >= 0; --i) {
+      if (!isNumber(values.get(i))) {
+        ret = i + 1;
+        break;
+      }
+    }
+
+    return Math.max(0, Math.min(ret, values.size() - 1));
+  }
+
+  /**
+   * Infer a schema from a file. The last header line, if any, is the
+   * header. If the file is not compressed, lines beyond the first
+   * {@code HEAD_SAMPLE} are also sampled at random so that types that
+   * only appear later in a sorted file are still seen.
+   *
+   * @param file the file
+   * @param headers the number of header lines
+   * @param delimiter the delimiter
+   * @param rowAnnotations the number of row annotations or -1 to estimate
+   *          them from the sample.
+   * @return the matrix schema
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  public static MatrixSchema infer(Path file,
+      int headers,
+      String delimiter,
+      int rowAnnotations) throws IOException {
+    Splitter split = Splitter.on(delimiter);
+
+    List<String> header = Collections.emptyList();
+    List<List<String>> sample = new ArrayList<List<String>>(HEAD_SAMPLE);
+
+    // Bytes read so far so random samples are taken from after the head
+    long offset = 0;
+
+    boolean eof = false;
+
+    BufferedReader reader = TextSource.newBufferedReader(file);
+
+    try {
+      String line;
+
+      for (int i = 0; i < headers; ++i) {
+        line = reader.readLine();
+
+        if (line == null) {
+          break;
+        }
+
+        offset += length(line);
+
+        header = split.text(TextUtils.removeExcelQuotes(line));
+      }
+
+      while (sample.size() < HEAD_SAMPLE) {
+        line = reader.readLine();
+
+        if (line == null) {
+          eof = true;
+          break;
+        }
+
+        offset += length(line);
+
+        if (!Io.isEmptyLine(line)) {
+          sample.add(split.text(TextUtils.removeExcelQuotes(line)));
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    if (!eof && Codec.detect(file) == Codec.NONE) {
+      for (String line : sampleLines(file, offset, RANDOM_SAMPLE)) {
+        sample.add(split.text(TextUtils.removeExcelQuotes(line)));
+      }
+    }
+
+    return infer(header, sample, rowAnnotations);
+  }
+
+  /**
+   * Infer a schema from a sample of rows.
+   *
+   * @param header the header
+   * @param sample the sample
+   * @param rowAnnotations the number of row annotations or -1 to estimate
+   *          them from the sample.
+   * @return the matrix schema
+   */
+  public static MatrixSchema infer(List<String> header,
+      List<List<String>> sample,
+      int rowAnnotations) {
+    int cols = header.size();
+
+    for (List<String> row : sample) {
+      cols = Math.max(cols, row.size());
+    }
+
+    ColumnType[] types = new ColumnType[cols];
+    boolean[] missing = new boolean[cols];
+
+    for (List<String> row : sample) {
+      for (int i = 0; i < cols; ++i) {
+        ColumnType type = i < row.size() ? classify(row.get(i)) : null;
+
+        if (type != null) {
+          types[i] = merge(types[i], type);
+        } else {
+          missing[i] = true;
+        }
+      }
+    }
+
+    int lastText = -1;
+
+    for (int i = 0; i < cols; ++i) {
+      if (types[i] == null) {
+        // Nothing but empty cells
+        types[i] = ColumnType.DOUBLE;
+      } else if (missing[i]) {
+        // Integer and boolean storage cannot represent an empty cell
+        if (types[i] == ColumnType.INT || types[i] == ColumnType.LONG) {
+          types[i] = ColumnType.DOUBLE;
+        } else if (types[i] == ColumnType.BOOL) {
+          types[i] = ColumnType.TEXT;
+        }
+      }
+
+      if (types[i] == ColumnType.TEXT || types[i] == ColumnType.BOOL) {
+        lastText = i;
+      }
+    }
+
+    if (rowAnnotations < 0) {
+      rowAnnotations = Math.max(0, Math.min(lastText + 1, cols - 1));
+    }
+
+    rowAnnotations = Math.min(rowAnnotations, cols);
+
+    return new MatrixSchema(header, rowAnnotations,
+        Arrays.copyOfRange(types, rowAnnotations, cols));
+  }
+
+  /**
+   * Read whole lines starting at random positions after an offset. Each
+   * position is moved on to the start of the next line. Lines that do not
+   * fit in the sample buffer are ignored.
+   *
+   * @param file the file
+   * @param offset the offset
+   * @param n the n
+   * @return the list
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static List<String> sampleLines(Path file, long offset, int n)
+      throws IOException {
+    List<String> ret = new ArrayList<String>(n);
+
+    Random random = new Random(SEED);
+
+    ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_BUFFER_SIZE);
+    byte[] bytes = buffer.array();
+
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+    try {
+      long size = channel.size();
+
+      if (size <= offset) {
+        return ret;
+      }
+
+      for (int i = 0; i < n; ++i) {
+        long p = offset + (long) (random.nextDouble() * (size - offset));
+
+        buffer.clear();
+
+        if (channel.read(buffer, p) <= 0) {
+          continue;
+        }
+
+        int limit = buffer.position();
+
+        // Skip the partial line the position falls in
+        int s = indexOf(bytes, 0, limit) + 1;
+
+        if (s == 0) {
+          continue;
+        }
+
+        int e = indexOf(bytes, s, limit);
+
+        if (e == -1) {
+          continue;
+        }
+
+        if (e > s && bytes[e - 1] == '\r') {
+          --e;
+        }
+
+        String line = new String(bytes, s, e - s, StandardCharsets.UTF_8);
+
+        if (!Io.isEmptyLine(line)) {
+          ret.add(line);
+        }
+      }
+    } finally {
+      channel.close();
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the index of the next new line or -1.
+   */
+  private static int indexOf(byte[] bytes, int start, int end) {
+    for (int i = start; i < end; ++i) {
+      if (bytes[i] == '\n') {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the approximate number of bytes a line occupies in a file,
+   * including its line ending.
+   */
+  private static long length(String line) {
+    return line.getBytes(StandardCharsets.UTF_8).length + 1;
+  }
+}
@@ -31,6 +31,7 @@ import java.util.Arrays;
 
 import org.jebtk.core.sys.SysUtils;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.utils.Transpose;
 
 /**
  * Allows strings and numbers to exist in same matrix.
@@ -514,24 +515,21 @@ public class MixedMatrix extends IndexRowMatrix {
   public static Matrix transpose(MixedMatrix m) {
     MixedMatrix ret = createMixedMatrix(m.mDim.mCols, m.mDim.mRows);
 
-    int i2 = 0;
-    int c = 0;
-
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
-
-      ret.mData[i2] = m.mData[i];
-
-      // Skip blocks
-      i2 += m.mDim.mRows;
-    }
+    Transpose.transpose(m.mData, m.mDim.mRows, m.mDim.mCols, ret.mData);
 
     return ret;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.IndexRowMatrix#transposeData()
+   */
+  @Override
+  protected void transposeData() {
+    Transpose.transpose(mData, mDim.mRows);
+  }
+
   //
   // Static methods
   //
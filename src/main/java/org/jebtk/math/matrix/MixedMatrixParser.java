@@ -29,16 +29,26 @@ package org.jebtk.math.matrix;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.jebtk.core.collections.CollectionUtils;
-import org.jebtk.core.io.FileUtils;
 import org.jebtk.core.io.Io;
 import org.jebtk.core.io.ReaderUtils;
 import org.jebtk.core.text.Splitter;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.Timer;
+import org.jebtk.math.io.TextSource;
+import org.jebtk.math.progress.Progress;
 
 /**
  * Parses a text file and creates a matrix from it.
@@ -47,11 +57,35 @@ import org.jebtk.core.text.TextUtils;
  */
 public class MixedMatrixParser implements MatrixParser {
 
+  /** Counts the rows parsed. */
+  private static final Counter ROWS = Instrumentation.getInstance()
+      .counter("parser.rows");
+
+  /**
+   * Counts the size of the files read as stored on disk, so compressed files
+   * add their compressed size.
+   */
+  private static final Counter FILE_BYTES = Instrumentation.getInstance()
+      .counter("parser.file.bytes");
+
+  /** Times parsing files. */
+  private static final Timer PARSE_TIMER = Instrumentation.getInstance()
+      .timer("parser.parse");
+
+  /** Marks a token that is not stored. */
+  private static final int SKIP = Integer.MIN_VALUE;
+
   /**
    * The member row annotations.
    */
   protected int mRowAnnotations = -1;
 
+  /**
+   * Text values seen during a parse so that repeated values share one
+   * String instance rather than one per cell.
+   */
+  private TextDictionary mDict = new TextDictionary();
+
   /**
    * The member delimiter.
    */
@@ -62,6 +96,21 @@ public class MixedMatrixParser implements MatrixParser {
 
   protected int mHeaders = -1;
 
+  /** Data columns to keep, by index. */
+  private int[] mColumnIndices = null;
+
+  /** Data columns to keep, by header name. */
+  private List<String> mColumnNames = null;
+
+  /** Data columns to keep, by group. */
+  private MatrixGroup[] mColumnGroups = null;
+
+  /** The header of the column rows are filtered on, null for the first. */
+  private String mRowColumn = null;
+
+  /** The values a row must have in the filter column to be kept. */
+  private Set<String> mRowValues = null;
+
   public MixedMatrixParser(int headers, 
       int rowAnnotations,
       String delimiter) {
@@ -86,6 +135,81 @@ public class MixedMatrixParser implements MatrixParser {
     mDelimiter = delimiter;
   }
 
+  /**
+   * Only keep some data columns, given by their index excluding the row
+   * annotation columns, in the order given. Other cells are skipped while
+   * tokenising and never converted or stored.
+   *
+   * @param columns the columns
+   * @return the parser
+   */
+  public MixedMatrixParser columns(int... columns) {
+    mColumnIndices = columns;
+
+    return this;
+  }
+
+  /**
+   * Only keep the data columns with the given header names, in the order
+   * given. Requires a header.
+   *
+   * @param names the names
+   * @return the parser
+   */
+  public MixedMatrixParser columns(Collection<String> names) {
+    mColumnNames = new ArrayList<String>(names);
+
+    return this;
+  }
+
+  /**
+   * Only keep the data columns whose header names match one of the groups.
+   * Requires a header.
+   *
+   * @param groups the groups
+   * @return the parser
+   */
+  public MixedMatrixParser columns(MatrixGroup... groups) {
+    mColumnGroups = groups;
+
+    return this;
+  }
+
+  /**
+   * Only keep rows whose name, the first column, is in a set.
+   *
+   * @param names the names
+   * @return the parser
+   */
+  public MixedMatrixParser rows(Collection<String> names) {
+    return rows(null, names);
+  }
+
+  /**
+   * Only keep rows whose value in a column, usually a row annotation, is in
+   * a set. Rows are tested before the rest of the line is tokenised.
+   *
+   * @param column the header name of the column or null for the first.
+   * @param values the values
+   * @return the parser
+   */
+  public MixedMatrixParser rows(String column, Collection<String> values) {
+    mRowColumn = column;
+    mRowValues = new HashSet<String>(values);
+
+    return this;
+  }
+
+  /**
+   * Returns true if columns are projected or rows filtered.
+   *
+   * @return true, if is filtered
+   */
+  private boolean isFiltered() {
+    return mColumnIndices != null || mColumnNames != null
+        || mColumnGroups != null || mRowValues != null;
+  }
+
   /**
    * Sets the.
    *
@@ -99,10 +223,20 @@ public class MixedMatrixParser implements MatrixParser {
     if (TextUtils.isNumber(value)) {
       matrix.update(row, column, Double.parseDouble(value));
     } else {
-      matrix.update(row, column, value);
+      matrix.update(row, column, intern(value));
     }
   }
 
+  /**
+   * Returns the shared instance of a text value.
+   *
+   * @param value the value
+   * @return the string
+   */
+  protected String intern(String value) {
+    return mDict.getText(mDict.intern(value));
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -110,6 +244,35 @@ public class MixedMatrixParser implements MatrixParser {
    */
   @Override
   public DataFrame parse(Path file) throws IOException {
+    return parse(file, Progress.NONE);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.MatrixParser#parse(java.nio.file.Path,
+   * org.jebtk.math.progress.Progress)
+   */
+  @Override
+  public DataFrame parse(Path file, Progress progress) throws IOException {
+    // Compressed files are decompressed once, during the first pass
+    TextSource source = new TextSource(file);
+
+    try {
+      if (isFiltered()) {
+        return parseFiltered(file, source, progress);
+      } else {
+        return parse(file, source, progress);
+      }
+    } finally {
+      source.close();
+    }
+  }
+
+  private DataFrame parse(Path file, TextSource source, Progress progress)
+      throws IOException {
+    long start = PARSE_TIMER.start();
+
     DataFrame matrix = null;
 
     String line;
@@ -119,7 +282,8 @@ public class MixedMatrixParser implements MatrixParser {
     // Work out if we need to skip annotation rows that should be
     // ignored
 
-    int skipLines = ReaderUtils.countHeaderLines(file, mSkipMatches);
+    int skipLines = CollectionUtils.isNullOrEmpty(mSkipMatches) ? 0
+        : ReaderUtils.countHeaderLines(source.getPath(), mSkipMatches);
 
     //
     // Count rows
@@ -134,7 +298,7 @@ public class MixedMatrixParser implements MatrixParser {
     // Determine maximum rows and columns required
     //
     
-    BufferedReader reader = FileUtils.newBufferedReader(file);
+    BufferedReader reader = source.newBufferedReader();
 
     try {
       if (skipLines > 0) {
@@ -159,6 +323,10 @@ public class MixedMatrixParser implements MatrixParser {
         columns = Math.max(columns, TextUtils.countMatches(line, mDelimiter));
 
         ++rows;
+
+        if (rows % PROGRESS_LINES == 0) {
+          progress.check();
+        }
       }
     } finally {
       reader.close();
@@ -172,8 +340,10 @@ public class MixedMatrixParser implements MatrixParser {
     columns -= mRowAnnotations;
     
     matrix = createMatrix(rows, columns);
+
+    mDict = new TextDictionary();
     
-    reader = FileUtils.newBufferedReader(file);
+    reader = source.newBufferedReader();
 
     // List<List<Object>> annotations = null;
     List<String> rowAnnotationNames = null;
@@ -253,6 +423,10 @@ public class MixedMatrixParser implements MatrixParser {
         }
 
         ++row;
+
+        if (row % PROGRESS_LINES == 0) {
+          progress.update(PARSE_PHASE, row, rows);
+        }
       }
 
       // if (mHasHeader) {
@@ -265,9 +439,281 @@ public class MixedMatrixParser implements MatrixParser {
       reader.close();
     }
 
+    progress.update(PARSE_PHASE, 1);
+
+    ROWS.add(matrix.getRows());
+    FILE_BYTES.add(Files.size(file));
+    PARSE_TIMER.stop(start);
+
+    return matrix;
+  }
+  /**
+   * Parse keeping only the projected columns and the rows passing the row
+   * filter. Lines are scanned for the tokens that are needed rather than
+   * split, so skipped cells are never extracted, converted or stored.
+   */
+  private DataFrame parseFiltered(Path file,
+      TextSource source,
+      Progress progress) throws IOException {
+    long start = PARSE_TIMER.start();
+
+    int skipLines = CollectionUtils.isNullOrEmpty(mSkipMatches) ? 0
+        : ReaderUtils.countHeaderLines(source.getPath(), mSkipMatches);
+
+    String line;
+    List<String> header = Collections.emptyList();
+
+    int key = -1;
+    int rows = 0;
+    int tokens = 0;
+
+    //
+    // Read the header and count the rows that pass the filter
+    //
+
+    BufferedReader reader = source.newBufferedReader();
+
+    try {
+      ReaderUtils.skipLines(reader, skipLines);
+
+      header = readHeader(reader);
+
+      key = rowKey(header);
+
+      while ((line = reader.readLine()) != null) {
+        if (Io.isEmptyLine(line) || !accept(line, key)) {
+          continue;
+        }
+
+        tokens = Math.max(tokens,
+            TextUtils.countMatches(line, mDelimiter) + 1);
+
+        ++rows;
+
+        if (rows % PROGRESS_LINES == 0) {
+          progress.check();
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    // The data column stored for each token of a line, negative for row
+    // annotations
+    List<Integer> columns = projection(header, tokens - mRowAnnotations);
+
+    int[] target = new int[mRowAnnotations
+        + (columns.isEmpty() ? 0 : Collections.max(columns) + 1)];
+
+    Arrays.fill(target, SKIP);
+
+    for (int i = 0; i < mRowAnnotations; ++i) {
+      target[i] = i - mRowAnnotations;
+    }
+
+    for (int i = 0; i < columns.size(); ++i) {
+      target[mRowAnnotations + columns.get(i)] = i;
+    }
+
+    DataFrame matrix = createMatrix(rows, columns.size());
+
+    mDict = new TextDictionary();
+
+    if (mHeaders > 0) {
+      List<String> names = new ArrayList<String>(columns.size());
+
+      for (int c : columns) {
+        int t = mRowAnnotations + c;
+
+        names.add(t < header.size() ? header.get(t)
+            : TextUtils.EMPTY_STRING);
+      }
+
+      matrix.setColumnNames(names);
+
+      for (String name : CollectionUtils.subList(header, 0, mRowAnnotations)) {
+        matrix.getIndex().getAnnotation(name);
+      }
+    } else {
+      for (int i = 0; i < mRowAnnotations; ++i) {
+        matrix.getIndex().getAnnotation("Row Annotation " + (i + 1));
+      }
+    }
+
+    //
+    // Store the wanted cells of the accepted rows
+    //
+
+    reader = source.newBufferedReader();
+
+    int row = 0;
+    int d = mDelimiter.length();
+
+    try {
+      ReaderUtils.skipLines(reader, skipLines + Math.max(0, mHeaders));
+
+      while ((line = reader.readLine()) != null) {
+        if (Io.isEmptyLine(line) || !accept(line, key)) {
+          continue;
+        }
+
+        int s = 0;
+
+        for (int t = 0; t < target.length; ++t) {
+          int e = line.indexOf(mDelimiter, s);
+
+          if (e == -1) {
+            e = line.length();
+          }
+
+          if (target[t] != SKIP) {
+            set(matrix,
+                row,
+                target[t],
+                TextUtils.removeExcelQuotes(line.substring(s, e)));
+          }
+
+          if (e == line.length()) {
+            break;
+          }
+
+          s = e + d;
+        }
+
+        ++row;
+
+        if (row % PROGRESS_LINES == 0) {
+          progress.update(PARSE_PHASE, row, rows);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    progress.update(PARSE_PHASE, 1);
+
+    ROWS.add(matrix.getRows());
+    FILE_BYTES.add(Files.size(file));
+    PARSE_TIMER.stop(start);
+
     return matrix;
   }
 
+  /**
+   * Read the header lines, returning the tokens of the last one.
+   */
+  private List<String> readHeader(BufferedReader reader) throws IOException {
+    List<String> ret = Collections.emptyList();
+
+    for (int i = 0; i < mHeaders; ++i) {
+      String line = reader.readLine();
+
+      if (line == null) {
+        break;
+      }
+
+      ret = Splitter.on(mDelimiter).text(TextUtils.removeExcelQuotes(line));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the index of the token rows are filtered on, or -1 if rows are
+   * not filtered.
+   */
+  private int rowKey(List<String> header) {
+    if (mRowValues == null) {
+      return -1;
+    }
+
+    if (mRowColumn == null) {
+      return 0;
+    }
+
+    int ret = header.indexOf(mRowColumn);
+
+    if (ret == -1) {
+      throw new IllegalArgumentException(mRowColumn + " is not a column.");
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns true if a line passes the row filter.
+   */
+  private boolean accept(String line, int key) {
+    if (key == -1) {
+      return true;
+    }
+
+    int s = 0;
+
+    for (int i = 0; i < key; ++i) {
+      s = line.indexOf(mDelimiter, s);
+
+      if (s == -1) {
+        return false;
+      }
+
+      s += mDelimiter.length();
+    }
+
+    int e = line.indexOf(mDelimiter, s);
+
+    String v = line.substring(s, e == -1 ? line.length() : e);
+
+    return mRowValues.contains(TextUtils.removeExcelQuotes(v));
+  }
+
+  /**
+   * Returns the data columns to keep, in output order.
+   *
+   * @param header the header
+   * @param columns the number of data columns in the file.
+   */
+  private List<Integer> projection(List<String> header, int columns) {
+    List<Integer> ret = new ArrayList<Integer>();
+
+    String[] names = header.size() > mRowAnnotations
+        ? CollectionUtils.subList(header, mRowAnnotations)
+            .toArray(new String[0])
+        : new String[0];
+
+    Set<Integer> used = new HashSet<Integer>();
+
+    if (mColumnIndices != null) {
+      for (int c : mColumnIndices) {
+        if (c >= 0 && c < columns && used.add(c)) {
+          ret.add(c);
+        }
+      }
+    } else if (mColumnNames != null) {
+      List<String> list = Arrays.asList(names);
+
+      for (String name : mColumnNames) {
+        int c = list.indexOf(name);
+
+        if (c != -1 && used.add(c)) {
+          ret.add(c);
+        }
+      }
+    } else if (mColumnGroups != null) {
+      for (MatrixGroup g : mColumnGroups) {
+        used.addAll(MatrixGroup.findIndices(names, g));
+      }
+
+      ret.addAll(CollectionUtils.sort(used));
+    } else {
+      for (int i = 0; i < columns; ++i) {
+        ret.add(i);
+      }
+    }
+
+    return ret;
+  }
+
   public DataFrame createMatrix(int rows, int columns) {
     return DataFrame.createDataFrame(rows, columns);
   }
@@ -0,0 +1,559 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jebtk.core.collections.CollectionUtils;
+import org.jebtk.core.io.Io;
+import org.jebtk.core.io.ReaderUtils;
+import org.jebtk.core.text.Splitter;
+import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.Timer;
+import org.jebtk.math.io.TextSource;
+import org.jebtk.math.matrix.ColumnMatrix.BoolColumn;
+import org.jebtk.math.matrix.ColumnMatrix.Column;
+import org.jebtk.math.matrix.ColumnMatrix.DoubleColumn;
+import org.jebtk.math.matrix.ColumnMatrix.IntColumn;
+import org.jebtk.math.matrix.ColumnMatrix.LongColumn;
+import org.jebtk.math.matrix.ColumnMatrix.TextColumn;
+import org.jebtk.math.progress.Progress;
+
+/**
+ * Parses a delimited text file into a column matrix using a schema, either
+ * given or inferred by sampling the file, so that each cell is converted
+ * with the parser for its column type rather than being tested to see if it
+ * is a number. If a cell does not fit its column's type the column is
+ * widened, the cells already read are copied into the wider storage and
+ * parsing continues. Columns widened to text are filled from the original
+ * tokens of the earlier rows, which are read again once parsing finishes,
+ * so that values such as "1" or "1e-5" are not reformatted as numbers. The
+ * final schema is cached so later files with the same header skip
+ * sampling.
+ */
+public class SchemaMatrixParser implements MatrixParser {
+
+  /** Counts the rows parsed. */
+  private static final Counter ROWS = Instrumentation.getInstance()
+      .counter("parser.rows");
+
+  /**
+   * Counts the size of the files read as stored on disk, so compressed files
+   * add their compressed size.
+   */
+  private static final Counter FILE_BYTES = Instrumentation.getInstance()
+      .counter("parser.file.bytes");
+
+  /** Counts columns widened because the sample missed a value. */
+  private static final Counter WIDENED = Instrumentation.getInstance()
+      .counter("parser.schema.widened");
+
+  /** Times parsing files. */
+  private static final Timer PARSE_TIMER = Instrumentation.getInstance()
+      .timer("parser.parse");
+
+  /** The number of header lines. */
+  private final int mHeaders;
+
+  /** The row annotations, -1 to infer them. */
+  private final int mRowAnnotations;
+
+  /** The delimiter. */
+  private final String mDelimiter;
+
+  /** The schema, given or inferred. */
+  private MatrixSchema mSchema;
+
+  /**
+   * Whether the schema was given, in which case it is also used for files
+   * without a header.
+   */
+  private final boolean mGiven;
+
+  /**
+   * Instantiates a new schema matrix parser that infers the row
+   * annotations.
+   *
+   * @param headers the headers
+   * @param delimiter the delimiter
+   */
+  public SchemaMatrixParser(int headers, String delimiter) {
+    this(headers, -1, delimiter);
+  }
+
+  /**
+   * Instantiates a new schema matrix parser.
+   *
+   * @param headers the number of header lines.
+   * @param rowAnnotations the row annotations, or -1 to infer them.
+   * @param delimiter the delimiter
+   */
+  public SchemaMatrixParser(int headers, int rowAnnotations,
+      String delimiter) {
+    this(null, headers, rowAnnotations, delimiter);
+  }
+
+  /**
+   * Instantiates a new schema matrix parser that reuses a schema, for
+   * example from an earlier parse. If the file has a header, the schema is
+   * only used when the header matches it.
+   *
+   * @param schema the schema
+   * @param headers the headers
+   * @param delimiter the delimiter
+   */
+  public SchemaMatrixParser(MatrixSchema schema, int headers,
+      String delimiter) {
+    this(schema, headers, schema.getRowAnnotations(), delimiter);
+  }
+
+  private SchemaMatrixParser(MatrixSchema schema, int headers,
+      int rowAnnotations, String delimiter) {
+    mSchema = schema;
+    mGiven = schema != null;
+    mHeaders = headers;
+    mRowAnnotations = rowAnnotations;
+    mDelimiter = delimiter;
+  }
+
+  /**
+   * Returns the schema used by the last parse, including any columns that
+   * were widened.
+   *
+   * @return the schema
+   */
+  public MatrixSchema getSchema() {
+    return mSchema;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.MatrixParser#parse(java.nio.file.Path)
+   */
+  @Override
+  public DataFrame parse(Path file) throws IOException {
+    return parse(file, Progress.NONE);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.MatrixParser#parse(java.nio.file.Path,
+   * org.jebtk.math.progress.Progress)
+   */
+  @Override
+  public DataFrame parse(Path file, Progress progress) throws IOException {
+    TextSource source = new TextSource(file);
+
+    try {
+      return parse(file, source, progress);
+    } finally {
+      source.close();
+    }
+  }
+
+  private DataFrame parse(Path file, TextSource source, Progress progress)
+      throws IOException {
+    long start = PARSE_TIMER.start();
+
+    String line;
+    List<String> header = Collections.emptyList();
+
+    int rows = 0;
+    int tokens = 0;
+
+    //
+    // Read the header and count rows and columns
+    //
+
+    BufferedReader reader = source.newBufferedReader();
+
+    try {
+      header = readHeader(reader);
+
+      while ((line = reader.readLine()) != null) {
+        if (Io.isEmptyLine(line)) {
+          continue;
+        }
+
+        tokens = Math.max(tokens,
+            TextUtils.countMatches(line, mDelimiter) + 1);
+
+        ++rows;
+
+        if (rows % PROGRESS_LINES == 0) {
+          progress.check();
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    MatrixSchema schema = schema(file, header);
+
+    int rowAnnotations = schema.getRowAnnotations();
+
+    schema = schema.extend(tokens - rowAnnotations);
+
+    mSchema = schema;
+
+    ColumnMatrix m = new ColumnMatrix(rows, schema.getTypes());
+
+    for (Column column : m.mColumns) {
+      if (column instanceof DoubleColumn) {
+        Arrays.fill(((DoubleColumn) column).mData, Double.NaN);
+      }
+    }
+
+    String[][] annotations = new String[rowAnnotations][rows];
+
+    for (String[] annotation : annotations) {
+      Arrays.fill(annotation, TextUtils.EMPTY_STRING);
+    }
+
+    //
+    // Fill the columns
+    //
+
+    int cols = m.mColumns.length;
+    int dl = mDelimiter.length();
+
+    // For each column widened to text, the number of rows read before it
+    // was widened
+    int[] textRows = new int[cols];
+
+    int row = 0;
+
+    reader = source.newBufferedReader();
+
+    try {
+      ReaderUtils.skipLines(reader, mHeaders);
+
+      while ((line = reader.readLine()) != null) {
+        if (Io.isEmptyLine(line)) {
+          continue;
+        }
+
+        line = TextUtils.removeExcelQuotes(line);
+
+        int s = 0;
+        int t = 0;
+
+        while (true) {
+          int e = line.indexOf(mDelimiter, s);
+
+          String token = e == -1 ? line.substring(s) : line.substring(s, e);
+
+          if (t < rowAnnotations) {
+            annotations[t][row] = token;
+          } else if (t - rowAnnotations < cols) {
+            set(m, row, t - rowAnnotations, token, textRows);
+          }
+
+          if (e == -1) {
+            break;
+          }
+
+          s = e + dl;
+          ++t;
+        }
+
+        ++row;
+
+        if (row % PROGRESS_LINES == 0) {
+          progress.update(PARSE_PHASE, row, rows);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    reread(source, m, rowAnnotations, textRows);
+
+    DataFrame ret = new DataFrame(m);
+
+    if (mHeaders > 0) {
+      ret.setColumnNames(CollectionUtils.subList(header, rowAnnotations));
+    }
+
+    for (int i = 0; i < rowAnnotations; ++i) {
+      String name = i < header.size() ? header.get(i)
+          : "Row Annotation " + (i + 1);
+
+      ret.getIndex().setAnnotation(name, annotations[i]);
+    }
+
+    MatrixSchema.cache(mSchema);
+
+    progress.update(PARSE_PHASE, 1);
+
+    ROWS.add(rows);
+    FILE_BYTES.add(Files.size(file));
+    PARSE_TIMER.stop(start);
+
+    return ret;
+  }
+
+  /**
+   * Returns the schema for a file, reusing the parser's schema or a cached
+   * one if the header matches and inferring one otherwise. Files without a
+   * header cannot be matched so they only reuse a given schema.
+   */
+  private MatrixSchema schema(Path file, List<String> header)
+      throws IOException {
+    if (mSchema != null
+        && (mHeaders > 0 ? mSchema.matches(header) : mGiven)) {
+      return mSchema;
+    }
+
+    if (mHeaders > 0) {
+      MatrixSchema ret = MatrixSchema.getCached(header);
+
+      if (ret != null && (mRowAnnotations < 0
+          || ret.getRowAnnotations() == mRowAnnotations)) {
+        return ret;
+      }
+    }
+
+    return MatrixSchema.infer(file, mHeaders, mDelimiter, mRowAnnotations);
+  }
+
+  /**
+   * Reads the header lines returning the tokens of the last one.
+   */
+  private List<String> readHeader(BufferedReader reader) throws IOException {
+    List<String> ret = Collections.emptyList();
+
+    for (int i = 0; i < mHeaders; ++i) {
+      String line = reader.readLine();
+
+      if (line == null) {
+        break;
+      }
+
+      ret = Splitter.on(mDelimiter).text(TextUtils.removeExcelQuotes(line));
+    }
+
+    return ret;
+  }
+
+  /**
+   * Store a value using the parser for its column's type, widening the
+   * column if the value does not fit.
+   *
+   * @param m the m
+   * @param row the row
+   * @param column the column
+   * @param value the value
+   * @param textRows records the rows read before a column is widened to
+   *          text.
+   */
+  private void set(ColumnMatrix m,
+      int row,
+      int column,
+      String value,
+      int[] textRows) {
+    Column c = m.mColumns[column];
+
+    switch (c.getType()) {
+    case TEXT:
+      ((TextColumn) c).update(row, value);
+      return;
+    case DOUBLE:
+      if (value.isEmpty()) {
+        // Already NaN
+        return;
+      }
+
+      try {
+        ((DoubleColumn) c).mData[row] = Double.parseDouble(value);
+        return;
+      } catch (NumberFormatException e) {
+        break;
+      }
+    case INT:
+      try {
+        ((IntColumn) c).mData[row] = Integer.parseInt(value);
+        return;
+      } catch (NumberFormatException e) {
+        break;
+      }
+    case LONG:
+      try {
+        ((LongColumn) c).mData[row] = Long.parseLong(value);
+        return;
+      } catch (NumberFormatException e) {
+        break;
+      }
+    case BOOL:
+      if ("true".equalsIgnoreCase(value)) {
+        ((BoolColumn) c).mData[row] = true;
+        return;
+      } else if ("false".equalsIgnoreCase(value)) {
+        return;
+      } else {
+        break;
+      }
+    default:
+      break;
+    }
+
+    Column to = widen(m, row, column, value);
+
+    if (to.getType() == ColumnType.TEXT) {
+      textRows[column] = row;
+    }
+
+    to.update(row, value);
+  }
+
+  /**
+   * Replace a column with one that can store a value, copying the cells
+   * read so far.
+   *
+   * @param m the m
+   * @param row the number of rows read so far.
+   * @param column the column
+   * @param value the value that did not fit
+   * @return the new column
+   */
+  private Column widen(ColumnMatrix m, int row, int column, String value) {
+    Column from = m.mColumns[column];
+
+    ColumnType type = MatrixSchema.merge(from.getType(),
+        MatrixSchema.classify(value));
+
+    if (type == from.getType()) {
+      // An empty cell, which only doubles and text can represent
+      type = type == ColumnType.BOOL ? ColumnType.TEXT : ColumnType.DOUBLE;
+    }
+
+    Column to = ColumnMatrix.createColumn(type, from.size());
+
+    if (to instanceof DoubleColumn) {
+      Arrays.fill(((DoubleColumn) to).mData, Double.NaN);
+    }
+
+    boolean blanks = from.getType() == ColumnType.DOUBLE;
+
+    for (int i = 0; i < row; ++i) {
+      // Missing doubles stay empty rather than becoming "NaN"
+      if (blanks && Double.isNaN(from.getValue(i))) {
+        continue;
+      }
+
+      from.copyCell(i, to, i);
+    }
+
+    m.mColumns[column] = to;
+
+    mSchema = mSchema.widen(column, type);
+
+    WIDENED.inc();
+
+    return to;
+  }
+
+  /**
+   * Fill the cells of columns widened to text from the original tokens of
+   * the rows read before they were widened. The copied cells are formatted
+   * from their numerical values, so "1" would otherwise become "1.0".
+   *
+   * @param source the source
+   * @param m the m
+   * @param rowAnnotations the row annotations
+   * @param textRows the rows read before each column was widened to text.
+   */
+  private void reread(TextSource source,
+      ColumnMatrix m,
+      int rowAnnotations,
+      int[] textRows) throws IOException {
+    int rows = 0;
+
+    for (int r : textRows) {
+      rows = Math.max(rows, r);
+    }
+
+    if (rows == 0) {
+      return;
+    }
+
+    int dl = mDelimiter.length();
+
+    String line;
+    int row = 0;
+
+    BufferedReader reader = source.newBufferedReader();
+
+    try {
+      ReaderUtils.skipLines(reader, mHeaders);
+
+      while (row < rows && (line = reader.readLine()) != null) {
+        if (Io.isEmptyLine(line)) {
+          continue;
+        }
+
+        line = TextUtils.removeExcelQuotes(line);
+
+        int s = 0;
+        int t = 0;
+
+        while (true) {
+          int e = line.indexOf(mDelimiter, s);
+
+          int c = t - rowAnnotations;
+
+          if (c >= 0 && c < textRows.length && row < textRows[c]) {
+            ((TextColumn) m.mColumns[c]).update(row,
+                e == -1 ? line.substring(s) : line.substring(s, e));
+          }
+
+          if (e == -1) {
+            break;
+          }
+
+          s = e + dl;
+          ++t;
+        }
+
+        ++row;
+      }
+    } finally {
+      reader.close();
+    }
+  }
+}
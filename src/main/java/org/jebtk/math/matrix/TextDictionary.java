@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.jebtk.core.text.TextUtils;
+
+/**
+ * Maps strings to dense integer codes so that text heavy matrices can store
+ * one int per cell rather than one String reference. Each distinct value is
+ * stored once. Codes are assigned in the order values are first seen, so the
+ * first value interned has code 0. Null values are stored as the empty
+ * string. Methods are synchronized so that matrices sharing a dictionary,
+ * such as the annotations of a {@link DataFrameIndex}, can be updated from
+ * different threads.
+ */
+public class TextDictionary implements Iterable<String>, Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** Returned when a value is not in the dictionary. */
+  public static final int NO_CODE = -1;
+
+  /** The code for each value. */
+  private final Map<String, Integer> mCodeMap;
+
+  /** The value for each code. */
+  private final List<String> mValues;
+
+  /**
+   * Instantiates a new text dictionary.
+   */
+  public TextDictionary() {
+    this(16);
+  }
+
+  /**
+   * Instantiates a new text dictionary.
+   *
+   * @param capacity the expected number of distinct values.
+   */
+  public TextDictionary(int capacity) {
+    mCodeMap = new HashMap<String, Integer>(capacity);
+    mValues = new ArrayList<String>(capacity);
+  }
+
+  /**
+   * Return the code of a value, adding the value to the dictionary if it
+   * has not been seen before.
+   *
+   * @param v the value
+   * @return the code
+   */
+  public synchronized int intern(String v) {
+    if (v == null) {
+      v = TextUtils.EMPTY_STRING;
+    }
+
+    Integer code = mCodeMap.get(v);
+
+    if (code == null) {
+      code = mValues.size();
+
+      mValues.add(v);
+      mCodeMap.put(v, code);
+    }
+
+    return code;
+  }
+
+  /**
+   * Returns the code of a value or {@code NO_CODE} if the value is not in
+   * the dictionary. Unlike {@link #intern(String)} this never modifies the
+   * dictionary so it can be used to translate a query into a code before
+   * scanning a matrix.
+   *
+   * @param v the value
+   * @return the code
+   */
+  public synchronized int getCode(String v) {
+    if (v == null) {
+      v = TextUtils.EMPTY_STRING;
+    }
+
+    Integer code = mCodeMap.get(v);
+
+    return code != null ? code : NO_CODE;
+  }
+
+  /**
+   * Returns the value associated with a code.
+   *
+   * @param code the code
+   * @return the text
+   */
+  public synchronized String getText(int code) {
+    return mValues.get(code);
+  }
+
+  /**
+   * Returns true if the value is in the dictionary.
+   *
+   * @param v the v
+   * @return true, if successful
+   */
+  public boolean contains(String v) {
+    return getCode(v) != NO_CODE;
+  }
+
+  /**
+   * Returns the number of distinct values.
+   *
+   * @return the int
+   */
+  public synchronized int size() {
+    return mValues.size();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public synchronized Iterator<String> iterator() {
+    // Iterate over a snapshot so values can be added during iteration
+    return new ArrayList<String>(mValues).iterator();
+  }
+}
@@ -31,6 +31,7 @@ import java.util.Arrays;
 
 import org.jebtk.core.sys.SysUtils;
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.matrix.utils.Transpose;
 
 /**
  * Concrete implementation of the annotation matrix which stores n * m String
@@ -422,22 +423,21 @@ public class TextMatrix extends IndexRowMatrix {
   public static Matrix transpose(TextMatrix m) {
     TextMatrix ret = new TextMatrix(m.mDim.mCols, m.mDim.mRows);
 
-    int c = 0;
-    int i2 = 0;
-
-    for (int i = 0; i < m.mData.length; ++i) {
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
-
-      ret.mData[i2] = m.mData[i];
-
-      i2 += m.mDim.mRows;
-    }
+    Transpose.transpose(m.mData, m.mDim.mRows, m.mDim.mCols, ret.mData);
 
     return ret;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.jebtk.math.matrix.IndexRowMatrix#transposeData()
+   */
+  @Override
+  protected void transposeData() {
+    Transpose.transpose(mData, mDim.mRows);
+  }
+
   @Override
   public void toStringArray(String[] ret) {
     SysUtils.arraycopy(mData, ret);
@@ -64,7 +64,7 @@ public class TextMatrixParser extends MixedMatrixParser {
    */
   @Override
   public DataFrame createMatrix(int rows, int columns) {
-    return DataFrame.createTextMatrix(rows, columns);
+    return DataFrame.createDictionaryTextMatrix(rows, columns);
   }
 
   /*
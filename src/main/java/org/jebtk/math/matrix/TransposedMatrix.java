@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+/**
+ * A view of the transpose of another matrix. Cells are read from and
+ * written to the underlying matrix with the row and column swapped, so
+ * creating the view does not copy any data. Use it when the transpose is
+ * only needed for reading, or call {@link #copy()} to materialise it.
+ */
+public class TransposedMatrix extends RegularMatrix {
+
+  /**
+   * The constant serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /** The matrix being viewed. */
+  private final Matrix mM;
+
+  /**
+   * Instantiates a new transposed view.
+   *
+   * @param m the matrix to view.
+   */
+  public TransposedMatrix(Matrix m) {
+    super(m.getCols(), m.getRows());
+
+    mM = m;
+  }
+
+  /**
+   * Returns the matrix being viewed.
+   *
+   * @return the matrix
+   */
+  public Matrix getMatrix() {
+    return mM;
+  }
+
+  /**
+   * Returns the type of the underlying matrix.
+   */
+  @Override
+  public MatrixType getType() {
+    return mM.getType();
+  }
+
+  /**
+   * Returns the type of cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public CellType getCellType(int row, int column) {
+    return mM.getCellType(column, row);
+  }
+
+  /**
+   * Returns cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public Object get(int row, int column) {
+    return mM.get(column, row);
+  }
+
+  /**
+   * Returns the value of cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public double getValue(int row, int column) {
+    return mM.getValue(column, row);
+  }
+
+  /**
+   * Returns cell (column, row) of the underlying matrix as an int.
+   */
+  @Override
+  public int getInt(int row, int column) {
+    return mM.getInt(column, row);
+  }
+
+  /**
+   * Returns cell (column, row) of the underlying matrix as a long.
+   */
+  @Override
+  public long getLong(int row, int column) {
+    return mM.getLong(column, row);
+  }
+
+  /**
+   * Returns the text of cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public String getText(int row, int column) {
+    return mM.getText(column, row);
+  }
+
+  /**
+   * Sets cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public void update(int row, int column, double v) {
+    mM.update(column, row, v);
+  }
+
+  /**
+   * Sets cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public void update(int row, int column, int v) {
+    mM.update(column, row, v);
+  }
+
+  /**
+   * Sets cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public void update(int row, int column, long v) {
+    mM.update(column, row, v);
+  }
+
+  /**
+   * Sets cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public void update(int row, int column, String v) {
+    mM.update(column, row, v);
+  }
+
+  /**
+   * Sets cell (column, row) of the underlying matrix.
+   */
+  @Override
+  public void update(int row, int column, Object v) {
+    mM.update(column, row, v);
+  }
+
+  /**
+   * Copies a column of the underlying matrix, which is a row of the view.
+   */
+  @Override
+  public void rowToDouble(int row, double[] data) {
+    mM.columnToDouble(row, data);
+  }
+
+  /**
+   * Copies a row of the underlying matrix, which is a column of the view.
+   */
+  @Override
+  public void columnToDouble(int column, double[] ret) {
+    mM.rowToDouble(column, ret);
+  }
+
+  /**
+   * Copies the text of a column of the underlying matrix, which is a row of
+   * the view.
+   */
+  @Override
+  public void rowToText(int row, String[] data) {
+    mM.columnToText(row, data);
+  }
+
+  /**
+   * Copies the text of a row of the underlying matrix, which is a column of
+   * the view.
+   */
+  @Override
+  public void columnToText(int column, String[] ret) {
+    mM.rowToText(column, ret);
+  }
+
+  /**
+   * Returns a transposed copy of the underlying matrix.
+   */
+  @Override
+  public Matrix copy() {
+    return mM.transpose();
+  }
+
+  /**
+   * The transpose of a view is a copy of the matrix being viewed, so that,
+   * like other matrices, changes to the transpose do not affect this one.
+   * Use {@link #getMatrix()} to get the matrix itself without copying.
+   */
+  @Override
+  public Matrix transpose() {
+    return mM.copy();
+  }
+
+  /**
+   * Returns a new matrix of the same type as the underlying matrix, not a
+   * view.
+   */
+  @Override
+  public Matrix ofSameType(int rows, int cols) {
+    return mM.ofSameType(rows, cols);
+  }
+}
@@ -0,0 +1,470 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Bitmask recording which cells of a numeric matrix hold valid values, one
+ * bit per cell in the same row major order as the matrix data. Reductions
+ * can walk the set bits rather than testing every value for NaN, and the
+ * number of valid cells is a popcount over the words.
+ * 
+ * A cell is invalid if it holds NaN or if it has been explicitly excluded
+ * with {@link #exclude(int, boolean)}. Exclusions are kept separately so
+ * that recomputing the mask from the data after a bulk write does not
+ * discard them.
+ */
+public class ValidityMask implements Serializable {
+
+  /** The Constant serialVersionUID. */
+  private static final long serialVersionUID = 1L;
+
+  /** The bits, 64 cells per word. */
+  public final long[] mWords;
+
+  /** The number of cells. */
+  public final int mSize;
+
+  /**
+   * Cells explicitly marked invalid, regardless of their value, or null if
+   * there are none.
+   */
+  private long[] mExcluded = null;
+
+  /**
+   * Create a mask where all cells are valid.
+   *
+   * @param size the number of cells.
+   */
+  public ValidityMask(int size) {
+    mSize = size;
+    mWords = new long[words(size)];
+
+    setAll(true);
+  }
+
+  /**
+   * Clone a mask.
+   *
+   * @param mask the mask
+   */
+  public ValidityMask(ValidityMask mask) {
+    mSize = mask.mSize;
+    mWords = Arrays.copyOf(mask.mWords, mask.mWords.length);
+
+    if (mask.mExcluded != null) {
+      mExcluded = Arrays.copyOf(mask.mExcluded, mask.mExcluded.length);
+    }
+  }
+
+  /**
+   * Clear the unused bits of the last word so that counts are correct.
+   */
+  private void clearTail() {
+    int r = mSize & 63;
+
+    if (r != 0) {
+      mWords[mWords.length - 1] &= (1L << r) - 1;
+    }
+  }
+
+  /**
+   * Returns true if a cell is valid.
+   *
+   * @param index the index
+   * @return true, if is valid
+   */
+  public boolean isValid(int index) {
+    return (mWords[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Set whether a cell is valid. An excluded cell stays invalid.
+   *
+   * @param index the index
+   * @param valid the valid
+   */
+  public void setValid(int index, boolean valid) {
+    if (valid && !isExcluded(index)) {
+      mWords[index >>> 6] |= 1L << index;
+    } else {
+      mWords[index >>> 6] &= ~(1L << index);
+    }
+  }
+
+  /**
+   * Set whether all cells are valid. Excluded cells stay invalid.
+   *
+   * @param valid the valid
+   */
+  public void setAll(boolean valid) {
+    Arrays.fill(mWords, valid ? -1L : 0);
+
+    clearTail();
+
+    if (valid) {
+      removeExcluded();
+    }
+  }
+
+  /**
+   * Returns true if a cell has been explicitly excluded.
+   *
+   * @param index the index
+   * @return true, if is excluded
+   */
+  public boolean isExcluded(int index) {
+    return mExcluded != null
+        && (mExcluded[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Explicitly mark a cell as invalid regardless of its value, or remove the
+   * mark. Removing the mark does not make the cell valid, since it may hold
+   * NaN; the caller must update it from its value.
+   *
+   * @param index the index
+   * @param excluded true to exclude the cell.
+   */
+  public void exclude(int index, boolean excluded) {
+    if (excluded) {
+      if (mExcluded == null) {
+        mExcluded = new long[mWords.length];
+      }
+
+      mExcluded[index >>> 6] |= 1L << index;
+      mWords[index >>> 6] &= ~(1L << index);
+    } else if (mExcluded != null) {
+      mExcluded[index >>> 6] &= ~(1L << index);
+    }
+  }
+
+  /**
+   * Clear the bits of excluded cells.
+   */
+  private void removeExcluded() {
+    if (mExcluded != null) {
+      for (int w = 0; w < mWords.length; ++w) {
+        mWords[w] &= ~mExcluded[w];
+      }
+    }
+  }
+
+  /**
+   * Recompute the validity of one cell from its value.
+   *
+   * @param index the index
+   * @param v the value of the cell.
+   */
+  public void update(int index, double v) {
+    setValid(index, Matrix.isValidMatrixNum(v));
+  }
+
+  /**
+   * Recompute the mask from the data so that NaN and excluded cells are
+   * invalid. The words are rebuilt whole rather than bit by bit.
+   *
+   * @param data the data
+   */
+  public void update(double[] data) {
+    for (int w = 0; w < mWords.length; ++w) {
+      int start = w << 6;
+      int end = Math.min(start + 64, mSize);
+
+      long word = 0;
+
+      for (int i = start; i < end; ++i) {
+        if (Matrix.isValidMatrixNum(data[i])) {
+          word |= 1L << i;
+        }
+      }
+
+      if (mExcluded != null) {
+        word &= ~mExcluded[w];
+      }
+
+      mWords[w] = word;
+    }
+  }
+
+  /**
+   * Recompute the validity of n cells spaced stride apart, for example a row
+   * or a column of a matrix.
+   *
+   * @param data the data
+   * @param offset the index of the first cell
+   * @param stride the distance between cells
+   * @param n the number of cells
+   */
+  public void update(double[] data, int offset, int stride, int n) {
+    for (int i = 0; i < n; ++i) {
+      update(offset, data[offset]);
+
+      offset += stride;
+    }
+  }
+
+  /**
+   * Returns the number of valid cells.
+   *
+   * @return the int
+   */
+  public int countValid() {
+    int ret = 0;
+
+    for (long w : mWords) {
+      ret += Long.bitCount(w);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the index of the first valid cell at or after an index, or -1
+   * if there are none.
+   *
+   * @param index the index
+   * @return the int
+   */
+  public int nextValid(int index) {
+    return nextValid(index, mSize);
+  }
+
+  /**
+   * Returns the index of the first valid cell at or after an index and
+   * before end, or -1 if there are none. Only the words up to end are
+   * examined.
+   *
+   * @param index the index
+   * @param end the index after the last cell to consider.
+   * @return the int
+   */
+  public int nextValid(int index, int end) {
+    if (index >= end) {
+      return -1;
+    }
+
+    int w = index >>> 6;
+    int last = (end - 1) >>> 6;
+
+    long word = mWords[w] & (-1L << index);
+
+    while (true) {
+      if (word != 0) {
+        int ret = (w << 6) + Long.numberOfTrailingZeros(word);
+
+        return ret < end ? ret : -1;
+      }
+
+      if (++w > last) {
+        return -1;
+      }
+
+      word = mWords[w];
+    }
+  }
+
+  /**
+   * Mark as invalid any cell that is invalid in another mask.
+   *
+   * @param mask the mask
+   */
+  public void and(ValidityMask mask) {
+    for (int i = 0; i < mWords.length; ++i) {
+      mWords[i] &= mask.mWords[i];
+    }
+  }
+
+  /**
+   * Returns the mask of the transpose of a matrix.
+   *
+   * @param rows the rows of the matrix this mask belongs to.
+   * @param cols the columns of the matrix this mask belongs to.
+   * @return the validity mask
+   */
+  public ValidityMask transpose(int rows, int cols) {
+    ValidityMask ret = new ValidityMask(mSize);
+
+    ret.setAll(false);
+
+    if (mExcluded != null) {
+      ret.mExcluded = new long[mExcluded.length];
+
+      for (int i = 0; i < mSize; ++i) {
+        if (isExcluded(i)) {
+          ret.exclude((i % cols) * rows + i / cols, true);
+        }
+      }
+    }
+
+    // Only the valid cells need to be visited
+    for (int i = nextValid(0); i != -1; i = nextValid(i + 1)) {
+      ret.setValid((i % cols) * rows + i / cols, true);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Returns the mean of the valid values or NaN if there are none.
+   *
+   * @param data the data
+   * @return the double
+   */
+  public double mean(double[] data) {
+    double sum = 0;
+
+    for (int w = 0; w < mWords.length; ++w) {
+      long word = mWords[w];
+
+      while (word != 0) {
+        sum += data[(w << 6) + Long.numberOfTrailingZeros(word)];
+
+        // Clear lowest set bit
+        word &= word - 1;
+      }
+    }
+
+    int c = countValid();
+
+    return c > 0 ? sum / c : Double.NaN;
+  }
+
+  /**
+   * Returns the population standard deviation of the valid values or NaN if
+   * there are none.
+   *
+   * @param data the data
+   * @return the double
+   */
+  public double popStdDev(double[] data) {
+    double mean = mean(data);
+    double sum = 0;
+
+    for (int w = 0; w < mWords.length; ++w) {
+      long word = mWords[w];
+
+      while (word != 0) {
+        double d = data[(w << 6) + Long.numberOfTrailingZeros(word)] - mean;
+
+        sum += d * d;
+
+        word &= word - 1;
+      }
+    }
+
+    int c = countValid();
+
+    return c > 0 ? Math.sqrt(sum / c) : Double.NaN;
+  }
+
+  /**
+   * Returns the mean of the valid values of a strided slice of the data,
+   * for example a column of a row major matrix, or NaN if there are none.
+   *
+   * @param data the data
+   * @param offset the index of the first value.
+   * @param stride the distance between values.
+   * @param n the number of values.
+   * @return the double
+   */
+  public double mean(double[] data, int offset, int stride, int n) {
+    double sum = 0;
+    int c = 0;
+
+    for (int i = 0; i < n; ++i) {
+      if (isValid(offset)) {
+        sum += data[offset];
+        ++c;
+      }
+
+      offset += stride;
+    }
+
+    return c > 0 ? sum / c : Double.NaN;
+  }
+
+  /**
+   * Returns the population standard deviation of the valid values of a
+   * strided slice of the data, or NaN if there are none.
+   *
+   * @param data the data
+   * @param offset the index of the first value.
+   * @param stride the distance between values.
+   * @param n the number of values.
+   * @return the double
+   */
+  public double popStdDev(double[] data, int offset, int stride, int n) {
+    double mean = mean(data, offset, stride, n);
+    double sum = 0;
+    int c = 0;
+
+    for (int i = 0; i < n; ++i) {
+      if (isValid(offset)) {
+        double d = data[offset] - mean;
+
+        sum += d * d;
+        ++c;
+      }
+
+      offset += stride;
+    }
+
+    return c > 0 ? Math.sqrt(sum / c) : Double.NaN;
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Returns the number of words needed for a number of cells.
+   *
+   * @param size the size
+   * @return the int
+   */
+  public static int words(int size) {
+    return (size + 63) >>> 6;
+  }
+
+  /**
+   * Create a mask where a cell is valid if its value is not NaN.
+   *
+   * @param data the data
+   * @return the validity mask
+   */
+  public static ValidityMask create(double[] data) {
+    ValidityMask ret = new ValidityMask(data.length);
+
+    ret.update(data);
+
+    return ret;
+  }
+}
@@ -25,6 +25,8 @@ public class DoubleMatrixStream extends MatrixStream {
       }
     }
 
+    mDM.syncMask();
+
     mDM.fireMatrixChanged();
   }
 }
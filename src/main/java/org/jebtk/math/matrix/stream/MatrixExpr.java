@@ -0,0 +1,659 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jebtk.core.Mathematics;
+import org.jebtk.math.functions.LnFunction;
+import org.jebtk.math.functions.LogFunction;
+import org.jebtk.math.matrix.CellFunction;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.Matrix;
+
+/**
+ * A lazily evaluated chain of matrix transforms. Operations such as log2,
+ * threshold and zscore are recorded rather than run, and are only evaluated
+ * when the result is materialised with {@link #toMatrix()} or reduced with
+ * {@link #sum()}, {@link #mean()}, {@link #min()} or {@link #max()}.
+ * 
+ * Element-wise steps are fused so that a run of them costs one pass over
+ * the data with no intermediate matrices. Steps that need statistics of the
+ * values before them (zscore and scale) are barriers: the pass up to the
+ * barrier also accumulates the statistics, and the barrier is then applied
+ * at the start of the next pass, so each barrier costs one extra pass.
+ * Expressions are immutable so one expression can feed several others,
+ * forming a DAG; binary operands are evaluated once when used.
+ * 
+ * Expressions evaluate to doubles; text cells are treated as NaN. If the
+ * source is a {@link DataFrame}, the materialised result keeps its row and
+ * column annotations.
+ */
+public class MatrixExpr {
+
+  /** Stage types. */
+  private static final int CELL = 0;
+  private static final int BINARY = 1;
+  private static final int ZSCORE = 2;
+  private static final int ROW_ZSCORE = 3;
+  private static final int COL_ZSCORE = 4;
+  private static final int SCALE = 5;
+
+  /**
+   * One recorded step.
+   */
+  private static class Stage {
+    private final int mType;
+    private final CellFunction mF;
+    private final double[] mY;
+    private final MatrixExpr mOther;
+
+    public Stage(int type, CellFunction f, double[] y, MatrixExpr other) {
+      mType = type;
+      mF = f;
+      mY = y;
+      mOther = other;
+    }
+
+    public boolean isBarrier() {
+      return mType >= ZSCORE;
+    }
+  }
+
+  /**
+   * Running count, mean, variance (Welford), min and max for one or more
+   * buckets, e.g. one per row for a row zscore. Only valid numbers are
+   * counted.
+   */
+  private static class Moments {
+    private final int[] mN;
+    private final double[] mMean;
+    private final double[] mM2;
+    private final double[] mMin;
+    private final double[] mMax;
+
+    public Moments(int size) {
+      mN = new int[size];
+      mMean = new double[size];
+      mM2 = new double[size];
+      mMin = new double[size];
+      mMax = new double[size];
+
+      Arrays.fill(mMin, Double.POSITIVE_INFINITY);
+      Arrays.fill(mMax, Double.NEGATIVE_INFINITY);
+    }
+
+    public void add(int b, double v) {
+      if (!Matrix.isValidMatrixNum(v)) {
+        return;
+      }
+
+      int n = ++mN[b];
+      double d = v - mMean[b];
+
+      mMean[b] += d / n;
+      mM2[b] += d * (v - mMean[b]);
+
+      if (v < mMin[b]) {
+        mMin[b] = v;
+      }
+
+      if (v > mMax[b]) {
+        mMax[b] = v;
+      }
+    }
+
+    public double mean(int b) {
+      return mN[b] > 0 ? mMean[b] : Double.NaN;
+    }
+
+    public double min(int b) {
+      return mN[b] > 0 ? mMin[b] : Double.NaN;
+    }
+
+    public double max(int b) {
+      return mN[b] > 0 ? mMax[b] : Double.NaN;
+    }
+
+    public double popStdDev(int b) {
+      return mN[b] > 0 ? Math.sqrt(mM2[b] / mN[b]) : Double.NaN;
+    }
+  }
+
+  /** The source matrix. */
+  private final Matrix mM;
+
+  /** The recorded stages in order. */
+  private final List<Stage> mStages;
+
+  /**
+   * Instantiates a new matrix expression.
+   *
+   * @param m the m
+   * @param stages the stages
+   */
+  private MatrixExpr(Matrix m, List<Stage> stages) {
+    mM = m;
+    mStages = stages;
+  }
+
+  /**
+   * Return a new expression with a stage appended.
+   *
+   * @param stage the stage
+   * @return the matrix expr
+   */
+  private MatrixExpr then(Stage stage) {
+    List<Stage> stages = new ArrayList<Stage>(mStages.size() + 1);
+    stages.addAll(mStages);
+    stages.add(stage);
+
+    return new MatrixExpr(mM, Collections.unmodifiableList(stages));
+  }
+
+  /**
+   * Apply a cell function to every cell.
+   *
+   * @param f the f
+   * @param y extra arguments passed to the function.
+   * @return the matrix expr
+   */
+  public MatrixExpr f(CellFunction f, double... y) {
+    return then(new Stage(CELL, f, y, null));
+  }
+
+  /**
+   * Combine this expression cell by cell with another of the same shape.
+   * The function receives this expression's value as x and the other's as
+   * y[0].
+   *
+   * @param e the e
+   * @param f the f
+   * @return the matrix expr
+   * @throws IllegalArgumentException if the expressions have different
+   *           shapes.
+   */
+  public MatrixExpr f(MatrixExpr e, CellFunction f) {
+    if (e.mM.getRows() != mM.getRows() || e.mM.getCols() != mM.getCols()) {
+      throw new IllegalArgumentException("Cannot combine a " + mM.getRows()
+          + "x" + mM.getCols() + " expression with a " + e.mM.getRows() + "x"
+          + e.mM.getCols() + " expression.");
+    }
+
+    return then(new Stage(BINARY, f, null, e));
+  }
+
+  /**
+   * Add a constant to every cell.
+   *
+   * @param v the value to add.
+   * @return the matrix expr
+   */
+  public MatrixExpr add(double v) {
+    return f((r, c, x, y) -> x + v);
+  }
+
+  /**
+   * Subtract a constant from every cell.
+   *
+   * @param v the value to subtract.
+   * @return the matrix expr
+   */
+  public MatrixExpr subtract(double v) {
+    return f((r, c, x, y) -> x - v);
+  }
+
+  /**
+   * Multiply every cell by a constant.
+   *
+   * @param v the multiplier.
+   * @return the matrix expr
+   */
+  public MatrixExpr multiply(double v) {
+    return f((r, c, x, y) -> x * v);
+  }
+
+  /**
+   * Divide every cell by a constant. Dividing by 0 gives infinities, or
+   * NaN for cells that are 0.
+   *
+   * @param v the divisor.
+   * @return the matrix expr
+   */
+  public MatrixExpr divide(double v) {
+    return f((r, c, x, y) -> x / v);
+  }
+
+  /**
+   * Add another expression of the same shape cell by cell. A cell is NaN
+   * if it is NaN in either expression.
+   *
+   * @param e the expression to add.
+   * @return the matrix expr
+   * @throws IllegalArgumentException if the expressions have different
+   *           shapes.
+   */
+  public MatrixExpr add(MatrixExpr e) {
+    return f(e, (r, c, x, y) -> x + y[0]);
+  }
+
+  /**
+   * Subtract another expression of the same shape cell by cell. A cell is
+   * NaN if it is NaN in either expression.
+   *
+   * @param e the expression to subtract.
+   * @return the matrix expr
+   * @throws IllegalArgumentException if the expressions have different
+   *           shapes.
+   */
+  public MatrixExpr subtract(MatrixExpr e) {
+    return f(e, (r, c, x, y) -> x - y[0]);
+  }
+
+  /**
+   * Multiply by another expression of the same shape cell by cell. A cell
+   * is NaN if it is NaN in either expression.
+   *
+   * @param e the multiplier.
+   * @return the matrix expr
+   * @throws IllegalArgumentException if the expressions have different
+   *           shapes.
+   */
+  public MatrixExpr multiply(MatrixExpr e) {
+    return f(e, (r, c, x, y) -> x * y[0]);
+  }
+
+  /**
+   * Divide by another expression of the same shape cell by cell. A cell is
+   * NaN if it is NaN in either expression or both are 0, and infinite if
+   * only the divisor is 0.
+   *
+   * @param e the divisor.
+   * @return the matrix expr
+   * @throws IllegalArgumentException if the expressions have different
+   *           shapes.
+   */
+  public MatrixExpr divide(MatrixExpr e) {
+    return f(e, (r, c, x, y) -> x / y[0]);
+  }
+
+  /**
+   * Natural log of every cell. Negative values become NaN and 0 becomes
+   * negative infinity.
+   *
+   * @return the matrix expr
+   */
+  public MatrixExpr ln() {
+    return f(LnFunction.LN_FUNCTION);
+  }
+
+  /**
+   * Log base 2 of every cell, as {@link #log(int)}.
+   *
+   * @return the matrix expr
+   */
+  public MatrixExpr log2() {
+    return log(2);
+  }
+
+  /**
+   * Log of every cell in a given base, computed as ln(x) / ln(base), so
+   * non-positive values behave as in {@link #ln()}.
+   *
+   * @param base the base.
+   * @return the matrix expr
+   */
+  public MatrixExpr log(int base) {
+    return f(new LogFunction(base));
+  }
+
+  /**
+   * Bound values between a minimum and maximum.
+   *
+   * @param min the min
+   * @param max the max
+   * @return the matrix expr
+   */
+  public MatrixExpr threshold(double min, double max) {
+    return f((r, c, x, y) -> Math.max(min, Math.min(max, x)));
+  }
+
+  /**
+   * Zscore using the mean and population standard deviation of all valid
+   * values. Valid values become 0 if the standard deviation is 0 and
+   * invalid values stay NaN.
+   *
+   * @return the matrix expr
+   */
+  public MatrixExpr zscore() {
+    return then(new Stage(ZSCORE, null, null, null));
+  }
+
+  /**
+   * Zscore each row independently.
+   *
+   * @return the matrix expr
+   */
+  public MatrixExpr rowZscore() {
+    return then(new Stage(ROW_ZSCORE, null, null, null));
+  }
+
+  /**
+   * Zscore each column independently.
+   *
+   * @return the matrix expr
+   */
+  public MatrixExpr colZscore() {
+    return then(new Stage(COL_ZSCORE, null, null, null));
+  }
+
+  /**
+   * Scale values into the range 0 to 1 using the min and max valid values.
+   * Valid values become 0 if the min and max are equal and invalid values
+   * stay NaN.
+   *
+   * @return the matrix expr
+   */
+  public MatrixExpr scale() {
+    return then(new Stage(SCALE, null, null, null));
+  }
+
+  /**
+   * Returns the number of passes over the data evaluation will take.
+   *
+   * @return the int
+   */
+  public int getPasses() {
+    int ret = 1;
+
+    for (Stage s : mStages) {
+      if (s.isBarrier()) {
+        ++ret;
+      }
+    }
+
+    return ret;
+  }
+
+  /**
+   * Evaluate the expression into a new matrix. If the source is a data
+   * frame, the result is a data frame with the same annotations.
+   *
+   * @return the matrix
+   */
+  public Matrix toMatrix() {
+    DoubleMatrix ret = toDoubleMatrix();
+
+    if (mM instanceof DataFrame) {
+      return new DataFrame((DataFrame) mM, ret);
+    } else {
+      return ret;
+    }
+  }
+
+  /**
+   * Evaluate the expression into a new double matrix without annotations.
+   *
+   * @return the double matrix
+   */
+  public DoubleMatrix toDoubleMatrix() {
+    DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(mM.getRows(),
+        mM.getCols());
+
+    eval(ret.mData, null);
+
+    return ret;
+  }
+
+  /**
+   * Sum of the valid values of the expression. The sum is accumulated in
+   * the last pass so the result is never materialised as a matrix.
+   *
+   * @return the double
+   */
+  public double sum() {
+    Moments m = reduce();
+
+    return m.mMean[0] * m.mN[0];
+  }
+
+  /**
+   * Mean of the valid values of the expression, or NaN if there are none.
+   *
+   * @return the double
+   */
+  public double mean() {
+    return reduce().mean(0);
+  }
+
+  /**
+   * Min of the valid values of the expression, or NaN if there are none.
+   *
+   * @return the double
+   */
+  public double min() {
+    return reduce().min(0);
+  }
+
+  /**
+   * Max of the valid values of the expression, or NaN if there are none.
+   *
+   * @return the double
+   */
+  public double max() {
+    return reduce().max(0);
+  }
+
+  private Moments reduce() {
+    Moments ret = new Moments(1);
+
+    // A buffer is only needed to carry values across barriers
+    double[] buffer = getPasses() > 1 ? new double[mM.getRows() * mM.getCols()]
+        : null;
+
+    eval(buffer, ret);
+
+    return ret;
+  }
+
+  /**
+   * Run the fused passes. Each pass reads from the source matrix (first
+   * pass) or the buffer, applies the pending barrier then every element-wise
+   * stage up to the next barrier, and writes the buffer while accumulating
+   * the statistics the next barrier needs. The last pass optionally feeds
+   * the values into a reduction.
+   *
+   * @param buffer the output, may be null if there are no barriers and only
+   *          a reduction is required.
+   * @param reduction the reduction, may be null.
+   */
+  private void eval(double[] buffer, Moments reduction) {
+    int rows = mM.getRows();
+    int cols = mM.getCols();
+
+    Matrix m = mM instanceof DataFrame ? ((DataFrame) mM).getMatrix() : mM;
+
+    double[] source = m instanceof DoubleMatrix ? ((DoubleMatrix) m).mData
+        : null;
+
+    // Binary operands are evaluated once up front
+    double[][] operands = new double[mStages.size()][];
+
+    for (int s = 0; s < mStages.size(); ++s) {
+      Stage stage = mStages.get(s);
+
+      if (stage.mType == BINARY) {
+        operands[s] = stage.mOther.toDoubleMatrix().mData;
+      }
+    }
+
+    Stage barrier = null;
+    Moments stats = null;
+
+    int start = 0;
+
+    boolean first = true;
+
+    while (true) {
+      // Find the end of this run of element-wise stages
+      int end = start;
+
+      while (end < mStages.size() && !mStages.get(end).isBarrier()) {
+        ++end;
+      }
+
+      Stage next = end < mStages.size() ? mStages.get(end) : null;
+
+      Moments nextStats = null;
+
+      if (next != null) {
+        nextStats = new Moments(buckets(next, rows, cols));
+      }
+
+      double[] y = new double[1];
+
+      int i = 0;
+
+      for (int r = 0; r < rows; ++r) {
+        for (int c = 0; c < cols; ++c) {
+          double v;
+
+          if (first) {
+            v = source != null ? source[i] : m.getValue(r, c);
+          } else {
+            v = applyBarrier(barrier, stats, buffer[i], r, c);
+          }
+
+          for (int s = start; s < end; ++s) {
+            Stage stage = mStages.get(s);
+
+            if (stage.mType == BINARY) {
+              y[0] = operands[s][i];
+              v = stage.mF.f(r, c, v, y);
+            } else {
+              v = stage.mF.f(r, c, v, stage.mY);
+            }
+          }
+
+          if (buffer != null) {
+            buffer[i] = v;
+          }
+
+          if (nextStats != null) {
+            nextStats.add(bucket(next, r, c), v);
+          } else if (reduction != null) {
+            reduction.add(0, v);
+          }
+
+          ++i;
+        }
+      }
+
+      if (next == null) {
+        break;
+      }
+
+      barrier = next;
+      stats = nextStats;
+      start = end + 1;
+      first = false;
+    }
+  }
+
+  /**
+   * Apply a barrier stage to a value given the statistics of the values it
+   * was computed from. Invalid values, which includes every value of a
+   * bucket with no valid values, stay NaN.
+   */
+  private static double applyBarrier(Stage barrier,
+      Moments stats,
+      double v,
+      int r,
+      int c) {
+    if (!Matrix.isValidMatrixNum(v)) {
+      return Double.NaN;
+    }
+
+    int b = bucket(barrier, r, c);
+
+    if (barrier.mType == SCALE) {
+      double range = stats.mMax[b] - stats.mMin[b];
+
+      if (range == 0) {
+        return 0;
+      }
+
+      return Mathematics.bound((v - stats.mMin[b]) / range, 0.0, 1.0);
+    }
+
+    double sd = stats.popStdDev(b);
+
+    if (sd == 0) {
+      return 0;
+    }
+
+    return (v - stats.mMean[b]) / sd;
+  }
+
+  private static int buckets(Stage barrier, int rows, int cols) {
+    switch (barrier.mType) {
+    case ROW_ZSCORE:
+      return rows;
+    case COL_ZSCORE:
+      return cols;
+    default:
+      return 1;
+    }
+  }
+
+  private static int bucket(Stage barrier, int r, int c) {
+    switch (barrier.mType) {
+    case ROW_ZSCORE:
+      return r;
+    case COL_ZSCORE:
+      return c;
+    default:
+      return 0;
+    }
+  }
+
+  /**
+   * Start a new expression over a matrix. The matrix is not copied so it
+   * should not be modified until the expression has been evaluated.
+   *
+   * @param m the m
+   * @return the matrix expr
+   */
+  public static MatrixExpr create(Matrix m) {
+    return new MatrixExpr(m, Collections.<Stage> emptyList());
+  }
+}
@@ -52,4 +52,9 @@ public class MatrixStream
   public double apply(int index, double[] data) {
     return 0;
   }
+
+  @Override
+  public boolean isStateless() {
+    return false;
+  }
 }
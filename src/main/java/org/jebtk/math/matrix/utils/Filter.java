@@ -0,0 +1,603 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.jebtk.math.matrix.BooleanMatrix;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.Matrix;
+
+/**
+ * A predicate over primitive doubles that is evaluated a block of values at
+ * a time rather than one boxed value at a time. Each filter writes its
+ * results as packed bits, 64 values per long word, so filters can be
+ * combined with and/or/not using word operations and the result used
+ * directly as a row mask for {@link org.jebtk.math.matrix.DataFrame}.
+ * Large inputs are split into blocks that are tested in parallel.
+ */
+public abstract class Filter {
+
+  /**
+   * The number of values tested by each parallel task. This is a multiple of
+   * 64 so that tasks never write to the same word.
+   */
+  private static final int BLOCK_SIZE = 1 << 16;
+
+  /** Operators for the comparison filter. */
+  private static final int GT = 0;
+  private static final int GE = 1;
+  private static final int LT = 2;
+  private static final int LE = 3;
+  private static final int EQ = 4;
+  private static final int BETWEEN = 5;
+  private static final int FINITE = 6;
+
+  /**
+   * Compares each value against a constant.
+   */
+  private static class CompareFilter extends Filter {
+    private final int mOp;
+    private final double mV1;
+    private final double mV2;
+
+    public CompareFilter(int op, double v1, double v2) {
+      mOp = op;
+      mV1 = v1;
+      mV2 = v2;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jebtk.math.matrix.utils.Filter#test(double[], int, int,
+     * long[], int)
+     */
+    @Override
+    protected void test(final double[] values,
+        int start,
+        int end,
+        long[] words,
+        int offset) {
+      for (int i = start; i < end; i += 64) {
+        int e = Math.min(i + 64, end);
+
+        long bits = 0;
+
+        for (int j = i; j < e; ++j) {
+          double v = values[j];
+          boolean b;
+
+          switch (mOp) {
+          case GT:
+            b = v > mV1;
+            break;
+          case GE:
+            b = v >= mV1;
+            break;
+          case LT:
+            b = v < mV1;
+            break;
+          case LE:
+            b = v <= mV1;
+            break;
+          case EQ:
+            b = v == mV1;
+            break;
+          case BETWEEN:
+            b = v >= mV1 && v <= mV2;
+            break;
+          default:
+            // NaN and infinity are the only values for which this fails
+            b = v - v == 0;
+            break;
+          }
+
+          bits |= (b ? 1L : 0L) << (j - i);
+        }
+
+        words[offset++] = bits;
+      }
+    }
+  }
+
+  /**
+   * Combines filters with a logical and or or.
+   */
+  private static class LogicalFilter extends Filter {
+    private final Filter[] mFilters;
+    private final boolean mAnd;
+
+    /**
+     * Scratch words for the other filters' results, kept per thread since
+     * findRows tests one row at a time and blocks run in parallel.
+     */
+    private final ThreadLocal<long[]> mTmp = new ThreadLocal<long[]>();
+
+    public LogicalFilter(boolean and, Filter... filters) {
+      mAnd = and;
+      mFilters = filters;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jebtk.math.matrix.utils.Filter#test(double[], int, int,
+     * long[], int)
+     */
+    @Override
+    protected void test(final double[] values,
+        int start,
+        int end,
+        long[] words,
+        int offset) {
+      int n = words(end - start);
+
+      mFilters[0].test(values, start, end, words, offset);
+
+      if (mFilters.length == 1) {
+        return;
+      }
+
+      long[] tmp = mTmp.get();
+
+      if (tmp == null || tmp.length < n) {
+        tmp = new long[n];
+        mTmp.set(tmp);
+      }
+
+      for (int i = 1; i < mFilters.length; ++i) {
+        mFilters[i].test(values, start, end, tmp, 0);
+
+        if (mAnd) {
+          for (int w = 0; w < n; ++w) {
+            words[offset + w] &= tmp[w];
+          }
+        } else {
+          for (int w = 0; w < n; ++w) {
+            words[offset + w] |= tmp[w];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Negates a filter.
+   */
+  private static class NotFilter extends Filter {
+    private final Filter mFilter;
+
+    public NotFilter(Filter filter) {
+      mFilter = filter;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jebtk.math.matrix.utils.Filter#test(double[], int, int,
+     * long[], int)
+     */
+    @Override
+    protected void test(final double[] values,
+        int start,
+        int end,
+        long[] words,
+        int offset) {
+      mFilter.test(values, start, end, words, offset);
+
+      int n = words(end - start);
+
+      for (int w = 0; w < n; ++w) {
+        words[offset + w] = ~words[offset + w];
+      }
+
+      // Bits past the end must stay clear
+      int r = (end - start) & 63;
+
+      if (r != 0) {
+        words[offset + n - 1] &= (1L << r) - 1;
+      }
+    }
+  }
+
+  /**
+   * Tests blocks of values in parallel.
+   */
+  private static class FilterRecursiveAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Filter mFilter;
+    private final double[] mValues;
+    private final int mStart;
+    private final int mEnd;
+    private final long[] mWords;
+
+    public FilterRecursiveAction(Filter filter, double[] values, int start,
+        int end, long[] words) {
+      mFilter = filter;
+      mValues = values;
+      mStart = start;
+      mEnd = end;
+      mWords = words;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute() {
+      if (mEnd - mStart <= BLOCK_SIZE) {
+        mFilter.test(mValues, mStart, mEnd, mWords, mStart >>> 6);
+      } else {
+        // Split on a block boundary
+        int mid = mStart
+            + Math.max(1, (mEnd - mStart) / BLOCK_SIZE / 2) * BLOCK_SIZE;
+
+        invokeAll(
+            new FilterRecursiveAction(mFilter, mValues, mStart, mid, mWords),
+            new FilterRecursiveAction(mFilter, mValues, mid, mEnd, mWords));
+      }
+    }
+  }
+
+  /**
+   * Tests blocks of matrix rows in parallel.
+   */
+  private static class RowFilterRecursiveAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Filter mFilter;
+    private final Matrix mM;
+    private final int mMinCount;
+    private final int mStart;
+    private final int mEnd;
+    private final BooleanMatrix mRet;
+
+    public RowFilterRecursiveAction(Filter filter, Matrix m, int minCount,
+        int start, int end, BooleanMatrix ret) {
+      mFilter = filter;
+      mM = m;
+      mMinCount = minCount;
+      mStart = start;
+      mEnd = end;
+      mRet = ret;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute() {
+      if ((mEnd - mStart) * (long) mM.getCols() <= BLOCK_SIZE
+          || mEnd - mStart <= 64) {
+        mFilter.findRows(mM, mMinCount, mStart, mEnd, mRet);
+      } else {
+        // Split on a multiple of 64 rows so tasks do not share a word
+        int mid = mStart + Math.max(64, ((mEnd - mStart) / 2) & ~63);
+
+        invokeAll(
+            new RowFilterRecursiveAction(mFilter, mM, mMinCount, mStart, mid,
+                mRet),
+            new RowFilterRecursiveAction(mFilter, mM, mMinCount, mid, mEnd,
+                mRet));
+      }
+    }
+  }
+
+  /**
+   * Test values[start] to values[end - 1] and write the results as packed
+   * bits starting at words[offset], so bit k of the output corresponds to
+   * values[start + k]. Implementations must overwrite rather than combine
+   * with the existing words and must leave any bits past end clear.
+   *
+   * @param values the values
+   * @param start the start
+   * @param end the end
+   * @param words the words
+   * @param offset the offset
+   */
+  protected abstract void test(double[] values,
+      int start,
+      int end,
+      long[] words,
+      int offset);
+
+  /**
+   * Test all values writing the results as packed bits.
+   *
+   * @param values the values
+   * @param words the words
+   */
+  public void eval(final double[] values, long[] words) {
+    if (values.length <= BLOCK_SIZE) {
+      test(values, 0, values.length, words, 0);
+    } else {
+      ForkJoinPool.commonPool().invoke(
+          new FilterRecursiveAction(this, values, 0, values.length, words));
+    }
+  }
+
+  /**
+   * Returns a one column matrix that is true for each value passing the
+   * filter.
+   *
+   * @param values the values
+   * @return the boolean matrix
+   */
+  public BooleanMatrix find(final double[] values) {
+    BooleanMatrix ret = BooleanMatrix.createBooleanMatrix(values.length, 1);
+
+    eval(values, ret.mWords);
+
+    return ret;
+  }
+
+  /**
+   * Returns a matrix of the same shape as m that is true for each cell
+   * passing the filter.
+   *
+   * @param m the m
+   * @return the boolean matrix
+   */
+  public BooleanMatrix find(final DoubleMatrix m) {
+    BooleanMatrix ret = BooleanMatrix.createBooleanMatrix(m.getRows(),
+        m.getCols());
+
+    eval(m.mData, ret.mWords);
+
+    return ret;
+  }
+
+  /**
+   * Returns the indices of the values passing the filter.
+   *
+   * @param values the values
+   * @return the int[]
+   */
+  public int[] findIndices(final double[] values) {
+    return find(values).toIndices();
+  }
+
+  /**
+   * Returns a one column matrix that is true for each row of m that has at
+   * least minCount cells passing the filter. Blocks of rows are tested in
+   * parallel.
+   *
+   * @param m the m
+   * @param minCount the min count
+   * @return the boolean matrix
+   */
+  public BooleanMatrix findRows(final Matrix m, int minCount) {
+    BooleanMatrix ret = BooleanMatrix.createBooleanMatrix(m.getRows(), 1);
+
+    ForkJoinPool.commonPool().invoke(
+        new RowFilterRecursiveAction(this, m, minCount, 0, m.getRows(), ret));
+
+    return ret;
+  }
+
+  /**
+   * Test rows start to end - 1 of a matrix.
+   *
+   * @param m the m
+   * @param minCount the min count
+   * @param start the start
+   * @param end the end
+   * @param ret the ret
+   */
+  private void findRows(final Matrix m,
+      int minCount,
+      int start,
+      int end,
+      BooleanMatrix ret) {
+    int cols = m.getCols();
+
+    long[] words = new long[words(cols)];
+
+    double[] row;
+
+    if (m instanceof DoubleMatrix) {
+      row = ((DoubleMatrix) m).mData;
+    } else {
+      row = new double[cols];
+    }
+
+    for (int i = start; i < end; ++i) {
+      if (m instanceof DoubleMatrix) {
+        int offset = ((DoubleMatrix) m).mRowOffsets[i];
+
+        test(row, offset, offset + cols, words, 0);
+      } else {
+        m.rowToDouble(i, row);
+
+        test(row, 0, cols, words, 0);
+      }
+
+      int count = 0;
+
+      for (long w : words) {
+        count += Long.bitCount(w);
+      }
+
+      if (count >= minCount) {
+        ret.update(i, true);
+      }
+    }
+  }
+
+  /**
+   * Returns a filter that passes values passing both this filter and
+   * another.
+   *
+   * @param f the f
+   * @return the filter
+   */
+  public Filter and(Filter f) {
+    return and(this, f);
+  }
+
+  /**
+   * Returns a filter that passes values passing either this filter or
+   * another.
+   *
+   * @param f the f
+   * @return the filter
+   */
+  public Filter or(Filter f) {
+    return or(this, f);
+  }
+
+  /**
+   * Returns a filter that passes values failing this filter.
+   *
+   * @return the filter
+   */
+  public Filter not() {
+    return not(this);
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Returns a filter passing values greater than x.
+   *
+   * @param x the x
+   * @return the filter
+   */
+  public static Filter gt(double x) {
+    return new CompareFilter(GT, x, x);
+  }
+
+  /**
+   * Returns a filter passing values greater than or equal to x.
+   *
+   * @param x the x
+   * @return the filter
+   */
+  public static Filter ge(double x) {
+    return new CompareFilter(GE, x, x);
+  }
+
+  /**
+   * Returns a filter passing values less than x.
+   *
+   * @param x the x
+   * @return the filter
+   */
+  public static Filter lt(double x) {
+    return new CompareFilter(LT, x, x);
+  }
+
+  /**
+   * Returns a filter passing values less than or equal to x.
+   *
+   * @param x the x
+   * @return the filter
+   */
+  public static Filter le(double x) {
+    return new CompareFilter(LE, x, x);
+  }
+
+  /**
+   * Returns a filter passing values equal to x.
+   *
+   * @param x the x
+   * @return the filter
+   */
+  public static Filter eq(double x) {
+    return new CompareFilter(EQ, x, x);
+  }
+
+  /**
+   * Returns a filter passing values in the closed range min to max.
+   *
+   * @param min the min
+   * @param max the max
+   * @return the filter
+   */
+  public static Filter between(double min, double max) {
+    return new CompareFilter(BETWEEN, min, max);
+  }
+
+  /**
+   * Returns a filter passing values that are neither NaN nor infinite.
+   *
+   * @return the filter
+   */
+  public static Filter finite() {
+    return new CompareFilter(FINITE, 0, 0);
+  }
+
+  /**
+   * Returns a filter passing values that pass all of the filters.
+   *
+   * @param filters the filters
+   * @return the filter
+   */
+  public static Filter and(Filter... filters) {
+    return new LogicalFilter(true, filters);
+  }
+
+  /**
+   * Returns a filter passing values that pass any of the filters.
+   *
+   * @param filters the filters
+   * @return the filter
+   */
+  public static Filter or(Filter... filters) {
+    return new LogicalFilter(false, filters);
+  }
+
+  /**
+   * Returns a filter passing values that fail a filter.
+   *
+   * @param f the f
+   * @return the filter
+   */
+  public static Filter not(Filter f) {
+    return new NotFilter(f);
+  }
+
+  /**
+   * Returns the number of words needed to store a number of bits.
+   *
+   * @param size the size
+   * @return the int
+   */
+  private static int words(int size) {
+    return BooleanMatrix.words(size);
+  }
+}
@@ -115,7 +115,7 @@ public class MatrixArithmetic {
    * @param m the m
    */
   public static void divide(double x, Matrix m) {
-    m.apply(Matrix.DIV_FUNCTION, m);
+    m.apply(Matrix.DIV_FUNCTION, x);
   }
 
   public static void divide(int row, double x, Matrix m) {
@@ -29,9 +29,9 @@ package org.jebtk.math.matrix.utils;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -55,9 +55,9 @@ import org.jebtk.math.matrix.Matrix;
 import org.jebtk.math.matrix.MatrixDimFunction;
 import org.jebtk.math.matrix.MatrixGroup;
 import org.jebtk.math.matrix.MatrixReduceFunction;
-import org.jebtk.math.matrix.MatrixStatFunction;
 import org.jebtk.math.matrix.MixedMatrix;
 import org.jebtk.math.matrix.TextMatrix;
+import org.jebtk.math.matrix.ValidityMask;
 import org.jebtk.math.statistics.Statistics;
 import org.jebtk.math.statistics.Stats;
 import org.jebtk.math.statistics.TTest;
@@ -172,136 +172,6 @@ public class MatrixOperations {
     }
   }
 
-  /**
-   * The Class MinFunction.
-   */
-  private static class MinFunction extends MatrixStatFunction {
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.jebtk.math.matrix.StatMatrixFunction#init()
-     */
-    @Override
-    public void init() {
-      mStat = Double.MAX_VALUE;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.abh.common.math.matrix.MatrixOperations.Function#apply(double)
-     */
-    @Override
-    public double f(int row, int col, double x, double... y) {
-      if (x < mStat) {
-        mStat = x;
-      }
-
-      return -1.0;
-    }
-  }
-
-  /**
-   * The Class MaxFunction.
-   */
-  private static class MaxFunction extends MatrixStatFunction {
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.jebtk.math.matrix.StatMatrixFunction#init()
-     */
-    @Override
-    public void init() {
-      mStat = Double.MIN_VALUE;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.abh.common.math.matrix.MatrixOperations.Function#apply(double)
-     */
-    @Override
-    public double f(int row, int col, double x, double... y) {
-      if (x > mStat) {
-        mStat = x;
-      }
-
-      return -1.0;
-    }
-  }
-
-  /**
-   * The Class SumFunction sums the numerical values in a matrix.
-   */
-  private static class SumFunction extends MatrixStatFunction {
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.jebtk.math.matrix.StatMatrixFunction#init()
-     */
-    @Override
-    public void init() {
-      mStat = 0;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.jebtk.math.matrix.StatMatrixFunction#apply(int, int, double)
-     */
-    @Override
-    public double f(int row, int col, double x, double... y) {
-      if (Matrix.isValidMatrixNum(x)) {
-        mStat += x;
-      }
-
-      return -1.0;
-    }
-  }
-
-  private static class MeanFunction extends MatrixStatFunction {
-
-    private int mC;
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.jebtk.math.matrix.StatMatrixFunction#init()
-     */
-    @Override
-    public void init() {
-      mStat = 0;
-      mC = 0;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.jebtk.math.matrix.StatMatrixFunction#apply(int, int, double)
-     */
-    @Override
-    public double f(int row, int col, double x, double... y) {
-      if (Matrix.isValidMatrixNum(x)) {
-        mStat += x;
-        ++mC;
-      }
-
-      return -1;
-    }
-
-    @Override
-    public double getStat() {
-      if (mC > 0) {
-        return mStat / mC;
-      } else {
-        return Double.NaN; //Matrix.NULL_NUMBER;
-      }
-    }
-  }
-
   /**
    * The Class ThresholdFunction.
    */
@@ -367,17 +237,6 @@ public class MatrixOperations {
     }
   }
 
-  /** The min function. */
-  private static MatrixStatFunction MIN_FUNCTION = new MinFunction();
-
-  /** The max function. */
-  private static MatrixStatFunction MAX_FUNCTION = new MaxFunction();
-
-  /** The sum function. */
-  private static MatrixStatFunction SUM_FUNCTION = new SumFunction();
-
-  private static MatrixStatFunction MEAN_FUNCTION = new MeanFunction();
-
   private static MatrixReduceFunction ROW_SUM_F = new MatrixRowSumFunction();
   private static MatrixReduceFunction ROW_MEAN_F = new MatrixRowMeanFunction();
   private static MatrixReduceFunction ROW_MEDIAN_F = new MatrixRowMedianFunction();
@@ -388,25 +247,31 @@ public class MatrixOperations {
     public double apply(int index, double[] data) {
       return new Stats(data).geometricMean();
     }
+
+    @Override
+    public boolean isStateless() {
+      return true;
+    }
   }
 
   public static class MedianFactors implements MatrixDimFunction {
 
     private double[] mGeoMeans;
-    private double[] mData;
 
     public MedianFactors(double[] geoMeans) {
       mGeoMeans = geoMeans;
-      mData = new double[geoMeans.length];
     }
 
     @Override
     public void apply(int index, double[] data, double[] ret) {
-      // Col median
+      // Col median. Columns may be evaluated concurrently so each call
+      // needs its own buffer.
+
+      double[] ratios = new double[mGeoMeans.length];
 
-      MathUtils.divide(data, mGeoMeans, mData);
+      MathUtils.divide(data, mGeoMeans, ratios);
 
-      Stats stats = new Stats(mData);
+      Stats stats = new Stats(ratios);
 
       double med = stats.median();
 
@@ -416,6 +281,11 @@ public class MatrixOperations {
         ret[index] = 1;
       }
     }
+
+    @Override
+    public boolean isStateless() {
+      return true;
+    }
   }
 
   public static class RowScale implements CellFunction {
@@ -632,7 +502,7 @@ public class MatrixOperations {
    * @return the double
    */
   public static double min(final Matrix m) {
-    return m.stat(MIN_FUNCTION);
+    return m.stat(Reductions.MIN);
   }
 
   /**
@@ -642,7 +512,7 @@ public class MatrixOperations {
    * @return the double
    */
   public static double max(final Matrix m) {
-    return m.stat(MAX_FUNCTION);
+    return m.stat(Reductions.MAX);
   }
 
   /**
@@ -652,11 +522,11 @@ public class MatrixOperations {
    * @return the double
    */
   public static double sum(final Matrix m) {
-    return m.stat(SUM_FUNCTION);
+    return m.stat(Reductions.SUM);
   }
 
   public static double mean(final Matrix m) {
-    return m.stat(MEAN_FUNCTION);
+    return m.stat(Reductions.MEAN);
   }
 
   /**
@@ -821,6 +691,25 @@ public class MatrixOperations {
   public static DoubleMatrix zscore(DoubleMatrix m) {
     DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(m);
 
+    ValidityMask mask = m.getMask();
+
+    if (mask != null) {
+      // Only the valid cells contribute and are scaled; the rest stay
+      // invalid in the result
+      double mean = mask.mean(m.mData);
+      double sd = mask.popStdDev(m.mData);
+
+      Arrays.fill(ret.mData, Double.NaN);
+
+      for (int i = mask.nextValid(0); i != -1; i = mask.nextValid(i + 1)) {
+        ret.mData[i] = sd != 0 ? (m.mData[i] - mean) / sd : 0;
+      }
+
+      ret.setMask(new ValidityMask(mask));
+
+      return ret;
+    }
+
     double mean = Statistics.mean(m.mData);
     double sd = Statistics.popStdDev(m.mData);
 
@@ -1170,27 +1059,10 @@ public class MatrixOperations {
    * @return the list
    */
   public static List<Integer> maxStdev(DataFrame m, String rowAnnotation) {
+    double[] scores = RowGroups.scores(m,
+        (i, data) -> Statistics.popStdDev(data));
 
-    Map<String, Integer> maxRow = new HashMap<String, Integer>();
-    Map<String, Double> maxStd = new HashMap<String, Double>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
-
-      double std = Statistics.popStdDev(m.rowToDouble(i));
-
-      if (maxRow.containsKey(id)) {
-        if (std > maxStd.get(id)) {
-          maxStd.put(id, std);
-          maxRow.put(id, i);
-        }
-      } else {
-        maxStd.put(id, std);
-        maxRow.put(id, i);
-      }
-    }
-
-    return CollectionUtils.sort(maxRow.values());
+    return bestRows(m, rowAnnotation, scores, true);
   }
 
   /**
@@ -1285,41 +1157,20 @@ public class MatrixOperations {
   public static List<Integer> maxMean(final DataFrame m,
       final String rowAnnotation,
       Map<Integer, List<Integer>> rowToRows) {
+    double[] scores = RowGroups.scores(m,
+        (i, data) -> Statistics.mean(data));
 
-    Map<String, Integer> maxRow = new HashMap<String, Integer>();
-    Map<String, Double> maxMean = new HashMap<String, Double>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
+    RowGroups groups = new RowGroups(m, rowAnnotation);
 
-      double std = Statistics.mean(m.rowToDouble(i));
+    int[] best = groups.best(scores, true);
 
-      if (maxRow.containsKey(id)) {
-        if (std > maxMean.get(id)) {
-          maxMean.put(id, std);
-          maxRow.put(id, i);
-        }
-      } else {
-        maxMean.put(id, std);
-        maxRow.put(id, i);
-      }
+    for (int g = 0; g < best.length; ++g) {
+      rowToRows.put(best[g], CollectionUtils.toList(groups.getRows(g)));
     }
 
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
-
-      if (maxRow.containsKey(id)) {
-        int index = maxRow.get(id);
-
-        if (!rowToRows.containsKey(index)) {
-          rowToRows.put(index, new ArrayList<Integer>());
-        }
+    Arrays.sort(best);
 
-        rowToRows.get(index).add(i);
-      }
-    }
-
-    return CollectionUtils.sort(maxRow.values());
+    return CollectionUtils.toList(best);
   }
 
   /**
@@ -1343,27 +1194,10 @@ public class MatrixOperations {
    * @return the list
    */
   public static List<Integer> maxMedian(DataFrame m, String rowAnnotation) {
+    double[] scores = RowGroups.scores(m,
+        (i, data) -> Statistics.median(data));
 
-    Map<String, Integer> maxRow = new HashMap<String, Integer>();
-    Map<String, Double> maxMedian = new HashMap<String, Double>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
-
-      double std = Statistics.median(m.rowToDouble(i));
-
-      if (maxRow.containsKey(id)) {
-        if (std > maxMedian.get(id)) {
-          maxMedian.put(id, std);
-          maxRow.put(id, i);
-        }
-      } else {
-        maxMedian.put(id, std);
-        maxRow.put(id, i);
-      }
-    }
-
-    return CollectionUtils.sort(maxRow.values());
+    return bestRows(m, rowAnnotation, scores, true);
   }
 
   /**
@@ -1388,27 +1222,10 @@ public class MatrixOperations {
    * @return the list
    */
   public static List<Integer> max(DataFrame m, String rowAnnotation) {
+    double[] scores = RowGroups.scores(m,
+        (i, data) -> Mathematics.max(data));
 
-    Map<String, Integer> maxRow = new HashMap<String, Integer>();
-    Map<String, Double> maxMap = new HashMap<String, Double>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
-
-      double max = Mathematics.max(m.rowToDouble(i));
-
-      if (maxRow.containsKey(id)) {
-        if (max > maxMap.get(id)) {
-          maxMap.put(id, max);
-          maxRow.put(id, i);
-        }
-      } else {
-        maxMap.put(id, max);
-        maxRow.put(id, i);
-      }
-    }
-
-    return CollectionUtils.sort(maxRow.values());
+    return bestRows(m, rowAnnotation, scores, true);
   }
 
   /**
@@ -1444,48 +1261,33 @@ public class MatrixOperations {
       MatrixGroup g1,
       MatrixGroup g2) {
 
-    List<Integer> g11 = MatrixGroup.findColumnIndices(m, g1);
-    List<Integer> g21 = MatrixGroup.findColumnIndices(m, g2);
+    final List<Integer> g11 = MatrixGroup.findColumnIndices(m, g1);
+    final List<Integer> g21 = MatrixGroup.findColumnIndices(m, g2);
 
-    Map<String, Integer> minRow = new HashMap<String, Integer>();
-    Map<String, Double> maxP = new HashMap<String, Double>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
-
-      List<Double> p1 = new ArrayList<Double>();
+    double[] scores = RowGroups.scores(m, (i, data) -> {
+      List<Double> p1 = new ArrayList<Double>(g11.size());
 
       for (int c : g11) {
-        p1.add(m.getValue(i, c));
+        p1.add(data[c]);
       }
 
-      List<Double> p2 = new ArrayList<Double>();
+      List<Double> p2 = new ArrayList<Double>(g21.size());
 
       for (int c : g21) {
-        p2.add(m.getValue(i, c));
+        p2.add(data[c]);
       }
 
       double p = TTest.twoTailUnequalVarianceTTest(p1, p2);
 
-      // System.err.println(id + " " + p + " " + rowAnnotation);
-
       // Set strange values to zero
       if (Double.isNaN(p) || Double.isInfinite(p)) {
         p = 1;
       }
 
-      if (minRow.containsKey(id)) {
-        if (p < maxP.get(id)) {
-          maxP.put(id, p);
-          minRow.put(id, i);
-        }
-      } else {
-        maxP.put(id, p);
-        minRow.put(id, i);
-      }
-    }
+      return p;
+    });
 
-    return CollectionUtils.sort(minRow.values());
+    return bestRows(m, rowAnnotation, scores, false);
   }
 
   /**
@@ -1698,30 +1500,38 @@ public class MatrixOperations {
       String rowAnnotation,
       String valuesName) {
 
-    Map<String, Integer> maxRows = new HashMap<String, Integer>();
-    Map<String, Double> maxValueMap = new HashMap<String, Double>();
+    double[] scores = m.getIndex().getValues(valuesName);
 
-    double[] iqrList = m.getIndex().getValues(valuesName);
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
-
-      double iqr = Math.abs(iqrList[i]);
-
-      if (maxRows.containsKey(id)) {
-        if (iqr > maxValueMap.get(id)) {
-          maxValueMap.put(id, iqr);
-          maxRows.put(id, i);
-        }
-      } else {
-        maxValueMap.put(id, iqr);
-        maxRows.put(id, i);
-      }
+    for (int i = 0; i < scores.length; ++i) {
+      scores[i] = Math.abs(scores[i]);
     }
 
-    List<Integer> rows = CollectionUtils.sort(maxRows.values());
+    return DataFrame.copyRows(m,
+        new RowGroups(m, rowAnnotation).bestRows(scores, true));
+  }
 
-    return DataFrame.copyRows(m, rows);
+  /**
+   * Collapse rows with the same annotation into one row by summing their
+   * values.
+   *
+   * @param m the m
+   * @param rowAnnotation the row annotation
+   * @return the annotation matrix
+   */
+  public static DataFrame collapseSum(DataFrame m, String rowAnnotation) {
+    return new RowGroups(m, rowAnnotation).reduce(m, RowGroups.SUM);
+  }
+
+  /**
+   * Collapse rows with the same annotation into one row by averaging their
+   * values.
+   *
+   * @param m the m
+   * @param rowAnnotation the row annotation
+   * @return the annotation matrix
+   */
+  public static DataFrame collapseMean(DataFrame m, String rowAnnotation) {
+    return new RowGroups(m, rowAnnotation).reduce(m, RowGroups.MEAN);
   }
 
   /**
@@ -1746,27 +1556,29 @@ public class MatrixOperations {
    * @return the list
    */
   public static List<Integer> min(DataFrame m, String rowAnnotation) {
+    double[] scores = RowGroups.scores(m,
+        (i, data) -> Mathematics.min(data));
 
-    Map<String, Integer> minRow = new HashMap<String, Integer>();
-    Map<String, Double> minMap = new HashMap<String, Double>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      String id = m.getIndex().getText(rowAnnotation, i);
-
-      double min = Mathematics.min(m.rowToDouble(i));
-
-      if (minRow.containsKey(id)) {
-        if (min < minMap.get(id)) {
-          minMap.put(id, min);
-          minRow.put(id, i);
-        }
-      } else {
-        minMap.put(id, min);
-        minRow.put(id, i);
-      }
-    }
+    return bestRows(m, rowAnnotation, scores, false);
+  }
 
-    return CollectionUtils.sort(minRow.values());
+  /**
+   * Groups rows by the value of a row annotation and returns the row in each
+   * group with the highest (or lowest) score in ascending order.
+   *
+   * @param m the matrix.
+   * @param rowAnnotation the annotation to group on.
+   * @param scores a score for each row.
+   * @param max true to keep the row with the highest score, false for the
+   *          lowest.
+   * @return the list
+   */
+  private static List<Integer> bestRows(DataFrame m,
+      String rowAnnotation,
+      double[] scores,
+      boolean max) {
+    return CollectionUtils
+        .toList(new RowGroups(m, rowAnnotation).bestRows(scores, max));
   }
 
   /**
@@ -1859,17 +1671,7 @@ public class MatrixOperations {
       sd[i] = Statistics.popStdDev(v); // Statistics.sampleStandardDeviation(v);
     }
 
-    List<Integer> indices = new ArrayList<Integer>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      // System.err.println("filter sd " + i + " " + sd[i] + " " + min);
-
-      if (sd[i] >= min) {
-        indices.add(i);
-      }
-    }
-
-    return DataFrame.copyRows(m, indices);
+    return DataFrame.copyRows(m, Filter.ge(min).findIndices(sd));
   }
 
   /**
@@ -1892,15 +1694,7 @@ public class MatrixOperations {
       sd[i] = Statistics.mean(v); // Statistics.sampleStandardDeviation(v);
     }
 
-    List<Integer> indices = new ArrayList<Integer>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      if (sd[i] >= min) {
-        indices.add(i);
-      }
-    }
-
-    return DataFrame.copyRows(m, indices);
+    return DataFrame.copyRows(m, Filter.ge(min).findIndices(sd));
   }
 
   /**
@@ -1936,27 +1730,9 @@ public class MatrixOperations {
   public static DataFrame minExpFilter(DataFrame m,
       double minExp,
       int minSamples) {
-    List<Integer> indices = new ArrayList<Integer>();
-
-    for (int i = 0; i < m.getRows(); ++i) {
-      int sampleSum = 0;
-
-      for (int j = 0; j < m.getCols(); ++j) {
-        double v = m.getValue(i, j);
-
-        if (Mathematics.isValidNumber(v)) {
-          if (v >= minExp) {
-            ++sampleSum;
-          }
-        }
-      }
+    Filter f = Filter.and(Filter.finite(), Filter.ge(minExp));
 
-      if (sampleSum >= minSamples) {
-        indices.add(i);
-      }
-    }
-
-    return DataFrame.copyRows(m, indices);
+    return DataFrame.copyRows(m, f.findRows(m.getMatrix(), minSamples));
   }
 
   /**
@@ -1981,7 +1757,7 @@ public class MatrixOperations {
    * @return the double
    */
   public static double mean(final Matrix m, int row) {
-    return m.rowStat(MEAN_FUNCTION, row);
+    return m.rowStat(Reductions.MEAN, row);
   }
 
   /**
@@ -1992,6 +1768,10 @@ public class MatrixOperations {
    * @return the double
    */
   public static double mean(final DoubleMatrix m, int row) {
+    if (m.getMask() != null) {
+      return m.rowStat(Reductions.MEAN, row);
+    }
+
     double[] data = new double[m.mDim.mCols];
 
     System.arraycopy(m.mData, m.mRowOffsets[row], data, 0, m.mDim.mCols);
@@ -2242,7 +2022,7 @@ public class MatrixOperations {
    * @return the double
    */
   public static double sumRow(Matrix m, int row) {
-    return m.rowStat(SUM_FUNCTION, row);
+    return m.rowStat(Reductions.SUM, row);
   }
 
   public static DataFrame power(final DataFrame m, int power) {
@@ -10,4 +10,13 @@ public class MatrixRowMeanFunction implements MatrixReduceFunction {
     return new Stats(data).mean();
   }
 
+  @Override
+  public double apply(int index, double[] data, int offset, int length) {
+    return new Stats(data, offset, length).mean();
+  }
+
+  @Override
+  public boolean isStateless() {
+    return true;
+  }
 }
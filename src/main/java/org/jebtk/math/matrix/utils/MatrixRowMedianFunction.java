@@ -10,4 +10,13 @@ public class MatrixRowMedianFunction implements MatrixReduceFunction {
     return new Stats(data).median();
   }
 
+  @Override
+  public double apply(int index, double[] data, int offset, int length) {
+    return new Stats(data, offset, length).median();
+  }
+
+  @Override
+  public boolean isStateless() {
+    return true;
+  }
 }
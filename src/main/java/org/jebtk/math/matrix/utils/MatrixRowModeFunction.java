@@ -10,4 +10,13 @@ public class MatrixRowModeFunction implements MatrixReduceFunction {
     return new Stats(data).mode().get(0);
   }
 
+  @Override
+  public double apply(int index, double[] data, int offset, int length) {
+    return new Stats(data, offset, length).mode().get(0);
+  }
+
+  @Override
+  public boolean isStateless() {
+    return true;
+  }
 }
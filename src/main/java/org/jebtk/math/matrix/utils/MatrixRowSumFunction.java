@@ -10,4 +10,13 @@ public class MatrixRowSumFunction implements MatrixReduceFunction {
     return new Stats(data).sum();
   }
 
+  @Override
+  public double apply(int index, double[] data, int offset, int length) {
+    return new Stats(data, offset, length).sum();
+  }
+
+  @Override
+  public boolean isStateless() {
+    return true;
+  }
 }
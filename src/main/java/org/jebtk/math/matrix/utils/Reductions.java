@@ -0,0 +1,523 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix.utils;
+
+import java.util.stream.IntStream;
+
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.IndexRowMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.matrix.MatrixDimFunction;
+import org.jebtk.math.matrix.MatrixReduceFunction;
+import org.jebtk.math.matrix.MatrixReducer;
+import org.jebtk.math.matrix.ValidityMask;
+
+/**
+ * Parallel row, column and whole matrix reductions. Work is split into
+ * blocks of about {@code BLOCK_SIZE} cells; each block keeps its own state
+ * or scratch buffers so nothing is shared between threads, and block
+ * results are merged in order with {@link MatrixReducer#combine}. Rows of a
+ * {@link DoubleMatrix} are read in place from its backing array. Column
+ * evaluation gathers a block of columns at a time by streaming whole rows
+ * in memory order rather than striding down each column. Row and column
+ * functions only run in parallel if they declare themselves stateless;
+ * other functions are evaluated one row or column at a time.
+ * 
+ * If a matrix has a {@link ValidityMask}, reducers only see the valid cells
+ * and row and column functions see NaN in place of invalid cells.
+ */
+public class Reductions {
+
+  /**
+   * The number of cells processed by each parallel task.
+   */
+  private static final int BLOCK_SIZE = 1 << 14;
+
+  /**
+   * The number of cells buffered per task when evaluating columns.
+   */
+  private static final int COL_BUFFER_SIZE = 1 << 18;
+
+  /**
+   * The most columns gathered by one column task.
+   */
+  private static final int MAX_COL_BLOCK = 64;
+
+  /** Sums the non NaN values. */
+  public static final MatrixReducer<double[]> SUM = new MatrixReducer<double[]>() {
+    @Override
+    public double[] init() {
+      return new double[1];
+    }
+
+    @Override
+    public void add(double[] state, double x) {
+      if (Matrix.isValidMatrixNum(x)) {
+        state[0] += x;
+      }
+    }
+
+    @Override
+    public double[] combine(double[] s1, double[] s2) {
+      s1[0] += s2[0];
+
+      return s1;
+    }
+
+    @Override
+    public double result(double[] state) {
+      return state[0];
+    }
+  };
+
+  /** The mean of the non NaN values or NaN if there are none. */
+  public static final MatrixReducer<double[]> MEAN = new MatrixReducer<double[]>() {
+    @Override
+    public double[] init() {
+      return new double[2];
+    }
+
+    @Override
+    public void add(double[] state, double x) {
+      if (Matrix.isValidMatrixNum(x)) {
+        state[0] += x;
+        ++state[1];
+      }
+    }
+
+    @Override
+    public double[] combine(double[] s1, double[] s2) {
+      s1[0] += s2[0];
+      s1[1] += s2[1];
+
+      return s1;
+    }
+
+    @Override
+    public double result(double[] state) {
+      return state[1] > 0 ? state[0] / state[1] : Double.NaN;
+    }
+  };
+
+  /** The smallest non NaN value or NaN if there are none. */
+  public static final MatrixReducer<double[]> MIN = new MatrixReducer<double[]>() {
+    @Override
+    public double[] init() {
+      // The min so far and the number of values seen
+      return new double[] { Double.POSITIVE_INFINITY, 0 };
+    }
+
+    @Override
+    public void add(double[] state, double x) {
+      if (Matrix.isValidMatrixNum(x)) {
+        if (x < state[0]) {
+          state[0] = x;
+        }
+
+        ++state[1];
+      }
+    }
+
+    @Override
+    public double[] combine(double[] s1, double[] s2) {
+      if (s2[0] < s1[0]) {
+        s1[0] = s2[0];
+      }
+
+      s1[1] += s2[1];
+
+      return s1;
+    }
+
+    @Override
+    public double result(double[] state) {
+      return state[1] > 0 ? state[0] : Double.NaN;
+    }
+  };
+
+  /** The largest non NaN value or NaN if there are none. */
+  public static final MatrixReducer<double[]> MAX = new MatrixReducer<double[]>() {
+    @Override
+    public double[] init() {
+      // The max so far and the number of values seen
+      return new double[] { Double.NEGATIVE_INFINITY, 0 };
+    }
+
+    @Override
+    public void add(double[] state, double x) {
+      if (Matrix.isValidMatrixNum(x)) {
+        if (x > state[0]) {
+          state[0] = x;
+        }
+
+        ++state[1];
+      }
+    }
+
+    @Override
+    public double[] combine(double[] s1, double[] s2) {
+      if (s2[0] > s1[0]) {
+        s1[0] = s2[0];
+      }
+
+      s1[1] += s2[1];
+
+      return s1;
+    }
+
+    @Override
+    public double result(double[] state) {
+      return state[1] > 0 ? state[0] : Double.NaN;
+    }
+  };
+
+  private Reductions() {
+    // Do nothing
+  }
+
+  /**
+   * Reduce all of the cells of a matrix.
+   *
+   * @param <S> the state type
+   * @param m the m
+   * @param f the reducer
+   * @return the result
+   */
+  public static <S> double stat(final Matrix m, final MatrixReducer<S> f) {
+    S ret;
+
+    final ValidityMask mask = getMask(m);
+
+    if (m instanceof DoubleMatrix) {
+      final double[] data = ((DoubleMatrix) m).mData;
+      final int n = data.length;
+
+      ret = blocks(n, BLOCK_SIZE).mapToObj(s -> {
+        S state = f.init();
+
+        int e = Math.min(n, s + BLOCK_SIZE);
+
+        if (mask != null) {
+          for (int i = mask.nextValid(s, e); i != -1; i = mask
+              .nextValid(i + 1, e)) {
+            f.add(state, data[i]);
+          }
+        } else {
+          for (int i = s; i < e; ++i) {
+            f.add(state, data[i]);
+          }
+        }
+
+        return state;
+      }).reduce(f::combine).orElseGet(f::init);
+    } else {
+      final int rows = m.getRows();
+      final int cols = m.getCols();
+      final int block = rowsPerBlock(cols);
+
+      ret = blocks(rows, block).mapToObj(s -> {
+        S state = f.init();
+
+        int e = Math.min(rows, s + block);
+
+        for (int i = s; i < e; ++i) {
+          for (int j = 0; j < cols; ++j) {
+            if (isValid(m, mask, i, j)) {
+              f.add(state, m.getValue(i, j));
+            }
+          }
+        }
+
+        return state;
+      }).reduce(f::combine).orElseGet(f::init);
+    }
+
+    return f.result(ret);
+  }
+
+  /**
+   * Reduce the cells of a row.
+   *
+   * @param <S> the state type
+   * @param m the m
+   * @param f the reducer
+   * @param row the row
+   * @return the result
+   */
+  public static <S> double rowStat(final Matrix m,
+      final MatrixReducer<S> f,
+      int row) {
+    S state = f.init();
+
+    int cols = m.getCols();
+
+    ValidityMask mask = getMask(m);
+
+    if (m instanceof DoubleMatrix) {
+      double[] data = ((DoubleMatrix) m).mData;
+
+      int offset = row * cols;
+
+      if (mask != null) {
+        int end = offset + cols;
+
+        for (int i = mask.nextValid(offset, end); i != -1; i = mask
+            .nextValid(i + 1, end)) {
+          f.add(state, data[i]);
+        }
+      } else {
+        for (int i = 0; i < cols; ++i) {
+          f.add(state, data[offset++]);
+        }
+      }
+    } else {
+      for (int i = 0; i < cols; ++i) {
+        if (isValid(m, mask, row, i)) {
+          f.add(state, m.getValue(row, i));
+        }
+      }
+    }
+
+    return f.result(state);
+  }
+
+  /**
+   * Reduce the cells of a column.
+   *
+   * @param <S> the state type
+   * @param m the m
+   * @param f the reducer
+   * @param col the col
+   * @return the result
+   */
+  public static <S> double colStat(final Matrix m,
+      final MatrixReducer<S> f,
+      int col) {
+    S state = f.init();
+
+    int rows = m.getRows();
+
+    ValidityMask mask = getMask(m);
+
+    if (m instanceof DoubleMatrix) {
+      double[] data = ((DoubleMatrix) m).mData;
+
+      int cols = m.getCols();
+      int offset = col;
+
+      for (int i = 0; i < rows; ++i) {
+        if (mask == null || mask.isValid(offset)) {
+          f.add(state, data[offset]);
+        }
+
+        offset += cols;
+      }
+    } else {
+      for (int i = 0; i < rows; ++i) {
+        if (isValid(m, mask, i, col)) {
+          f.add(state, m.getValue(i, col));
+        }
+      }
+    }
+
+    return f.result(state);
+  }
+
+  /**
+   * Reduce each row of a matrix. Rows are evaluated in parallel if the
+   * function is {@link MatrixReduceFunction#isStateless() stateless} and
+   * in order otherwise.
+   *
+   * @param m the m
+   * @param f the row function
+   * @param ret an array with one element per row for the results.
+   */
+  public static void rowEval(final Matrix m,
+      final MatrixReduceFunction f,
+      final double[] ret) {
+    final int rows = m.getRows();
+    final int cols = m.getCols();
+    final int block = rowsPerBlock(cols);
+    final boolean parallel = f.isStateless();
+    final ValidityMask mask = getMask(m);
+
+    if (m instanceof DoubleMatrix && mask == null) {
+      final double[] data = ((DoubleMatrix) m).mData;
+
+      blocks(rows, block, parallel).forEach(s -> {
+        int e = Math.min(rows, s + block);
+
+        for (int i = s; i < e; ++i) {
+          ret[i] = f.apply(i, data, i * cols, cols);
+        }
+      });
+    } else {
+      blocks(rows, block, parallel).forEach(s -> {
+        double[] data = new double[cols];
+
+        int e = Math.min(rows, s + block);
+
+        for (int i = s; i < e; ++i) {
+          m.rowToDouble(i, data);
+
+          if (mask != null) {
+            for (int j = 0; j < cols; ++j) {
+              if (!isValid(m, mask, i, j)) {
+                data[j] = Double.NaN;
+              }
+            }
+          }
+
+          ret[i] = f.apply(i, data);
+        }
+      });
+    }
+  }
+
+  /**
+   * Evaluate a function over each column of a matrix. Blocks of adjacent
+   * columns are gathered together by reading the matrix a row at a time so
+   * that access follows the row major layout. Blocks are evaluated in
+   * parallel if the function is {@link MatrixDimFunction#isStateless()
+   * stateless} and in order otherwise.
+   *
+   * @param m the m
+   * @param f the column function
+   * @param ret passed to the function for each column.
+   */
+  public static void colEval(final Matrix m,
+      final MatrixDimFunction f,
+      final double[] ret) {
+    final int rows = m.getRows();
+    final int cols = m.getCols();
+    final int block = Math.max(1,
+        Math.min(MAX_COL_BLOCK, COL_BUFFER_SIZE / Math.max(1, rows)));
+
+    final double[] data = m instanceof DoubleMatrix
+        ? ((DoubleMatrix) m).mData
+        : null;
+
+    final ValidityMask mask = getMask(m);
+
+    blocks(cols, block, f.isStateless()).forEach(s -> {
+      int w = Math.min(cols, s + block) - s;
+
+      double[][] buffers = new double[w][rows];
+
+      for (int i = 0; i < rows; ++i) {
+        if (data != null) {
+          int offset = i * cols + s;
+
+          for (int j = 0; j < w; ++j) {
+            buffers[j][i] = mask == null || mask.isValid(offset)
+                ? data[offset]
+                : Double.NaN;
+
+            ++offset;
+          }
+        } else {
+          for (int j = 0; j < w; ++j) {
+            buffers[j][i] = isValid(m, mask, i, s + j)
+                ? m.getValue(i, s + j)
+                : Double.NaN;
+          }
+        }
+      }
+
+      for (int j = 0; j < w; ++j) {
+        f.apply(s + j, buffers[j], ret);
+      }
+    });
+  }
+
+  /**
+   * Returns the validity mask of a matrix or null if it does not have one.
+   *
+   * @param m the m
+   * @return the validity mask
+   */
+  private static ValidityMask getMask(Matrix m) {
+    return m instanceof IndexRowMatrix ? ((IndexRowMatrix) m).getMask()
+        : null;
+  }
+
+  /**
+   * Returns true if a cell is valid according to the mask of its matrix.
+   *
+   * @param m the m
+   * @param mask the mask of m or null.
+   * @param row the row
+   * @param col the col
+   * @return true, if is valid
+   */
+  private static boolean isValid(Matrix m,
+      ValidityMask mask,
+      int row,
+      int col) {
+    return mask == null
+        || mask.isValid(((IndexRowMatrix) m).getIndex(row, col));
+  }
+
+  /**
+   * Returns the number of rows in a block of about BLOCK_SIZE cells.
+   *
+   * @param cols the cols
+   * @return the int
+   */
+  private static int rowsPerBlock(int cols) {
+    return Math.max(1, BLOCK_SIZE / Math.max(1, cols));
+  }
+
+  /**
+   * Returns the start indices of blocks of items, in parallel if there is
+   * more than one block.
+   *
+   * @param n the number of items
+   * @param block the block size
+   * @return the int stream
+   */
+  private static IntStream blocks(int n, int block) {
+    return blocks(n, block, true);
+  }
+
+  /**
+   * Returns the start indices of blocks of items.
+   *
+   * @param n the number of items
+   * @param block the block size
+   * @param parallel whether the blocks may be processed in parallel when
+   *          there is more than one.
+   * @return the int stream
+   */
+  private static IntStream blocks(int n, int block, boolean parallel) {
+    IntStream ret = IntStream.range(0, (n + block - 1) / block)
+        .map(b -> b * block);
+
+    return parallel && n > block ? ret.parallel() : ret;
+  }
+}
@@ -0,0 +1,338 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.matrix.utils;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DictionaryTextMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.matrix.MatrixReduceFunction;
+
+/**
+ * Groups the rows of a matrix by the value of a row annotation. The
+ * annotation is dictionary encoded so rows are grouped in a single pass over
+ * int codes. The rows of each group are stored contiguously in one int array
+ * with an offset array marking where each group starts, so a group is
+ * visited without boxing or per group lists. Groups are numbered in the
+ * order they first appear and the rows within a group are in ascending
+ * order. Per row scores and per group reductions use
+ * {@link MatrixReduceFunction} and are run in parallel on large matrices.
+ */
+public class RowGroups {
+
+  /**
+   * Below this many items, scores and reductions run on the calling thread.
+   */
+  private static final int PARALLEL_THRESHOLD = 1024;
+
+  /** Reduces a group to the sum of its values. */
+  public static final MatrixReduceFunction SUM = new MatrixRowSumFunction();
+
+  /** Reduces a group to the mean of its values. */
+  public static final MatrixReduceFunction MEAN = new MatrixRowMeanFunction();
+
+  /** Reduces a group to the value of its first row. */
+  public static final MatrixReduceFunction FIRST = new MatrixReduceFunction() {
+    @Override
+    public double apply(int index, double[] data) {
+      return data[0];
+    }
+
+    @Override
+    public boolean isStateless() {
+      return true;
+    }
+  };
+
+  /** The group of each row. */
+  private final int[] mGroups;
+
+  /**
+   * Group g consists of mRows[mOffsets[g]] to mRows[mOffsets[g + 1] - 1].
+   */
+  private final int[] mOffsets;
+
+  /** The rows ordered by group. */
+  private final int[] mRows;
+
+  /**
+   * Instantiates a new row groups.
+   *
+   * @param m the m
+   * @param rowAnnotation the row annotation to group on.
+   * @throws IllegalArgumentException if the frame has no such annotation.
+   */
+  public RowGroups(DataFrame m, String rowAnnotation) {
+    // Check first since getAnnotation() creates missing annotations
+    if (!m.getIndex().getNames().contains(rowAnnotation)) {
+      throw new IllegalArgumentException(
+          "There is no row annotation called " + rowAnnotation + ".");
+    }
+
+    DictionaryTextMatrix ids = DictionaryTextMatrix
+        .encode(m.getIndex().getAnnotation(rowAnnotation));
+
+    int r = m.getRows();
+
+    // The dictionary may be shared with other annotations so map the codes
+    // that are actually used onto dense group ids
+    int[] codeToGroup = new int[ids.getDictionary().size()];
+    Arrays.fill(codeToGroup, -1);
+
+    mGroups = new int[r];
+
+    int groups = 0;
+
+    for (int i = 0; i < r; ++i) {
+      int code = ids.getCode(0, i);
+
+      if (codeToGroup[code] == -1) {
+        codeToGroup[code] = groups++;
+      }
+
+      mGroups[i] = codeToGroup[code];
+    }
+
+    // Counting sort of the rows by group
+    mOffsets = new int[groups + 1];
+
+    for (int g : mGroups) {
+      ++mOffsets[g + 1];
+    }
+
+    for (int g = 0; g < groups; ++g) {
+      mOffsets[g + 1] += mOffsets[g];
+    }
+
+    int[] next = Arrays.copyOf(mOffsets, groups);
+
+    mRows = new int[r];
+
+    for (int i = 0; i < r; ++i) {
+      mRows[next[mGroups[i]]++] = i;
+    }
+  }
+
+  /**
+   * Returns the number of groups.
+   *
+   * @return the int
+   */
+  public int size() {
+    return mOffsets.length - 1;
+  }
+
+  /**
+   * Returns the group a row belongs to.
+   *
+   * @param row the row
+   * @return the group
+   */
+  public int getGroup(int row) {
+    return mGroups[row];
+  }
+
+  /**
+   * Returns the number of rows in a group.
+   *
+   * @param group the group
+   * @return the int
+   */
+  public int getRowCount(int group) {
+    return mOffsets[group + 1] - mOffsets[group];
+  }
+
+  /**
+   * Returns the first row of a group.
+   *
+   * @param group the group
+   * @return the int
+   */
+  public int getFirst(int group) {
+    return mRows[mOffsets[group]];
+  }
+
+  /**
+   * Returns the rows of a group in ascending order.
+   *
+   * @param group the group
+   * @return the int[]
+   */
+  public int[] getRows(int group) {
+    return Arrays.copyOfRange(mRows, mOffsets[group], mOffsets[group + 1]);
+  }
+
+  /**
+   * Returns the row of each group with the highest (or lowest) score. Ties
+   * keep the first row of the group.
+   *
+   * @param scores a score for each row.
+   * @param max true to keep the row with the highest score, false for the
+   *          lowest.
+   * @return the best row of each group indexed by group.
+   */
+  public int[] best(final double[] scores, final boolean max) {
+    final int[] ret = new int[size()];
+
+    range(ret.length).forEach(g -> {
+      int end = mOffsets[g + 1];
+      int b = mRows[mOffsets[g]];
+
+      for (int i = mOffsets[g] + 1; i < end; ++i) {
+        int row = mRows[i];
+
+        if (max ? scores[row] > scores[b] : scores[row] < scores[b]) {
+          b = row;
+        }
+      }
+
+      ret[g] = b;
+    });
+
+    return ret;
+  }
+
+  /**
+   * Returns the best row of each group in ascending row order, i.e. the rows
+   * to keep when collapsing a matrix.
+   *
+   * @param scores the scores
+   * @param max the max
+   * @return the int[]
+   */
+  public int[] bestRows(final double[] scores, boolean max) {
+    int[] ret = best(scores, max);
+
+    Arrays.sort(ret);
+
+    return ret;
+  }
+
+  /**
+   * Reduce each column of each group to a single value, for example to sum
+   * the rows of each group. The reducer is given the column index and the
+   * values of the group's rows in that column. Row annotations are copied
+   * from the first row of each group.
+   *
+   * @param m the m
+   * @param f the reducer
+   * @return a matrix with one row per group in group order.
+   */
+  public DataFrame reduce(final DataFrame m, final MatrixReduceFunction f) {
+    final int cols = m.getCols();
+
+    final double[][] values = new double[size()][cols];
+
+    range(values.length).forEach(g -> {
+      int start = mOffsets[g];
+      double[] data = new double[mOffsets[g + 1] - start];
+
+      for (int c = 0; c < cols; ++c) {
+        for (int i = 0; i < data.length; ++i) {
+          data[i] = m.getValue(mRows[start + i], c);
+        }
+
+        values[g][c] = f.apply(c, data);
+      }
+    });
+
+    int[] first = new int[values.length];
+
+    for (int g = 0; g < first.length; ++g) {
+      first[g] = getFirst(g);
+    }
+
+    DataFrame ret = DataFrame.copyRows(m, first);
+
+    for (int g = 0; g < values.length; ++g) {
+      for (int c = 0; c < cols; ++c) {
+        ret.update(g, c, values[g][c]);
+      }
+    }
+
+    return ret;
+  }
+
+  //
+  // Static methods
+  //
+
+  /**
+   * Score each row of a matrix in parallel, e.g. with its mean or standard
+   * deviation, prior to picking the best row of each group.
+   *
+   * @param m the m
+   * @param f the row function
+   * @return the scores
+   */
+  public static double[] scores(final Matrix m, final MatrixReduceFunction f) {
+    double[] ret = new double[m.getRows()];
+
+    m.rowEval(f, ret);
+
+    return ret;
+  }
+
+  /**
+   * Convenience method to collapse a matrix by keeping the best scoring row
+   * of each group.
+   *
+   * @param m the m
+   * @param rowAnnotation the row annotation
+   * @param f the row function used to score each row.
+   * @param max the max
+   * @return the data frame
+   */
+  public static DataFrame collapse(DataFrame m,
+      String rowAnnotation,
+      MatrixReduceFunction f,
+      boolean max) {
+    int[] rows = new RowGroups(m, rowAnnotation).bestRows(scores(m, f), max);
+
+    return DataFrame.copyRows(m, rows);
+  }
+
+  /**
+   * Returns a stream over 0 to n - 1 that is parallel when n is large
+   * enough to benefit.
+   *
+   * @param n the n
+   * @return the int stream
+   */
+  private static IntStream range(int n) {
+    IntStream ret = IntStream.range(0, n);
+
+    if (n > PARALLEL_THRESHOLD) {
+      ret = ret.parallel();
+    }
+
+    return ret;
+  }
+}
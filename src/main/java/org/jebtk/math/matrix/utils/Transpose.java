@@ -16,6 +16,9 @@
 
 package org.jebtk.math.matrix.utils;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import org.jebtk.math.matrix.DataFrame;
 import org.jebtk.math.matrix.DoubleMatrix;
 import org.jebtk.math.matrix.IndexMatrix;
@@ -23,48 +26,130 @@ import org.jebtk.math.matrix.IntMatrix;
 import org.jebtk.math.matrix.LongMatrix;
 import org.jebtk.math.matrix.Matrix;
 import org.jebtk.math.matrix.MixedMatrix;
+import org.jebtk.math.matrix.TextMatrix;
 
 /**
- * The Class MatrixUtils.
+ * Transpose kernels for row major arrays. The matrix is recursively split
+ * along its longer side until a block fits in a tile small enough for both
+ * the rows being read and the rows being written to stay in cache, so no
+ * cache size needs to be tuned. Large matrices are split across threads on
+ * the common fork join pool. Square matrices can also be transposed in
+ * place.
  */
 public class Transpose {
 
   /**
-   * Instantiates a new matrix utils.
+   * Blocks with at most this many rows and columns are transposed directly.
    */
-  private Transpose() {
+  private static final int TILE = 32;
+
+  /**
+   * Blocks with more cells than this are split across threads.
+   */
+  private static final int PARALLEL_SIZE = 1 << 16;
 
+  /**
+   * Transposes the cells of a block of a row major array.
+   */
+  private interface Tile {
+
+    /**
+     * Transpose a block.
+     *
+     * @param r1 the first row.
+     * @param r2 one past the last row.
+     * @param c1 the first column.
+     * @param c2 one past the last column.
+     */
+    void transpose(int r1, int r2, int c1, int c2);
   }
 
   /**
-   * Transpose.
-   *
-   * @param m the m
-   * @return the matrix
+   * Splits a block in two until it is small enough to be processed on one
+   * thread. Diagonal blocks of an in place transpose are split into two
+   * diagonal blocks and the off diagonal block between them since the
+   * three touch disjoint pairs of cells.
    */
-  public Matrix transpose(final DataFrame m) {
-    // Transpose the main matrix
-    Matrix innerM = transpose(m.getMatrix());
+  private static class TransposeRecursiveAction extends RecursiveAction {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    private final Tile mTile;
+
+    private final int mR1;
 
-    DataFrame ret = new DataFrame(innerM);
+    private final int mR2;
 
-    // The first name is the row-name, which must be swapped for the
-    // column name so we only copy the annotation for names(1, end)
-    // verbatim. The same is true for the columns
-    // ret.setColumnNames(getRowNames());
-    // ret.setRowNames(getColumnNames());
+    private final int mC1;
 
-    for (String name : m.getIndex().getNames()) { // CollectionUtils.tail(getIndex().getNames()))
-                                                    // {
-      ret.getColumnHeader().setAnnotation(name, m.getIndex().getAnnotation(name));
+    private final int mC2;
+
+    private final boolean mDiagonal;
+
+    public TransposeRecursiveAction(Tile tile, int r1, int r2, int c1,
+        int c2, boolean diagonal) {
+      mTile = tile;
+      mR1 = r1;
+      mR2 = r2;
+      mC1 = c1;
+      mC2 = c2;
+      mDiagonal = diagonal;
     }
 
-    for (String name : m.getColumnHeader().getNames()) { // CollectionUtils.tail(getColumns().getNames()))
-                                                       // {
-      ret.getIndex().setAnnotation(name, m.getColumnHeader().getAnnotation(name));
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute() {
+      int rows = mR2 - mR1;
+      int cols = mC2 - mC1;
+
+      if ((long) rows * cols <= PARALLEL_SIZE) {
+        if (mDiagonal) {
+          diagonal(mTile, mR1, mR2);
+        } else {
+          block(mTile, mR1, mR2, mC1, mC2);
+        }
+      } else if (mDiagonal) {
+        int m = mR1 + rows / 2;
+
+        invokeAll(new TransposeRecursiveAction(mTile, mR1, m, mR1, m, true),
+            new TransposeRecursiveAction(mTile, m, mR2, m, mR2, true),
+            new TransposeRecursiveAction(mTile, mR1, m, m, mR2, false));
+      } else if (rows >= cols) {
+        int m = mR1 + rows / 2;
+
+        invokeAll(
+            new TransposeRecursiveAction(mTile, mR1, m, mC1, mC2, false),
+            new TransposeRecursiveAction(mTile, m, mR2, mC1, mC2, false));
+      } else {
+        int m = mC1 + cols / 2;
+
+        invokeAll(
+            new TransposeRecursiveAction(mTile, mR1, mR2, mC1, m, false),
+            new TransposeRecursiveAction(mTile, mR1, mR2, m, mC2, false));
+      }
     }
+  }
 
-    return ret;
+  /**
+   * Instantiates a new matrix utils.
+   */
+  private Transpose() {
+
+  }
+
+  /**
+   * Transpose.
+   *
+   * @param m the m
+   * @return the matrix
+   */
+  public static Matrix transpose(final DataFrame m) {
+    return m.transpose();
   }
 
   /**
@@ -73,7 +158,7 @@ public class Transpose {
    * @param m the m
    * @return the matrix
    */
-  public Matrix transpose(final Matrix m) {
+  public static Matrix transpose(final Matrix m) {
     if (m instanceof DoubleMatrix) {
       return transpose((DoubleMatrix) m);
     } else if (m instanceof IntMatrix) {
@@ -81,47 +166,49 @@ public class Transpose {
     } else if (m instanceof IndexMatrix) {
       return transpose((IndexMatrix) m);
     } else {
-      MixedMatrix ret = MixedMatrix.createMixedMatrix(m.getCols(), m.getRows());
-
-      // Swap row and column indices. We use index lookup to reduce
-      // the number of number of times indices must be looked up to
-      // set cell elements.
-
-      for (int i = 0; i < m.getRows(); ++i) {
-        for (int j = 0; j < m.getCols(); ++j) {
-          ret.set(j, i, m.get(i, j));
-        }
-      }
-
-      return ret;
+      return m.transpose();
     }
   }
 
   /**
-   * Transpose.
+   * Transpose. Each dense matrix type transposes its own backing array so
+   * the type of the matrix is preserved and cells are not boxed.
    *
    * @param m the m
    * @return the matrix
    */
   public static Matrix transpose(final IndexMatrix m) {
-    MixedMatrix ret = MixedMatrix.createMixedMatrix(m.mDim.mCols, m.mDim.mRows);
-
-    int i2 = 0;
-    int c = 0;
-
-    for (int i = 0; i < m.size(); ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
+    return m.transpose();
+  }
 
-      ret.set(i2, m.get(i));
+  /**
+   * Transpose.
+   *
+   * @param m the m
+   * @return the matrix
+   */
+  public static Matrix transpose(final DoubleMatrix m) {
+    return DoubleMatrix.transpose(m);
+  }
 
-      // Skip blocks
-      i2 += m.mDim.mRows;
-    }
+  /**
+   * Transpose.
+   *
+   * @param m the m
+   * @return the matrix
+   */
+  public static Matrix transpose(final IntMatrix m) {
+    return IntMatrix.transpose(m);
+  }
 
-    return ret;
+  /**
+   * Transpose.
+   *
+   * @param m the m
+   * @return the matrix
+   */
+  public static Matrix transpose(final LongMatrix m) {
+    return LongMatrix.transpose(m);
   }
 
   /**
@@ -130,73 +217,282 @@ public class Transpose {
    * @param m the m
    * @return the matrix
    */
-  public static Matrix transpose(final DoubleMatrix m) {
-    DoubleMatrix ret = DoubleMatrix.createDoubleMatrix(m.mDim.mCols,
-        m.mDim.mRows);
+  public static Matrix transpose(final TextMatrix m) {
+    return TextMatrix.transpose(m);
+  }
 
-    int i2 = 0;
-    int c = 0;
+  /**
+   * Transpose.
+   *
+   * @param m the m
+   * @return the matrix
+   */
+  public static Matrix transpose(final MixedMatrix m) {
+    return MixedMatrix.transpose(m);
+  }
 
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
+  /**
+   * Transpose a row major array into another array.
+   *
+   * @param data the cells of a rows x cols matrix.
+   * @param rows the rows
+   * @param cols the cols
+   * @param ret the array to write the cols x rows transpose to.
+   */
+  public static void transpose(final double[] data,
+      final int rows,
+      final int cols,
+      final double[] ret) {
+    run((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        int offset = i * cols;
+
+        for (int j = c1; j < c2; ++j) {
+          ret[j * rows + i] = data[offset + j];
+        }
       }
+    }, rows, cols);
+  }
 
-      ret.mData[i2] = m.mData[i];
+  /**
+   * Transpose a row major array of ints into another array.
+   *
+   * @param data the cells of a rows x cols matrix.
+   * @param rows the rows
+   * @param cols the cols
+   * @param ret the array to write the cols x rows transpose to.
+   * @see #transpose(double[], int, int, double[])
+   */
+  public static void transpose(final int[] data,
+      final int rows,
+      final int cols,
+      final int[] ret) {
+    run((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        int offset = i * cols;
+
+        for (int j = c1; j < c2; ++j) {
+          ret[j * rows + i] = data[offset + j];
+        }
+      }
+    }, rows, cols);
+  }
 
-      // Skip blocks
-      i2 += m.mDim.mRows;
-    }
+  /**
+   * Transpose a row major array of longs into another array.
+   *
+   * @param data the cells of a rows x cols matrix.
+   * @param rows the rows
+   * @param cols the cols
+   * @param ret the array to write the cols x rows transpose to.
+   * @see #transpose(double[], int, int, double[])
+   */
+  public static void transpose(final long[] data,
+      final int rows,
+      final int cols,
+      final long[] ret) {
+    run((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        int offset = i * cols;
+
+        for (int j = c1; j < c2; ++j) {
+          ret[j * rows + i] = data[offset + j];
+        }
+      }
+    }, rows, cols);
+  }
 
-    return ret;
+  /**
+   * Transpose a row major array of objects, such as text or mixed cells,
+   * into another array.
+   *
+   * @param data the cells of a rows x cols matrix.
+   * @param rows the rows
+   * @param cols the cols
+   * @param ret the array to write the cols x rows transpose to.
+   * @see #transpose(double[], int, int, double[])
+   */
+  public static void transpose(final Object[] data,
+      final int rows,
+      final int cols,
+      final Object[] ret) {
+    run((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        int offset = i * cols;
+
+        for (int j = c1; j < c2; ++j) {
+          ret[j * rows + i] = data[offset + j];
+        }
+      }
+    }, rows, cols);
   }
 
   /**
-   * Transpose.
+   * Transpose a square row major array in place.
    *
-   * @param m the m
-   * @return the matrix
+   * @param data the cells of an n x n matrix.
+   * @param n the number of rows and columns.
    */
-  public static Matrix transpose(final IntMatrix m) {
-    IntMatrix ret = IntMatrix.createIntMatrix(m.mDim.mCols, m.mDim.mRows);
+  public static void transpose(final double[] data, final int n) {
+    runSquare((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        for (int j = Math.max(c1, i + 1); j < c2; ++j) {
+          int i1 = i * n + j;
+          int i2 = j * n + i;
+
+          double t = data[i1];
+          data[i1] = data[i2];
+          data[i2] = t;
+        }
+      }
+    }, n);
+  }
 
-    int i2 = 0;
-    int c = 0;
+  /**
+   * Transpose a square row major array of ints in place.
+   *
+   * @param data the cells of an n x n matrix.
+   * @param n the number of rows and columns.
+   * @see #transpose(double[], int)
+   */
+  public static void transpose(final int[] data, final int n) {
+    runSquare((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        for (int j = Math.max(c1, i + 1); j < c2; ++j) {
+          int i1 = i * n + j;
+          int i2 = j * n + i;
+
+          int t = data[i1];
+          data[i1] = data[i2];
+          data[i2] = t;
+        }
+      }
+    }, n);
+  }
 
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
+  /**
+   * Transpose a square row major array of longs in place.
+   *
+   * @param data the cells of an n x n matrix.
+   * @param n the number of rows and columns.
+   * @see #transpose(double[], int)
+   */
+  public static void transpose(final long[] data, final int n) {
+    runSquare((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        for (int j = Math.max(c1, i + 1); j < c2; ++j) {
+          int i1 = i * n + j;
+          int i2 = j * n + i;
+
+          long t = data[i1];
+          data[i1] = data[i2];
+          data[i2] = t;
+        }
       }
+    }, n);
+  }
 
-      ret.mData[i2] = m.mData[i];
+  /**
+   * Transpose a square row major array of objects in place.
+   *
+   * @param data the cells of an n x n matrix.
+   * @param n the number of rows and columns.
+   * @see #transpose(double[], int)
+   */
+  public static void transpose(final Object[] data, final int n) {
+    runSquare((r1, r2, c1, c2) -> {
+      for (int i = r1; i < r2; ++i) {
+        for (int j = Math.max(c1, i + 1); j < c2; ++j) {
+          int i1 = i * n + j;
+          int i2 = j * n + i;
+
+          Object t = data[i1];
+          data[i1] = data[i2];
+          data[i2] = t;
+        }
+      }
+    }, n);
+  }
 
-      // Skip blocks
-      i2 += m.mDim.mRows;
+  /**
+   * Transpose a rows x cols matrix, in parallel if it is large.
+   *
+   * @param tile the tile
+   * @param rows the rows
+   * @param cols the cols
+   */
+  private static void run(Tile tile, int rows, int cols) {
+    if ((long) rows * cols > PARALLEL_SIZE) {
+      ForkJoinPool.commonPool().invoke(
+          new TransposeRecursiveAction(tile, 0, rows, 0, cols, false));
+    } else {
+      block(tile, 0, rows, 0, cols);
     }
-
-    return ret;
   }
 
-  public static Matrix transpose(final LongMatrix m) {
-    LongMatrix ret = LongMatrix.createLongMatrix(m.mDim.mCols, m.mDim.mRows);
+  /**
+   * Transpose an n x n matrix in place, in parallel if it is large.
+   *
+   * @param tile the tile
+   * @param n the n
+   */
+  private static void runSquare(Tile tile, int n) {
+    if ((long) n * n > PARALLEL_SIZE) {
+      ForkJoinPool.commonPool()
+          .invoke(new TransposeRecursiveAction(tile, 0, n, 0, n, true));
+    } else {
+      diagonal(tile, 0, n);
+    }
+  }
 
-    int i2 = 0;
-    int c = 0;
+  /**
+   * Recursively halve the longer side of a block until it is a tile.
+   *
+   * @param tile the tile
+   * @param r1 the r 1
+   * @param r2 the r 2
+   * @param c1 the c 1
+   * @param c2 the c 2
+   */
+  private static void block(Tile tile, int r1, int r2, int c1, int c2) {
+    int rows = r2 - r1;
+    int cols = c2 - c1;
 
-    for (int i = 0; i < m.mData.length; ++i) {
-      // Each time we end a row, reset i2 back to the next column
-      if (i % m.mDim.mCols == 0) {
-        i2 = c++;
-      }
+    if (rows <= TILE && cols <= TILE) {
+      tile.transpose(r1, r2, c1, c2);
+    } else if (rows >= cols) {
+      int m = r1 + rows / 2;
 
-      ret.mData[i2] = m.mData[i];
+      block(tile, r1, m, c1, c2);
+      block(tile, m, r2, c1, c2);
+    } else {
+      int m = c1 + cols / 2;
 
-      // Skip blocks
-      i2 += m.mDim.mRows;
+      block(tile, r1, r2, c1, m);
+      block(tile, r1, r2, m, c2);
     }
+  }
 
-    return ret;
+  /**
+   * Recursively split a block on the diagonal of a square matrix into two
+   * smaller diagonal blocks and the block above the diagonal between them.
+   * Only cells above the diagonal are swapped with their mirror.
+   *
+   * @param tile the tile
+   * @param r1 the first row and column of the block.
+   * @param r2 one past the last row and column of the block.
+   */
+  private static void diagonal(Tile tile, int r1, int r2) {
+    int n = r2 - r1;
+
+    if (n <= TILE) {
+      tile.transpose(r1, r2, r1, r2);
+    } else {
+      int m = r1 + n / 2;
+
+      diagonal(tile, r1, m);
+      diagonal(tile, m, r2);
+      block(tile, r1, m, m, r2);
+    }
   }
 }
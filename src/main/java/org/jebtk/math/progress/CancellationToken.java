@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.progress;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lets one thread ask an operation running on another thread to stop. Long
+ * running operations check the token between blocks of work and throw a
+ * {@link CancellationException} once it has been cancelled, so the thread
+ * is freed without waiting for the operation to finish.
+ */
+public class CancellationToken {
+
+  /** Whether the operation has been cancelled. */
+  private volatile boolean mCancelled = false;
+
+  /**
+   * Request that the operation stops.
+   */
+  public void cancel() {
+    mCancelled = true;
+  }
+
+  /**
+   * Returns true if the operation has been cancelled.
+   *
+   * @return true, if is cancelled
+   */
+  public boolean isCancelled() {
+    return mCancelled;
+  }
+
+  /**
+   * Throws a {@link CancellationException} if the operation has been
+   * cancelled.
+   */
+  public void check() {
+    if (mCancelled) {
+      throw new CancellationException("The operation was cancelled.");
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2016, Antony Holmes
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. Neither the name of copyright holder nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software 
+ *     without specific prior written permission. 
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.jebtk.math.progress;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Passed to long running operations such as clustering, tree building and
+ * parsing so they can report how far they have got and be cancelled. Each
+ * update first checks the cancellation token, so an operation that reports
+ * progress at block granularity also stops at block granularity. Use
+ * {@link #NONE} when neither is needed.
+ */
+public class Progress {
+
+  /** Reports nothing and is never cancelled. */
+  public static final Progress NONE = new Progress(null, null);
+
+  /** The listener or null. */
+  private final ProgressListener mListener;
+
+  /** The token or null. */
+  private final CancellationToken mToken;
+
+  /**
+   * Instantiates a new progress.
+   *
+   * @param listener the listener
+   */
+  public Progress(ProgressListener listener) {
+    this(listener, null);
+  }
+
+  /**
+   * Instantiates a new progress.
+   *
+   * @param token the token
+   */
+  public Progress(CancellationToken token) {
+    this(null, token);
+  }
+
+  /**
+   * Instantiates a new progress.
+   *
+   * @param listener the listener or null.
+   * @param token the token or null.
+   */
+  public Progress(ProgressListener listener, CancellationToken token) {
+    mListener = listener;
+    mToken = token;
+  }
+
+  /**
+   * Report progress.
+   *
+   * @param phase the phase
+   * @param fraction the fraction of the phase complete.
+   * @throws CancellationException if the operation has been cancelled.
+   */
+  public void update(String phase, double fraction) {
+    check();
+
+    if (mListener != null) {
+      mListener.progress(phase, fraction);
+    }
+  }
+
+  /**
+   * Report progress as a number of steps completed.
+   *
+   * @param phase the phase
+   * @param done the number of steps completed.
+   * @param total the total number of steps.
+   * @throws CancellationException if the operation has been cancelled.
+   */
+  public void update(String phase, long done, long total) {
+    update(phase, total > 0 ? Math.min(1.0, (double) done / total) : 1.0);
+  }
+
+  /**
+   * Throws a {@link CancellationException} if the operation has been
+   * cancelled.
+   */
+  public void check() {
+    if (mToken != null) {
+      mToken.check();
+    }
+  }
+
+  /**
+   * Returns true if the operation has been cancelled.
+   *
+   * @return true, if is cancelled
+   */
+  public boolean isCancelled() {
+    return mToken != null && mToken.isCancelled();
+  }
+}
@@ -31,6 +31,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.jebtk.core.text.TextUtils;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
 
 /**
  * Fast implementation of the hypergeometric function using the sum of logs.
@@ -40,6 +42,14 @@ import org.jebtk.core.text.TextUtils;
  */
 public class Binomial {
 
+  /** Counts log binomials found in the cache. */
+  private static final Counter CACHE_HITS = Instrumentation.getInstance()
+      .counter("binomial.cache.hits");
+
+  /** Counts log binomials that had to be calculated. */
+  private static final Counter CACHE_MISSES = Instrumentation.getInstance()
+      .counter("binomial.cache.misses");
+
   /**
    * The member cached factorial.
    */
@@ -172,9 +182,13 @@ public class Binomial {
     Double ret = mCachedLogBinomial.get(key);
 
     if (ret != null) {
+      CACHE_HITS.inc();
+
       return ret;
     }
 
+    CACHE_MISSES.inc();
+
     double binomial = logFactorial(n) - logFactorial(k) - logFactorial(n - k);
 
     mCachedLogBinomial.put(key, binomial);
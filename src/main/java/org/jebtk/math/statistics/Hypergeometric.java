@@ -31,6 +31,8 @@ import java.util.Map;
 
 import org.apache.commons.math3.distribution.HypergeometricDistribution;
 import org.jebtk.core.AgeMap;
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
 
 /**
  * Fast implementation of the hypergeometric function using the sum of logs.
@@ -40,6 +42,14 @@ import org.jebtk.core.AgeMap;
  */
 public class Hypergeometric {
 
+  /** Counts lookups found in a cache. */
+  private static final Counter CACHE_HITS = Instrumentation.getInstance()
+      .counter("hypergeometric.cache.hits");
+
+  /** Counts lookups that had to be calculated. */
+  private static final Counter CACHE_MISSES = Instrumentation.getInstance()
+      .counter("hypergeometric.cache.misses");
+
   /**
    * The member cached pdf.
    */
@@ -99,8 +109,12 @@ public class Hypergeometric {
         populationSize);
 
     if (cache.containsKey(key)) {
+      CACHE_HITS.inc();
+
       return cache.get(key);
     } else {
+      CACHE_MISSES.inc();
+
       return -1;
     }
   }
@@ -1212,7 +1212,6 @@ public class Statistics {
       double v = item.getValue();
 
       if (Mathematics.isInvalidNumber(v) || v > max) {
-        System.err.println("in " + v + " " + item.getIndex());
         continue;
       }
 
@@ -1543,15 +1542,11 @@ public class Statistics {
     int e = end / binSize;
     int l = e - s + 1;
 
-    System.err.println(start + " " + end + " " + s + " " + e + " " + l);
-
     Map<Integer, Integer> map = DefaultTreeMap.create(0);
 
     for (int rs : values) {
       int bin = (rs - start) / binSize;
 
-      System.err.println(rs + " " + (rs - start) + " " + bin);
-
       if (bin >= 0) {
         map.put(bin, map.get(bin) + 1);
       }
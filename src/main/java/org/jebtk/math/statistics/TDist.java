@@ -123,9 +123,6 @@ public class TDist {
 
     double t = (Statistics.mean(values1) - Statistics.mean(values2)) / sx1x2;
 
-    System.err.println("sx " + sx1x2 + " " + t + " "
-        + (Statistics.mean(values1) - Statistics.mean(values2)));
-
     return t;
   }
 
@@ -166,8 +163,6 @@ public class TDist {
 
     double v = df(values1, values2); // 2 * n - 1;
 
-    System.err.println("v" + v);
-
     return twoTailTDist(t, v);
   }
 
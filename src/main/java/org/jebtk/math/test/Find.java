@@ -18,8 +18,13 @@ package org.jebtk.math.test;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jebtk.core.collections.CollectionUtils;
+import org.jebtk.math.matrix.utils.Filter;
+
 /**
- * The class Find.
+ * The class Find. The list based methods are kept for compatibility and are
+ * implemented using {@link Filter}, which should be preferred for new code
+ * since it works on primitive arrays and can combine conditions.
  */
 public class Find {
 
@@ -38,7 +43,19 @@ public class Find {
    * @return the list
    */
   public static List<Integer> lt(List<Double> values, double x) {
-    return find(values, new LessThanCondition(x));
+    return CollectionUtils
+        .toList(lt(CollectionUtils.toDoublePrimitive(values), x));
+  }
+
+  /**
+   * Finds the indices of values less than x.
+   *
+   * @param values the values
+   * @param x the x
+   * @return the int[]
+   */
+  public static int[] lt(double[] values, double x) {
+    return Filter.lt(x).findIndices(values);
   }
 
   /**
@@ -49,7 +66,19 @@ public class Find {
    * @return the list
    */
   public static List<Integer> ge(List<Double> values, double x) {
-    return find(values, new GreaterThanEqualToCondition(x));
+    return CollectionUtils
+        .toList(ge(CollectionUtils.toDoublePrimitive(values), x));
+  }
+
+  /**
+   * Finds the indices of values greater than or equal to x.
+   *
+   * @param values the values
+   * @param x the x
+   * @return the int[]
+   */
+  public static int[] ge(double[] values, double x) {
+    return Filter.ge(x).findIndices(values);
   }
 
   /**
@@ -58,7 +87,10 @@ public class Find {
    * @param values the values
    * @param condition the condition
    * @return the list
+   * @deprecated use {@link Filter#findIndices(double[])} which avoids
+   *             boxing and a virtual call per value.
    */
+  @Deprecated
   public static List<Integer> find(List<Double> values, Condition condition) {
     List<Integer> indices = new ArrayList<Integer>();
 
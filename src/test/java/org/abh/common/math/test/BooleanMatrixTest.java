@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.util.Random;
+
+import org.jebtk.math.matrix.BooleanMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class BooleanMatrixTest.
+ */
+public class BooleanMatrixTest {
+
+  /**
+   * Create a random matrix that spans more than one word.
+   *
+   * @param rows the rows
+   * @param cols the cols
+   * @param seed the seed
+   * @return the boolean matrix
+   */
+  private static BooleanMatrix random(int rows, int cols, long seed) {
+    Random random = new Random(seed);
+
+    BooleanMatrix m = new BooleanMatrix(rows, cols);
+
+    for (int i = 0; i < m.size(); ++i) {
+      m.update(i, random.nextBoolean());
+    }
+
+    return m;
+  }
+
+  @Test
+  public void logicalTest() {
+    BooleanMatrix a = random(3, 30, 1);
+    BooleanMatrix b = random(3, 30, 2);
+
+    BooleanMatrix and = a.and(b);
+    BooleanMatrix or = a.or(b);
+    BooleanMatrix xor = a.xor(b);
+    BooleanMatrix not = a.not();
+
+    int count = 0;
+
+    for (int i = 0; i < a.size(); ++i) {
+      Assert.assertEquals("and", a.getBool(i) && b.getBool(i),
+          and.getBool(i));
+      Assert.assertEquals("or", a.getBool(i) || b.getBool(i),
+          or.getBool(i));
+      Assert.assertEquals("xor", a.getBool(i) ^ b.getBool(i),
+          xor.getBool(i));
+      Assert.assertEquals("not", !a.getBool(i), not.getBool(i));
+
+      if (!a.getBool(i)) {
+        ++count;
+      }
+    }
+
+    // Bits past the last cell must stay clear
+    Assert.assertEquals("not count", count, not.count());
+    Assert.assertEquals("operands unchanged", random(3, 30, 1).count(),
+        a.count());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void smallerTest() {
+    random(3, 30, 1).and(random(2, 30, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void largerTest() {
+    random(3, 30, 1).or(random(4, 30, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void sameWordsTest() {
+    // Both fit in two words
+    random(3, 30, 1).xor(random(30, 3, 2));
+  }
+}
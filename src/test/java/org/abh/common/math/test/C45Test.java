@@ -0,0 +1,143 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jebtk.math.machine.learning.C45;
+import org.jebtk.math.machine.learning.Decision;
+import org.jebtk.math.machine.learning.DecisionTree;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class C45Test.
+ */
+public class C45Test {
+
+  /** Columns starting a are class A and those starting b class B. */
+  private static final List<MatrixGroup> GROUPS = Arrays.asList(
+      MatrixGroup.create("A", "a.*", Color.RED),
+      MatrixGroup.create("B", "b.*", Color.BLUE));
+
+  /**
+   * Create a frame whose rows are the attributes x and y.
+   *
+   * @param names the column names
+   * @param x the x values
+   * @param y the y values
+   * @return the data frame
+   */
+  private static DataFrame create(String[] names, double[] x, double[] y) {
+    DataFrame m = new DataFrame(
+        DoubleMatrix.createDoubleMatrix(2, names.length));
+
+    for (int i = 0; i < names.length; ++i) {
+      m.update(0, i, x[i]);
+      m.update(1, i, y[i]);
+    }
+
+    m.setRowNames("x", "y");
+    m.setColumnNames(names);
+
+    return m;
+  }
+
+  @Test
+  public void separableTest() {
+    DataFrame m = create(new String[] { "b1", "a1", "b2", "a2" },
+        new double[] { 10, 1, 12, 3 },
+        new double[] { 5, 5, 5, 5 });
+
+    DecisionTree tree = C45.parseDouble(m, GROUPS);
+
+    Decision d = tree.getValue();
+
+    Assert.assertEquals("attribute", 0, d.getAttIdx());
+    Assert.assertEquals("pivot", 6.5, d.getPivot(), 0);
+    Assert.assertEquals("name", "x <= 6.5", tree.getName());
+
+    Assert.assertEquals("children", 2, tree.getChildCount());
+    Assert.assertEquals("left", "A", tree.getChild(0).getName());
+    Assert.assertNull("left leaf", tree.getChild(0).getValue());
+    Assert.assertEquals("right", "B", tree.getChild(1).getName());
+    Assert.assertNull("right leaf", tree.getChild(1).getValue());
+
+    Assert.assertEquals("classify A",
+        "A",
+        tree.classify(new double[] { 2, 0 }));
+    Assert.assertEquals("classify B",
+        "B",
+        tree.classify(new double[] { 9, 0 }));
+  }
+
+  @Test
+  public void distinctPivotTest() {
+    // Splitting between the two a columns would be perfect but they have
+    // the same x as b1, so the only pivot is between 1 and 2. The left
+    // child cannot be separated by the constant y so it is a leaf of the
+    // majority class.
+    DataFrame m = create(
+        new String[] { "a1", "a2", "b1", "b2", "b3", "b4" },
+        new double[] { 1, 1, 1, 2, 2, 2 },
+        new double[] { 0, 0, 0, 0, 0, 0 });
+
+    DecisionTree tree = C45.parseDouble(m, GROUPS);
+
+    Assert.assertEquals("pivot", 1.5, tree.getValue().getPivot(), 0);
+    Assert.assertEquals("left", "A", tree.getChild(0).getName());
+    Assert.assertNull("left leaf", tree.getChild(0).getValue());
+    Assert.assertEquals("right", "B", tree.getChild(1).getName());
+  }
+
+  @Test
+  public void unseparableTest() {
+    DataFrame m = create(new String[] { "a1", "b1", "a2" },
+        new double[] { 4, 4, 4 },
+        new double[] { 1, 1, 1 });
+
+    DecisionTree tree = C45.parseDouble(m, GROUPS);
+
+    Assert.assertNull("leaf", tree.getValue());
+    Assert.assertEquals("majority", "A", tree.getName());
+  }
+
+  @Test
+  public void pureTest() {
+    DataFrame m = create(new String[] { "b1", "b2" },
+        new double[] { 1, 2 },
+        new double[] { 3, 4 });
+
+    DecisionTree tree = C45.parseDouble(m, GROUPS);
+
+    Assert.assertNull("leaf", tree.getValue());
+    Assert.assertEquals("class", "B", tree.getName());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unlabelledTest() {
+    DataFrame m = create(new String[] { "a1", "c1", "b1" },
+        new double[] { 1, 2, 3 },
+        new double[] { 1, 2, 3 });
+
+    C45.parseDouble(m, GROUPS);
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.CellFunction;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.IntMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.matrix.utils.MatrixArithmetic;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class CellFunctionTest.
+ */
+public class CellFunctionTest {
+
+  /** Large enough to be split into several parallel blocks. */
+  private static final int ROWS = 3000;
+
+  private static final int COLS = 7;
+
+  /** Returns row * 1000 + col so the position passed can be checked. */
+  private static final CellFunction POSITION = new CellFunction() {
+    @Override
+    public double f(int row, int col, double x, double... y) {
+      return row * 1000 + col;
+    }
+  };
+
+  private static void assertPositions(Matrix m) {
+    for (int i = 0; i < m.getRows(); ++i) {
+      for (int j = 0; j < m.getCols(); ++j) {
+        Assert.assertEquals("cell " + i + "," + j, i * 1000 + j,
+            m.getValue(i, j), 0);
+      }
+    }
+  }
+
+  @Test
+  public void applyPositionTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(ROWS, COLS);
+
+    m.apply(POSITION);
+
+    assertPositions(m);
+  }
+
+  @Test
+  public void indexMatrixPositionTest() {
+    IntMatrix m = IntMatrix.createIntMatrix(5, 3);
+
+    m.apply(POSITION);
+
+    assertPositions(m);
+  }
+
+  @Test
+  public void rowApplyTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(ROWS, COLS);
+
+    m.rowApply(POSITION);
+
+    assertPositions(m);
+
+    DoubleMatrix m2 = DoubleMatrix.createDoubleMatrix(3, COLS);
+
+    m2.rowApply(POSITION, 2);
+
+    Assert.assertEquals(2004, m2.getValue(2, 4), 0);
+    Assert.assertEquals(0, m2.getValue(1, 4), 0);
+  }
+
+  @Test
+  public void colApplyTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(4, COLS);
+
+    m.colApply(POSITION, 5);
+
+    Assert.assertEquals(3005, m.getValue(3, 5), 0);
+    Assert.assertEquals(0, m.getValue(3, 4), 0);
+  }
+
+  @Test
+  public void arithmeticTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 2, 1, 2, 3, 4);
+
+    Matrix added = m.add(1);
+
+    Assert.assertEquals(5, added.getValue(1, 1), 0);
+    Assert.assertEquals("copy only", 4, m.getValue(1, 1), 0);
+
+    Assert.assertEquals(8, m.mult(2).getValue(1, 1), 0);
+    Assert.assertEquals(2, m.div(2).getValue(1, 1), 0);
+    Assert.assertEquals(6, m.add(m).getValue(1, 0), 0);
+    Assert.assertEquals(9, m.dot(m).getValue(1, 0), 0);
+
+    MatrixArithmetic.divide(2, m);
+
+    Assert.assertEquals(0.5, m.getValue(0, 0), 0);
+  }
+
+  @Test
+  public void constantFunctionTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(ROWS, COLS);
+
+    // A cell function that is not a binary kernel function
+    m.apply(new CellFunction() {
+      @Override
+      public double f(int row, int col, double x, double... y) {
+        return x + y[0] + col;
+      }
+    }, 2);
+
+    Assert.assertEquals(8, m.getValue(ROWS - 1, COLS - 1), 0);
+
+    DoubleMatrix m2 = DoubleMatrix.createDoubleMatrix(ROWS, COLS);
+    m2.set(1);
+
+    m.apply(new CellFunction() {
+      @Override
+      public double f(int row, int col, double x, double... y) {
+        return x - y[0] + row;
+      }
+    }, m2);
+
+    Assert.assertEquals(7 + ROWS - 1, m.getValue(ROWS - 1, COLS - 1), 0);
+  }
+}
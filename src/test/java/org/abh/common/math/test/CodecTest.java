@@ -0,0 +1,386 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.jebtk.math.io.Codec;
+import org.jebtk.math.io.PipelinedInputStream;
+import org.jebtk.math.io.TextSource;
+import org.jebtk.math.matrix.CsvMatrixParser;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.MixedMatrixParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class CodecTest.
+ */
+public class CodecTest {
+
+  /** Enough lines to span several pipeline chunks. */
+  private static final int LINES = 200000;
+
+  /**
+   * A stream producing some bytes and then failing.
+   */
+  private static class FailingInputStream extends InputStream {
+    private final int mSize;
+    private final RuntimeException mError;
+    private int mPos = 0;
+
+    /** Released once every byte has been handed to the reader. */
+    private final CountDownLatch mProduced = new CountDownLatch(1);
+
+    public FailingInputStream(int size, RuntimeException error) {
+      mSize = size;
+      mError = error;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (mPos == mSize) {
+        if (mError != null) {
+          throw mError;
+        }
+
+        throw new IOException("failed");
+      }
+
+      int b = mPos++ & 0x7F;
+
+      if (mPos == mSize) {
+        mProduced.countDown();
+      }
+
+      return b;
+    }
+  }
+
+  /**
+   * Write test lines to a file, compressed according to its extension.
+   *
+   * @param file the file
+   * @throws IOException
+   */
+  private static void write(Path file) throws IOException {
+    Writer writer = new OutputStreamWriter(TextSource.newOutputStream(file),
+        StandardCharsets.UTF_8);
+
+    try {
+      for (int i = 0; i < LINES; ++i) {
+        writer.write("line\t" + i + "\n");
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Read back test lines.
+   *
+   * @param file the file
+   * @throws IOException
+   */
+  private static void check(Path file) throws IOException {
+    BufferedReader reader = TextSource.newBufferedReader(file);
+
+    try {
+      for (int i = 0; i < LINES; ++i) {
+        Assert.assertEquals("line " + i, "line\t" + i, reader.readLine());
+      }
+
+      Assert.assertNull("end", reader.readLine());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void detectTest() {
+    Assert.assertEquals("gzip", Codec.GZIP, Codec.detect(0x1F, 0x8B));
+    Assert.assertEquals("zlib", Codec.DEFLATE, Codec.detect(0x78, 0x9C));
+    Assert.assertEquals("text", Codec.NONE, Codec.detect('a', 'b'));
+    // A valid zlib header but far more likely to be text
+    Assert.assertEquals("x^", Codec.NONE, Codec.detect('x', '^'));
+    Assert.assertEquals("empty", Codec.NONE, Codec.detect(-1, -1));
+  }
+
+  @Test
+  public void textHeaderTest() throws IOException {
+    Path file = Files.createTempFile("codec", ".txt");
+
+    try {
+      Files.write(file, "x^2\ty\n1\t2\n".getBytes(StandardCharsets.UTF_8));
+
+      Assert.assertEquals("codec", Codec.NONE, Codec.detect(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void levelDeflateTest() throws IOException {
+    // Middling levels write the same 0x785E header as text starting "x^"
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStream out = new DeflaterOutputStream(bytes, new Deflater(4));
+
+    out.write("line\t1\n".getBytes(StandardCharsets.UTF_8));
+    out.close();
+
+    Path file = Files.createTempFile("codec", ".zz");
+
+    try {
+      Files.write(file, bytes.toByteArray());
+
+      Assert.assertEquals("codec", Codec.DEFLATE, Codec.detect(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void badGzipHeaderTest() throws IOException {
+    byte[] data = { 0x1F, (byte) 0x8B, 'a', 'b', 'c' };
+
+    InputStream in = Codec.GZIP.decode(new ByteArrayInputStream(data));
+
+    byte[] read = new byte[data.length];
+
+    Assert.assertEquals("length", data.length, in.read(read));
+    Assert.assertArrayEquals("unchanged", data, read);
+
+    in.close();
+  }
+
+  @Test
+  public void gzipTest() throws IOException {
+    Path file = Files.createTempFile("codec", ".txt.gz");
+
+    try {
+      write(file);
+
+      Assert.assertEquals("codec", Codec.GZIP, Codec.detect(file));
+
+      check(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void deflateTest() throws IOException {
+    Path file = Files.createTempFile("codec", ".zz");
+
+    try {
+      write(file);
+
+      Assert.assertEquals("codec", Codec.DEFLATE, Codec.detect(file));
+
+      check(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void parserTest() throws IOException {
+    Path file = Files.createTempFile("codec", ".csv.gz");
+
+    try {
+      Writer writer = new OutputStreamWriter(TextSource.newOutputStream(file),
+          StandardCharsets.UTF_8);
+
+      try {
+        writer.write("Id,a,b\nr1,1,2\nr2,3,x\n");
+      } finally {
+        writer.close();
+      }
+
+      DataFrame m = new CsvMatrixParser(1).parse(file);
+
+      Assert.assertEquals("csv rows", 2, m.getRows());
+      Assert.assertEquals("csv (1, 0)", 3, m.getValue(1, 0), 0);
+      Assert.assertEquals("csv id", "r2", m.getIndex().getText("Id", 1));
+
+      m = new MixedMatrixParser(1, 1, ",").parse(file);
+
+      Assert.assertEquals("mixed rows", 2, m.getRows());
+      Assert.assertEquals("mixed (1, 1)", "x", m.getText(1, 1));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void spoolTest() throws IOException {
+    Path file = Files.createTempFile("codec", ".gz");
+
+    try {
+      write(file);
+
+      TextSource source = new TextSource(file);
+
+      try {
+        // The second pass reads the spool written by the first
+        for (int pass = 0; pass < 2; ++pass) {
+          BufferedReader reader = source.newBufferedReader();
+
+          int n = 0;
+
+          while (reader.readLine() != null) {
+            ++n;
+          }
+
+          reader.close();
+
+          Assert.assertEquals("pass " + pass, LINES, n);
+        }
+      } finally {
+        source.close();
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(timeout = 10000, expected = IOException.class)
+  public void truncatedTest() throws IOException {
+    Path file = Files.createTempFile("codec", ".gz");
+
+    try {
+      write(file);
+
+      byte[] data = Files.readAllBytes(file);
+
+      Files.write(file, Arrays.copyOf(data, data.length / 2));
+
+      check(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void pipelinedTest() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStream out = Codec.GZIP.encode(bytes);
+
+    byte[] data = new byte[3 * 1024 * 1024 + 17];
+
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = (byte) (i * 31);
+    }
+
+    out.write(data);
+    out.close();
+
+    InputStream in = new PipelinedInputStream(
+        Codec.GZIP.decode(new ByteArrayInputStream(bytes.toByteArray())));
+
+    byte[] read = new byte[data.length];
+    int n = 0;
+    int r;
+
+    while ((r = in.read(read, n, Math.min(4096, read.length - n))) > 0) {
+      n += r;
+    }
+
+    Assert.assertEquals("length", data.length, n);
+    Assert.assertEquals("end", -1, in.read());
+    Assert.assertArrayEquals("data", data, read);
+
+    in.close();
+  }
+
+  /**
+   * Read a stream to the end, once the background reader has consumed all
+   * of the source's data so the failure is next.
+   *
+   * @param in the in
+   * @param source the source being read by in
+   * @return the number of bytes read
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  private static int drain(InputStream in, FailingInputStream source)
+      throws IOException, InterruptedException {
+    source.mProduced.await();
+
+    byte[] buffer = new byte[8192];
+    int n = 0;
+    int r;
+
+    while ((r = in.read(buffer)) != -1) {
+      n += r;
+    }
+
+    return n;
+  }
+
+  @Test(timeout = 10000)
+  public void pipelinedErrorTest() throws InterruptedException {
+    // More data than the queue holds so the error arrives while it is full
+    int size = 6 * 1024 * 1024;
+
+    FailingInputStream source = new FailingInputStream(size, null);
+    InputStream in = new PipelinedInputStream(source);
+
+    try {
+      drain(in, source);
+      Assert.fail("expected an error");
+    } catch (IOException e) {
+      Assert.assertEquals("message", "failed", e.getMessage());
+    }
+
+    // Later reads keep failing rather than reporting the end of the stream
+    try {
+      in.read();
+      Assert.fail("expected an error");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void pipelinedRuntimeErrorTest() throws InterruptedException {
+    FailingInputStream source = new FailingInputStream(100,
+        new IllegalStateException("broken"));
+    InputStream in = new PipelinedInputStream(source);
+
+    try {
+      drain(in, source);
+      Assert.fail("expected an error");
+    } catch (IOException e) {
+      Assert.assertTrue("cause",
+          e.getCause() instanceof IllegalStateException);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.CellType;
+import org.jebtk.math.matrix.ColumnMatrix;
+import org.jebtk.math.matrix.ColumnType;
+import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.matrix.MatrixType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class ColumnMatrixTest.
+ */
+public class ColumnMatrixTest {
+
+  /**
+   * Create a 2 row matrix with one column of each type.
+   *
+   * @return the column matrix
+   */
+  private static ColumnMatrix create() {
+    ColumnMatrix m = new ColumnMatrix(2, ColumnType.DOUBLE, ColumnType.INT,
+        ColumnType.LONG, ColumnType.BOOL, ColumnType.TEXT);
+
+    m.update(0, 0, 1.5);
+    m.update(0, 1, 7);
+    m.update(0, 2, 1L << 40);
+    m.update(0, 3, true);
+    m.update(0, 4, "a");
+
+    m.update(1, 0, "2.5");
+    m.update(1, 1, Double.NaN);
+    m.update(1, 2, "x");
+    m.update(1, 3, "0");
+    m.update(1, 4, 3);
+
+    return m;
+  }
+
+  @Test
+  public void typedTest() {
+    ColumnMatrix m = create();
+
+    Assert.assertEquals("type", MatrixType.MIXED, m.getType());
+
+    Assert.assertEquals("double", 1.5, m.getValue(0, 0), 0);
+    Assert.assertEquals("parsed double", 2.5, m.getValue(1, 0), 0);
+
+    Assert.assertEquals("int", 7, m.getInt(0, 1));
+    Assert.assertEquals("boxed int", Integer.valueOf(7), m.get(0, 1));
+    Assert.assertEquals("NaN int", 0, m.getInt(1, 1));
+
+    Assert.assertEquals("long", 1L << 40, m.getLong(0, 2));
+    Assert.assertEquals("text long", 0, m.getLong(1, 2));
+
+    Assert.assertEquals("bool", 1, m.getValue(0, 3), 0);
+    Assert.assertEquals("text bool", 0, m.getValue(1, 3), 0);
+
+    Assert.assertEquals("text", "a", m.get(0, 4));
+    Assert.assertEquals("number as text", "3", m.getText(1, 4));
+    Assert.assertEquals("cell type", CellType.TEXT, m.getCellType(0, 4));
+    Assert.assertEquals("numeric cell type",
+        CellType.NUMBER,
+        m.getCellType(0, 1));
+  }
+
+  @Test
+  public void setColumnTypeTest() {
+    ColumnMatrix m = create();
+
+    m.setColumnType(1, ColumnType.TEXT);
+
+    Assert.assertEquals("to text", ColumnType.TEXT, m.getColumnType(1));
+    Assert.assertEquals("int text", "7", m.getText(0, 1));
+
+    m.setColumnType(1, ColumnType.LONG);
+
+    Assert.assertEquals("back to long", 7, m.getLong(0, 1));
+
+    m.setColumnType(4, ColumnType.DOUBLE);
+
+    Assert.assertTrue("not a number", Double.isNaN(m.getValue(0, 4)));
+    Assert.assertEquals("number", 3, m.getValue(1, 4), 0);
+
+    m.setColumnType(3, ColumnType.INT);
+
+    Assert.assertEquals("bool to int", 1, m.getInt(0, 3));
+    Assert.assertEquals("bool to int", 0, m.getInt(1, 3));
+  }
+
+  @Test
+  public void ofSameTypeTest() {
+    ColumnMatrix m = create();
+
+    ColumnMatrix same = (ColumnMatrix) m.ofSameType(3, 5);
+
+    Assert.assertEquals("rows", 3, same.getRows());
+    Assert.assertArrayEquals("schema", m.getSchema(), same.getSchema());
+
+    // Shared columns keep their types and extra ones are doubles
+    ColumnMatrix narrow = (ColumnMatrix) m.ofSameType(2, 2);
+
+    Assert.assertArrayEquals("narrow",
+        new ColumnType[] { ColumnType.DOUBLE, ColumnType.INT },
+        narrow.getSchema());
+
+    ColumnMatrix wide = (ColumnMatrix) m.ofSameType(2, 6);
+
+    Assert.assertEquals("text", ColumnType.TEXT, wide.getColumnType(4));
+    Assert.assertEquals("extra", ColumnType.DOUBLE, wide.getColumnType(5));
+  }
+
+  @Test
+  public void colsTest() {
+    ColumnMatrix m = create();
+
+    Matrix ret = m.cols(4, 1);
+
+    Assert.assertTrue("column matrix", ret instanceof ColumnMatrix);
+    Assert.assertArrayEquals("schema",
+        new ColumnType[] { ColumnType.TEXT, ColumnType.INT },
+        ((ColumnMatrix) ret).getSchema());
+    Assert.assertEquals("text", "a", ret.getText(0, 0));
+    Assert.assertEquals("int", 7, ret.getInt(0, 1));
+
+    // The selection is a copy
+    ret.update(0, 1, 9);
+
+    Assert.assertEquals("unchanged", 7, m.getInt(0, 1));
+  }
+
+  @Test
+  public void textValueTest() {
+    ColumnMatrix.TextColumn c = new ColumnMatrix.TextColumn(3);
+
+    c.update(0, "2.5");
+    c.update(1, "abc");
+
+    Assert.assertEquals("number", 2.5, c.getValue(0), 0);
+    Assert.assertTrue("text", Double.isNaN(c.getValue(1)));
+    Assert.assertTrue("empty", Double.isNaN(c.getValue(2)));
+  }
+}
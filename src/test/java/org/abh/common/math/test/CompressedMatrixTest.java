@@ -0,0 +1,192 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.CompressedDoubleMatrix;
+import org.jebtk.math.matrix.CompressedIntMatrix;
+import org.jebtk.math.matrix.CompressedMatrixBuilder;
+import org.jebtk.math.matrix.CompressedOrder;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.IntMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class CompressedMatrixTest.
+ */
+public class CompressedMatrixTest {
+
+  /**
+   * Create the matrix
+   * 
+   * <pre>
+   * 1 0 2
+   * 0 0 3
+   * </pre>
+   * 
+   * adding the cells out of order and (0, 2) in two parts.
+   *
+   * @return the compressed matrix builder
+   */
+  private static CompressedMatrixBuilder createBuilder() {
+    return new CompressedMatrixBuilder(2, 3).add(1, 2, 3).add(0, 2, 1)
+        .add(0, 0, 1).add(1, 1, 0).add(0, 2, 1);
+  }
+
+  private static void assertCells(Matrix m) {
+    double[] expected = { 1, 0, 2, 0, 0, 3 };
+
+    Assert.assertEquals(2, m.getRows());
+    Assert.assertEquals(3, m.getCols());
+
+    for (int i = 0; i < expected.length; ++i) {
+      Assert.assertEquals("cell " + i, expected[i],
+          m.getValue(i / 3, i % 3), 0);
+    }
+  }
+
+  @Test
+  public void buildTest() {
+    CompressedDoubleMatrix csr = createBuilder().createCSR();
+    CompressedDoubleMatrix csc = createBuilder().createCSC();
+
+    Assert.assertEquals(3, csr.getNonZeros());
+    Assert.assertEquals(3, csc.getNonZeros());
+
+    assertCells(csr);
+    assertCells(csc);
+    assertCells(csr.toOrder(CompressedOrder.COLUMN));
+    assertCells(csc.toOrder(CompressedOrder.ROW));
+    assertCells(csr.toDoubleMatrix());
+
+    Matrix t = csr.transpose();
+
+    Assert.assertEquals(3, t.getRows());
+    Assert.assertEquals(3, t.getValue(2, 1), 0);
+  }
+
+  @Test
+  public void cancelTest() {
+    CompressedDoubleMatrix m = new CompressedMatrixBuilder(2, 2).add(0, 0, 1)
+        .add(0, 0, -1).add(1, 1, 2).createCSR();
+
+    Assert.assertEquals("cancelled cells are not stored", 1,
+        m.getNonZeros());
+    Assert.assertEquals(-1, m.find(0, 0));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void builderBoundsTest() {
+    new CompressedMatrixBuilder(2, 3).add(2, 0, 1);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void builderNegativeTest() {
+    new CompressedMatrixBuilder(2, 3).add(0, -1, 1);
+  }
+
+  @Test
+  public void statsTest() {
+    CompressedDoubleMatrix m = createBuilder().createCSC();
+
+    Assert.assertArrayEquals(new double[] { 3, 3 }, m.rowSums(), 0);
+    Assert.assertArrayEquals(new double[] { 1, 0, 5 }, m.columnSums(), 0);
+    Assert.assertArrayEquals(new double[] { 1, 1 }, m.rowMeans(), 0);
+    Assert.assertArrayEquals(new int[] { 2, 1 }, m.rowNonZeros());
+    Assert.assertArrayEquals(new int[] { 1, 0, 2 }, m.columnNonZeros());
+    Assert.assertArrayEquals(new double[] { 0.5, 0, 0.5 },
+        m.columnPopStdDev(), 1e-12);
+  }
+
+  @Test
+  public void updateTest() {
+    CompressedDoubleMatrix m = createBuilder().createCSR();
+
+    // Stored cells can be changed
+    m.set(0, 0, 5);
+    Assert.assertEquals(5, m.getValue(0, 0), 0);
+
+    try {
+      m.set(1, 0, 1);
+
+      Assert.fail("a zero cell was set");
+    } catch (UnsupportedOperationException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void copyTest() {
+    CompressedDoubleMatrix m = createBuilder().createCSR();
+
+    Matrix copy = m.copy();
+
+    Assert.assertTrue(copy instanceof DoubleMatrix);
+    assertCells(copy);
+
+    // Generic operations work on a copy so must be able to set zero cells
+    Matrix added = m.add(1);
+
+    Assert.assertEquals(2, added.getValue(0, 0), 0);
+    Assert.assertEquals(1, added.getValue(1, 0), 0);
+    assertCells(m);
+
+    CompressedIntMatrix im = createBuilder()
+        .createIntMatrix(CompressedOrder.COLUMN);
+
+    Matrix intCopy = im.copy();
+
+    Assert.assertTrue(intCopy instanceof IntMatrix);
+    assertCells(intCopy);
+  }
+
+  @Test
+  public void multiplyTest() {
+    CompressedDoubleMatrix a = createBuilder().createCSR();
+
+    // 3x2 matrix [[1, 0], [2, 1], [0, 4]]
+    CompressedDoubleMatrix b = new CompressedMatrixBuilder(3, 2).add(0, 0, 1)
+        .add(1, 0, 2).add(1, 1, 1).add(2, 1, 4).createCSC();
+
+    double[] expected = { 1, 8, 0, 12 };
+
+    Matrix sparse = a.multiply(b);
+    Matrix dense = a.multiply(b.toDoubleMatrix());
+
+    Assert.assertTrue(sparse instanceof CompressedDoubleMatrix);
+    Assert.assertTrue(dense instanceof DoubleMatrix);
+
+    for (int i = 0; i < expected.length; ++i) {
+      Assert.assertEquals(expected[i], sparse.getValue(i / 2, i % 2), 0);
+      Assert.assertEquals(expected[i], dense.getValue(i / 2, i % 2), 0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void multiplyDimensionTest() {
+    CompressedDoubleMatrix a = createBuilder().createCSR();
+
+    a.multiply(a);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void multiplyDenseDimensionTest() {
+    CompressedDoubleMatrix a = createBuilder().createCSR();
+
+    CompressedDoubleMatrix.multiply(a, DoubleMatrix.createDoubleMatrix(2, 2));
+  }
+}
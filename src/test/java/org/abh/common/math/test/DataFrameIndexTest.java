@@ -0,0 +1,119 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DataFrameIndex;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.IndexLookup;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class DataFrameIndexTest.
+ */
+public class DataFrameIndexTest {
+
+  @Test
+  public void lookupTest() {
+    DataFrameIndex index = new DataFrameIndex(3);
+
+    index.setAnnotation("Id", new String[] { "a", "B", "a" });
+
+    IndexLookup lookup = index.getLookup("Id");
+
+    Assert.assertArrayEquals(new int[] { 0, 2 }, lookup.get("a"));
+    Assert.assertArrayEquals(new int[] { 1 }, lookup.getIgnoreCase("b"));
+    Assert.assertEquals(-1, lookup.getFirst("z"));
+
+    // Single values are updated in place
+    index.setAnnotation("Id", 0, "Ab");
+
+    Assert.assertSame(lookup, index.getLookup("Id"));
+    Assert.assertArrayEquals(new int[] { 2 }, lookup.get("a"));
+    Assert.assertArrayEquals(new int[] { 0 }, lookup.getIgnoreCase("AB"));
+    Assert.assertArrayEquals(new int[] { 0 }, lookup.getPrefix("A"));
+  }
+
+  @Test
+  public void snapshotTest() {
+    DataFrameIndex index = new DataFrameIndex(2);
+
+    index.setAnnotation("Id", new String[] { "a", "b" });
+
+    Set<String> values = index.getLookup("Id").getValues();
+
+    index.setAnnotation("Id", 1, "c");
+
+    Assert.assertEquals(2, values.size());
+    Assert.assertTrue(values.contains("b"));
+    Assert.assertTrue(index.getLookup("Id").getValues().contains("c"));
+  }
+
+  @Test
+  public void concurrentTest() throws InterruptedException {
+    final int n = 200;
+
+    final DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(n, 1));
+
+    String[] ids = new String[n];
+
+    for (int i = 0; i < n; ++i) {
+      ids[i] = "id" + i;
+    }
+
+    m.getIndex().setAnnotation("Id", ids);
+
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 0; i < 20000; ++i) {
+            m.getIndex().setAnnotation("Id", i % n, "new" + i);
+          }
+        } catch (Throwable t) {
+          error.set(t);
+        }
+      }
+    });
+
+    writer.start();
+
+    try {
+      while (writer.isAlive()) {
+        List<Integer> rows = DataFrame.findRows(m, "id1");
+
+        Assert.assertTrue(rows.size() <= n);
+
+        DataFrame.matchRows(m, "Id", "new.*");
+      }
+    } finally {
+      writer.join();
+    }
+
+    if (error.get() != null) {
+      throw new AssertionError(error.get());
+    }
+
+    Assert.assertEquals(1, DataFrame.findRows(m, "new19999").size());
+  }
+}
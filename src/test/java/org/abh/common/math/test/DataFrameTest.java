@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.BooleanMatrix;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class DataFrameTest.
+ */
+public class DataFrameTest {
+
+  /**
+   * Create a 3 x 2 frame with named rows.
+   *
+   * @return the data frame
+   */
+  private static DataFrame create() {
+    DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(3, 2));
+
+    for (int i = 0; i < 3; ++i) {
+      for (int j = 0; j < 2; ++j) {
+        m.update(i, j, i * 2 + j);
+      }
+    }
+
+    m.setRowNames("a", "b", "c");
+
+    return m;
+  }
+
+  @Test
+  public void copyRowsTest() {
+    DataFrame m = create();
+
+    BooleanMatrix mask = BooleanMatrix.createBooleanMatrix(3, 1);
+    mask.update(0, true);
+    mask.update(2, true);
+
+    DataFrame ret = m.copyRows(mask);
+
+    Assert.assertEquals("rows", 2, ret.getRows());
+    Assert.assertEquals("cols", 2, ret.getCols());
+    Assert.assertEquals("name 1", "c", ret.getRowName(1));
+    Assert.assertEquals("(1, 1)", 5, ret.getValue(1, 1), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void copyRowsColumnsTest() {
+    // A mask of the cells rather than the rows
+    create().copyRows(BooleanMatrix.createBooleanMatrix(3, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void copyRowsShortTest() {
+    create().copyRows(BooleanMatrix.createBooleanMatrix(2, 1));
+  }
+}
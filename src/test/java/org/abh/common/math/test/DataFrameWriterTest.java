@@ -0,0 +1,243 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.jebtk.math.io.Codec;
+import org.jebtk.math.io.TextSource;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DataFrameWriter;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.TextMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class DataFrameWriterTest.
+ */
+public class DataFrameWriterTest {
+
+  /**
+   * Write values one per line and read the lines back.
+   *
+   * @param precision the precision
+   * @param values the values
+   * @return the lines
+   * @throws IOException
+   */
+  private static List<String> write(int precision, double... values)
+      throws IOException {
+    Path file = Files.createTempFile("writer", ".txt");
+
+    try {
+      DataFrameWriter writer = new DataFrameWriter(file, Codec.NONE,
+          precision, false);
+
+      try {
+        for (double v : values) {
+          writer.write(v);
+          writer.newLine();
+        }
+      } finally {
+        writer.close();
+      }
+
+      return Files.readAllLines(file, StandardCharsets.UTF_8);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void shortestTest() throws IOException {
+    double[] values = { 0, 1, -2.25, 0.1, 1 / 3.0, 100, 123456.789,
+        1e-300, 1e20, Double.MAX_VALUE, -Double.MIN_VALUE };
+
+    List<String> lines = write(DataFrameWriter.SHORTEST, values);
+
+    for (int i = 0; i < values.length; ++i) {
+      Assert.assertEquals("round trip " + lines.get(i),
+          values[i],
+          Double.parseDouble(lines.get(i)),
+          0);
+    }
+
+    Assert.assertEquals("integer", "100", lines.get(5));
+    Assert.assertEquals("decimal", "0.1", lines.get(3));
+    Assert.assertEquals("negative", "-2.25", lines.get(2));
+  }
+
+  @Test
+  public void randomShortestTest() throws IOException {
+    Random random = new Random(3);
+
+    double[] values = new double[10000];
+
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = (random.nextDouble() - 0.5) * Math.pow(10,
+          random.nextInt(12) - 6);
+    }
+
+    List<String> lines = write(DataFrameWriter.SHORTEST, values);
+
+    for (int i = 0; i < values.length; ++i) {
+      Assert.assertEquals("round trip " + lines.get(i),
+          values[i],
+          Double.parseDouble(lines.get(i)),
+          0);
+    }
+  }
+
+  @Test
+  public void precisionTest() throws IOException {
+    List<String> lines = write(2, 1.5, -0.001, 2, Double.NaN, 12.345678);
+
+    Assert.assertEquals("padded", "1.50", lines.get(0));
+    Assert.assertEquals("no negative zero", "0.00", lines.get(1));
+    Assert.assertEquals("integer", "2.00", lines.get(2));
+    Assert.assertEquals("NaN", "NaN", lines.get(3));
+    Assert.assertEquals("rounded", "12.35", lines.get(4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void badPrecisionTest() throws IOException {
+    write(19, 1);
+  }
+
+  /**
+   * Write the rows of a frame and read back the text.
+   *
+   * @param m the m
+   * @param suffix the file suffix, which picks the codec.
+   * @param parallel the parallel
+   * @return the text
+   * @throws IOException
+   */
+  private static String writeRows(DataFrame m, String suffix,
+      boolean parallel) throws IOException {
+    return writeRows(m, suffix, parallel,
+        Collections.<String> emptyList());
+  }
+
+  /**
+   * Write the rows of a frame with annotations and read back the text.
+   *
+   * @param m the m
+   * @param suffix the file suffix, which picks the codec.
+   * @param parallel the parallel
+   * @param annotations the row annotations to write.
+   * @return the text
+   * @throws IOException
+   */
+  private static String writeRows(DataFrame m, String suffix,
+      boolean parallel, List<String> annotations) throws IOException {
+    Path file = Files.createTempFile("writer", suffix);
+
+    try {
+      DataFrameWriter writer = new DataFrameWriter(file,
+          Codec.fromExtension(file), DataFrameWriter.SHORTEST, parallel);
+
+      try {
+        writer.writeRows(m, true, annotations);
+      } finally {
+        writer.close();
+      }
+
+      StringBuilder buffer = new StringBuilder();
+
+      BufferedReader reader = TextSource.newBufferedReader(file);
+
+      try {
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+          buffer.append(line).append('\n');
+        }
+      } finally {
+        reader.close();
+      }
+
+      return buffer.toString();
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void rowsTest() throws IOException {
+    int rows = 5000;
+
+    DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(rows, 2));
+
+    String[] names = new String[rows];
+
+    for (int i = 0; i < rows; ++i) {
+      names[i] = "r" + i;
+      m.update(i, 0, i);
+      m.update(i, 1, i / 4.0);
+    }
+
+    m.setRowNames(names);
+
+    String serial = writeRows(m, ".txt", false);
+
+    Assert.assertTrue("first", serial.startsWith("r0\t0\t0\nr1\t1\t0.25\n"));
+    Assert.assertTrue("last", serial.endsWith("r4999\t4999\t1249.75\n"));
+
+    Assert.assertEquals("parallel", serial, writeRows(m, ".txt", true));
+    Assert.assertEquals("gzip", serial, writeRows(m, ".txt.gz", true));
+  }
+
+  @Test
+  public void missingAnnotationTest() throws IOException {
+    DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(3, 1));
+
+    m.setRowNames(new String[] { "r0", "r1", "r2" });
+    m.getIndex().setAnnotation("Id", 1, "b");
+    m.getIndex().setAnnotation("Name", new String[] { "x", null, "z" });
+
+    for (int i = 0; i < 3; ++i) {
+      m.update(i, 0, i);
+    }
+
+    String text = writeRows(m, ".txt", false, Arrays.asList("Id", "Name"));
+
+    Assert.assertEquals("r0\t\tx\t0\nr1\tb\t\t1\nr2\t\tz\t2\n", text);
+  }
+
+  @Test
+  public void missingTextTest() throws IOException {
+    TextMatrix cells = new TextMatrix(2, 2);
+
+    cells.set(0, 0, "a");
+    cells.set(1, 1, "d");
+
+    DataFrame m = new DataFrame(cells);
+
+    m.setRowNames(new String[] { "r0", "r1" });
+
+    Assert.assertEquals("r0\ta\t\nr1\t\td\n", writeRows(m, ".txt", false));
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jebtk.math.matrix.CellFunction;
+import org.jebtk.math.matrix.DictionaryTextMatrix;
+import org.jebtk.math.matrix.TextDictionary;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class DictionaryTextMatrixTest.
+ */
+public class DictionaryTextMatrixTest {
+
+  @Test
+  public void codesTest() {
+    DictionaryTextMatrix m = new DictionaryTextMatrix(2, 3);
+
+    m.setRow(0, new String[] { "a", "b", "a" });
+    m.setRow(1, new String[] { "b", "c", "a" });
+
+    Assert.assertEquals("a", m.getText(1, 2));
+    Assert.assertEquals("equal codes", m.getCode(0, 0), m.getCode(1, 2));
+    Assert.assertArrayEquals(new int[] { 0, 2 }, m.findInRow(0, "a"));
+    Assert.assertArrayEquals(new int[] { 0, 1 }, m.findInColumn(2, "a"));
+    Assert.assertEquals(0, m.findInColumn(0, "z").length);
+  }
+
+  @Test
+  public void applyTest() {
+    DictionaryTextMatrix m = new DictionaryTextMatrix(1, 3);
+
+    m.setRow(0, new String[] { "1", "2", "x" });
+
+    m.apply(new CellFunction() {
+      @Override
+      public double f(int row, int col, double x, double... y) {
+        return x * 2;
+      }
+    });
+
+    Assert.assertEquals(2, m.getValue(0, 0), 0);
+    Assert.assertEquals(4, m.getValue(0, 1), 0);
+    Assert.assertTrue(Double.isNaN(m.getValue(0, 2)));
+  }
+
+  @Test
+  public void copyTest() {
+    DictionaryTextMatrix m = new DictionaryTextMatrix(1, 2);
+
+    m.setRow(0, new String[] { "a", "b" });
+
+    // Values no longer in use should not be carried into the copy
+    m.set(0, 1, "c");
+
+    DictionaryTextMatrix copy = (DictionaryTextMatrix) m.copy();
+
+    Assert.assertNotSame(m.getDictionary(), copy.getDictionary());
+    Assert.assertFalse(copy.getDictionary().contains("b"));
+    Assert.assertEquals("a", copy.getText(0, 0));
+    Assert.assertEquals("c", copy.getText(0, 1));
+
+    int size = m.getDictionary().size();
+
+    copy.set(0, 0, "d");
+
+    Assert.assertEquals("original unchanged", "a", m.getText(0, 0));
+    Assert.assertEquals("dictionary not grown", size,
+        m.getDictionary().size());
+  }
+
+  @Test
+  public void sharedDictionaryTest() throws InterruptedException {
+    final TextDictionary dict = new TextDictionary();
+
+    final int n = 1000;
+
+    List<DictionaryTextMatrix> matrices = new ArrayList<DictionaryTextMatrix>();
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    for (int t = 0; t < 4; ++t) {
+      final DictionaryTextMatrix m = new DictionaryTextMatrix(1, n, dict);
+
+      matrices.add(m);
+
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < n; ++i) {
+            m.set(0, i, Integer.toString(i));
+          }
+        }
+      });
+    }
+
+    pool.shutdown();
+
+    Assert.assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+    // The empty string plus one value per column
+    Assert.assertEquals(n + 1, dict.size());
+
+    for (DictionaryTextMatrix m : matrices) {
+      for (int i = 0; i < n; ++i) {
+        Assert.assertEquals(Integer.toString(i), m.getText(0, i));
+        Assert.assertEquals(m.getCode(0, i), matrices.get(0).getCode(0, i));
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.ColumnMatrix;
+import org.jebtk.math.matrix.ExpandDoubleMatrix;
+import org.jebtk.math.matrix.ExpandIntMatrix;
+import org.jebtk.math.matrix.ExpandTextMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class ExpandMatrixTest.
+ */
+public class ExpandMatrixTest {
+
+  @Test
+  public void addRowTest() {
+    ExpandDoubleMatrix m = new ExpandDoubleMatrix(0, 2);
+
+    for (int i = 0; i < 100; ++i) {
+      int row = m.addRow();
+
+      Assert.assertEquals(i, row);
+
+      m.set(row, 1, i);
+    }
+
+    Assert.assertEquals(100, m.getRows());
+    Assert.assertEquals(2, m.getCols());
+    Assert.assertEquals(99, m.getValue(99, 1), 0);
+    Assert.assertEquals("default value", 0, m.getValue(99, 0), 0);
+  }
+
+  @Test
+  public void addColumnTest() {
+    ExpandIntMatrix m = new ExpandIntMatrix(3, 0);
+
+    for (int i = 0; i < 20; ++i) {
+      int column = m.addColumn();
+
+      Assert.assertEquals(i, column);
+
+      m.set(2, column, i);
+    }
+
+    Assert.assertEquals(3, m.getRows());
+    Assert.assertEquals(20, m.getCols());
+    Assert.assertEquals(19, m.getValue(2, 19), 0);
+    Assert.assertEquals(0, m.getValue(0, 19), 0);
+  }
+
+  @Test
+  public void growTest() {
+    ExpandDoubleMatrix m = new ExpandDoubleMatrix(0, 0, -1);
+
+    m.set(40, 3, 5);
+
+    Assert.assertEquals(41, m.getRows());
+    Assert.assertEquals(4, m.getCols());
+    Assert.assertEquals(5, m.getValue(40, 3), 0);
+    Assert.assertEquals(-1, m.getValue(39, 3), 0);
+    Assert.assertEquals(-1, m.getValue(0, 0), 0);
+  }
+
+  @Test
+  public void sealTest() {
+    ExpandTextMatrix m = new ExpandTextMatrix();
+
+    m.set(0, 0, "a");
+    m.set(1, 2, "b");
+
+    ColumnMatrix sealed = m.seal();
+
+    Assert.assertEquals(2, sealed.getRows());
+    Assert.assertEquals(3, sealed.getCols());
+    Assert.assertEquals("a", sealed.getText(0, 0));
+    Assert.assertEquals("b", sealed.getText(1, 2));
+    Assert.assertEquals("", sealed.getText(1, 1));
+
+    // The matrix is emptied by sealing
+    Assert.assertEquals(0, m.getRows());
+    Assert.assertEquals(0, m.getCols());
+  }
+
+  @Test
+  public void sealReuseTest() {
+    ExpandDoubleMatrix m = new ExpandDoubleMatrix();
+
+    m.set(1, 1, 1);
+
+    ColumnMatrix first = m.seal();
+
+    // Reuse the matrix to accumulate a second, smaller matrix
+    m.set(0, 0, 2);
+
+    ColumnMatrix second = m.seal();
+
+    Assert.assertEquals(2, first.getRows());
+    Assert.assertEquals(1, first.getValue(1, 1), 0);
+    Assert.assertEquals("first matrix unchanged", 0, first.getValue(0, 0),
+        0);
+
+    Assert.assertEquals(1, second.getRows());
+    Assert.assertEquals(1, second.getCols());
+    Assert.assertEquals(2, second.getValue(0, 0), 0);
+  }
+
+  @Test
+  public void updateSameTypeTest() {
+    ExpandDoubleMatrix m = new ExpandDoubleMatrix();
+
+    m.set(2, 1, 3);
+
+    ExpandDoubleMatrix copy = new ExpandDoubleMatrix(m);
+
+    Assert.assertEquals(3, copy.getRows());
+    Assert.assertEquals(3, copy.getValue(2, 1), 0);
+
+    copy.set(2, 1, 4);
+
+    Assert.assertEquals("segments are copied", 3, m.getValue(2, 1), 0);
+  }
+
+  @Test
+  public void updateOtherTypeTest() {
+    ExpandIntMatrix ints = new ExpandIntMatrix();
+
+    ints.set(1, 2, 7);
+
+    ExpandDoubleMatrix m = new ExpandDoubleMatrix();
+
+    m.update(ints);
+
+    Assert.assertEquals(2, m.getRows());
+    Assert.assertEquals(3, m.getCols());
+    Assert.assertEquals(7, m.getValue(1, 2), 0);
+
+    // Growing the matrix must not fail on copied segments
+    m.set(100, 0, 1);
+
+    Assert.assertEquals(7, m.getValue(1, 2), 0);
+
+    ExpandTextMatrix text = new ExpandTextMatrix();
+
+    text.update(ints);
+
+    Assert.assertEquals(7, text.getValue(1, 2), 0);
+  }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.BooleanMatrix;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.IntMatrix;
+import org.jebtk.math.matrix.utils.Filter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class FilterTest.
+ */
+public class FilterTest {
+
+  private static final double[] VALUES = { -1, 0, 1, 2, Double.NaN,
+      Double.POSITIVE_INFINITY, 3 };
+
+  @Test
+  public void compareTest() {
+    Assert.assertArrayEquals("gt",
+        new int[] { 3, 5, 6 },
+        Filter.gt(1).findIndices(VALUES));
+    Assert.assertArrayEquals("ge",
+        new int[] { 2, 3, 5, 6 },
+        Filter.ge(1).findIndices(VALUES));
+    Assert.assertArrayEquals("lt",
+        new int[] { 0, 1 },
+        Filter.lt(1).findIndices(VALUES));
+    Assert.assertArrayEquals("le",
+        new int[] { 0, 1, 2 },
+        Filter.le(1).findIndices(VALUES));
+    Assert.assertArrayEquals("eq",
+        new int[] { 2 },
+        Filter.eq(1).findIndices(VALUES));
+    Assert.assertArrayEquals("between",
+        new int[] { 1, 2, 3 },
+        Filter.between(0, 2).findIndices(VALUES));
+    Assert.assertArrayEquals("finite",
+        new int[] { 0, 1, 2, 3, 6 },
+        Filter.finite().findIndices(VALUES));
+  }
+
+  @Test
+  public void logicalTest() {
+    Assert.assertArrayEquals("and",
+        new int[] { 2, 3, 6 },
+        Filter.finite().and(Filter.gt(0)).findIndices(VALUES));
+    Assert.assertArrayEquals("or",
+        new int[] { 0, 5, 6 },
+        Filter.or(Filter.lt(0), Filter.gt(2)).findIndices(VALUES));
+
+    // NaN fails every comparison so passes the negation, but the bits past
+    // the last value must not
+    int[] not = Filter.gt(0).not().findIndices(VALUES);
+
+    Assert.assertArrayEquals("not", new int[] { 0, 1, 4 }, not);
+
+    // Nested logical filters each keep their own scratch words
+    Filter nested = Filter.and(Filter.or(Filter.lt(0), Filter.gt(2)),
+        Filter.or(Filter.finite(), Filter.eq(0)),
+        Filter.not(Filter.eq(3)));
+
+    Assert.assertArrayEquals("nested",
+        new int[] { 0 },
+        nested.findIndices(VALUES));
+  }
+
+  @Test
+  public void parallelTest() {
+    // Several blocks with a partial last word
+    double[] values = new double[300007];
+
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = i % 7;
+    }
+
+    BooleanMatrix mask = Filter.and(Filter.ge(2), Filter.lt(4)).find(values);
+
+    int count = 0;
+
+    for (int i = 0; i < values.length; ++i) {
+      boolean b = values[i] >= 2 && values[i] < 4;
+
+      Assert.assertEquals("value " + i, b, mask.getBool(i, 0));
+
+      if (b) {
+        ++count;
+      }
+    }
+
+    Assert.assertEquals("count", count, mask.count());
+  }
+
+  @Test
+  public void findRowsTest() {
+    int rows = 1000;
+
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(rows, 3);
+    IntMatrix im = new IntMatrix(rows, 3);
+
+    for (int i = 0; i < rows; ++i) {
+      for (int j = 0; j < 3; ++j) {
+        int v = (i + j) % 5;
+
+        m.update(i, j, v);
+        im.update(i, j, v);
+      }
+    }
+
+    Filter f = Filter.and(Filter.finite(), Filter.ge(3));
+
+    BooleanMatrix rows1 = f.findRows(m, 1);
+    BooleanMatrix rows2 = f.findRows(m, 2);
+    BooleanMatrix intRows = f.findRows(im, 2);
+
+    for (int i = 0; i < rows; ++i) {
+      int count = 0;
+
+      for (int j = 0; j < 3; ++j) {
+        if ((i + j) % 5 >= 3) {
+          ++count;
+        }
+      }
+
+      Assert.assertEquals("min 1 row " + i, count >= 1, rows1.getBool(i, 0));
+      Assert.assertEquals("min 2 row " + i, count >= 2, rows2.getBool(i, 0));
+      Assert.assertEquals("int row " + i, count >= 2, intRows.getBool(i, 0));
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jebtk.math.instrument.Counter;
+import org.jebtk.math.instrument.Instrumentation;
+import org.jebtk.math.instrument.MetricsSink;
+import org.jebtk.math.instrument.PrintStreamMetricsSink;
+import org.jebtk.math.instrument.Timer;
+import org.jebtk.math.matrix.CsvMatrixParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class InstrumentationTest.
+ */
+public class InstrumentationTest {
+
+  /**
+   * Records exported counters.
+   */
+  private static class Recorder implements MetricsSink {
+    private final Map<String, Long> mCounters = new HashMap<String, Long>();
+
+    @Override
+    public void event(String name, Object... values) {
+      // Do nothing
+    }
+
+    @Override
+    public void counter(String name, long value) {
+      mCounters.put(name, value);
+    }
+
+    @Override
+    public void timer(String name, long count, long nanos) {
+      mCounters.put(name, count);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    Instrumentation.getInstance().setSink(null);
+    Instrumentation.getInstance().reset();
+  }
+
+  @Test
+  public void disabledTest() {
+    Instrumentation instrumentation = Instrumentation.getInstance();
+
+    Assert.assertFalse("disabled", instrumentation.isEnabled());
+
+    Counter counter = instrumentation.counter("test.disabled");
+
+    counter.add(5);
+
+    Assert.assertEquals("count", 0, counter.get());
+
+    Timer timer = instrumentation.timer("test.disabled");
+
+    timer.stop(timer.start());
+
+    Assert.assertEquals("timed", 0, timer.getCount());
+  }
+
+  @Test
+  public void counterTest() {
+    Instrumentation instrumentation = Instrumentation.getInstance();
+
+    Recorder recorder = new Recorder();
+
+    instrumentation.setSink(recorder);
+
+    Counter counter = instrumentation.counter("test.counter");
+
+    Assert.assertSame("same counter",
+        counter,
+        instrumentation.counter("test.counter"));
+
+    counter.add(5);
+    counter.inc();
+
+    Timer timer = instrumentation.timer("test.timer");
+
+    timer.stop(timer.start());
+
+    instrumentation.export();
+
+    Assert.assertEquals("count",
+        6,
+        (long) recorder.mCounters.get("test.counter"));
+    Assert.assertEquals("timed",
+        1,
+        (long) recorder.mCounters.get("test.timer"));
+
+    instrumentation.reset();
+
+    Assert.assertEquals("reset", 0, counter.get());
+  }
+
+  @Test
+  public void parserTest() throws IOException {
+    Instrumentation instrumentation = Instrumentation.getInstance();
+
+    Recorder recorder = new Recorder();
+
+    instrumentation.setSink(recorder);
+    instrumentation.reset();
+
+    Path file = Files.createTempFile("instrument", ".csv");
+
+    try {
+      byte[] data = "a,b\n1,2\n3,4\n".getBytes(StandardCharsets.UTF_8);
+
+      Files.write(file, data);
+
+      new CsvMatrixParser().parse(file);
+    } finally {
+      Files.delete(file);
+    }
+
+    instrumentation.export();
+
+    Assert.assertEquals("rows",
+        2,
+        (long) recorder.mCounters.get("parser.rows"));
+    Assert.assertEquals("bytes",
+        12,
+        (long) recorder.mCounters.get("parser.file.bytes"));
+    Assert.assertEquals("parses",
+        1,
+        (long) recorder.mCounters.get("parser.parse"));
+  }
+
+  @Test
+  public void printTest() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    MetricsSink sink = new PrintStreamMetricsSink(
+        new PrintStream(bytes, true));
+
+    sink.event("e", 1, "x");
+    sink.counter("c", 2);
+    sink.timer("t", 3, 4);
+
+    String[] lines = bytes.toString().split("\\r?\\n");
+
+    Assert.assertArrayEquals("lines",
+        new String[] { "event\te\t1\tx", "counter\tc\t2", "timer\tt\t3\t4" },
+        lines);
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.matrix.stream.MatrixExpr;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class MatrixExprTest.
+ */
+public class MatrixExprTest {
+
+  @Test
+  public void fusedTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 2, 1, 2, 3, 4);
+
+    MatrixExpr e = MatrixExpr.create(m).add(1).multiply(2);
+
+    Assert.assertEquals(1, e.getPasses());
+
+    Matrix ret = e.toMatrix();
+
+    Assert.assertEquals(4, ret.getValue(0, 0), 0);
+    Assert.assertEquals(10, ret.getValue(1, 1), 0);
+    Assert.assertEquals(28, e.sum(), 0);
+    Assert.assertEquals(7, e.mean(), 0);
+    Assert.assertEquals(4, e.min(), 0);
+    Assert.assertEquals(10, e.max(), 0);
+
+    // The source is not modified
+    Assert.assertEquals(1, m.getValue(0, 0), 0);
+  }
+
+  @Test
+  public void zscoreTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 2, 1, 3, 5, Double.NaN);
+
+    MatrixExpr e = MatrixExpr.create(m).rowZscore();
+
+    Assert.assertEquals(2, e.getPasses());
+
+    Matrix ret = e.toMatrix();
+
+    Assert.assertEquals(-1, ret.getValue(0, 0), 1e-12);
+    Assert.assertEquals(1, ret.getValue(0, 1), 1e-12);
+    Assert.assertEquals("constant row", 0, ret.getValue(1, 0), 0);
+    Assert.assertTrue("invalid stays NaN",
+        Double.isNaN(ret.getValue(1, 1)));
+  }
+
+  @Test
+  public void scaleTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(1, 3, 2, 4, 6);
+
+    Matrix ret = MatrixExpr.create(m).scale().toMatrix();
+
+    Assert.assertEquals(0, ret.getValue(0, 0), 0);
+    Assert.assertEquals(0.5, ret.getValue(0, 1), 0);
+    Assert.assertEquals(1, ret.getValue(0, 2), 0);
+
+    DoubleMatrix constant = DoubleMatrix.createDoubleMatrix(1, 2, 3, 3);
+
+    ret = MatrixExpr.create(constant).scale().toMatrix();
+
+    Assert.assertEquals(0, ret.getValue(0, 0), 0);
+    Assert.assertEquals(0, ret.getValue(0, 1), 0);
+  }
+
+  @Test
+  public void noValidValuesTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(1, 2, Double.NaN,
+        Double.NaN);
+
+    MatrixExpr e = MatrixExpr.create(m).add(1);
+
+    Assert.assertTrue(Double.isNaN(e.mean()));
+    Assert.assertTrue(Double.isNaN(e.min()));
+    Assert.assertTrue(Double.isNaN(e.max()));
+    Assert.assertEquals(0, e.sum(), 0);
+
+    Assert.assertTrue(Double.isNaN(MatrixExpr.create(m).zscore().mean()));
+  }
+
+  @Test
+  public void binaryTest() {
+    DoubleMatrix m1 = DoubleMatrix.createDoubleMatrix(1, 2, 1, 2);
+    DoubleMatrix m2 = DoubleMatrix.createDoubleMatrix(1, 2, 3, 4);
+
+    MatrixExpr e = MatrixExpr.create(m1)
+        .multiply(MatrixExpr.create(m2).add(1));
+
+    Assert.assertEquals(4, e.toMatrix().getValue(0, 0), 0);
+    Assert.assertEquals(10, e.toMatrix().getValue(0, 1), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void binaryShapeTest() {
+    DoubleMatrix m1 = DoubleMatrix.createDoubleMatrix(1, 2);
+    DoubleMatrix m2 = DoubleMatrix.createDoubleMatrix(2, 1);
+
+    MatrixExpr.create(m1).add(MatrixExpr.create(m2));
+  }
+
+  @Test
+  public void annotationTest() {
+    DataFrame m = new DataFrame(
+        DoubleMatrix.createDoubleMatrix(2, 2, 1, 2, 3, 4));
+
+    m.setColumnNames("A", "B");
+    m.setRowNames("r1", "r2");
+
+    Matrix ret = MatrixExpr.create(m).log2().toMatrix();
+
+    Assert.assertTrue(ret instanceof DataFrame);
+
+    DataFrame f = (DataFrame) ret;
+
+    Assert.assertEquals("B", f.getColumnName(1));
+    Assert.assertEquals("r2", f.getRowName(1));
+    Assert.assertEquals(2, f.getValue(1, 1), 1e-12);
+  }
+}
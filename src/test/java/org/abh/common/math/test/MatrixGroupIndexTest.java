@@ -0,0 +1,76 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.jebtk.math.matrix.MatrixGroupIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class MatrixGroupIndexTest.
+ */
+public class MatrixGroupIndexTest {
+
+  private static final List<MatrixGroup> GROUPS = Arrays.asList(
+      MatrixGroup.create("A", "^a", Color.RED),
+      MatrixGroup.create("B", "b", Color.BLUE));
+
+  private static DataFrame create() {
+    DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(1, 4));
+
+    m.setColumnNames("a1", "b1", "a2", "ab");
+
+    return m;
+  }
+
+  @Test
+  public void indexTest() {
+    MatrixGroupIndex index = MatrixGroupIndex.createColumnIndex(create(),
+        GROUPS);
+
+    Assert.assertEquals("size", 2, index.size());
+    Assert.assertArrayEquals("A", new int[] { 0, 2, 3 }, index.getIndices(0));
+    Assert.assertArrayEquals("B", new int[] { 1, 3 }, index.getIndices(1));
+    Assert.assertEquals("list", Arrays.asList(1, 3), index.toList(1));
+
+    Assert.assertArrayEquals("a1", new int[] { 0 }, index.getGroups(0));
+    Assert.assertArrayEquals("ab", new int[] { 0, 1 }, index.getGroups(3));
+  }
+
+  @Test
+  public void renameTest() {
+    DataFrame m = create();
+
+    Assert.assertArrayEquals("before",
+        new int[] { 0, 2, 3 },
+        MatrixGroupIndex.createColumnIndex(m, GROUPS).getIndices(0));
+
+    // Renaming a column must not return the cached matches
+    m.setColumnNames("c1", "b1", "a2", "ab");
+
+    MatrixGroupIndex index = MatrixGroupIndex.createColumnIndex(m, GROUPS);
+
+    Assert.assertArrayEquals("after", new int[] { 2, 3 }, index.getIndices(0));
+    Assert.assertArrayEquals("c1", new int[0], index.getGroups(0));
+  }
+}
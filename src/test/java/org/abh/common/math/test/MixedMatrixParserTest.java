@@ -0,0 +1,122 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.jebtk.math.matrix.MixedMatrixParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class MixedMatrixParserTest.
+ */
+public class MixedMatrixParserTest {
+
+  private static final String TEXT = "Id\tType\tc1\tc2\tx3\n"
+      + "r1\tgene\t1\t2\ta\n"
+      + "r2\tprobe\t3\t4\tb\n"
+      + "r3\tgene\t5\t6\tc\n";
+
+  /**
+   * Parse the test text.
+   *
+   * @param parser the parser
+   * @return the data frame
+   * @throws IOException
+   */
+  private static DataFrame parse(MixedMatrixParser parser)
+      throws IOException {
+    Path file = Files.createTempFile("mixed", ".txt");
+
+    try {
+      Files.write(file, TEXT.getBytes(StandardCharsets.UTF_8));
+
+      return parser.parse(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static MixedMatrixParser parser() {
+    return new MixedMatrixParser(1, 2, "\t");
+  }
+
+  @Test
+  public void parseTest() throws IOException {
+    DataFrame m = parse(parser());
+
+    Assert.assertEquals("rows", 3, m.getRows());
+    Assert.assertEquals("cols", 3, m.getCols());
+    Assert.assertEquals("name", "c2", m.getColumnName(1));
+    Assert.assertEquals("(1, 1)", 4, m.getValue(1, 1), 0);
+    Assert.assertEquals("(2, 2)", "c", m.getText(2, 2));
+    Assert.assertEquals("type", "probe", m.getIndex().getText("Type", 1));
+  }
+
+  @Test
+  public void columnIndicesTest() throws IOException {
+    DataFrame m = parse(parser().columns(2, 0));
+
+    Assert.assertEquals("cols", 2, m.getCols());
+    Assert.assertEquals("name 0", "x3", m.getColumnName(0));
+    Assert.assertEquals("name 1", "c1", m.getColumnName(1));
+    Assert.assertEquals("(0, 0)", "a", m.getText(0, 0));
+    Assert.assertEquals("(2, 1)", 5, m.getValue(2, 1), 0);
+
+    // Row annotations are kept
+    Assert.assertEquals("id", "r3", m.getIndex().getText("Id", 2));
+  }
+
+  @Test
+  public void columnNamesTest() throws IOException {
+    DataFrame m = parse(parser().columns(Arrays.asList("c2")));
+
+    Assert.assertEquals("cols", 1, m.getCols());
+    Assert.assertEquals("(2, 0)", 6, m.getValue(2, 0), 0);
+  }
+
+  @Test
+  public void columnGroupsTest() throws IOException {
+    DataFrame m = parse(parser()
+        .columns(MatrixGroup.create("c", "^c", Color.RED)));
+
+    Assert.assertEquals("cols", 2, m.getCols());
+    Assert.assertEquals("name 1", "c2", m.getColumnName(1));
+  }
+
+  @Test
+  public void rowsTest() throws IOException {
+    DataFrame m = parse(parser().rows("Type", Arrays.asList("gene")));
+
+    Assert.assertEquals("rows", 2, m.getRows());
+    Assert.assertEquals("id", "r3", m.getIndex().getText("Id", 1));
+    Assert.assertEquals("(1, 0)", 5, m.getValue(1, 0), 0);
+
+    m = parse(parser().rows(Arrays.asList("r2")).columns(1));
+
+    Assert.assertEquals("rows", 1, m.getRows());
+    Assert.assertEquals("cols", 1, m.getCols());
+    Assert.assertEquals("(0, 0)", 4, m.getValue(0, 0), 0);
+  }
+}
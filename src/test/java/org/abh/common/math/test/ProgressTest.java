@@ -0,0 +1,177 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.jebtk.math.machine.learning.C45;
+import org.jebtk.math.machine.learning.RandomForest;
+import org.jebtk.math.matrix.CsvMatrixParser;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.jebtk.math.progress.CancellationToken;
+import org.jebtk.math.progress.Progress;
+import org.jebtk.math.progress.ProgressListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class ProgressTest.
+ */
+public class ProgressTest {
+
+  /**
+   * Records the fractions reported.
+   */
+  private static class Recorder implements ProgressListener {
+    private final List<Double> mFractions = new ArrayList<Double>();
+
+    @Override
+    public synchronized void progress(String phase, double fraction) {
+      mFractions.add(fraction);
+    }
+  }
+
+  private static final List<MatrixGroup> GROUPS = Arrays.asList(
+      MatrixGroup.create("A", "a.*", Color.RED),
+      MatrixGroup.create("B", "b.*", Color.BLUE));
+
+  private static DataFrame create() {
+    DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(2, 4));
+
+    for (int j = 0; j < 4; ++j) {
+      m.update(0, j, j);
+      m.update(1, j, -j);
+    }
+
+    m.setRowNames("x", "y");
+    m.setColumnNames("a1", "a2", "b1", "b2");
+
+    return m;
+  }
+
+  @Test
+  public void updateTest() {
+    Recorder recorder = new Recorder();
+
+    Progress progress = new Progress(recorder);
+
+    progress.update("phase", 0.5);
+    progress.update("phase", 3, 4);
+    progress.update("phase", 5, 4);
+    progress.update("phase", 0, 0);
+
+    Assert.assertEquals("fractions",
+        Arrays.asList(0.5, 0.75, 1.0, 1.0),
+        recorder.mFractions);
+    Assert.assertFalse("not cancelled", progress.isCancelled());
+  }
+
+  @Test
+  public void cancelTest() {
+    CancellationToken token = new CancellationToken();
+    Recorder recorder = new Recorder();
+
+    Progress progress = new Progress(recorder, token);
+
+    progress.check();
+
+    token.cancel();
+
+    Assert.assertTrue("cancelled", progress.isCancelled());
+
+    try {
+      progress.update("phase", 0.5);
+      Assert.fail("expected cancellation");
+    } catch (CancellationException e) {
+      // Expected
+    }
+
+    // Cancelled updates are not reported
+    Assert.assertTrue("reported", recorder.mFractions.isEmpty());
+  }
+
+  @Test
+  public void treeTest() {
+    Recorder recorder = new Recorder();
+
+    C45.parseDouble(create(), GROUPS, new Progress(recorder));
+
+    Assert.assertFalse("reported", recorder.mFractions.isEmpty());
+    Assert.assertEquals("done",
+        1.0,
+        recorder.mFractions.get(recorder.mFractions.size() - 1),
+        0);
+  }
+
+  @Test(expected = CancellationException.class)
+  public void cancelTreeTest() {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+
+    C45.parseDouble(create(), GROUPS, new Progress(token));
+  }
+
+  @Test(expected = CancellationException.class)
+  public void cancelForestTest() {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+
+    RandomForest.train(create(), GROUPS, 10, 0, 1, new Progress(token));
+  }
+
+  @Test
+  public void parseTest() throws IOException {
+    Path file = Files.createTempFile("progress", ".csv");
+
+    try {
+      Files.write(file,
+          "a,b\n1,2\n3,4\n".getBytes(StandardCharsets.UTF_8));
+
+      Recorder recorder = new Recorder();
+
+      DataFrame m = new CsvMatrixParser()
+          .parse(file, new Progress(recorder));
+
+      Assert.assertEquals("rows", 2, m.getRows());
+      Assert.assertEquals("done",
+          1.0,
+          recorder.mFractions.get(recorder.mFractions.size() - 1),
+          0);
+
+      CancellationToken token = new CancellationToken();
+      token.cancel();
+
+      try {
+        new CsvMatrixParser().parse(file, new Progress(token));
+        Assert.fail("expected cancellation");
+      } catch (CancellationException e) {
+        // Expected
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jebtk.core.tree.TreeNode;
+import org.jebtk.math.machine.learning.Decision;
+import org.jebtk.math.machine.learning.RandomForest;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.MatrixGroup;
+import org.jebtk.math.progress.Progress;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class RandomForestTest.
+ */
+public class RandomForestTest {
+
+  private static final List<MatrixGroup> GROUPS = Arrays.asList(
+      MatrixGroup.create("A", "a.*", Color.RED),
+      MatrixGroup.create("B", "b.*", Color.BLUE));
+
+  /**
+   * Create a frame of random attributes (rows) for samples (columns) of
+   * class A and B. Attributes before separating are drawn from [0, 1) for
+   * class A and [5, 6) for class B, the rest from [0, 1) for both.
+   *
+   * @param samples the samples of each class
+   * @param attributes the attributes
+   * @param separating the number of attributes that separate the classes
+   * @return the data frame
+   */
+  private static DataFrame create(int samples,
+      int attributes,
+      int separating) {
+    Random random = new Random(7);
+
+    DataFrame m = new DataFrame(
+        DoubleMatrix.createDoubleMatrix(attributes, 2 * samples));
+
+    String[] names = new String[2 * samples];
+
+    for (int j = 0; j < 2 * samples; ++j) {
+      boolean b = j >= samples;
+
+      names[j] = (b ? "b" : "a") + j;
+
+      for (int i = 0; i < attributes; ++i) {
+        double v = random.nextDouble();
+
+        if (b && i < separating) {
+          v += 5;
+        }
+
+        m.update(i, j, v);
+      }
+    }
+
+    String[] rows = new String[attributes];
+
+    for (int i = 0; i < attributes; ++i) {
+      rows[i] = "att" + i;
+    }
+
+    m.setRowNames(rows);
+    m.setColumnNames(names);
+
+    return m;
+  }
+
+  /**
+   * Write a tree as text so trees can be compared.
+   *
+   * @param node the node
+   * @param buffer the buffer
+   */
+  private static void format(TreeNode<Decision> node, StringBuilder buffer) {
+    buffer.append('(').append(node.getName());
+
+    Decision d = node.getValue();
+
+    if (d != null) {
+      buffer.append(' ').append(d.getAttIdx()).append(' ')
+          .append(d.getPivot());
+    }
+
+    for (int i = 0; i < node.getChildCount(); ++i) {
+      format(node.getChild(i), buffer);
+    }
+
+    buffer.append(')');
+  }
+
+  private static String format(RandomForest forest) {
+    StringBuilder buffer = new StringBuilder();
+
+    for (TreeNode<Decision> tree : forest.getTrees()) {
+      format(tree, buffer);
+    }
+
+    return buffer.toString();
+  }
+
+  @Test
+  public void determinismTest() {
+    DataFrame m = create(30, 6, 1);
+
+    RandomForest f1 = RandomForest.train(m, GROUPS, 20, 0, 42, Progress.NONE);
+    RandomForest f2 = RandomForest.train(m, GROUPS, 20, 0, 42, Progress.NONE);
+
+    Assert.assertEquals("trees", 20, f1.getTrees().size());
+    Assert.assertEquals("same trees", format(f1), format(f2));
+    Assert.assertEquals("same oob error",
+        f1.getOobError(),
+        f2.getOobError(),
+        0);
+
+    RandomForest f3 = RandomForest.train(m, GROUPS, 20, 0, 43, Progress.NONE);
+
+    Assert.assertNotEquals("other seed", format(f1), format(f3));
+  }
+
+  @Test
+  public void separableTest() {
+    // Every attribute separates the classes so every split is perfect
+    DataFrame m = create(20, 4, 4);
+
+    RandomForest forest = RandomForest.train(m,
+        GROUPS,
+        50,
+        0,
+        1,
+        Progress.NONE);
+
+    Assert.assertEquals("classes",
+        Arrays.asList("A", "B"),
+        forest.getClasses());
+    Assert.assertEquals("oob error", 0, forest.getOobError(), 0);
+
+    Assert.assertEquals("A",
+        "A",
+        forest.classify(new double[] { 0.5, 0.5, 0.5, 0.5 }));
+    Assert.assertEquals("B",
+        "B",
+        forest.classify(new double[] { 5.5, 5.5, 5.5, 5.5 }));
+
+    String[] ret = forest.classify(m);
+
+    for (int i = 0; i < ret.length; ++i) {
+      Assert.assertEquals("sample " + i, i < 20 ? "A" : "B", ret[i]);
+    }
+  }
+
+  @Test
+  public void noiseTest() {
+    // With no signal the out-of-bag error is around chance
+    DataFrame m = create(100, 4, 0);
+
+    RandomForest forest = RandomForest.train(m,
+        GROUPS,
+        50,
+        0,
+        1,
+        Progress.NONE);
+
+    Assert.assertTrue("oob error " + forest.getOobError(),
+        forest.getOobError() > 0.25);
+  }
+}
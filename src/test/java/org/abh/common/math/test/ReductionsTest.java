@@ -0,0 +1,171 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.MatrixDimFunction;
+import org.jebtk.math.matrix.MatrixReduceFunction;
+import org.jebtk.math.matrix.utils.MatrixOperations;
+import org.jebtk.math.matrix.utils.MatrixRowSumFunction;
+import org.jebtk.math.matrix.utils.Reductions;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class ReductionsTest.
+ */
+public class ReductionsTest {
+
+  /** Large enough to be split into several parallel blocks. */
+  private static final int ROWS = 5000;
+
+  private static final int COLS = 20;
+
+  /**
+   * Create a large matrix with row i, column j set to i + j.
+   *
+   * @return the double matrix
+   */
+  private static DoubleMatrix createLarge() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(ROWS, COLS);
+
+    for (int i = 0; i < ROWS; ++i) {
+      for (int j = 0; j < COLS; ++j) {
+        m.set(i, j, i + j);
+      }
+    }
+
+    return m;
+  }
+
+  @Test
+  public void statTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 3, 1, 2, 3, 4,
+        Double.NaN, 6);
+
+    Assert.assertEquals("sum", 16, MatrixOperations.sum(m), 0);
+    Assert.assertEquals("mean", 3.2, MatrixOperations.mean(m), 1e-12);
+    Assert.assertEquals("min", 1, MatrixOperations.min(m), 0);
+    Assert.assertEquals("max", 6, MatrixOperations.max(m), 0);
+    Assert.assertEquals("row mean", 5, MatrixOperations.mean(m, 1), 0);
+  }
+
+  @Test
+  public void noValidValuesTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 2, 1, 2,
+        Double.NaN, Double.NaN);
+
+    Assert.assertTrue("row mean",
+        Double.isNaN(MatrixOperations.mean(m, 1)));
+    Assert.assertTrue("row min", Double.isNaN(m.rowStat(Reductions.MIN, 1)));
+    Assert.assertTrue("row max", Double.isNaN(m.rowStat(Reductions.MAX, 1)));
+
+    DoubleMatrix nan = DoubleMatrix.createDoubleMatrix(2, 2);
+    nan.set(Double.NaN);
+
+    Assert.assertTrue("mean", Double.isNaN(MatrixOperations.mean(nan)));
+    Assert.assertTrue("min", Double.isNaN(MatrixOperations.min(nan)));
+    Assert.assertTrue("max", Double.isNaN(MatrixOperations.max(nan)));
+  }
+
+  @Test
+  public void largeStatTest() {
+    DoubleMatrix m = createLarge();
+
+    Assert.assertEquals("min", 0, MatrixOperations.min(m), 0);
+    Assert.assertEquals("max", ROWS + COLS - 2, MatrixOperations.max(m), 0);
+    Assert.assertEquals("mean", (ROWS + COLS - 2) / 2.0,
+        MatrixOperations.mean(m), 1e-9);
+  }
+
+  @Test
+  public void statelessRowEvalTest() {
+    DoubleMatrix m = createLarge();
+
+    double[] ret = new double[ROWS];
+
+    m.rowEval(new MatrixRowSumFunction(), ret);
+
+    for (int i = 0; i < ROWS; ++i) {
+      Assert.assertEquals("row " + i, COLS * i + COLS * (COLS - 1) / 2,
+          ret[i], 0);
+    }
+  }
+
+  @Test
+  public void statefulRowEvalTest() {
+    DoubleMatrix m = createLarge();
+
+    final List<Integer> order = new ArrayList<Integer>();
+
+    // Not thread safe and relies on being called in order
+    MatrixReduceFunction f = new MatrixReduceFunction() {
+      @Override
+      public double apply(int index, double[] data) {
+        order.add(index);
+
+        return data[0];
+      }
+    };
+
+    double[] ret = new double[ROWS];
+
+    m.rowEval(f, ret);
+
+    Assert.assertEquals("calls", ROWS, order.size());
+
+    for (int i = 0; i < ROWS; ++i) {
+      Assert.assertEquals("order", i, (int) order.get(i));
+      Assert.assertEquals("row " + i, i, ret[i], 0);
+    }
+  }
+
+  @Test
+  public void statefulColEvalTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(COLS, ROWS);
+
+    for (int i = 0; i < COLS; ++i) {
+      for (int j = 0; j < ROWS; ++j) {
+        m.set(i, j, j);
+      }
+    }
+
+    final List<Integer> order = new ArrayList<Integer>();
+
+    MatrixDimFunction f = new MatrixDimFunction() {
+      @Override
+      public void apply(int index, double[] data, double[] ret) {
+        order.add(index);
+
+        ret[index] = data[0];
+      }
+    };
+
+    double[] ret = new double[ROWS];
+
+    m.colEval(f, ret);
+
+    Assert.assertEquals("calls", ROWS, order.size());
+
+    for (int i = 0; i < ROWS; ++i) {
+      Assert.assertEquals("order", i, (int) order.get(i));
+      Assert.assertEquals("col " + i, i, ret[i], 0);
+    }
+  }
+}
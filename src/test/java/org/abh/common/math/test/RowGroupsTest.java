@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.utils.RowGroups;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class RowGroupsTest.
+ */
+public class RowGroupsTest {
+
+  /**
+   * Create a frame of 5 rows in groups x, y, x, z, y with two columns.
+   *
+   * @return the data frame
+   */
+  private static DataFrame create() {
+    DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(5, 2));
+
+    double[][] values = { { 1, 10 }, { 2, 20 }, { 3, 30 }, { 4, 40 },
+        { 5, 50 } };
+
+    for (int i = 0; i < values.length; ++i) {
+      m.update(i, 0, values[i][0]);
+      m.update(i, 1, values[i][1]);
+    }
+
+    m.getIndex().setAnnotation("Gene",
+        new String[] { "x", "y", "x", "z", "y" });
+
+    return m;
+  }
+
+  @Test
+  public void groupTest() {
+    RowGroups groups = new RowGroups(create(), "Gene");
+
+    // Groups are numbered in the order they first appear
+    Assert.assertEquals("size", 3, groups.size());
+    Assert.assertEquals("group 2", 0, groups.getGroup(2));
+    Assert.assertEquals("group 3", 2, groups.getGroup(3));
+
+    Assert.assertArrayEquals("x", new int[] { 0, 2 }, groups.getRows(0));
+    Assert.assertArrayEquals("y", new int[] { 1, 4 }, groups.getRows(1));
+    Assert.assertArrayEquals("z", new int[] { 3 }, groups.getRows(2));
+
+    Assert.assertEquals("count", 2, groups.getRowCount(1));
+    Assert.assertEquals("first", 1, groups.getFirst(1));
+  }
+
+  @Test
+  public void bestTest() {
+    RowGroups groups = new RowGroups(create(), "Gene");
+
+    double[] scores = { 5, 1, 7, 0, 1 };
+
+    Assert.assertArrayEquals("max", new int[] { 2, 1, 3 },
+        groups.best(scores, true));
+
+    // Ties keep the first row of the group
+    Assert.assertArrayEquals("min", new int[] { 0, 1, 3 },
+        groups.best(scores, false));
+
+    Assert.assertArrayEquals("sorted", new int[] { 1, 2, 3 },
+        groups.bestRows(scores, true));
+  }
+
+  @Test
+  public void reduceTest() {
+    DataFrame m = create();
+
+    DataFrame sum = new RowGroups(m, "Gene").reduce(m, RowGroups.SUM);
+
+    Assert.assertEquals("rows", 3, sum.getRows());
+    Assert.assertEquals("x", 4, sum.getValue(0, 0), 0);
+    Assert.assertEquals("y", 70, sum.getValue(1, 1), 0);
+    Assert.assertEquals("z", 4, sum.getValue(2, 0), 0);
+    Assert.assertEquals("annotation", "y", sum.getIndex().getText("Gene", 1));
+
+    DataFrame mean = new RowGroups(m, "Gene").reduce(m, RowGroups.MEAN);
+
+    Assert.assertEquals("mean", 35, mean.getValue(1, 1), 0);
+  }
+
+  @Test
+  public void collapseTest() {
+    DataFrame m = create();
+
+    // Keep the row of each group with the largest first column
+    DataFrame ret = RowGroups.collapse(m, "Gene", (i, data) -> data[0], true);
+
+    // The rows kept are in their original order
+    Assert.assertEquals("rows", 3, ret.getRows());
+    Assert.assertEquals("x", 3, ret.getValue(0, 0), 0);
+    Assert.assertEquals("z", 4, ret.getValue(1, 0), 0);
+    Assert.assertEquals("y", 5, ret.getValue(2, 0), 0);
+  }
+
+  @Test
+  public void unknownAnnotationTest() {
+    DataFrame m = create();
+
+    try {
+      new RowGroups(m, "Gen");
+      Assert.fail("unknown annotation");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // The frame must not gain the misspelled annotation
+    Assert.assertEquals("names", 1, m.getIndex().getNames().size());
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jebtk.math.matrix.ColumnType;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.MatrixSchema;
+import org.jebtk.math.matrix.SchemaMatrixParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class SchemaMatrixParserTest.
+ */
+public class SchemaMatrixParserTest {
+
+  private final List<Path> mFiles = new ArrayList<Path>();
+
+  private Path write(String... lines) throws IOException {
+    Path file = Files.createTempFile("schema", ".txt");
+
+    mFiles.add(file);
+
+    Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+
+    return file;
+  }
+
+  @After
+  public void deleteFiles() throws IOException {
+    for (Path file : mFiles) {
+      Files.deleteIfExists(file);
+    }
+
+    MatrixSchema.clearCache();
+  }
+
+  @Test
+  public void classifyTest() {
+    Assert.assertNull(MatrixSchema.classify(""));
+    Assert.assertEquals(ColumnType.INT, MatrixSchema.classify("-12"));
+    Assert.assertEquals(ColumnType.INT, MatrixSchema.classify("2147483647"));
+    Assert.assertEquals(ColumnType.LONG,
+        MatrixSchema.classify("2147483648"));
+    Assert.assertEquals(ColumnType.DOUBLE,
+        MatrixSchema.classify("99999999999999999999"));
+    Assert.assertEquals(ColumnType.DOUBLE, MatrixSchema.classify("1e-5"));
+    Assert.assertEquals(ColumnType.DOUBLE, MatrixSchema.classify(".5"));
+    Assert.assertEquals(ColumnType.DOUBLE, MatrixSchema.classify("NaN"));
+    Assert.assertEquals(ColumnType.DOUBLE,
+        MatrixSchema.classify("-Infinity"));
+    Assert.assertEquals(ColumnType.BOOL, MatrixSchema.classify("TRUE"));
+    Assert.assertEquals(ColumnType.TEXT, MatrixSchema.classify("trueish"));
+    Assert.assertEquals(ColumnType.TEXT, MatrixSchema.classify("1.2.3"));
+    Assert.assertEquals(ColumnType.TEXT, MatrixSchema.classify("chr1"));
+  }
+
+  @Test
+  public void mergeTest() {
+    Assert.assertEquals(ColumnType.INT,
+        MatrixSchema.merge(null, ColumnType.INT));
+    Assert.assertEquals(ColumnType.INT,
+        MatrixSchema.merge(ColumnType.INT, null));
+    Assert.assertEquals(ColumnType.LONG,
+        MatrixSchema.merge(ColumnType.INT, ColumnType.LONG));
+    Assert.assertEquals(ColumnType.DOUBLE,
+        MatrixSchema.merge(ColumnType.LONG, ColumnType.DOUBLE));
+    Assert.assertEquals(ColumnType.TEXT,
+        MatrixSchema.merge(ColumnType.BOOL, ColumnType.INT));
+    Assert.assertEquals(ColumnType.TEXT,
+        MatrixSchema.merge(ColumnType.DOUBLE, ColumnType.TEXT));
+  }
+
+  @Test
+  public void inferTest() {
+    List<List<String>> sample = new ArrayList<List<String>>();
+
+    sample.add(Arrays.asList("g1", "1", "1.5", "true", "3"));
+    sample.add(Arrays.asList("g2", "2", "", "false", "3000000000"));
+    sample.add(Arrays.asList("g3", "", "2", "", "4"));
+
+    List<String> header = Arrays.asList("Id", "A", "B", "C", "D");
+
+    // Estimated annotations run up to the last text column
+    Assert.assertEquals(4,
+        MatrixSchema.infer(header, sample, -1).getRowAnnotations());
+
+    MatrixSchema schema = MatrixSchema.infer(header, sample, 1);
+
+    Assert.assertEquals(1, schema.getRowAnnotations());
+    Assert.assertEquals(4, schema.getCols());
+
+    // Integers with missing values are stored as doubles
+    Assert.assertEquals(ColumnType.DOUBLE, schema.getType(0));
+    Assert.assertEquals(ColumnType.DOUBLE, schema.getType(1));
+    // Booleans with missing values are stored as text
+    Assert.assertEquals(ColumnType.TEXT, schema.getType(2));
+    Assert.assertEquals(ColumnType.LONG, schema.getType(3));
+  }
+
+  @Test
+  public void widenTest() throws IOException {
+    Path file = write("Id\tA\tB\tC",
+        "g1\t1\t1\t1",
+        "g2\t2\t1e-5\t2.5",
+        "g3\tx\tNaN\t3",
+        "g4\t4\ttext\t");
+
+    MatrixSchema schema = new MatrixSchema(
+        Arrays.asList("Id", "A", "B", "C"), 1, ColumnType.INT,
+        ColumnType.DOUBLE, ColumnType.INT);
+
+    SchemaMatrixParser parser = new SchemaMatrixParser(schema, 1, "\t");
+
+    DataFrame m = parser.parse(file);
+
+    Assert.assertEquals(4, m.getRows());
+    Assert.assertEquals(3, m.getCols());
+
+    Assert.assertEquals(ColumnType.TEXT, parser.getSchema().getType(0));
+    Assert.assertEquals(ColumnType.TEXT, parser.getSchema().getType(1));
+    Assert.assertEquals(ColumnType.DOUBLE, parser.getSchema().getType(2));
+
+    // Cells read before a column was widened to text keep their original
+    // text
+    String[] a = { "1", "2", "x", "4" };
+    String[] b = { "1", "1e-5", "NaN", "text" };
+
+    for (int i = 0; i < 4; ++i) {
+      Assert.assertEquals(a[i], m.getText(i, 0));
+      Assert.assertEquals(b[i], m.getText(i, 1));
+    }
+
+    Assert.assertEquals(1, m.getValue(0, 2), 0);
+    Assert.assertEquals(2.5, m.getValue(1, 2), 0);
+    Assert.assertTrue(Double.isNaN(m.getValue(3, 2)));
+  }
+
+  @Test
+  public void headerlessReuseTest() throws IOException {
+    Path file1 = write("g1\t1\t2", "g2\t3\t4");
+    Path file2 = write("g1\tx\t1.5", "g2\ty\t2.5");
+
+    SchemaMatrixParser parser = new SchemaMatrixParser(0, "\t");
+
+    DataFrame m1 = parser.parse(file1);
+
+    Assert.assertEquals(2, m1.getCols());
+    Assert.assertEquals(1, parser.getSchema().getRowAnnotations());
+
+    // The schema of the first file must not be applied to the second
+    DataFrame m2 = parser.parse(file2);
+
+    Assert.assertEquals(2, parser.getSchema().getRowAnnotations());
+    Assert.assertEquals(1, m2.getCols());
+    Assert.assertEquals(2.5, m2.getValue(1, 0), 0);
+  }
+
+  @Test
+  public void headerlessGivenSchemaTest() throws IOException {
+    Path file = write("g1\t1\t2", "g2\t3\t4");
+
+    MatrixSchema schema = new MatrixSchema(Collections.<String> emptyList(),
+        2, ColumnType.DOUBLE);
+
+    SchemaMatrixParser parser = new SchemaMatrixParser(schema, 0, "\t");
+
+    DataFrame m = parser.parse(file);
+
+    Assert.assertEquals(1, m.getCols());
+    Assert.assertEquals(4, m.getValue(1, 0), 0);
+  }
+}
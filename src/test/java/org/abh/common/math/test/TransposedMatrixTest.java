@@ -0,0 +1,90 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.Matrix;
+import org.jebtk.math.matrix.TransposedMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class TransposedMatrixTest.
+ */
+public class TransposedMatrixTest {
+
+  @Test
+  public void viewTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 3, 1, 2, 3, 4, 5, 6);
+
+    TransposedMatrix t = new TransposedMatrix(m);
+
+    Assert.assertEquals(3, t.getRows());
+    Assert.assertEquals(2, t.getCols());
+    Assert.assertEquals(6, t.getValue(2, 1), 0);
+
+    // Writes go through to the matrix being viewed
+    t.set(0, 1, 10);
+
+    Assert.assertEquals(10, m.getValue(1, 0), 0);
+  }
+
+  @Test
+  public void copyTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 3, 1, 2, 3, 4, 5, 6);
+
+    TransposedMatrix t = new TransposedMatrix(m);
+
+    Matrix copy = t.copy();
+
+    Assert.assertEquals(3, copy.getRows());
+    Assert.assertEquals(4, copy.getValue(0, 1), 0);
+
+    copy.set(0, 1, 10);
+
+    Assert.assertEquals(4, m.getValue(1, 0), 0);
+  }
+
+  @Test
+  public void transposeTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 3, 1, 2, 3, 4, 5, 6);
+
+    Matrix tt = new TransposedMatrix(m).transpose();
+
+    Assert.assertNotSame(m, tt);
+    Assert.assertEquals(2, tt.getRows());
+    Assert.assertEquals(6, tt.getValue(1, 2), 0);
+
+    tt.set(0, 0, 10);
+
+    Assert.assertEquals("transpose does not alias", 1, m.getValue(0, 0), 0);
+  }
+
+  @Test
+  public void transposeInPlaceTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 2, 1, 2, 3, 4);
+
+    m.transposeInPlace();
+
+    Assert.assertEquals(3, m.getValue(0, 1), 0);
+    Assert.assertEquals(2, m.getValue(1, 0), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void transposeInPlaceNotSquareTest() {
+    DoubleMatrix.createDoubleMatrix(2, 3).transposeInPlace();
+  }
+}
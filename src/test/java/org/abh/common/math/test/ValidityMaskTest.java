@@ -0,0 +1,325 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.jebtk.math.matrix.IndexRowMatrix;
+import org.jebtk.math.matrix.IntMatrix;
+import org.jebtk.math.matrix.ValidityMask;
+import org.jebtk.math.matrix.utils.MatrixOperations;
+import org.jebtk.math.matrix.utils.MatrixRowSumFunction;
+import org.jebtk.math.matrix.utils.Reductions;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class ValidityMaskTest.
+ */
+public class ValidityMaskTest {
+
+  /**
+   * Create a masked 3 x 3 matrix with a NaN in the middle.
+   *
+   * @return the double matrix
+   */
+  private static DoubleMatrix createMasked() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(3, 3);
+
+    for (int i = 0; i < 9; ++i) {
+      m.update(i, i + 1);
+    }
+
+    m.update(4, Double.NaN);
+
+    m.createMask();
+
+    return m;
+  }
+
+  /**
+   * Check the mask agrees with the data cell by cell.
+   *
+   * @param m the m
+   */
+  private static void assertInSync(DoubleMatrix m) {
+    Assert.assertNotNull("mask", m.getMask());
+
+    for (int i = 0; i < m.mData.length; ++i) {
+      Assert.assertEquals("cell " + i,
+          !Double.isNaN(m.mData[i]) && !m.getMask().isExcluded(i),
+          m.getMask().isValid(i));
+    }
+  }
+
+  @Test
+  public void createTest() {
+    DoubleMatrix m = createMasked();
+
+    Assert.assertEquals("valid", 8, m.countValid());
+    Assert.assertFalse("(1, 1)", m.isValid(1, 1));
+
+    assertInSync(m);
+  }
+
+  @Test
+  public void updateTest() {
+    DoubleMatrix m = createMasked();
+
+    m.update(4, 5);
+    m.update(0, Double.NaN);
+
+    assertInSync(m);
+  }
+
+  @Test
+  public void applyTest() {
+    DoubleMatrix m = createMasked();
+
+    m.apply((r, c, x, y) -> r == 0 ? Double.NaN : x);
+    assertInSync(m);
+
+    m.apply((r, c, x, y) -> 1, 2);
+    assertInSync(m);
+    Assert.assertEquals("valid", 9, m.countValid());
+
+    DoubleMatrix m2 = createMasked();
+
+    m.apply((r, c, x, y) -> x + y[0], m2);
+    assertInSync(m);
+    Assert.assertEquals("valid", 8, m.countValid());
+  }
+
+  @Test
+  public void mapTest() {
+    DoubleMatrix m = createMasked();
+
+    m.map(x -> Double.isNaN(x) ? 0 : x);
+    assertInSync(m);
+    Assert.assertEquals("valid", 9, m.countValid());
+
+    m.mapIndexed((r, c, x) -> r == c ? Double.NaN : x);
+    assertInSync(m);
+    Assert.assertEquals("valid", 6, m.countValid());
+  }
+
+  @Test
+  public void combineTest() {
+    DoubleMatrix m = createMasked();
+
+    m.combine((x, y) -> x > 5 ? Double.NaN : x + y, 1);
+    assertInSync(m);
+
+    DoubleMatrix m2 = createMasked();
+
+    m2.combine((x, y) -> Double.isNaN(x) ? y : x, m);
+    assertInSync(m2);
+
+    m2.combineIndexed((r, c, x, y) -> c == 0 ? Double.NaN : y, m);
+    assertInSync(m2);
+  }
+
+  @Test
+  public void rowColApplyTest() {
+    DoubleMatrix m = createMasked();
+
+    m.rowApply((r, c, x, y) -> 0, 1);
+    assertInSync(m);
+    Assert.assertTrue("(1, 1)", m.isValid(1, 1));
+
+    m.colApply((r, c, x, y) -> Double.NaN, 2);
+    assertInSync(m);
+    Assert.assertEquals("valid", 6, m.countValid());
+
+    m.rowApply((r, c, x, y) -> 1);
+    assertInSync(m);
+  }
+
+  @Test
+  public void copyTest() {
+    DoubleMatrix m = createMasked();
+    DoubleMatrix m2 = createMasked();
+
+    m2.update(0, Double.NaN);
+
+    m.copyRow(m2, 0, 2);
+    assertInSync(m);
+    Assert.assertFalse("(2, 0)", m.isValid(2, 0));
+
+    m.copyColumn(m2, 1, 0);
+    assertInSync(m);
+    Assert.assertFalse("(1, 0)", m.isValid(1, 0));
+
+    m.setRow(1, new double[] { 1, 2, 3 });
+    assertInSync(m);
+
+    m.setColumn(2, new double[] { Double.NaN, Double.NaN, 1 });
+    assertInSync(m);
+  }
+
+  @Test
+  public void copyMaskTest() {
+    DoubleMatrix m = createMasked();
+
+    DoubleMatrix m2 = new DoubleMatrix(m);
+
+    m2.update(4, 1);
+
+    Assert.assertFalse("copy is independent", m.isValid(1, 1));
+    assertInSync(m2);
+  }
+
+  @Test
+  public void zscoreTest() {
+    DoubleMatrix m = createMasked();
+
+    DoubleMatrix z = MatrixOperations.zscore(m);
+
+    assertInSync(z);
+    Assert.assertFalse("(1, 1)", z.isValid(1, 1));
+
+    // The valid cells of the result have mean 0
+    double sum = 0;
+
+    for (int i = 0; i < z.mData.length; ++i) {
+      if (z.getMask().isValid(i)) {
+        sum += z.mData[i];
+      }
+    }
+
+    Assert.assertEquals("mean", 0, sum / 8, 1e-9);
+  }
+
+  @Test
+  public void noValidStatsTest() {
+    ValidityMask mask = ValidityMask.create(new double[] { Double.NaN,
+        Double.NaN, Double.NaN });
+
+    double[] data = { Double.NaN, Double.NaN, Double.NaN };
+
+    Assert.assertTrue("mean", Double.isNaN(mask.mean(data)));
+    Assert.assertTrue("sd", Double.isNaN(mask.popStdDev(data)));
+    Assert.assertTrue("slice mean", Double.isNaN(mask.mean(data, 0, 1, 3)));
+    Assert.assertTrue("slice sd",
+        Double.isNaN(mask.popStdDev(data, 0, 1, 3)));
+  }
+
+  @Test
+  public void excludeTest() {
+    DoubleMatrix m = createMasked();
+
+    m.setValid(0, 0, false);
+    Assert.assertFalse("(0, 0)", m.isValid(0, 0));
+    Assert.assertEquals("valid", 7, m.countValid());
+
+    // Bulk writes keep the exclusion
+    m.apply((r, c, x, y) -> x + 1);
+    assertInSync(m);
+    Assert.assertFalse("(0, 0) after apply", m.isValid(0, 0));
+
+    m.update(2);
+    assertInSync(m);
+    Assert.assertFalse("(0, 0) after fill", m.isValid(0, 0));
+    Assert.assertEquals("valid after fill", 8, m.countValid());
+
+    m.syncMask();
+    Assert.assertFalse("(0, 0) after sync", m.isValid(0, 0));
+
+    m.update(0, 5);
+    Assert.assertFalse("(0, 0) after update", m.isValid(0, 0));
+
+    // Removing the mark makes the cell valid again
+    m.setValid(0, 0, true);
+    Assert.assertTrue("(0, 0) included", m.isValid(0, 0));
+    assertInSync(m);
+  }
+
+  @Test
+  public void includeNaNTest() {
+    DoubleMatrix m = createMasked();
+
+    // A NaN cell cannot be made valid
+    m.setValid(1, 1, true);
+    Assert.assertFalse("(1, 1)", m.isValid(1, 1));
+  }
+
+  @Test
+  public void excludeCopyTransposeTest() {
+    DoubleMatrix m = DoubleMatrix.createDoubleMatrix(2, 3, 1, 2, 3, 4, 5,
+        6);
+
+    m.setValid(0, 2, false);
+
+    DoubleMatrix copy = new DoubleMatrix(m);
+
+    copy.apply((r, c, x, y) -> x * 2);
+    Assert.assertFalse("copy (0, 2)", copy.isValid(0, 2));
+
+    IndexRowMatrix t = (IndexRowMatrix) m.transpose();
+
+    t.update(1);
+    Assert.assertFalse("transpose (2, 0)", t.isValid(2, 0));
+    Assert.assertEquals("transpose valid", 5, t.countValid());
+  }
+
+  @Test
+  public void reductionsTest() {
+    DoubleMatrix m = createMasked();
+
+    // 1 + 2 + 3 + 4 + 6 + 7 + 8 + 9 without the NaN
+    Assert.assertEquals("sum", 40, MatrixOperations.sum(m), 0);
+
+    m.setValid(0, 0, false);
+
+    Assert.assertEquals("sum", 39, MatrixOperations.sum(m), 0);
+    Assert.assertEquals("min", 2, MatrixOperations.min(m), 0);
+    Assert.assertEquals("row mean", 2.5, MatrixOperations.mean(m, 0), 0);
+    Assert.assertEquals("col sum", 11,
+        m.colStat(Reductions.SUM, 0), 0);
+
+    // Row functions see NaN in place of invalid cells
+    double[] ret = new double[3];
+
+    m.rowEval((i, data) -> data[0], ret);
+
+    Assert.assertTrue("row 0", Double.isNaN(ret[0]));
+    Assert.assertEquals("row 1", 4, ret[1], 0);
+
+    m.rowEval(new MatrixRowSumFunction(), ret);
+
+    Assert.assertEquals("row 2", 24, ret[2], 0);
+  }
+
+  @Test
+  public void intMatrixTest() {
+    IntMatrix m = IntMatrix.createIntMatrix(2, 2);
+
+    m.set(0, 0, 1);
+    m.set(0, 1, 2);
+    m.set(1, 0, 3);
+    m.set(1, 1, 4);
+
+    m.setValid(1, 1, false);
+
+    Assert.assertEquals("sum", 6, MatrixOperations.sum(m), 0);
+
+    m.update(5);
+    Assert.assertFalse("(1, 1) after fill", m.isValid(1, 1));
+    Assert.assertEquals("sum after fill", 15, MatrixOperations.sum(m), 0);
+
+    IntMatrix copy = new IntMatrix(m);
+    Assert.assertFalse("copy (1, 1)", copy.isValid(1, 1));
+  }
+}
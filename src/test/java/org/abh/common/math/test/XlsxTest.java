@@ -0,0 +1,167 @@
+/**
+ * Copyright 2017 Antony Holmes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.abh.common.math.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.jebtk.math.external.microsoft.XlsxMatrixReader;
+import org.jebtk.math.external.microsoft.XlsxMatrixWriter;
+import org.jebtk.math.matrix.DataFrame;
+import org.jebtk.math.matrix.DoubleMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The Class XlsxTest.
+ */
+public class XlsxTest {
+
+  /**
+   * Write a small workbook with a row annotation column, a numeric column
+   * with a missing cell and a text column.
+   *
+   * @return the file
+   * @throws IOException Signals that an I/O exception has occurred.
+   */
+  private static Path createWorkbook() throws IOException {
+    Path file = Files.createTempFile("matrix", ".xlsx");
+
+    file.toFile().deleteOnExit();
+
+    try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+      Sheet sheet = workbook.createSheet("data");
+
+      Row row = sheet.createRow(0);
+      row.createCell(0).setCellValue("Gene");
+      row.createCell(1).setCellValue("Value");
+      row.createCell(2).setCellValue("Label");
+
+      row = sheet.createRow(1);
+      row.createCell(0).setCellValue("a");
+      row.createCell(1).setCellValue(1.5);
+      row.createCell(2).setCellValue("x");
+
+      row = sheet.createRow(2);
+      row.createCell(0).setCellValue("b");
+      row.createCell(2).setCellValue("y");
+
+      row = sheet.createRow(3);
+      row.createCell(0).setCellValue("c");
+      row.createCell(1).setCellValue(-2);
+      row.createCell(2).setCellValue("z");
+
+      try (OutputStream out = Files.newOutputStream(file)) {
+        workbook.write(out);
+      }
+    }
+
+    return file;
+  }
+
+  @Test
+  public void readTest() throws IOException {
+    DataFrame m = new XlsxMatrixReader(true, 1).read(createWorkbook());
+
+    Assert.assertEquals("rows", 3, m.getRows());
+    Assert.assertEquals("cols", 2, m.getCols());
+
+    Assert.assertEquals("name 0", "Value", m.getColumnName(0));
+    Assert.assertEquals("name 1", "Label", m.getColumnName(1));
+
+    Assert.assertEquals("(0, 0)", 1.5, m.getValue(0, 0), 0);
+    Assert.assertTrue("missing (1, 0)", Double.isNaN(m.getValue(1, 0)));
+    Assert.assertEquals("(2, 0)", -2, m.getValue(2, 0), 0);
+    Assert.assertEquals("(2, 1)", "z", m.getText(2, 1));
+
+    Assert.assertEquals("annotation", "b", m.getIndex().getText("Gene", 1));
+  }
+
+  @Test
+  public void sheetByNameTest() throws IOException {
+    Path file = createWorkbook();
+
+    DataFrame m = new XlsxMatrixReader(true, 1).read(file, "data");
+
+    Assert.assertEquals("rows", 3, m.getRows());
+
+    try {
+      new XlsxMatrixReader(true, 1).read(file, "missing");
+
+      Assert.fail("missing sheet");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void writeTest() throws IOException {
+    DataFrame m = new DataFrame(DoubleMatrix.createDoubleMatrix(2, 1));
+
+    m.setColumnNames("A");
+    m.update(0, 0, 1.5);
+    m.update(1, 0, Double.NaN);
+    m.getIndex().setAnnotation("Id", new String[] { "a", null });
+
+    Path file = Files.createTempFile("matrix", ".xlsx");
+
+    file.toFile().deleteOnExit();
+
+    new XlsxMatrixWriter().write(m, file);
+
+    try (XSSFWorkbook workbook = new XSSFWorkbook(
+        Files.newInputStream(file))) {
+      Sheet sheet = workbook.getSheetAt(0);
+
+      Row header = sheet.getRow(0);
+
+      Assert.assertEquals("heading", "Id",
+          header.getCell(0).getStringCellValue());
+      Assert.assertEquals("name", "A", header.getCell(1).getStringCellValue());
+
+      Row row = sheet.getRow(1);
+
+      Assert.assertEquals("id 0", "a", row.getCell(0).getStringCellValue());
+      Assert.assertEquals("(0, 0)", 1.5, row.getCell(1).getNumericCellValue(),
+          0);
+
+      row = sheet.getRow(2);
+
+      Assert.assertEquals("missing id",
+          Cell.CELL_TYPE_BLANK,
+          row.getCell(0).getCellType());
+      Assert.assertEquals("NaN",
+          Cell.CELL_TYPE_BLANK,
+          row.getCell(1).getCellType());
+
+      Assert.assertEquals("bold header",
+          Font.BOLDWEIGHT_BOLD,
+          workbook.getFontAt(header.getCell(1).getCellStyle().getFontIndex())
+              .getBoldweight());
+      Assert.assertEquals("plain data",
+          Font.BOLDWEIGHT_NORMAL,
+          workbook.getFontAt(row.getCell(1).getCellStyle().getFontIndex())
+              .getBoldweight());
+    }
+  }
+}